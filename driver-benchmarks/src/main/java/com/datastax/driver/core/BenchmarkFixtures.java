@@ -0,0 +1,186 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+/**
+ * Builds the driver internals exercised by the benchmarks, without a live cluster.
+ * <p>
+ * Protocol messages are encoded by hand (the driver only knows how to decode responses), and metadata
+ * objects are created through the same package-private factories that the control connection uses.
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {}
+
+    static final ProtocolVersion VERSION = ProtocolVersion.V3;
+
+    /**
+     * Encodes the body of a RESULT ROWS response, including the result kind.
+     */
+    static ChannelBuffer rowsBody(String keyspace, String table, String[] names, DataType[] types, Object[][] rows) {
+        ChannelBuffer body = ChannelBuffers.dynamicBuffer();
+        body.writeInt(2); // Result.Kind.ROWS
+        writeMetadata(keyspace, table, names, types, body);
+        body.writeInt(rows.length);
+        for (Object[] row : rows) {
+            for (int i = 0; i < types.length; i++) {
+                ByteBuffer value = row[i] == null ? null : types[i].serialize(row[i], VERSION);
+                CBUtil.writeValue(value, body);
+            }
+        }
+        return body;
+    }
+
+    /**
+     * Encodes the body of a RESULT PREPARED response (protocol v2+), including the result kind.
+     */
+    static ChannelBuffer preparedBody(byte[] statementId, String keyspace, String table, String[] names, DataType[] types) {
+        ChannelBuffer body = ChannelBuffers.dynamicBuffer();
+        body.writeInt(4); // Result.Kind.PREPARED
+        CBUtil.writeBytes(statementId, body);
+        writeMetadata(keyspace, table, names, types, body);
+        // Result metadata: NO_METADATA, no columns
+        body.writeInt(1 << 2);
+        body.writeInt(0);
+        return body;
+    }
+
+    private static void writeMetadata(String keyspace, String table, String[] names, DataType[] types, ChannelBuffer body) {
+        body.writeInt(1); // GLOBAL_TABLES_SPEC
+        body.writeInt(names.length);
+        CBUtil.writeString(keyspace, body);
+        CBUtil.writeString(table, body);
+        for (int i = 0; i < names.length; i++) {
+            CBUtil.writeString(names[i], body);
+            writeType(types[i], body);
+        }
+    }
+
+    private static void writeType(DataType type, ChannelBuffer body) {
+        body.writeShort(type.getName().protocolId);
+        switch (type.getName()) {
+            case LIST:
+            case SET:
+                writeType(type.getTypeArguments().get(0), body);
+                break;
+            case MAP:
+                writeType(type.getTypeArguments().get(0), body);
+                writeType(type.getTypeArguments().get(1), body);
+                break;
+            case CUSTOM:
+            case UDT:
+            case TUPLE:
+                throw new IllegalArgumentException("Unsupported type in benchmark fixtures: " + type);
+        }
+    }
+
+    static Responses.Result.Rows decodeRows(ChannelBuffer body) {
+        return (Responses.Result.Rows)Responses.Result.decoder.decode(body, VERSION);
+    }
+
+    static PreparedStatement prepared(String query, String keyspace, String table, String[] names, DataType[] types) {
+        byte[] statementId = new byte[16];
+        new Random(0).nextBytes(statementId);
+        Responses.Result.Prepared msg = (Responses.Result.Prepared)Responses.Result.decoder.decode(
+            preparedBody(statementId, keyspace, table, names, types), VERSION);
+        // An empty Metadata is enough: without table metadata, the statement simply has no routing key indexes.
+        return DefaultPreparedStatement.fromMessage(msg, new Metadata(null), VERSION, query, keyspace);
+    }
+
+    static Host newHost(String address, String datacenter) {
+        Host host = new Host(new InetSocketAddress(address, 9042), new ConvictionPolicy.Simple.Factory(), null);
+        host.setLocationInfo(datacenter, "rack1");
+        host.setUp();
+        return host;
+    }
+
+    /**
+     * Builds keyspace metadata from a fake {@code system.schema_keyspaces} row.
+     */
+    static KeyspaceMetadata keyspace(String name, String strategyClass, String strategyOptions) {
+        String[] names = { KeyspaceMetadata.KS_NAME, "durable_writes", "strategy_class", "strategy_options" };
+        DataType[] types = { DataType.text(), DataType.cboolean(), DataType.text(), DataType.text() };
+        Object[][] rows = { { name, true, strategyClass, strategyOptions } };
+
+        Responses.Result.Rows result = decodeRows(rowsBody("system", "schema_keyspaces", names, types, rows));
+        Row row = ArrayBackedRow.fromData(result.metadata.columns, null, VERSION, result.data, 0);
+        return KeyspaceMetadata.build(row, null);
+    }
+
+    /**
+     * Assigns {@code vnodes} pseudo-random (but reproducible) tokens to each host, and builds the corresponding
+     * token map.
+     */
+    static Metadata metadata(String partitioner, List<Host> hosts, int vnodes, KeyspaceMetadata... keyspaces) {
+        Token.Factory factory = Token.getFactory(partitioner);
+        Metadata metadata = new Metadata(null);
+        metadata.tokenMap = Metadata.TokenMap.build(factory, tokens(factory, hosts, vnodes, new Random(0)), Arrays.asList(keyspaces));
+        return metadata;
+    }
+
+    /**
+     * Assigns {@code vnodes} tokens, drawn from {@code random}, to each host.
+     */
+    static Map<Host, Collection<String>> tokens(Token.Factory factory, List<Host> hosts, int vnodes, Random random) {
+        byte[] seed = new byte[16];
+        Map<Host, Collection<String>> allTokens = new HashMap<Host, Collection<String>>();
+        for (Host host : hosts) {
+            List<String> tokens = new ArrayList<String>(vnodes);
+            for (int i = 0; i < vnodes; i++) {
+                random.nextBytes(seed);
+                tokens.add(factory.hash(ByteBuffer.wrap(seed)).toString());
+            }
+            allTokens.put(host, tokens);
+        }
+        return allTokens;
+    }
+
+    static ByteBuffer[] randomKeys(int count) {
+        Random random = new Random(0);
+        ByteBuffer[] keys = new ByteBuffer[count];
+        for (int i = 0; i < count; i++) {
+            byte[] key = new byte[16];
+            random.nextBytes(key);
+            keys[i] = ByteBuffer.wrap(key);
+        }
+        return keys;
+    }
+
+    /**
+     * A Cluster that is never initialized: it serves the given metadata, and its default configuration.
+     * It still starts the driver's executors, so it must be closed.
+     */
+    static class OfflineCluster extends Cluster {
+        private final Metadata metadata;
+
+        OfflineCluster(Metadata metadata) {
+            super(Cluster.builder().addContactPoint("127.0.0.1"));
+            this.metadata = metadata;
+        }
+
+        @Override
+        public Metadata getMetadata() {
+            return metadata;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.datastax.driver.core.utils.UUIDs;
+
+/**
+ * Measures binding values to a prepared statement, either all at once or with the typed setters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoundStatementBenchmark {
+
+    private PreparedStatement prepared;
+    private final UUID uuid = UUIDs.random();
+
+    @Setup
+    public void setup() {
+        prepared = BenchmarkFixtures.prepared("INSERT INTO ks.t (k, c, v1, v2, v3) VALUES (?, ?, ?, ?, ?)", "ks", "t",
+                                              new String[]{ "k", "c", "v1", "v2", "v3" },
+                                              new DataType[]{ DataType.cint(), DataType.text(), DataType.bigint(), DataType.cdouble(), DataType.uuid() });
+    }
+
+    @Benchmark
+    public BoundStatement bindVarargs() {
+        return prepared.bind(42, "foo", 1L, 1.0, uuid);
+    }
+
+    @Benchmark
+    public BoundStatement bindSetters() {
+        return prepared.bind()
+                       .setInt(0, 42)
+                       .setString(1, "foo")
+                       .setLong(2, 1L)
+                       .setDouble(3, 1.0)
+                       .setUUID(4, uuid);
+    }
+
+    @Benchmark
+    public BoundStatement bindSettersByName() {
+        return prepared.bind()
+                       .setInt("k", 42)
+                       .setString("c", "foo")
+                       .setLong("v1", 1L)
+                       .setDouble("v2", 1.0)
+                       .setUUID("v3", uuid);
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the framing layer: writing the header of an outgoing frame, and splitting an incoming buffer into frames.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FrameCodecBenchmark {
+
+    @Param({ "64", "1024", "16384" })
+    int bodySize;
+
+    @Param({ "V2", "V3" })
+    ProtocolVersion version;
+
+    private final Frame.Encoder encoder = new Frame.Encoder();
+    private final Frame.Decoder decoder = new Frame.Decoder();
+
+    private ChannelBuffer body;
+    private ChannelBuffer incoming;
+
+    @Setup
+    public void setup() throws Exception {
+        body = ChannelBuffers.wrappedBuffer(new byte[bodySize]);
+
+        // The driver never encodes responses, so build a RESULT frame by hand
+        incoming = ChannelBuffers.buffer(Frame.Header.lengthFor(version) + bodySize);
+        incoming.writeByte(0x80 | version.toInt());
+        incoming.writeByte(0);
+        if (version == ProtocolVersion.V3)
+            incoming.writeShort(1);
+        else
+            incoming.writeByte(1);
+        incoming.writeByte(Message.Response.Type.RESULT.opcode);
+        incoming.writeInt(bodySize);
+        incoming.writeBytes(new byte[bodySize]);
+    }
+
+    @Benchmark
+    public Object encode() throws Exception {
+        Frame frame = Frame.create(version, Message.Request.Type.QUERY.opcode, 1, EnumSet.noneOf(Frame.Header.Flag.class), body.duplicate());
+        return encoder.encode(null, null, frame);
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        return decoder.decode(null, null, incoming.duplicate());
+    }
+}
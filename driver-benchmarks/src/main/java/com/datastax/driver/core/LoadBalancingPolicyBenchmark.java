@@ -0,0 +1,92 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.datastax.driver.core.policies.*;
+
+/**
+ * Measures creating and fully iterating a query plan, on a cluster of 2 datacenters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class LoadBalancingPolicyBenchmark {
+
+    @Param({ "RoundRobin", "DCAwareRoundRobin", "TokenAware(DCAwareRoundRobin)" })
+    String policyName;
+
+    // Hosts per datacenter
+    @Param({ "3", "30" })
+    int hostsPerDc;
+
+    private Cluster cluster;
+    private LoadBalancingPolicy policy;
+    private Statement[] statements;
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<Host> hosts = new ArrayList<Host>();
+        for (int dc = 1; dc <= 2; dc++)
+            for (int i = 1; i <= hostsPerDc; i++)
+                hosts.add(BenchmarkFixtures.newHost("127." + dc + ".0." + i, "dc" + dc));
+
+        KeyspaceMetadata keyspace = BenchmarkFixtures.keyspace("ks", "org.apache.cassandra.locator.NetworkTopologyStrategy",
+                                                               "{\"dc1\":\"3\",\"dc2\":\"3\"}");
+        cluster = new BenchmarkFixtures.OfflineCluster(
+            BenchmarkFixtures.metadata("org.apache.cassandra.dht.Murmur3Partitioner", hosts, 256, keyspace));
+
+        if (policyName.equals("RoundRobin"))
+            policy = new RoundRobinPolicy();
+        else if (policyName.equals("DCAwareRoundRobin"))
+            policy = new DCAwareRoundRobinPolicy("dc1", 2);
+        else if (policyName.equals("TokenAware(DCAwareRoundRobin)"))
+            policy = new TokenAwarePolicy(new DCAwareRoundRobinPolicy("dc1", 2));
+        else
+            throw new IllegalArgumentException("Unknown policy " + policyName);
+        policy.init(cluster, hosts);
+
+        ByteBuffer[] keys = BenchmarkFixtures.randomKeys(1024);
+        statements = new Statement[keys.length];
+        for (int i = 0; i < keys.length; i++)
+            statements[i] = new SimpleStatement("SELECT * FROM ks.t WHERE k = ?").setKeyspace("ks").setRoutingKey(keys[i]);
+    }
+
+    @TearDown
+    public void teardown() {
+        cluster.close();
+    }
+
+    @Benchmark
+    public void newQueryPlan(Blackhole bh) {
+        Statement statement = statements[next++ & (statements.length - 1)];
+        Iterator<Host> plan = policy.newQueryPlan("ks", statement);
+        while (plan.hasNext())
+            bh.consume(plan.next());
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures {@link Metadata#getReplicas(String, ByteBuffer)} on a cluster of 2 datacenters, for a keyspace
+ * replicated 3 times in each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplicasBenchmark {
+
+    @Param({ "org.apache.cassandra.dht.Murmur3Partitioner", "org.apache.cassandra.dht.RandomPartitioner" })
+    String partitioner;
+
+    // Hosts per datacenter
+    @Param({ "3", "30" })
+    int hostsPerDc;
+
+    @Param({ "1", "256" })
+    int vnodes;
+
+    private Metadata metadata;
+    private ByteBuffer[] keys;
+    private int next;
+
+    @Setup
+    public void setup() {
+        List<Host> hosts = new ArrayList<Host>();
+        for (int dc = 1; dc <= 2; dc++)
+            for (int i = 1; i <= hostsPerDc; i++)
+                hosts.add(BenchmarkFixtures.newHost("127." + dc + ".0." + i, "dc" + dc));
+
+        KeyspaceMetadata keyspace = BenchmarkFixtures.keyspace("ks", "org.apache.cassandra.locator.NetworkTopologyStrategy",
+                                                               "{\"dc1\":\"3\",\"dc2\":\"3\"}");
+        metadata = BenchmarkFixtures.metadata(partitioner, hosts, vnodes, keyspace);
+        keys = BenchmarkFixtures.randomKeys(1024);
+    }
+
+    @Benchmark
+    public Set<Host> getReplicas() {
+        ByteBuffer key = keys[next++ & (keys.length - 1)];
+        return metadata.getReplicas("ks", key);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.DefaultChannelFuture;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures encoding the body of an EXECUTE request for a statement with a blob value, from binding its values
+ * to the buffer handed to the frame encoder (which is then released, as if the write had completed).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RequestEncodingBenchmark {
+
+    @Param({ "16", "1024", "65536" })
+    int blobSize;
+
+    // Integer.MAX_VALUE copies all values into the frame, like previous versions
+    @Param({ "1024", "2147483647" })
+    int valueCopyThreshold;
+
+    @Param({ "HEAP", "POOLED" })
+    String allocator;
+
+    private PreparedStatement prepared;
+    private ByteBuffer blob;
+    private Message.ProtocolEncoder encoder;
+
+    @Setup
+    public void setup() {
+        prepared = BenchmarkFixtures.prepared("INSERT INTO ks.t (k, c, v) VALUES (?, ?, ?)", "ks", "t",
+                                              new String[]{ "k", "c", "v" },
+                                              new DataType[]{ DataType.cint(), DataType.text(), DataType.blob() });
+        blob = ByteBuffer.allocate(blobSize);
+        encoder = new Message.ProtocolEncoder(ProtocolVersion.V3, valueCopyThreshold,
+                                              allocator.equals("POOLED") ? new PooledBufferAllocator() : BufferAllocator.HEAP);
+    }
+
+    @Benchmark
+    public Object bindAndEncode() {
+        BoundStatement bs = prepared.bind()
+                                    .setInt(0, 42)
+                                    .setString(1, "foo")
+                                    .setBytes(2, blob);
+        Requests.QueryProtocolOptions options = new Requests.QueryProtocolOptions(ConsistencyLevel.ONE, Arrays.asList(bs.wrapper.values), true,
+                                                                                  5000, null, ConsistencyLevel.SERIAL, Long.MIN_VALUE);
+        Requests.Execute execute = new Requests.Execute(prepared.getPreparedId().id, options);
+        ChannelFuture writeFuture = new DefaultChannelFuture(null, false);
+        Frame frame = encoder.encode(execute, writeFuture);
+        writeFuture.setSuccess();
+        return frame;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.datastax.driver.core.utils.UUIDs;
+
+/**
+ * Measures the decoding of a RESULT ROWS message body, and the decoding plus deserialization of all its values;
+ * then, on already decoded rows, the access to values by name and by {@link ColumnHandle}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RowsDecodingBenchmark {
+
+    @Param({ "1", "100", "5000" })
+    int rowCount;
+
+    private static final String[] NAMES = { "k", "c", "v1", "v2", "v3" };
+    private static final DataType[] TYPES = { DataType.cint(), DataType.text(), DataType.bigint(), DataType.cdouble(), DataType.uuid() };
+
+    private static final ColumnHandle K = ColumnHandle.of("k");
+    private static final ColumnHandle V1 = ColumnHandle.of("v1");
+    private static final ColumnHandle V2 = ColumnHandle.of("v2");
+
+    private ChannelBuffer body;
+    private Responses.Result.Rows decoded;
+
+    @Setup
+    public void setup() {
+        Object[][] rows = new Object[rowCount][];
+        for (int i = 0; i < rowCount; i++)
+            rows[i] = new Object[]{ i, "value" + i, (long)i, (double)i, i % 10 == 0 ? null : UUIDs.random() };
+        body = BenchmarkFixtures.rowsBody("ks", "t", NAMES, TYPES, rows);
+        decoded = BenchmarkFixtures.decodeRows(body.duplicate());
+    }
+
+    @Benchmark
+    public Object decode() {
+        return BenchmarkFixtures.decodeRows(body.duplicate());
+    }
+
+    @Benchmark
+    public void decodeAndDeserialize(Blackhole bh) {
+        Responses.Result.Rows rows = BenchmarkFixtures.decodeRows(body.duplicate());
+        ColumnDefinitions columns = rows.metadata.columns;
+        for (int i = 0; i < rows.data.rowCount(); i++) {
+            Row row = ArrayBackedRow.fromData(columns, null, BenchmarkFixtures.VERSION, rows.data, i);
+            bh.consume(row.getInt(0));
+            bh.consume(row.getString(1));
+            bh.consume(row.getLong(2));
+            bh.consume(row.getDouble(3));
+            bh.consume(row.getUUID(4));
+        }
+    }
+
+    @Benchmark
+    public void getByName(Blackhole bh) {
+        ColumnDefinitions columns = decoded.metadata.columns;
+        for (int i = 0; i < decoded.data.rowCount(); i++) {
+            Row row = ArrayBackedRow.fromData(columns, null, BenchmarkFixtures.VERSION, decoded.data, i);
+            bh.consume(row.getInt("k"));
+            bh.consume(row.getLong("v1"));
+            bh.consume(row.getDouble("v2"));
+        }
+    }
+
+    @Benchmark
+    public void getByHandle(Blackhole bh) {
+        ColumnDefinitions columns = decoded.metadata.columns;
+        for (int i = 0; i < decoded.data.rowCount(); i++) {
+            Row row = ArrayBackedRow.fromData(columns, null, BenchmarkFixtures.VERSION, decoded.data, i);
+            bh.consume(row.getInt(K));
+            bh.consume(row.getLong(V1));
+            bh.consume(row.getDouble(V2));
+        }
+    }
+}
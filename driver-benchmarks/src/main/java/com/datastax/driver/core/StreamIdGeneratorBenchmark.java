@@ -0,0 +1,57 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures borrowing and releasing a stream id, on a generator that already has a given proportion of its ids
+ * in use. The generator is shared, so running with {@code -t} > 1 measures contention.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StreamIdGeneratorBenchmark {
+
+    @Param({ "V2", "V3" })
+    ProtocolVersion version;
+
+    // Percentage of ids borrowed before the measurement
+    @Param({ "0", "90" })
+    int occupancy;
+
+    private StreamIdGenerator generator;
+
+    @Setup
+    public void setup() throws Exception {
+        generator = StreamIdGenerator.newInstance(version);
+        int toBorrow = generator.maxAvailableStreams() * occupancy / 100;
+        for (int i = 0; i < toBorrow; i++)
+            generator.next();
+    }
+
+    @Benchmark
+    public int nextAndRelease() throws Exception {
+        int id = generator.next();
+        generator.release(id);
+        return id;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures generating a client-side timestamp. The generator is shared, so running with {@code -t} > 1
+ * measures contention.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TimestampGeneratorBenchmark {
+
+    @Param({ "ATOMIC", "THREAD_LOCAL", "STRIPED" })
+    String generator;
+
+    private TimestampGenerator timestampGenerator;
+
+    @Setup
+    public void setup() {
+        if (generator.equals("ATOMIC"))
+            timestampGenerator = new AtomicMonotonicTimestampGenerator();
+        else if (generator.equals("THREAD_LOCAL"))
+            timestampGenerator = new ThreadLocalMonotonicTimestampGenerator();
+        else
+            timestampGenerator = new StripedMonotonicTimestampGenerator();
+    }
+
+    @TearDown
+    public void teardown() {
+        if (timestampGenerator instanceof CloseableTimestampGenerator)
+            ((CloseableTimestampGenerator)timestampGenerator).close();
+    }
+
+    @Benchmark
+    public long next() {
+        return timestampGenerator.next();
+    }
+}
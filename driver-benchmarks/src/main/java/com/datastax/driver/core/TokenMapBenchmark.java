@@ -0,0 +1,85 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measures the rebuild of the token map when a host joins a cluster of 2 datacenters, with 40 keyspaces
+ * spread over 4 different replication settings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TokenMapBenchmark {
+
+    private static final String NTS = "org.apache.cassandra.locator.NetworkTopologyStrategy";
+    private static final String SIMPLE = "org.apache.cassandra.locator.SimpleStrategy";
+
+    // Hosts per datacenter
+    @Param({ "3", "30" })
+    int hostsPerDc;
+
+    @Param({ "256" })
+    int vnodes;
+
+    private Token.Factory factory;
+    private List<KeyspaceMetadata> keyspaces;
+    private Metadata.TokenMap previous;
+    private Map<Host, Collection<String>> tokensWithNewHost;
+
+    @Setup
+    public void setup() {
+        factory = Token.M3PToken.FACTORY;
+
+        List<Host> hosts = new ArrayList<Host>();
+        for (int dc = 1; dc <= 2; dc++)
+            for (int i = 1; i <= hostsPerDc; i++)
+                hosts.add(BenchmarkFixtures.newHost("127." + dc + ".0." + i, "dc" + dc));
+
+        keyspaces = new ArrayList<KeyspaceMetadata>();
+        for (int i = 0; i < 10; i++) {
+            keyspaces.add(BenchmarkFixtures.keyspace("nts33_" + i, NTS, "{\"dc1\":\"3\",\"dc2\":\"3\"}"));
+            keyspaces.add(BenchmarkFixtures.keyspace("nts30_" + i, NTS, "{\"dc1\":\"3\"}"));
+            keyspaces.add(BenchmarkFixtures.keyspace("simple3_" + i, SIMPLE, "{\"replication_factor\":\"3\"}"));
+            keyspaces.add(BenchmarkFixtures.keyspace("simple1_" + i, SIMPLE, "{\"replication_factor\":\"1\"}"));
+        }
+
+        Random random = new Random(0);
+        Map<Host, Collection<String>> tokens = BenchmarkFixtures.tokens(factory, hosts, vnodes, random);
+        previous = Metadata.TokenMap.build(factory, tokens, keyspaces);
+
+        Host newHost = BenchmarkFixtures.newHost("127.1.1.1", "dc1");
+        tokensWithNewHost = new HashMap<Host, Collection<String>>(tokens);
+        tokensWithNewHost.putAll(BenchmarkFixtures.tokens(factory, Collections.singletonList(newHost), vnodes, random));
+    }
+
+    @Benchmark
+    public Object fullRebuild() {
+        return Metadata.TokenMap.build(factory, tokensWithNewHost, keyspaces, null);
+    }
+
+    @Benchmark
+    public Object incrementalRebuild() {
+        return Metadata.TokenMap.build(factory, tokensWithNewHost, keyspaces, previous);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jmh.annotations.*;
+
+import com.datastax.driver.core.utils.UUIDs;
+
+/**
+ * Measures the serialization and deserialization of a sample value for every CQL type.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TypeCodecBenchmark {
+
+    @Param({ "ascii", "bigint", "blob", "boolean", "counter", "decimal", "double", "float", "inet", "int",
+             "text", "timestamp", "uuid", "varchar", "varint", "timeuuid",
+             "list<int>", "set<text>", "map<text,bigint>", "tuple<int,text>", "udt", "custom" })
+    String type;
+
+    private DataType dataType;
+    private Object value;
+    private ByteBuffer serialized;
+
+    @Setup
+    public void setup() throws Exception {
+        if (type.equals("list<int>")) {
+            dataType = DataType.list(DataType.cint());
+            value = ImmutableList.of(1, 2, 3, 4, 5, 6, 7, 8, 9, 10);
+        } else if (type.equals("set<text>")) {
+            dataType = DataType.set(DataType.text());
+            value = ImmutableSet.of("a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+        } else if (type.equals("map<text,bigint>")) {
+            dataType = DataType.map(DataType.text(), DataType.bigint());
+            value = ImmutableMap.of("a", 1L, "b", 2L, "c", 3L, "d", 4L, "e", 5L);
+        } else if (type.equals("tuple<int,text>")) {
+            TupleType tupleType = TupleType.of(DataType.cint(), DataType.text());
+            dataType = tupleType;
+            value = tupleType.newValue(42, "foo");
+        } else if (type.equals("udt")) {
+            UserType userType = new UserType("ks", "address", Arrays.asList(new UserType.Field("street", DataType.text()),
+                                                                            new UserType.Field("zip", DataType.cint())));
+            dataType = userType;
+            value = userType.newValue().setString("street", "Main street").setInt("zip", 12345);
+        } else if (type.equals("custom")) {
+            dataType = DataType.custom("org.apache.cassandra.db.marshal.BytesType");
+            value = ByteBuffer.wrap(new byte[128]);
+        } else {
+            dataType = primitive(DataType.Name.valueOf(type.toUpperCase()));
+            value = sampleValue(dataType.getName());
+        }
+        serialized = dataType.serialize(value, BenchmarkFixtures.VERSION);
+    }
+
+    private static DataType primitive(DataType.Name name) {
+        for (DataType dataType : DataType.allPrimitiveTypes())
+            if (dataType.getName() == name)
+                return dataType;
+        throw new IllegalArgumentException("Not a primitive type: " + name);
+    }
+
+    private static Object sampleValue(DataType.Name name) throws Exception {
+        switch (name) {
+            case ASCII:     return "An ascii string";
+            case BIGINT:    return 42L;
+            case BLOB:      return ByteBuffer.wrap(new byte[128]);
+            case BOOLEAN:   return true;
+            case COUNTER:   return 42L;
+            case DECIMAL:   return new BigDecimal("12.3E+7");
+            case DOUBLE:    return 42.0;
+            case FLOAT:     return 42.0f;
+            case INET:      return InetAddress.getByAddress(new byte[]{ 127, 0, 0, 1 });
+            case INT:       return 42;
+            case TEXT:      return "A text string \u2603";
+            case TIMESTAMP: return new Date(1420070400000L);
+            case UUID:      return UUIDs.random();
+            case VARCHAR:   return "A varchar string";
+            case VARINT:    return new BigInteger("123456789012345678901234567890");
+            case TIMEUUID:  return UUIDs.timeBased();
+            default:        throw new IllegalArgumentException("Not a primitive type: " + name);
+        }
+    }
+
+    @Benchmark
+    public ByteBuffer serialize() {
+        return dataType.serialize(value, BenchmarkFixtures.VERSION);
+    }
+
+    @Benchmark
+    public Object deserialize() {
+        return dataType.deserialize(serialized.duplicate(), BenchmarkFixtures.VERSION);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core.querybuilder;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import static com.datastax.driver.core.querybuilder.QueryBuilder.*;
+
+/**
+ * Measures building common statements with {@link QueryBuilder} and generating their query string.
+ * <p>
+ * Each invocation builds a new statement, since query strings are cached once generated.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class QueryBuilderBenchmark {
+
+    @Benchmark
+    public String buildSelectWithValues() {
+        return select("c", "v1", "v2").from("ks", "t")
+                                      .where(eq("k", 42)).and(gt("c", "foo"))
+                                      .limit(100)
+                                      .getQueryString();
+    }
+
+    @Benchmark
+    public String buildSelectWithBindMarkers() {
+        return select().all().from("ks", "t")
+                       .where(eq("k", bindMarker())).and(gt("c", bindMarker()))
+                       .getQueryString();
+    }
+
+    @Benchmark
+    public String buildInsert() {
+        return insertInto("ks", "t").value("k", 42).value("c", "foo").value("v1", 1L).value("v2", 1.0)
+                                    .using(ttl(3600))
+                                    .getQueryString();
+    }
+
+    @Benchmark
+    public String buildUpdate() {
+        return update("ks", "t").with(set("v1", 1L)).and(incr("v3", 2))
+                                .where(eq("k", 42)).and(eq("c", "foo"))
+                                .getQueryString();
+    }
+
+    @Benchmark
+    public String buildBatch() {
+        return batch(insertInto("ks", "t").value("k", 1).value("c", "foo"),
+                     insertInto("ks", "t").value("k", 2).value("c", "bar"),
+                     delete().from("ks", "t").where(eq("k", 3)))
+            .getQueryString();
+    }
+}
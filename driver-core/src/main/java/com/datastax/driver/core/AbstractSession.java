@@ -68,6 +68,14 @@ public abstract class AbstractSession implements Session {
         return executeAsync(new SimpleStatement(query, values));
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public RowStream executeStream(String query, RowStream.Listener listener) {
+        return executeStream(new SimpleStatement(query), listener);
+    }
+
     /**
      * {@inheritDoc}
      */
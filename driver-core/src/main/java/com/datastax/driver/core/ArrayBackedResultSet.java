@@ -31,25 +31,23 @@ import org.slf4j.LoggerFactory;
 import com.datastax.driver.core.exceptions.DriverInternalError;
 
 /**
- * Default implementation of a result set, backed by an ArrayDeque of ArrayList.
+ * Default implementation of a result set, backed by {@link RowPage}s.
  */
 abstract class ArrayBackedResultSet implements ResultSet {
 
     private static final Logger logger = LoggerFactory.getLogger(ResultSet.class);
 
-    private static final Queue<List<ByteBuffer>> EMPTY_QUEUE = new ArrayDeque<List<ByteBuffer>>(0);
-
     protected final ColumnDefinitions metadata;
     protected final Token.Factory tokenFactory;
     private final boolean wasApplied;
 
     protected final ProtocolVersion protocolVersion;
 
-    private ArrayBackedResultSet(ColumnDefinitions metadata, Token.Factory tokenFactory, List<ByteBuffer> firstRow, ProtocolVersion protocolVersion) {
+    private ArrayBackedResultSet(ColumnDefinitions metadata, Token.Factory tokenFactory, RowPage firstPage, ProtocolVersion protocolVersion) {
         this.metadata = metadata;
         this.protocolVersion = protocolVersion;
         this.tokenFactory = tokenFactory;
-        this.wasApplied = checkWasApplied(firstRow, metadata);
+        this.wasApplied = checkWasApplied(firstPage, metadata);
     }
 
     static ArrayBackedResultSet fromMessage(Responses.Result msg, SessionManager session, ProtocolVersion protocolVersion, ExecutionInfo info, Statement statement) {
@@ -98,7 +96,7 @@ abstract class ArrayBackedResultSet implements ResultSet {
 
     private static ArrayBackedResultSet empty(ExecutionInfo info) {
         // We could pass the protocol version but we know we won't need it so passing a bogus value (null)
-        return new SinglePage(ColumnDefinitions.EMPTY, null,  null, EMPTY_QUEUE, info);
+        return new SinglePage(ColumnDefinitions.EMPTY, null,  null, RowPage.EMPTY, info);
     }
 
     public ColumnDefinitions getColumnDefinitions() {
@@ -153,29 +151,32 @@ abstract class ArrayBackedResultSet implements ResultSet {
 
     private static class SinglePage extends ArrayBackedResultSet {
 
-        private final Queue<List<ByteBuffer>> rows;
+        private final RowPage rows;
+        private int nextRow;
         private final ExecutionInfo info;
 
         private SinglePage(ColumnDefinitions metadata,
                            Token.Factory tokenFactory,
                            ProtocolVersion protocolVersion,
-                           Queue<List<ByteBuffer>> rows,
+                           RowPage rows,
                            ExecutionInfo info) {
-            super(metadata, tokenFactory, rows.peek(), protocolVersion);
+            super(metadata, tokenFactory, rows, protocolVersion);
             this.info = info;
             this.rows = rows;
         }
 
         public boolean isExhausted() {
-            return rows.isEmpty();
+            return nextRow >= rows.rowCount();
         }
 
         public Row one() {
-            return ArrayBackedRow.fromData(metadata, tokenFactory, protocolVersion, rows.poll());
+            if (isExhausted())
+                return null;
+            return ArrayBackedRow.fromData(metadata, tokenFactory, protocolVersion, rows, nextRow++);
         }
 
         public int getAvailableWithoutFetching() {
-            return rows.size();
+            return rows.rowCount() - nextRow;
         }
 
         public boolean isFullyFetched() {
@@ -197,8 +198,9 @@ abstract class ArrayBackedResultSet implements ResultSet {
 
     private static class MultiPage extends ArrayBackedResultSet {
 
-        private Queue<List<ByteBuffer>> currentPage;
-        private final Queue<Queue<List<ByteBuffer>>> nextPages = new ConcurrentLinkedQueue<Queue<List<ByteBuffer>>>();
+        private RowPage currentPage;
+        private int nextRow;
+        private final Queue<RowPage> nextPages = new ConcurrentLinkedQueue<RowPage>();
 
         private final Deque<ExecutionInfo> infos = new LinkedBlockingDeque<ExecutionInfo>();
 
@@ -220,10 +222,14 @@ abstract class ArrayBackedResultSet implements ResultSet {
         private final SessionManager session;
         private final Statement statement;
 
+        // Background prefetching, see maybePrefetch()
+        private final int prefetchThreshold;
+        private final int maxPrefetchedPages;
+
         private MultiPage(ColumnDefinitions metadata,
                           Token.Factory tokenFactory,
                           ProtocolVersion protocolVersion,
-                          Queue<List<ByteBuffer>> rows,
+                          RowPage rows,
                           ExecutionInfo info,
                           ByteBuffer pagingState,
                           SessionManager session,
@@ -232,29 +238,51 @@ abstract class ArrayBackedResultSet implements ResultSet {
             // Note: as of Cassandra 2.1.0, it turns out that the result of a CAS update is never paged, so
             // we could hard-code the result of wasApplied in this class to "true". However, we can not be sure
             // that this will never change, so apply the generic check by peeking at the first row.
-            super(metadata, tokenFactory, rows.peek(), protocolVersion);
+            super(metadata, tokenFactory, rows, protocolVersion);
             this.currentPage = rows;
             this.infos.offer(info);
 
             this.fetchState = new FetchingState(pagingState, null);
             this.session = session;
             this.statement = statement;
+
+            QueryOptions queryOptions = session.configuration().getQueryOptions();
+            this.prefetchThreshold = statement.getPrefetchThresholdWithDefault(queryOptions);
+            this.maxPrefetchedPages = queryOptions.getMaxPrefetchedPages();
         }
 
         public boolean isExhausted() {
             prepareNextRow();
-            return currentPage.isEmpty();
+            return nextRow >= currentPage.rowCount();
         }
 
         public Row one() {
-            prepareNextRow();
-            return ArrayBackedRow.fromData(metadata, tokenFactory, protocolVersion, currentPage.poll());
+            if (isExhausted())
+                return null;
+            Row row = ArrayBackedRow.fromData(metadata, tokenFactory, protocolVersion, currentPage, nextRow++);
+            maybePrefetch();
+            return row;
+        }
+
+        // Starts fetching the next page in the background if we're getting close to the end of the
+        // rows we have. Pages are fetched one at a time, so this is re-checked on each row until
+        // enough rows are buffered or maxPrefetchedPages pages are waiting to be consumed.
+        private void maybePrefetch() {
+            if (prefetchThreshold <= 0)
+                return;
+
+            FetchingState fetchingState = this.fetchState;
+            if (fetchingState == null || fetchingState.inProgress != null)
+                return;
+
+            if (nextPages.size() < maxPrefetchedPages && getAvailableWithoutFetching() < prefetchThreshold)
+                fetchMoreResults(fetchingState);
         }
 
         public int getAvailableWithoutFetching() {
-            int available = currentPage.size();
-            for (Queue<List<ByteBuffer>> page : nextPages)
-                available += page.size();
+            int available = currentPage.rowCount() - nextRow;
+            for (RowPage page : nextPages)
+                available += page.rowCount();
             return available;
         }
 
@@ -263,15 +291,16 @@ abstract class ArrayBackedResultSet implements ResultSet {
         }
 
         // Ensure that after the call the next row to consume is in 'currentPage', i.e. that
-        // 'currentPage' is empty IFF the ResultSet if fully exhausted.
+        // 'currentPage' has no rows left IFF the ResultSet if fully exhausted.
         private void prepareNextRow() {
-            while (currentPage.isEmpty()) {
+            while (nextRow >= currentPage.rowCount()) {
                 // Grab the current state now to get a consistent view in this iteration.
                 FetchingState fetchingState = this.fetchState;
 
-                Queue<List<ByteBuffer>> nextPage = nextPages.poll();
+                RowPage nextPage = nextPages.poll();
                 if (nextPage != null) {
                     currentPage = nextPage;
+                    nextRow = 0;
                     continue;
                 }
                 if (fetchingState == null)
@@ -412,10 +441,10 @@ abstract class ArrayBackedResultSet implements ResultSet {
 
     // This method checks the value of the "[applied]" column manually, to avoid instantiating an ArrayBackedRow
     // object that we would throw away immediately.
-    private static boolean checkWasApplied(List<ByteBuffer> firstRow, ColumnDefinitions metadata) {
+    private static boolean checkWasApplied(RowPage firstPage, ColumnDefinitions metadata) {
         // If the column is not present or not a boolean, we assume the query
         // was not a conditional statement, and therefore return true.
-        if (firstRow == null)
+        if (firstPage.rowCount() == 0)
             return true;
         int[] is = metadata.findAllIdx("[applied]");
         if (is == null)
@@ -425,7 +454,7 @@ abstract class ArrayBackedResultSet implements ResultSet {
             return true;
 
         // Otherwise return the value of the column
-        ByteBuffer value = firstRow.get(i);
+        ByteBuffer value = firstPage.value(0, i);
         if (value == null || value.remaining() == 0)
             return false;
 
@@ -15,32 +15,43 @@
  */
 package com.datastax.driver.core;
 
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.util.*;
 
+import com.google.common.reflect.TypeToken;
+
 import com.datastax.driver.core.exceptions.DriverInternalError;
+import com.datastax.driver.core.exceptions.InvalidTypeException;
 
 /**
- * Implementation of a Row backed by an ArrayList.
+ * Implementation of a Row backed by a {@link RowPage}.
+ * <p>
+ * Cells are read directly from the page: primitive accessors and {@link #isNull} never allocate,
+ * and the other accessors only create a buffer for the cell being read.
  */
 class ArrayBackedRow extends AbstractGettableData implements Row {
 
     private final ColumnDefinitions metadata;
     private final Token.Factory tokenFactory;
-    private final List<ByteBuffer> data;
+    private final RowPage page;
+    private final int row;
 
-    private ArrayBackedRow(ColumnDefinitions metadata, Token.Factory tokenFactory, ProtocolVersion protocolVersion, List<ByteBuffer> data) {
+    private ArrayBackedRow(ColumnDefinitions metadata, Token.Factory tokenFactory, ProtocolVersion protocolVersion, RowPage page, int row) {
         super(protocolVersion);
         this.metadata = metadata;
         this.tokenFactory = tokenFactory;
-        this.data = data;
+        this.page = page;
+        this.row = row;
     }
 
-    static Row fromData(ColumnDefinitions metadata, Token.Factory tokenFactory, ProtocolVersion protocolVersion, List<ByteBuffer> data) {
-        if (data == null)
+    static Row fromData(ColumnDefinitions metadata, Token.Factory tokenFactory, ProtocolVersion protocolVersion, RowPage page, int row) {
+        if (page == null || row >= page.rowCount())
             return null;
 
-        return new ArrayBackedRow(metadata, tokenFactory, protocolVersion, data);
+        return new ArrayBackedRow(metadata, tokenFactory, protocolVersion, page, row);
     }
 
     @Override
@@ -60,7 +71,78 @@ class ArrayBackedRow extends AbstractGettableData implements Row {
 
     @Override
     protected ByteBuffer getValue(int i) {
-        return data.get(i);
+        return page.value(row, i);
+    }
+
+    @Override
+    public boolean isNull(int i) {
+        return page.isNull(row, i);
+    }
+
+    @Override
+    public boolean getBool(int i) {
+        checkType(i, DataType.Name.BOOLEAN);
+
+        int length = page.length(row, i);
+        if (length <= 0)
+            return false;
+        checkLength(length, 1, "boolean");
+
+        return page.data().get(page.offset(row, i)) != 0;
+    }
+
+    @Override
+    public int getInt(int i) {
+        checkType(i, DataType.Name.INT);
+
+        int length = page.length(row, i);
+        if (length <= 0)
+            return 0;
+        checkLength(length, 4, "32-bits integer");
+
+        return page.data().getInt(page.offset(row, i));
+    }
+
+    @Override
+    public long getLong(int i) {
+        checkType(i, DataType.Name.BIGINT, DataType.Name.COUNTER);
+
+        int length = page.length(row, i);
+        if (length <= 0)
+            return 0L;
+        checkLength(length, 8, "64-bits long");
+
+        return page.data().getLong(page.offset(row, i));
+    }
+
+    @Override
+    public float getFloat(int i) {
+        checkType(i, DataType.Name.FLOAT);
+
+        int length = page.length(row, i);
+        if (length <= 0)
+            return 0.0f;
+        checkLength(length, 4, "32-bits float");
+
+        return page.data().getFloat(page.offset(row, i));
+    }
+
+    @Override
+    public double getDouble(int i) {
+        checkType(i, DataType.Name.DOUBLE);
+
+        int length = page.length(row, i);
+        if (length <= 0)
+            return 0.0;
+        checkLength(length, 8, "64-bits double");
+
+        return page.data().getDouble(page.offset(row, i));
+    }
+
+    // Same checks as the corresponding TypeCodec
+    private static void checkLength(int length, int expected, String type) {
+        if (length != expected)
+            throw new InvalidTypeException(String.format("Invalid %s value, expecting %d byte%s but got %d", type, expected, expected == 1 ? "" : "s", length));
     }
 
     @Override
@@ -75,7 +157,7 @@ class ArrayBackedRow extends AbstractGettableData implements Row {
 
         metadata.checkType(i, tokenFactory.getTokenType().getName());
 
-        ByteBuffer value = data.get(i);
+        ByteBuffer value = page.value(row, i);
         if (value == null || value.remaining() == 0)
             return null;
 
@@ -104,7 +186,7 @@ class ArrayBackedRow extends AbstractGettableData implements Row {
         for (int i = 0; i < metadata.size(); i++) {
             if (i != 0)
                 sb.append(", ");
-            ByteBuffer bb = data.get(i);
+            ByteBuffer bb = page.value(row, i);
             if (bb == null)
                 sb.append("NULL");
             else
@@ -113,4 +195,124 @@ class ArrayBackedRow extends AbstractGettableData implements Row {
         sb.append(']');
         return sb.toString();
     }
-}
\ No newline at end of file
+
+    @Override
+    public boolean isNull(ColumnHandle column) {
+        return isNull(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public boolean getBool(ColumnHandle column) {
+        return getBool(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public int getInt(ColumnHandle column) {
+        return getInt(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public long getLong(ColumnHandle column) {
+        return getLong(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public Date getDate(ColumnHandle column) {
+        return getDate(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public float getFloat(ColumnHandle column) {
+        return getFloat(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public double getDouble(ColumnHandle column) {
+        return getDouble(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public ByteBuffer getBytesUnsafe(ColumnHandle column) {
+        return getBytesUnsafe(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public ByteBuffer getBytes(ColumnHandle column) {
+        return getBytes(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public String getString(ColumnHandle column) {
+        return getString(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public BigInteger getVarint(ColumnHandle column) {
+        return getVarint(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public BigDecimal getDecimal(ColumnHandle column) {
+        return getDecimal(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public UUID getUUID(ColumnHandle column) {
+        return getUUID(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public InetAddress getInet(ColumnHandle column) {
+        return getInet(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public Token getToken(ColumnHandle column) {
+        return getToken(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public <T> List<T> getList(ColumnHandle column, Class<T> elementsClass) {
+        return getList(column.firstIndexIn(metadata), elementsClass);
+    }
+
+    @Override
+    public <T> List<T> getList(ColumnHandle column, TypeToken<T> elementsType) {
+        return getList(column.firstIndexIn(metadata), elementsType);
+    }
+
+    @Override
+    public <T> Set<T> getSet(ColumnHandle column, Class<T> elementsClass) {
+        return getSet(column.firstIndexIn(metadata), elementsClass);
+    }
+
+    @Override
+    public <T> Set<T> getSet(ColumnHandle column, TypeToken<T> elementsType) {
+        return getSet(column.firstIndexIn(metadata), elementsType);
+    }
+
+    @Override
+    public <K, V> Map<K, V> getMap(ColumnHandle column, Class<K> keysClass, Class<V> valuesClass) {
+        return getMap(column.firstIndexIn(metadata), keysClass, valuesClass);
+    }
+
+    @Override
+    public <K, V> Map<K, V> getMap(ColumnHandle column, TypeToken<K> keysType, TypeToken<V> valuesType) {
+        return getMap(column.firstIndexIn(metadata), keysType, valuesType);
+    }
+
+    @Override
+    public UDTValue getUDTValue(ColumnHandle column) {
+        return getUDTValue(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public TupleValue getTupleValue(ColumnHandle column) {
+        return getTupleValue(column.firstIndexIn(metadata));
+    }
+
+    @Override
+    public Object getObject(ColumnHandle column) {
+        return getObject(column.firstIndexIn(metadata));
+    }
+}
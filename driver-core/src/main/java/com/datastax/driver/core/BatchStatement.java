@@ -213,14 +213,31 @@ public class BatchStatement extends Statement {
         return (BatchStatement) super.setSerialConsistencyLevel(serialConsistency);
     }
 
+    /**
+     * Returns the routing key of this batch.
+     * <p>
+     * A batch is only routed to a replica if all the statements it contains that have a
+     * routing key target the same partition, in which case that routing key is returned.
+     * If they target different partitions, or if none of them has a routing key, this
+     * method returns {@code null}.
+     *
+     * @return the routing key shared by the statements of this batch, or {@code null}.
+     *
+     * @see Statement#getRoutingKey
+     */
     @Override
     public ByteBuffer getRoutingKey() {
+        ByteBuffer routingKey = null;
         for (Statement statement : statements) {
             ByteBuffer rk = statement.getRoutingKey();
-            if (rk != null)
-                return rk;
+            if (rk == null)
+                continue;
+            if (routingKey == null)
+                routingKey = rk;
+            else if (!routingKey.equals(rk))
+                return null;
         }
-        return null;
+        return routingKey;
     }
 
     @Override
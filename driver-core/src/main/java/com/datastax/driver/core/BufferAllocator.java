@@ -0,0 +1,73 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Allocates the buffers that request frames are encoded into.
+ * <p>
+ * A buffer is allocated for each request sent, and released once it has been written to
+ * the socket (successfully or not), so allocators can recycle them.
+ * See {@link PooledBufferAllocator} for an implementation that pools direct buffers, and
+ * {@link LeakDetectingBufferAllocator} to check that all buffers are released in tests.
+ * <p>
+ * Implementations must be thread-safe: buffers are allocated and released concurrently by
+ * the I/O threads of all connections.
+ *
+ * @see SocketOptions#setBufferAllocator(BufferAllocator)
+ */
+public interface BufferAllocator {
+
+    /**
+     * An allocator that allocates a new heap buffer for each request, and relies on
+     * garbage collection to reclaim them. This is the default.
+     */
+    public static final BufferAllocator HEAP = new BufferAllocator() {
+        public ByteBuffer allocate(int size) {
+            return ByteBuffer.allocate(size);
+        }
+
+        public void release(ByteBuffer buffer) {
+        }
+
+        @Override
+        public String toString() {
+            return "HEAP";
+        }
+    };
+
+    /**
+     * Allocates a buffer.
+     *
+     * @param size the number of bytes needed.
+     * @return a buffer with its position at 0 and exactly {@code size} bytes {@link ByteBuffer#remaining() remaining}.
+     * Its byte order must be {@link java.nio.ByteOrder#BIG_ENDIAN big-endian}.
+     */
+    public ByteBuffer allocate(int size);
+
+    /**
+     * Releases a buffer once the driver doesn't use it anymore.
+     * <p>
+     * The driver only ever releases the buffers that were returned by {@link #allocate},
+     * once each. It might however not release a buffer at all in rare error cases, so
+     * implementations should not rely on releases to reclaim memory.
+     *
+     * @param buffer the buffer, which is the same instance as the one returned by
+     * {@link #allocate} (but its position and limit might have changed).
+     */
+    public void release(ByteBuffer buffer);
+}
@@ -288,8 +288,14 @@ abstract class CBUtil {
 
     public static void writeValueList(List<ByteBuffer> values, ChannelBuffer cb) {
         cb.writeShort(values.size());
-        for (ByteBuffer value : values)
-            CBUtil.writeValue(value, cb);
+        if (cb instanceof FrameBodyBuffer) {
+            FrameBodyBuffer body = (FrameBodyBuffer)cb;
+            for (ByteBuffer value : values)
+                body.writeValue(value);
+        } else {
+            for (ByteBuffer value : values)
+                CBUtil.writeValue(value, cb);
+        }
     }
 
     public static int sizeOfValueList(List<ByteBuffer> values) {
@@ -560,15 +560,19 @@ public class Cluster implements Closeable {
         private RetryPolicy retryPolicy;
         private AddressTranslater addressTranslater;
         private TimestampGenerator timestampGenerator;
+        private SpeculativeExecutionPolicy speculativeExecutionPolicy;
 
         private ProtocolOptions.Compression compression = ProtocolOptions.Compression.NONE;
         private SSLOptions sslOptions = null;
         private boolean metricsEnabled = true;
         private boolean jmxEnabled = true;
+        private boolean latencyHistogramsEnabled = false;
+        private boolean replicaRoutingMetricsEnabled = false;
 
         private PoolingOptions poolingOptions;
         private SocketOptions socketOptions;
         private QueryOptions queryOptions;
+        private NettyOptions nettyOptions;
 
         private Collection<Host.StateListener> listeners;
 
@@ -908,6 +912,23 @@ public class Cluster implements Closeable {
             return this;
         }
 
+        /**
+         * Configures the speculative execution policy to use for the new cluster.
+         * <p>
+         * Speculative executions are only ever started for idempotent statements
+         * (see {@link Statement#setIdempotent(boolean)}).
+         * <p>
+         * If no policy is set through this method, {@link Policies#defaultSpeculativeExecutionPolicy()}
+         * will be used instead.
+         *
+         * @param policy the policy to use.
+         * @return this Builder.
+         */
+        public Builder withSpeculativeExecutionPolicy(SpeculativeExecutionPolicy policy) {
+            this.speculativeExecutionPolicy = policy;
+            return this;
+        }
+
         /**
          * Uses the provided credentials when connecting to Cassandra hosts.
          * <p>
@@ -1024,6 +1045,33 @@ public class Cluster implements Closeable {
             return this;
         }
 
+        /**
+         * Enables per-host, per-datacenter and per-statement kind latency histograms.
+         * <p>
+         * They are disabled by default since they use some memory for each host (see
+         * {@link Metrics#getLatencies()}). If metrics are disabled, this is a no-op.
+         *
+         * @return this builder.
+         */
+        public Builder withLatencyHistograms() {
+            this.latencyHistogramsEnabled = true;
+            return this;
+        }
+
+        /**
+         * Enables the count of requests coordinated by a replica of the data they access
+         * (see {@link Metrics#getRequestsRoutedToReplica()}).
+         * <p>
+         * It is disabled by default since it costs a replica lookup for each request. If
+         * metrics are disabled, this is a no-op.
+         *
+         * @return this builder.
+         */
+        public Builder withReplicaRoutingMetrics() {
+            this.replicaRoutingMetricsEnabled = true;
+            return this;
+        }
+
         /**
          * Sets the PoolingOptions to use for the newly created Cluster.
          * <p>
@@ -1066,6 +1114,22 @@ public class Cluster implements Closeable {
             return this;
         }
 
+        /**
+         * Sets the NettyOptions to use for the newly created Cluster.
+         * <p>
+         * If no Netty options are set through this method, {@link NettyOptions#DEFAULT_INSTANCE}
+         * will be used, with which the Cluster has its own I/O threads. Use a
+         * {@link NettyOptions#shared shared} instance to share them between several Cluster
+         * instances.
+         *
+         * @param options the Netty options to use.
+         * @return this builder.
+         */
+        public Builder withNettyOptions(NettyOptions options) {
+            this.nettyOptions = options;
+            return this;
+        }
+
         /**
          * The configuration that will be used for the new cluster.
          * <p>
@@ -1082,14 +1146,16 @@ public class Cluster implements Closeable {
                 reconnectionPolicy == null ? Policies.defaultReconnectionPolicy() : reconnectionPolicy,
                 retryPolicy == null ? Policies.defaultRetryPolicy() : retryPolicy,
                 addressTranslater == null ? Policies.defaultAddressTranslater() : addressTranslater,
-                timestampGenerator == null ? Policies.defaultTimestampGenerator() : timestampGenerator
+                timestampGenerator == null ? Policies.defaultTimestampGenerator() : timestampGenerator,
+                speculativeExecutionPolicy == null ? Policies.defaultSpeculativeExecutionPolicy() : speculativeExecutionPolicy
             );
             return new Configuration(policies,
                                      new ProtocolOptions(port, protocolVersion, maxSchemaAgreementWaitSeconds, sslOptions, authProvider).setCompression(compression),
                                      poolingOptions == null ? new PoolingOptions() : poolingOptions,
                                      socketOptions == null ? new SocketOptions() : socketOptions,
-                                     metricsEnabled ? new MetricsOptions(jmxEnabled) : null,
-                                     queryOptions == null ? new QueryOptions() : queryOptions);
+                                     metricsEnabled ? new MetricsOptions(jmxEnabled, latencyHistogramsEnabled, MetricsOptions.DEFAULT_LATENCY_HISTOGRAMS_INTERVAL_MILLIS, replicaRoutingMetricsEnabled) : null,
+                                     queryOptions == null ? new QueryOptions() : queryOptions,
+                                     nettyOptions == null ? NettyOptions.DEFAULT_INSTANCE : nettyOptions);
         }
 
         @Override
@@ -1179,6 +1245,10 @@ public class Cluster implements Closeable {
 
         final ConnectionReaper reaper;
 
+        // Debounce control connection events, so that bursts of them don't translate into bursts of refreshes
+        final EventDebouncer<SchemaRefreshRequest> schemaRefreshRequestDebouncer;
+        final EventDebouncer<Object> nodeListRefreshRequestDebouncer;
+
         final AtomicReference<CloseFuture> closeFuture = new AtomicReference<CloseFuture>();
 
         // All the queries that have been prepared (we keep them so we can re-prepared them when a node fail or a
@@ -1186,6 +1256,9 @@ public class Cluster implements Closeable {
         // Note: we could move this down to the session level, but since prepared statement are global to a node,
         // this would yield a slightly less clear behavior.
         final ConcurrentMap<MD5Digest, PreparedStatement> preparedQueries = new MapMaker().weakValues().makeMap();
+        // The same queries, by keyspace and query string, so that preparing a query again doesn't need a round trip.
+        // The empty string stands for "no keyspace".
+        private final ConcurrentMap<String, ConcurrentMap<String, PreparedStatement>> preparedQueriesByKeyspace = new ConcurrentHashMap<String, ConcurrentMap<String, PreparedStatement>>();
 
         final Set<Host.StateListener> listeners;
         final Set<LatencyTracker> trackers = new CopyOnWriteArraySet<LatencyTracker>();
@@ -1202,6 +1275,41 @@ public class Cluster implements Closeable {
 
             this.reaper = new ConnectionReaper();
 
+            final QueryOptions queryOptions = configuration.getQueryOptions();
+            this.schemaRefreshRequestDebouncer = new EventDebouncer<SchemaRefreshRequest>("Schema refresh",
+                scheduledTasksExecutor, executor,
+                new EventDebouncer.DelayProvider() {
+                    @Override
+                    public long delayMillis() { return queryOptions.getRefreshSchemaIntervalMillis(); }
+                    @Override
+                    public int maxPendingEvents() { return queryOptions.getMaxPendingRefreshSchemaRequests(); }
+                },
+                new EventDebouncer.DeliveryCallback<SchemaRefreshRequest>() {
+                    @Override
+                    public void deliver(List<SchemaRefreshRequest> requests) throws InterruptedException {
+                        List<SchemaRefreshRequest> coalesced = SchemaRefreshRequest.coalesce(requests);
+                        if (logger.isDebugEnabled())
+                            logger.debug("Coalesced {} schema refresh request(s) into {}", requests.size(), coalesced);
+                        for (SchemaRefreshRequest request : coalesced)
+                            Manager.this.controlConnection.refreshSchema(request.keyspace, request.table, request.udt);
+                    }
+                });
+            this.nodeListRefreshRequestDebouncer = new EventDebouncer<Object>("Node list refresh",
+                scheduledTasksExecutor, executor,
+                new EventDebouncer.DelayProvider() {
+                    @Override
+                    public long delayMillis() { return queryOptions.getRefreshNodeListIntervalMillis(); }
+                    @Override
+                    public int maxPendingEvents() { return queryOptions.getMaxPendingRefreshNodeListRequests(); }
+                },
+                new EventDebouncer.DeliveryCallback<Object>() {
+                    @Override
+                    public void deliver(List<Object> requests) {
+                        // A single refresh covers all the requests
+                        Manager.this.controlConnection.refreshNodeListAndTokenMap();
+                    }
+                });
+
             this.metadata = new Metadata(this);
             this.contactPoints = contactPoints;
             this.connectionFactory = new Connection.Factory(this, configuration);
@@ -1255,6 +1363,8 @@ public class Cluster implements Closeable {
                 // Now that the control connection is ready, we have all the information we need about the nodes (datacenter,
                 // rack...) to initialize the load balancing policy
                 loadBalancingPolicy().init(Cluster.this, contactPointHosts);
+
+                speculativeExecutionPolicy().init(Cluster.this);
                 for (Host host : downContactPointHosts) {
                     loadBalancingPolicy().onDown(host);
                     for (Host.StateListener listener : listeners)
@@ -1307,6 +1417,10 @@ public class Cluster implements Closeable {
             return configuration.getPolicies().getReconnectionPolicy();
         }
 
+        SpeculativeExecutionPolicy speculativeExecutionPolicy() {
+            return configuration.getPolicies().getSpeculativeExecutionPolicy();
+        }
+
         InetSocketAddress translateAddress(InetAddress address) {
             InetSocketAddress sa = new InetSocketAddress(address, connectionFactory.getPort());
             InetSocketAddress translated = configuration.getPolicies().getAddressTranslater().translate(sa);
@@ -1323,10 +1437,26 @@ public class Cluster implements Closeable {
             return sessions.remove(session);
         }
 
-        void reportLatency(Host host, long latencyNanos) {
+        int inFlightQueries(Host host) {
+            int count = 0;
+            for (SessionManager session : sessions) {
+                HostConnectionPool pool = session.pools.get(host);
+                if (pool != null)
+                    count += pool.inFlightQueriesCount();
+            }
+            return count;
+        }
+
+        /**
+         * @param statementKind the kind of statement, only used for latency histograms; {@code null} if they are disabled
+         *                      or the request is internal.
+         */
+        void reportLatency(Host host, Metrics.StatementKind statementKind, long latencyNanos) {
             for (LatencyTracker tracker : trackers) {
                 tracker.update(host, latencyNanos);
             }
+            if (metrics != null && metrics.getLatencies() != null)
+                metrics.getLatencies().record(host, statementKind, latencyNanos);
         }
 
         boolean isClosed() {
@@ -1341,6 +1471,9 @@ public class Cluster implements Closeable {
 
             logger.debug("Shutting down");
 
+            schemaRefreshRequestDebouncer.stop();
+            nodeListRefreshRequestDebouncer.stop();
+
             // If we're shutting down, there is no point in waiting on scheduled reconnections, nor on notifications
             // delivery or blocking tasks so we use shutdownNow
             shutdownNow(reconnectionExecutor);
@@ -1359,10 +1492,16 @@ public class Cluster implements Closeable {
             if (loadBalancingPolicy instanceof CloseableLoadBalancingPolicy)
                 ((CloseableLoadBalancingPolicy)loadBalancingPolicy).close();
 
+            speculativeExecutionPolicy().close();
+
             AddressTranslater translater = configuration.getPolicies().getAddressTranslater();
             if (translater instanceof CloseableAddressTranslater)
                 ((CloseableAddressTranslater)translater).close();
 
+            TimestampGenerator timestampGenerator = configuration.getPolicies().getTimestampGenerator();
+            if (timestampGenerator instanceof CloseableTimestampGenerator)
+                ((CloseableTimestampGenerator)timestampGenerator).close();
+
             // Then we shutdown all connections
             List<CloseFuture> futures = new ArrayList<CloseFuture>(sessions.size() + 1);
             futures.add(controlConnection.closeAsync());
@@ -1883,6 +2022,12 @@ public class Cluster implements Closeable {
                 host.setDown();
 
                 logger.debug("Removing host {}", host);
+                if (metrics != null && metrics.getLatencies() != null)
+                    metrics.getLatencies().onRemove(host);
+                for (LatencyTracker tracker : trackers) {
+                    if (tracker instanceof PerHostPercentileTracker)
+                        ((PerHostPercentileTracker)tracker).onRemove(host);
+                }
                 loadBalancingPolicy().onRemove(host);
                 controlConnection.onRemove(host);
                 for (SessionManager s : sessions)
@@ -1940,8 +2085,26 @@ public class Cluster implements Closeable {
             }
         }
 
+        /**
+         * Returns a statement that was already prepared with the given query string and keyspace, or {@code null}
+         * if there is none (or if it's not referenced by the client anymore).
+         */
+        PreparedStatement getPrepared(String query, String keyspace) {
+            ConcurrentMap<String, PreparedStatement> byQuery = preparedQueriesByKeyspace.get(keyspace == null ? "" : keyspace);
+            return byQuery == null ? null : byQuery.get(query);
+        }
+
         public PreparedStatement addPrepared(PreparedStatement stmt) {
             PreparedStatement previous = preparedQueries.putIfAbsent(stmt.getPreparedId().id, stmt);
+            String keyspace = stmt.getQueryKeyspace() == null ? "" : stmt.getQueryKeyspace();
+            ConcurrentMap<String, PreparedStatement> byQuery = preparedQueriesByKeyspace.get(keyspace);
+            if (byQuery == null) {
+                ConcurrentMap<String, PreparedStatement> newMap = new MapMaker().weakValues().makeMap();
+                byQuery = preparedQueriesByKeyspace.putIfAbsent(keyspace, newMap);
+                if (byQuery == null)
+                    byQuery = newMap;
+            }
+            byQuery.put(stmt.getQueryString(), previous == null ? stmt : previous);
             if (previous != null) {
                 logger.warn("Re-preparing already prepared query {}. Please note that preparing the same query more than once is "
                           + "generally an anti-pattern and will likely affect performance. Consider preparing the statement only once.", stmt.getQueryString());
@@ -1958,57 +2121,44 @@ public class Cluster implements Closeable {
                 return;
 
             logger.debug("Preparing {} prepared queries on newly up node {}", preparedQueries.size(), host);
+            Connection connection = null;
             try {
-                Connection connection = connectionFactory.open(host);
+                connection = connectionFactory.open(host);
 
-                try
-                {
-                    try {
-                        ControlConnection.waitForSchemaAgreement(connection, this);
-                    } catch (ExecutionException e) {
-                        // As below, just move on
-                    }
-
-                    // Furthermore, along with each prepared query we keep the current keyspace at the time of preparation
-                    // as we need to make it is the same when we re-prepare on new/restarted nodes. Most query will use the
-                    // same keyspace so keeping it each time is slightly wasteful, but this doesn't really matter and is
-                    // simpler. Besides, we do avoid in prepareAllQueries to not set the current keyspace more than needed.
-
-                    // We need to make sure we prepared every query with the right current keyspace, i.e. the one originally
-                    // used for preparing it. However, since we are likely that all prepared query belong to only a handful
-                    // of different keyspace (possibly only one), and to avoid setting the current keyspace more than needed,
-                    // we first sort the query per keyspace.
-                    SetMultimap<String, String> perKeyspace = HashMultimap.create();
-                    for (PreparedStatement ps : preparedQueries.values()) {
-                        // It's possible for a query to not have a current keyspace. But since null doesn't work well as
-                        // map keys, we use the empty string instead (that is not a valid keyspace name).
-                        String keyspace = ps.getQueryKeyspace() == null ? "" : ps.getQueryKeyspace();
-                        perKeyspace.put(keyspace, ps.getQueryString());
-                    }
+                try {
+                    ControlConnection.waitForSchemaAgreement(connection, this);
+                } catch (ExecutionException e) {
+                    // As below, just move on
+                }
 
-                    for (String keyspace : perKeyspace.keySet())
-                    {
-                        // Empty string mean no particular keyspace to set
-                        if (!keyspace.isEmpty())
-                            connection.setKeyspace(keyspace);
+                // Furthermore, along with each prepared query we keep the current keyspace at the time of preparation
+                // as we need to make it is the same when we re-prepare on new/restarted nodes. Most query will use the
+                // same keyspace so keeping it each time is slightly wasteful, but this doesn't really matter and is
+                // simpler. Besides, we do avoid in prepareAllQueries to not set the current keyspace more than needed.
+
+                // We need to make sure we prepared every query with the right current keyspace, i.e. the one originally
+                // used for preparing it. However, since we are likely that all prepared query belong to only a handful
+                // of different keyspace (possibly only one), and to avoid setting the current keyspace more than needed,
+                // we first sort the query per keyspace.
+                SetMultimap<String, String> perKeyspace = HashMultimap.create();
+                for (PreparedStatement ps : preparedQueries.values()) {
+                    // It's possible for a query to not have a current keyspace. But since null doesn't work well as
+                    // map keys, we use the empty string instead (that is not a valid keyspace name).
+                    String keyspace = ps.getQueryKeyspace() == null ? "" : ps.getQueryKeyspace();
+                    perKeyspace.put(keyspace, ps.getQueryString());
+                }
 
-                        List<Connection.Future> futures = new ArrayList<Connection.Future>(preparedQueries.size());
-                        for (String query : perKeyspace.get(keyspace)) {
-                            futures.add(connection.write(new Requests.Prepare(query)));
-                        }
-                        for (Connection.Future future : futures) {
-                            try {
-                                future.get();
-                            } catch (ExecutionException e) {
-                                // This "might" happen if we drop a CF but haven't removed it's prepared queries (which we don't do
-                                // currently). It's not a big deal however as if it's a more serious problem it'll show up later when
-                                // the query is tried for execution.
-                                logger.debug("Unexpected error while preparing queries on new/newly up host", e);
-                            }
-                        }
-                    }
-                } finally {
-                    connection.closeAsync();
+                // The node is only marked up (and added to query plans) once enough queries are prepared; the others
+                // are prepared in the background, and the repreparation closes the connection when it's done.
+                QueryOptions options = configuration.getQueryOptions();
+                int threshold = (int)Math.ceil(options.getReprepareThreshold() * perKeyspace.size());
+                Repreparation repreparation = new Repreparation(connection, perKeyspace.asMap(), options.getMaxConcurrentReprepares(), threshold);
+                connection = null;
+                try {
+                    repreparation.start().get();
+                } catch (ExecutionException e) {
+                    // Can't happen, the future never fails
+                    logger.debug("Unexpected error while preparing queries on new/newly up host", e);
                 }
             } catch (ConnectionException e) {
                 // Ignore, not a big deal
@@ -2016,17 +2166,20 @@ public class Cluster implements Closeable {
                 // That's a bad news, but ignore at this point
             } catch (BusyConnectionException e) {
                 // Ignore, not a big deal
+            } finally {
+                if (connection != null)
+                    connection.closeAsync();
             }
         }
 
-        public void submitSchemaRefresh(final String keyspace, final String table, final String udt) {
+        public void submitSchemaRefresh(String keyspace, String table, String udt) {
             logger.trace("Submitting schema refresh");
-            executor.submit(new ExceptionCatchingRunnable() {
-                @Override
-                public void runMayThrow() throws InterruptedException, ExecutionException {
-                    controlConnection.refreshSchema(keyspace, table, udt);
-                }
-            });
+            schemaRefreshRequestDebouncer.eventReceived(new SchemaRefreshRequest(keyspace, table, udt));
+        }
+
+        void submitNodeListRefresh(Object reason) {
+            logger.trace("Submitting node list and token map refresh");
+            nodeListRefreshRequestDebouncer.eventReceived(reason);
         }
 
         // refresh the schema using the provided connection, and notice the future with the provided resultset once done
@@ -2098,12 +2251,7 @@ public class Cluster implements Closeable {
                             removeHost(metadata.getHost(tpAddr), false);
                             break;
                         case MOVED_NODE:
-                            executor.submit(new ExceptionCatchingRunnable() {
-                                @Override
-                                public void runMayThrow() {
-                                    controlConnection.refreshNodeListAndTokenMap();
-                                }
-                            });
+                            submitNodeListRefresh(tpc);
                             break;
                     }
                     break;
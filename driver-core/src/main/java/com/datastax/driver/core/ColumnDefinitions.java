@@ -60,23 +60,12 @@ public class ColumnDefinitions implements Iterable<ColumnDefinitions.Definition>
     static final ColumnDefinitions EMPTY = new ColumnDefinitions(new Definition[0]);
 
     private final Definition[] byIdx;
-    private final Map<String, int[]> byName;
+    // Built on the first lookup by name, and then shared by all the rows that use this metadata. Building is
+    // idempotent, so racing threads may build it more than once, but will all get an equivalent index.
+    private volatile NameIndex byName;
 
     ColumnDefinitions(Definition[] defs) {
-
         this.byIdx = defs;
-        this.byName = new HashMap<String, int[]>(defs.length);
-
-        for (int i = 0; i < defs.length; i++) {
-            // Be optimistic, 99% of the time, previous will be null.
-            int[] previous = this.byName.put(defs[i].name.toLowerCase(), new int[]{ i });
-            if (previous != null) {
-                int[] indexes = new int[previous.length + 1];
-                System.arraycopy(previous, 0, indexes, 0, previous.length);
-                indexes[indexes.length - 1] = i;
-                this.byName.put(defs[i].name.toLowerCase(), indexes);
-            }
-        }
     }
 
     /**
@@ -111,6 +100,17 @@ public class ColumnDefinitions implements Iterable<ColumnDefinitions.Definition>
         return findFirstIdx(name);
     }
 
+    /**
+     * The first index in this metadata of the column designated by the provided handle, if present.
+     *
+     * @param column the handle of the column.
+     * @return the index of the first occurrence of the column in this metadata if
+     * {@code contains(column.getName())}, -1 otherwise.
+     */
+    public int getIndexOf(ColumnHandle column) {
+        return column.indexIn(this);
+    }
+
     /**
      * Returns an iterator over the {@link Definition} contained in this metadata.
      *
@@ -237,34 +237,10 @@ public class ColumnDefinitions implements Iterable<ColumnDefinitions.Definition>
     }
 
     int[] findAllIdx(String name) {
-        boolean caseSensitive = false;
-        if (name.length() >= 2 && name.charAt(0) == '"' && name.charAt(name.length() - 1) == '"') {
-            name = name.substring(1, name.length() - 1);
-            caseSensitive = true;
-        }
-
-        int[] indexes = byName.get(name.toLowerCase());
-        if (!caseSensitive || indexes == null)
-            return indexes;
-
-        // First, optimistic and assume all are matching
-        int nbMatch = 0;
-        for (int i = 0; i < indexes.length; i++)
-            if (name.equals(byIdx[indexes[i]].name))
-                nbMatch++;
-
-        if (nbMatch == indexes.length)
-            return indexes;
-
-        int[] result = new int[nbMatch];
-        int j = 0;
-        for (int i = 0; i < indexes.length; i++) {
-            int idx = indexes[i];
-            if (name.equals(byIdx[idx].name))
-                result[j++] = idx;
-        }
-
-        return result;
+        NameIndex index = byName;
+        if (index == null)
+            byName = index = new NameIndex(byIdx);
+        return index.find(name);
     }
 
     int[] getAllIdx(String name) {
@@ -307,6 +283,167 @@ public class ColumnDefinitions implements Iterable<ColumnDefinitions.Definition>
         return defined.getName();
     }
 
+    /**
+     * Maps column names to their indexes, without allocating on lookups.
+     * <p>
+     * There are two open-addressing tables: one of the lowercase names for case insensitive lookups, and one of
+     * the exact names for lookups of double-quoted names. The size and hash multiplier of each table are chosen
+     * so that no two names share a slot (and a lookup thus takes a single probe), unless no such combination is
+     * found quickly, in which case collisions are resolved by linear probing.
+     */
+    private static class NameIndex {
+
+        private static final int MAX_SEED_ATTEMPTS = 16;
+        private static final int MAX_EXTRA_SIZE_BITS = 2;
+
+        private final Table caseInsensitive;
+        private final Table caseSensitive;
+
+        NameIndex(Definition[] defs) {
+            // Group the indexes by name, in order
+            Map<String, int[]> byLowercaseName = new LinkedHashMap<String, int[]>(defs.length);
+            Map<String, int[]> byExactName = new LinkedHashMap<String, int[]>(defs.length);
+            for (int i = 0; i < defs.length; i++) {
+                add(byLowercaseName, toLowerCase(defs[i].name), i);
+                add(byExactName, defs[i].name, i);
+            }
+            this.caseInsensitive = new Table(byLowercaseName, false);
+            this.caseSensitive = new Table(byExactName, true);
+        }
+
+        int[] find(String name) {
+            int length = name.length();
+            if (length >= 2 && name.charAt(0) == '"' && name.charAt(length - 1) == '"')
+                return caseSensitive.get(name, 1, length - 1);
+            return caseInsensitive.get(name, 0, length);
+        }
+
+        private static void add(Map<String, int[]> map, String name, int i) {
+            // Be optimistic, 99% of the time, previous will be null.
+            int[] previous = map.put(name, new int[]{ i });
+            if (previous != null) {
+                int[] indexes = new int[previous.length + 1];
+                System.arraycopy(previous, 0, indexes, 0, previous.length);
+                indexes[indexes.length - 1] = i;
+                map.put(name, indexes);
+            }
+        }
+
+        // Lowercases char by char, to be consistent with hash() and matches()
+        private static String toLowerCase(String name) {
+            char[] chars = new char[name.length()];
+            for (int i = 0; i < chars.length; i++)
+                chars[i] = Character.toLowerCase(name.charAt(i));
+            return new String(chars);
+        }
+
+        private static class Table {
+
+            private final boolean caseSensitive;
+            private final String[] keys;
+            private final int[][] values;
+            private final int mask;
+            private final int shift;
+            private final int seed;
+
+            Table(Map<String, int[]> entries, boolean caseSensitive) {
+                this.caseSensitive = caseSensitive;
+
+                int[] hashes = new int[entries.size()];
+                int k = 0;
+                for (String key : entries.keySet())
+                    hashes[k++] = hash(key, 0, key.length(), caseSensitive);
+
+                // Look for a collision-free combination, starting with a load factor of at most 0.5
+                int minBits = 1;
+                while ((1 << minBits) < 2 * hashes.length)
+                    minBits++;
+                int bits = minBits, seed = 0;
+                search:
+                for (; bits <= minBits + MAX_EXTRA_SIZE_BITS; bits++) {
+                    for (int attempt = 0; attempt < MAX_SEED_ATTEMPTS; attempt++) {
+                        seed = seed(attempt);
+                        if (isCollisionFree(hashes, bits, seed))
+                            break search;
+                    }
+                }
+                if (bits > minBits + MAX_EXTRA_SIZE_BITS) {
+                    bits = minBits;
+                    seed = seed(0);
+                }
+
+                this.keys = new String[1 << bits];
+                this.values = new int[1 << bits][];
+                this.mask = (1 << bits) - 1;
+                this.shift = 32 - bits;
+                this.seed = seed;
+
+                k = 0;
+                for (Map.Entry<String, int[]> entry : entries.entrySet()) {
+                    int slot = slot(hashes[k++]);
+                    while (keys[slot] != null)
+                        slot = (slot + 1) & mask;
+                    keys[slot] = entry.getKey();
+                    values[slot] = entry.getValue();
+                }
+            }
+
+            int[] get(String name, int start, int end) {
+                int slot = slot(hash(name, start, end, caseSensitive));
+                String key;
+                while ((key = keys[slot]) != null) {
+                    if (matches(key, name, start, end))
+                        return values[slot];
+                    slot = (slot + 1) & mask;
+                }
+                return null;
+            }
+
+            private int slot(int hash) {
+                return (hash * seed) >>> shift;
+            }
+
+            private boolean matches(String key, String name, int start, int end) {
+                int length = end - start;
+                if (key.length() != length)
+                    return false;
+                if (caseSensitive)
+                    return key.regionMatches(0, name, start, length);
+                for (int i = 0; i < length; i++) {
+                    if (key.charAt(i) != Character.toLowerCase(name.charAt(start + i)))
+                        return false;
+                }
+                return true;
+            }
+
+            private static boolean isCollisionFree(int[] hashes, int bits, int seed) {
+                boolean[] used = new boolean[1 << bits];
+                for (int hash : hashes) {
+                    int slot = (hash * seed) >>> (32 - bits);
+                    if (used[slot])
+                        return false;
+                    used[slot] = true;
+                }
+                return true;
+            }
+
+            // Odd multipliers with well-distributed bits (the first one is the 32-bit golden ratio)
+            private static int seed(int attempt) {
+                return (0x9E3779B9 + attempt * 0x632BE5AB) | 1;
+            }
+
+            private static int hash(String name, int start, int end, boolean caseSensitive) {
+                int h = 0;
+                for (int i = start; i < end; i++) {
+                    char c = name.charAt(i);
+                    h = 31 * h + (caseSensitive ? c : Character.toLowerCase(c));
+                }
+                // Spread the high bits, since slots are taken from the high bits of the product with the seed
+                return h ^ (h >>> 16);
+            }
+        }
+    }
+
     /**
      * A column definition.
      */
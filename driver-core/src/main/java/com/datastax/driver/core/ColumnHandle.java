@@ -0,0 +1,97 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+/**
+ * A precompiled reference to a column by name, to retrieve values from {@link Row}s
+ * without looking the name up for each of them.
+ * <p>
+ * A handle remembers the index of its column in the last {@link ColumnDefinitions}
+ * it was resolved against. Since all the rows of a result set (and all the results
+ * of a prepared statement, unless its metadata changes) share the same column
+ * definitions, this resolution only happens once in practice. Handles are
+ * thread-safe, and are meant to be created once and stored in a constant:
+ * <pre>
+ *     private static final ColumnHandle NAME = ColumnHandle.of("name");
+ *     ...
+ *     for (Row row : session.execute(statement))
+ *         names.add(row.getString(NAME));
+ * </pre>
+ * <p>
+ * Names follow the case insensitivity rules explained in {@link ColumnDefinitions}.
+ */
+public final class ColumnHandle {
+
+    private final String name;
+    private volatile Resolution last;
+
+    private ColumnHandle(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Creates a new handle.
+     *
+     * @param name the name of the column.
+     * @return the handle.
+     */
+    public static ColumnHandle of(String name) {
+        if (name == null)
+            throw new NullPointerException();
+        return new ColumnHandle(name);
+    }
+
+    /**
+     * Returns the name of the column designated by this handle.
+     *
+     * @return the name, as passed to {@link #of(String)}.
+     */
+    public String getName() {
+        return name;
+    }
+
+    // Returns the first index of the column in the provided metadata, or -1 if it's not there
+    int indexIn(ColumnDefinitions metadata) {
+        Resolution resolution = last;
+        if (resolution == null || resolution.metadata != metadata) {
+            resolution = new Resolution(metadata, metadata.findFirstIdx(name));
+            last = resolution;
+        }
+        return resolution.index;
+    }
+
+    int firstIndexIn(ColumnDefinitions metadata) {
+        int index = indexIn(metadata);
+        if (index < 0)
+            throw new IllegalArgumentException(name + " is not a column defined in this metadata");
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static class Resolution {
+        final ColumnDefinitions metadata;
+        final int index;
+
+        Resolution(ColumnDefinitions metadata, int index) {
+            this.metadata = metadata;
+            this.index = index;
+        }
+    }
+}
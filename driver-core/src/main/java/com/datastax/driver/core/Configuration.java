@@ -39,6 +39,7 @@ public class Configuration {
     private final SocketOptions socketOptions;
     private final MetricsOptions metricsOptions;
     private final QueryOptions queryOptions;
+    private final NettyOptions nettyOptions;
 
     /*
      * Creates a configuration object.
@@ -68,12 +69,34 @@ public class Configuration {
                          SocketOptions socketOptions,
                          MetricsOptions metricsOptions,
                          QueryOptions queryOptions) {
+        this(policies, protocolOptions, poolingOptions, socketOptions, metricsOptions, queryOptions, NettyOptions.DEFAULT_INSTANCE);
+    }
+
+    /**
+     * Creates a configuration with the specified parameters.
+     *
+     * @param policies the policies to use
+     * @param protocolOptions the protocol options to use
+     * @param poolingOptions the pooling options to use
+     * @param socketOptions the socket options to use
+     * @param metricsOptions the metrics options, or null to disable metrics.
+     * @param queryOptions defaults related to queries.
+     * @param nettyOptions the network layer options to use.
+     */
+    public Configuration(Policies policies,
+                         ProtocolOptions protocolOptions,
+                         PoolingOptions poolingOptions,
+                         SocketOptions socketOptions,
+                         MetricsOptions metricsOptions,
+                         QueryOptions queryOptions,
+                         NettyOptions nettyOptions) {
         this.policies = policies;
         this.protocolOptions = protocolOptions;
         this.poolingOptions = poolingOptions;
         this.socketOptions = socketOptions;
         this.metricsOptions = metricsOptions;
         this.queryOptions = queryOptions;
+        this.nettyOptions = nettyOptions;
     }
 
     void register(Cluster.Manager manager) {
@@ -138,4 +161,13 @@ public class Configuration {
     public QueryOptions getQueryOptions() {
         return queryOptions;
     }
+
+    /**
+     * Returns the network layer configuration.
+     *
+     * @return the Netty options.
+     */
+    public NettyOptions getNettyOptions() {
+        return nettyOptions;
+    }
 }
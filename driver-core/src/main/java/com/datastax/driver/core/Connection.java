@@ -23,14 +23,13 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.AbstractFuture;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.Uninterruptibles;
 import org.jboss.netty.bootstrap.ClientBootstrap;
 import org.jboss.netty.channel.*;
 import org.jboss.netty.channel.group.ChannelGroup;
 import org.jboss.netty.channel.group.DefaultChannelGroup;
-import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
 import org.jboss.netty.handler.ssl.SslHandler;
 import org.jboss.netty.handler.timeout.IdleStateAwareChannelUpstreamHandler;
 import org.jboss.netty.handler.timeout.IdleStateEvent;
@@ -93,8 +92,8 @@ class Connection {
             ClientBootstrap bootstrap = factory.newBootstrap();
             ProtocolOptions protocolOptions = factory.configuration.getProtocolOptions();
             ProtocolVersion protocolVersion = factory.protocolVersion == null ? ProtocolVersion.NEWEST_SUPPORTED : factory.protocolVersion;
-            bootstrap.setPipelineFactory(new PipelineFactory(this, protocolVersion, protocolOptions.getCompression().compressor, protocolOptions.getSSLOptions(),
-                factory.configuration.getPoolingOptions().getHeartbeatIntervalSeconds(), factory.timer));
+            bootstrap.setPipelineFactory(new PipelineFactory(this, protocolVersion, protocolOptions.getCompression().compressor,
+                protocolOptions.getCompressionThreshold(), protocolOptions.getValueCopyThreshold(), protocolOptions.getSSLOptions(), factory.configuration.getPoolingOptions().getHeartbeatIntervalSeconds(), factory.timer));
 
             ChannelFuture future = bootstrap.connect(address);
 
@@ -272,6 +271,11 @@ class Connection {
         return dispatcher.streamIdHandler.maxAvailableStreams();
     }
 
+    @VisibleForTesting
+    int borrowedStreams() {
+        return dispatcher.streamIdHandler.borrowed();
+    }
+
     <E extends Exception> E defunct(E e) {
         if (logger.isDebugEnabled())
             logger.debug("Defuncting connection to " + address, e);
@@ -525,11 +529,11 @@ class Connection {
 
     public static class Factory {
 
-        private final ExecutorService bossExecutor = Executors.newCachedThreadPool();
-        private final ExecutorService workerExecutor = Executors.newCachedThreadPool();
-        public final HashedWheelTimer timer = new HashedWheelTimer(new ThreadFactoryBuilder().setNameFormat("Timeouter-%d").build());
-
-        private final ChannelFactory channelFactory = new NioClientSocketChannelFactory(bossExecutor, workerExecutor);
+        private final NettyOptions.Resources resources;
+        // Whether resources are this factory's own, or shared with other clusters
+        private final boolean ownsResources;
+        public final HashedWheelTimer timer;
+        private final ChannelFactory channelFactory;
         private final ChannelGroup allChannels = new DefaultChannelGroup();
 
         private final ConcurrentMap<Host, AtomicInteger> idGenerators = new ConcurrentHashMap<Host, AtomicInteger>();
@@ -550,6 +554,12 @@ class Connection {
             this.configuration = configuration;
             this.authProvider = configuration.getProtocolOptions().getAuthProvider();
             this.protocolVersion = configuration.getProtocolOptions().initialProtocolVersion;
+
+            NettyOptions nettyOptions = configuration.getNettyOptions();
+            this.resources = nettyOptions.resourcesFor(configuration.getSocketOptions());
+            this.ownsResources = !nettyOptions.isShared();
+            this.timer = resources.timer;
+            this.channelFactory = resources.newChannelFactory();
         }
 
         public int getPort() {
@@ -605,6 +615,10 @@ class Connection {
             return configuration.getSocketOptions().getReadTimeoutMillis();
         }
 
+        ScheduledExecutorService flusher() {
+            return resources.flusher();
+        }
+
         private ClientBootstrap newBootstrap() {
             ClientBootstrap b = new ClientBootstrap(channelFactory);
 
@@ -642,9 +656,10 @@ class Connection {
             allChannels.close().awaitUninterruptibly();
 
             // This will call shutdownNow on the boss and worker executor. Since this is called
-            // only once all connection have been individually closed, it's fine.
-            channelFactory.releaseExternalResources();
-            timer.stop();
+            // only once all connection have been individually closed, it's fine. Shared resources are
+            // released by their NettyOptions, once all the clusters that use them are closed.
+            if (ownsResources)
+                resources.release();
         }
     }
 
@@ -992,21 +1007,21 @@ class Connection {
     private static class PipelineFactory implements ChannelPipelineFactory {
         // Stateless handlers
         private static final Message.ProtocolDecoder messageDecoder = new Message.ProtocolDecoder();
-        private static final Message.ProtocolEncoder messageEncoderV1 = new Message.ProtocolEncoder(ProtocolVersion.V1);
-        private static final Message.ProtocolEncoder messageEncoderV2 = new Message.ProtocolEncoder(ProtocolVersion.V2);
-        private static final Message.ProtocolEncoder messageEncoderV3 = new Message.ProtocolEncoder(ProtocolVersion.V3);
         private static final Frame.Encoder frameEncoder = new Frame.Encoder();
 
-        private final ProtocolVersion protocolVersion;
         private final Connection connection;
         private final FrameCompressor compressor;
+        private final int compressionThreshold;
+        private final Message.ProtocolEncoder messageEncoder;
         private final SSLOptions sslOptions;
         private final ChannelHandler idleStateHandler;
 
-        public PipelineFactory(Connection connection, ProtocolVersion protocolVersion, FrameCompressor compressor, SSLOptions sslOptions, int heartBeatIntervalSeconds, HashedWheelTimer timer) {
+        public PipelineFactory(Connection connection, ProtocolVersion protocolVersion, FrameCompressor compressor, int compressionThreshold, int valueCopyThreshold, SSLOptions sslOptions, int heartBeatIntervalSeconds, HashedWheelTimer timer) {
             this.connection = connection;
-            this.protocolVersion = protocolVersion;
             this.compressor = compressor;
+            this.compressionThreshold = compressionThreshold;
+            this.messageEncoder = new Message.ProtocolEncoder(protocolVersion, valueCopyThreshold,
+                                                              connection.factory.configuration.getSocketOptions().getBufferAllocator());
             this.sslOptions = sslOptions;
             this.idleStateHandler = new IdleStateHandler(timer, 0, 0, heartBeatIntervalSeconds);
         }
@@ -1026,16 +1041,22 @@ class Connection {
 
             //pipeline.addLast("debug", new LoggingHandler(InternalLogLevel.INFO));
 
+            SocketOptions socketOptions = connection.factory.configuration.getSocketOptions();
+            if (socketOptions.isWriteCoalescingEnabled())
+                pipeline.addLast("writeCoalescer", new WriteCoalescer(connection.factory.flusher(),
+                                                                      socketOptions.getWriteCoalescingMaxFrames(),
+                                                                      socketOptions.getWriteCoalescingDelayMicros()));
+
             pipeline.addLast("frameDecoder", new Frame.Decoder());
             pipeline.addLast("frameEncoder", frameEncoder);
 
             if (compressor != null) {
                 pipeline.addLast("frameDecompressor", new Frame.Decompressor(compressor));
-                pipeline.addLast("frameCompressor", new Frame.Compressor(compressor));
+                pipeline.addLast("frameCompressor", new Frame.Compressor(compressor, compressionThreshold));
             }
 
             pipeline.addLast("messageDecoder", messageDecoder);
-            pipeline.addLast("messageEncoder", messageEncoderFor(protocolVersion));
+            pipeline.addLast("messageEncoder", messageEncoder);
 
             pipeline.addLast("idleStateHandler", idleStateHandler);
 
@@ -1043,18 +1064,5 @@ class Connection {
 
             return pipeline;
         }
-
-        private Message.ProtocolEncoder messageEncoderFor(ProtocolVersion version) {
-            switch (version) {
-                case V1:
-                    return messageEncoderV1;
-                case V2:
-                    return messageEncoderV2;
-                case V3:
-                    return messageEncoderV3;
-                default:
-                    throw new DriverInternalError("Unsupported protocol version " + protocolVersion);
-            }
-        }
     }
 }
@@ -260,7 +260,7 @@ class ControlConnection implements Host.StateListener {
             // the node we're connecting to.
             refreshNodeListAndTokenMap(connection, cluster, isInitialConnection, true);
 
-            // Note that refreshing the schema will trigger refreshNodeListAndTokenMap since table == null
+            // Note that refreshing the schema will trigger refreshNodeListAndTokenMap since all keyspaces are new
             // We want that because the token map was not properly initialized by the first call above, since it requires the list of keyspaces
             // to be loaded.
             logger.debug("[Control connection] Refreshing schema");
@@ -354,8 +354,9 @@ class ControlConnection implements Host.StateListener {
         if (colsFuture != null)
             connection.write(colsFuture);
 
+        boolean replicationChanged;
         try {
-            cluster.metadata.rebuildSchema(keyspace, table, udt,
+            replicationChanged = cluster.metadata.rebuildSchema(keyspace, table, udt,
                                            ksFuture == null ? null : ksFuture.get(),
                                            udtFuture == null ? null : udtFuture.get(),
                                            cfFuture == null ? null : cfFuture.get(),
@@ -366,11 +367,13 @@ class ControlConnection implements Host.StateListener {
             // work and this can happen when new Cassandra versions modify stuff in the schema and the driver hasn't yet be modified.
             // So log, but let things go otherwise.
             logger.error("Error parsing schema from Cassandra system tables: the schema in Cluster#getMetadata() will appear incomplete or stale", e);
+            // We don't know what was applied, so play it safe
+            replicationChanged = true;
         }
 
-        // If the table is null, we either rebuild all from scratch or have an updated keyspace. In both case, rebuild the token map
-        // since some replication on some keyspace may have changed
-        if (table == null)
+        // The token map holds the replicas of each keyspace, so it only needs to be rebuilt if keyspaces
+        // were created or dropped, or if their replication changed.
+        if (replicationChanged)
             refreshNodeListAndTokenMap(connection, cluster, false, false);
     }
 
@@ -703,6 +706,6 @@ class ControlConnection implements Host.StateListener {
             backgroundReconnect(0);
         }
 
-        refreshNodeListAndTokenMap();
+        cluster.submitNodeListRefresh(host);
     }
 }
@@ -0,0 +1,180 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link RowStream} implementation, that pulls rows from a paged {@link ResultSet}.
+ * <p>
+ * All deliveries happen in {@link #drain()}, which is guarded so that only one thread runs it
+ * at a time; callers that find it already running just signal that it must loop once more.
+ */
+class DefaultRowStream implements RowStream {
+    private static final Logger logger = LoggerFactory.getLogger(DefaultRowStream.class);
+
+    private final RowStream.Listener listener;
+    private final Executor executor;
+
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger drainers = new AtomicInteger();
+
+    private volatile ListenableFuture<ResultSet> initialFuture;
+    private volatile ResultSet resultSet;
+    // Whether we're waiting for a page that we've requested
+    private volatile boolean fetching;
+    private volatile boolean cancelled;
+    private volatile boolean done;
+
+    DefaultRowStream(RowStream.Listener listener, Executor executor) {
+        this.listener = listener;
+        this.executor = executor;
+    }
+
+    void start(ListenableFuture<ResultSet> future) {
+        this.initialFuture = future;
+        listener.onSubscribe(this);
+        Futures.addCallback(future, new FutureCallback<ResultSet>() {
+            @Override
+            public void onSuccess(ResultSet rs) {
+                resultSet = rs;
+                drain();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                fail(t);
+            }
+        }, executor);
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0)
+            throw new IllegalArgumentException("Invalid demand, should be > 0, got " + n);
+
+        while (true) {
+            long current = demand.get();
+            long next = current + n;
+            if (next < 0) // overflow
+                next = Long.MAX_VALUE;
+            if (demand.compareAndSet(current, next))
+                break;
+        }
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+        ListenableFuture<ResultSet> future = initialFuture;
+        if (future != null && resultSet == null)
+            future.cancel(true);
+    }
+
+    private void drain() {
+        if (drainers.getAndIncrement() != 0)
+            return;
+
+        int missed = 1;
+        do {
+            while (true) {
+                if (cancelled || done)
+                    return;
+
+                ResultSet rs = resultSet;
+                if (rs == null || fetching || demand.get() == 0)
+                    break;
+
+                // Read isFullyFetched first: if it's true, all the pages have been added, so a zero
+                // availability really means that we're done.
+                boolean fullyFetched = rs.isFullyFetched();
+                if (rs.getAvailableWithoutFetching() > 0) {
+                    // Doesn't block, since rows are available
+                    Row row = rs.one();
+                    if (demand.get() != Long.MAX_VALUE)
+                        demand.decrementAndGet();
+                    try {
+                        listener.onRow(row);
+                    } catch (RuntimeException e) {
+                        cancelled = true;
+                        terminate(e);
+                        return;
+                    }
+                } else if (fullyFetched) {
+                    done = true;
+                    try {
+                        listener.onComplete();
+                    } catch (RuntimeException e) {
+                        logger.warn("Unexpected error while notifying RowStream listener of completion", e);
+                    }
+                    return;
+                } else {
+                    fetching = true;
+                    fetchNextPage(rs);
+                    break;
+                }
+            }
+            missed = drainers.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void fetchNextPage(ResultSet rs) {
+        ListenableFuture<Void> future;
+        try {
+            future = rs.fetchMoreResults();
+        } catch (RuntimeException e) {
+            future = Futures.immediateFailedFuture(e);
+        }
+        Futures.addCallback(future, new FutureCallback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                fetching = false;
+                drain();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                fail(t);
+            }
+        }, executor);
+    }
+
+    // Failures only happen while the initial query or a page fetch is pending, in other words when no rows
+    // can be delivered, so this never runs concurrently with onRow.
+    private void fail(Throwable t) {
+        if (cancelled || done)
+            return;
+        done = true;
+        terminate(t);
+    }
+
+    private void terminate(Throwable t) {
+        try {
+            listener.onError(t);
+        } catch (RuntimeException e) {
+            logger.warn("Unexpected error while notifying RowStream listener of error", e);
+        }
+    }
+}
@@ -19,7 +19,6 @@ package com.datastax.driver.core;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.*;
 
 import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.MoreExecutors;
@@ -48,10 +47,6 @@ class DynamicConnectionPool extends HostConnectionPool {
     private final AtomicInteger open;
     private final Set<Connection> trash = new CopyOnWriteArraySet<Connection>();
 
-    private volatile int waiter = 0;
-    private final Lock waitLock = new ReentrantLock(true);
-    private final Condition hasAvailableConnection = waitLock.newCondition();
-
     private final Runnable newConnectionTask;
 
     private final AtomicInteger scheduledForCreation = new AtomicInteger();
@@ -107,22 +102,18 @@ class DynamicConnectionPool extends HostConnectionPool {
     }
 
     @Override
-    public PooledConnection borrowConnection(long timeout, TimeUnit unit) throws ConnectionException, TimeoutException {
-        if (isClosed())
-            // Note: throwing a ConnectionException is probably fine in practice as it will trigger the creation of a new host.
-            // That being said, maybe having a specific exception could be cleaner.
-            throw new ConnectionException(host.getSocketAddress(), "Pool is shutdown");
-
+    PooledConnection tryBorrowConnection() throws ConnectionException {
         if (connections.isEmpty()) {
-            for (int i = 0; i < options().getCoreConnectionsPerHost(hostDistance); i++) {
-                // We don't respect MAX_SIMULTANEOUS_CREATION here because it's  only to
-                // protect against creating connection in excess of core too quickly
-                scheduledForCreation.incrementAndGet();
-                manager.blockingExecutor().submit(newConnectionTask);
+            // Only kick off the creation of core connections once, subsequent borrowers will queue up
+            if (scheduledForCreation.get() == 0) {
+                for (int i = 0; i < options().getCoreConnectionsPerHost(hostDistance); i++) {
+                    // We don't respect MAX_SIMULTANEOUS_CREATION here because it's  only to
+                    // protect against creating connection in excess of core too quickly
+                    scheduledForCreation.incrementAndGet();
+                    manager.blockingExecutor().submit(newConnectionTask);
+                }
             }
-            PooledConnection c = waitForConnection(timeout, unit);
-            c.setKeyspace(manager.poolsState.keyspace);
-            return c;
+            return null;
         }
 
         int minInFlight = Integer.MAX_VALUE;
@@ -144,110 +135,21 @@ class DynamicConnectionPool extends HostConnectionPool {
                 throw new ConnectionException(host.getSocketAddress(), "Pool is shutdown");
             // This might maybe happen if the number of core connections per host is 0 and a connection was trashed between
             // the previous check to connections and now. But in that case, the line above will have trigger the creation of
-            // a new connection, so just wait that connection and move on
-            leastBusy = waitForConnection(timeout, unit);
-        } else {
-            while (true) {
-                int inFlight = leastBusy.inFlight.get();
-
-                if (inFlight >= leastBusy.maxAvailableStreams()) {
-                    leastBusy = waitForConnection(timeout, unit);
-                    break;
-                }
-
-                if (leastBusy.inFlight.compareAndSet(inFlight, inFlight + 1))
-                    break;
-            }
-        }
-        leastBusy.setKeyspace(manager.poolsState.keyspace);
-        return leastBusy;
-    }
-
-    private void awaitAvailableConnection(long timeout, TimeUnit unit) throws InterruptedException {
-        waitLock.lock();
-        waiter++;
-        try {
-            hasAvailableConnection.await(timeout, unit);
-        } finally {
-            waiter--;
-            waitLock.unlock();
+            // a new connection, so the caller will be served when it is added
+            return null;
         }
-    }
-
-    private void signalAvailableConnection() {
-        // Quick check if it's worth signaling to avoid locking
-        if (waiter == 0)
-            return;
 
-        waitLock.lock();
-        try {
-            hasAvailableConnection.signal();
-        } finally {
-            waitLock.unlock();
-        }
-    }
+        while (true) {
+            int inFlight = leastBusy.inFlight.get();
 
-    private void signalAllAvailableConnection() {
-        // Quick check if it's worth signaling to avoid locking
-        if (waiter == 0)
-            return;
+            if (inFlight >= leastBusy.maxAvailableStreams())
+                return null;
 
-        waitLock.lock();
-        try {
-            hasAvailableConnection.signalAll();
-        } finally {
-            waitLock.unlock();
+            if (leastBusy.inFlight.compareAndSet(inFlight, inFlight + 1))
+                return leastBusy;
         }
     }
 
-    private PooledConnection waitForConnection(long timeout, TimeUnit unit) throws ConnectionException, TimeoutException {
-        if (timeout == 0)
-            throw new TimeoutException();
-
-        long start = System.nanoTime();
-        long remaining = timeout;
-        do {
-            try {
-                awaitAvailableConnection(remaining, unit);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                // If we're interrupted fine, check if there is a connection available but stop waiting otherwise
-                timeout = 0; // this will make us stop the loop if we don't get a connection right away
-            }
-
-            if (isClosed())
-                throw new ConnectionException(host.getSocketAddress(), "Pool is shutdown");
-
-            int minInFlight = Integer.MAX_VALUE;
-            PooledConnection leastBusy = null;
-            for (PooledConnection connection : connections) {
-                int inFlight = connection.inFlight.get();
-                if (inFlight < minInFlight) {
-                    minInFlight = inFlight;
-                    leastBusy = connection;
-                }
-            }
-
-            // If we race with shutdown, leastBusy could be null. In that case we just loop and we'll throw on the next
-            // iteration anyway
-            if (leastBusy != null) {
-                while (true) {
-                    int inFlight = leastBusy.inFlight.get();
-
-                    if (inFlight >= leastBusy.maxAvailableStreams())
-                        break;
-
-                    if (leastBusy.inFlight.compareAndSet(inFlight, inFlight + 1))
-                        return leastBusy;
-                }
-            }
-
-            remaining = timeout - Cluster.timeSince(start, unit);
-        } while (remaining > 0);
-
-        throw new TimeoutException();
-    }
-
     @Override
     public void returnConnection(PooledConnection connection) {
         int inFlight = connection.inFlight.decrementAndGet();
@@ -271,9 +173,8 @@ class DynamicConnectionPool extends HostConnectionPool {
                 trashConnection(connection);
             } else if (connection.maxAvailableStreams() < MIN_AVAILABLE_STREAMS) {
                 replaceConnection(connection);
-            } else {
-                signalAvailableConnection();
             }
+            dequeuePendingBorrows();
         }
     }
 
@@ -340,7 +241,7 @@ class DynamicConnectionPool extends HostConnectionPool {
         // Now really open the connection
         try {
             connections.add(manager.connectionFactory().open(this));
-            signalAvailableConnection();
+            dequeuePendingBorrows();
             return true;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -400,8 +301,8 @@ class DynamicConnectionPool extends HostConnectionPool {
     }
 
     protected CloseFuture makeCloseFuture() {
-        // Wake up all threads that wait
-        signalAllAvailableConnection();
+        // Fail all the borrowers that wait
+        failPendingBorrows();
 
         CloseFuture future = new CloseFuture.Forwarding(discardAvailableConnections());
         return future;
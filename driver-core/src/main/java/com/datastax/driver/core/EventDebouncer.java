@@ -0,0 +1,142 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Accumulates events and delivers them in batches.
+ * <p>
+ * Events are delivered once no new event has been received for {@link DelayProvider#delayMillis()}, or as soon
+ * as {@link DelayProvider#maxPendingEvents()} events are pending, whichever comes first. A delay of 0 disables
+ * debouncing: each event is delivered on its own, right away.
+ * <p>
+ * Events are rare (they come from the control connection), so this class simply synchronizes on itself.
+ */
+class EventDebouncer<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventDebouncer.class);
+
+    interface DeliveryCallback<T> {
+        /**
+         * Called on the delivery executor, with events in the order they were received.
+         */
+        void deliver(List<T> events) throws Exception;
+    }
+
+    /**
+     * Read on every event, so that changes to the settings are taken into account right away.
+     */
+    interface DelayProvider {
+        long delayMillis();
+
+        int maxPendingEvents();
+    }
+
+    private final String name;
+    private final ScheduledExecutorService scheduler;
+    private final Executor deliveryExecutor;
+    private final DelayProvider delayProvider;
+    private final DeliveryCallback<T> callback;
+
+    // All guarded by this
+    private List<T> pending = new ArrayList<T>();
+    private ScheduledFuture<?> scheduledDelivery;
+    private boolean stopped;
+
+    EventDebouncer(String name, ScheduledExecutorService scheduler, Executor deliveryExecutor, DelayProvider delayProvider, DeliveryCallback<T> callback) {
+        this.name = name;
+        this.scheduler = scheduler;
+        this.deliveryExecutor = deliveryExecutor;
+        this.delayProvider = delayProvider;
+        this.callback = callback;
+    }
+
+    synchronized void eventReceived(T event) {
+        if (stopped) {
+            logger.debug("{} debouncer is stopped, ignoring event {}", name, event);
+            return;
+        }
+        pending.add(event);
+
+        long delay = delayProvider.delayMillis();
+        if (delay <= 0 || pending.size() >= delayProvider.maxPendingEvents()) {
+            deliverPending();
+            return;
+        }
+
+        // Debounce: every new event pushes the delivery back
+        if (scheduledDelivery != null)
+            scheduledDelivery.cancel(false);
+        try {
+            scheduledDelivery = scheduler.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The cluster is shutting down, the events don't matter anymore
+            logger.debug("Could not schedule {} delivery, ignoring events", name);
+        }
+    }
+
+    synchronized void flush() {
+        deliverPending();
+    }
+
+    synchronized void stop() {
+        stopped = true;
+        if (scheduledDelivery != null) {
+            scheduledDelivery.cancel(false);
+            scheduledDelivery = null;
+        }
+        pending.clear();
+    }
+
+    // Must be called with the lock held
+    private void deliverPending() {
+        if (scheduledDelivery != null) {
+            scheduledDelivery.cancel(false);
+            scheduledDelivery = null;
+        }
+        if (pending.isEmpty())
+            return;
+
+        final List<T> events = pending;
+        pending = new ArrayList<T>();
+        logger.trace("Delivering {} {} event(s)", events.size(), name);
+        try {
+            deliveryExecutor.execute(new ExceptionCatchingRunnable() {
+                @Override
+                public void runMayThrow() throws Exception {
+                    callback.deliver(events);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Could not deliver {} events, ignoring them", name);
+        }
+    }
+}
@@ -248,7 +248,9 @@ class Frame {
             writeStreamId(frame.header.streamId, header, protocolVersion);
             header.writeByte(frame.header.opcode);
             header.writeInt(frame.body.readableBytes());
-            return ChannelBuffers.wrappedBuffer(header, frame.body);
+            // Direct bodies come from a pooled allocator: with a gathering write, they are written to the
+            // socket without being copied (only the header is)
+            return ChannelBuffers.wrappedBuffer(frame.body.isDirect(), header, frame.body);
         }
 
         private void writeStreamId(int streamId, ChannelBuffer header, ProtocolVersion protocolVersion) {
@@ -290,10 +292,12 @@ class Frame {
     public static class Compressor extends OneToOneEncoder {
 
         private final FrameCompressor compressor;
+        private final int threshold;
 
-        public Compressor(FrameCompressor compressor) {
+        public Compressor(FrameCompressor compressor, int threshold) {
             assert compressor != null;
             this.compressor = compressor;
+            this.threshold = threshold;
         }
 
         public Object encode(ChannelHandlerContext ctx, Channel channel, Object msg) throws IOException {
@@ -306,6 +310,10 @@ class Frame {
             if (frame.header.opcode == Message.Request.Type.STARTUP.opcode)
                 return frame;
 
+            // Not worth it for small frames, the COMPRESSED flag tells Cassandra how to read each frame
+            if (frame.body.readableBytes() < threshold)
+                return frame;
+
             frame.header.flags.add(Header.Flag.COMPRESSED);
             return compressor.compress(frame);
         }
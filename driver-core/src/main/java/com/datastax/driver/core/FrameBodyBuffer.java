@@ -0,0 +1,206 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.buffer.DuplicatedChannelBuffer;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+
+/**
+ * The body of an outgoing request frame, that big bound values are referenced from rather than copied into.
+ * <p>
+ * Bound values are serialized once, when they are set on a statement. Copying them again into the frame
+ * body doubles the allocations for big values (blobs, long strings...), so the values bigger than a threshold
+ * (see {@link ProtocolOptions#getValueCopyThreshold()}) only get their length written to this buffer. The
+ * encoded body is then a composite buffer that interleaves the copied parts and the values themselves,
+ * which the socket layer writes in one go.
+ * <p>
+ * The copied part is allocated by the connection's {@link BufferAllocator}, and released when the
+ * write of the frame completes.
+ */
+class FrameBodyBuffer extends DuplicatedChannelBuffer {
+
+    private final int copyThreshold;
+
+    // The allocated buffer if it's direct. Bulk writes go straight to it, because Netty's wrapper for direct
+    // buffers duplicates it each time
+    private final ByteBuffer direct;
+
+    // The values referenced so far, and the index in this buffer that each of them goes at.
+    // Allocated lazily, most requests have no big values
+    private ByteBuffer[] references;
+    private int[] indexes;
+    private int count;
+
+    private FrameBodyBuffer(ChannelBuffer copied, ByteBuffer direct, int copyThreshold) {
+        super(copied);
+        this.copyThreshold = copyThreshold;
+        this.direct = direct;
+        clear();
+    }
+
+    /**
+     * Encodes the body of a request, referencing the bound values bigger than {@code copyThreshold}.
+     *
+     * @param writeFuture the future of the write of the frame, on completion of which the buffer
+     * is released. If this is {@code null}, the buffer is never released.
+     */
+    static <R extends Message.Request> ChannelBuffer encode(R request, Message.Coder<R> coder, ProtocolVersion version, int copyThreshold,
+                                                            BufferAllocator allocator, ChannelFuture writeFuture) {
+        int size = coder.encodedSize(request, version) - referencedSize(request, copyThreshold);
+        if (allocator == BufferAllocator.HEAP) {
+            FrameBodyBuffer body = new FrameBodyBuffer(ChannelBuffers.buffer(size), null, copyThreshold);
+            coder.encode(request, body, version);
+            assert body.writableBytes() == 0 : "Encoded " + body.writerIndex() + " bytes, expected " + body.capacity();
+            return body.toChannelBuffer();
+        }
+
+        ByteBuffer allocated = allocator.allocate(size);
+        boolean encoded = false;
+        try {
+            FrameBodyBuffer body = new FrameBodyBuffer(ChannelBuffers.wrappedBuffer(allocated),
+                                                       allocated.isDirect() ? allocated : null,
+                                                       copyThreshold);
+            coder.encode(request, body, version);
+            assert body.writableBytes() == 0 : "Encoded " + body.writerIndex() + " bytes, expected " + body.capacity();
+            ChannelBuffer result = body.toChannelBuffer();
+            encoded = true;
+            return result;
+        } finally {
+            if (!encoded)
+                allocator.release(allocated);
+            else if (writeFuture != null)
+                writeFuture.addListener(new Release(allocator, allocated));
+        }
+    }
+
+    /**
+     * Writes a bound value (see {@link CBUtil#writeValueList}), by reference if it's big enough.
+     */
+    void writeValue(ByteBuffer value) {
+        if (value == null || value.remaining() <= copyThreshold) {
+            CBUtil.writeValue(value, this);
+            return;
+        }
+
+        writeInt(value.remaining());
+        if (references == null) {
+            references = new ByteBuffer[4];
+            indexes = new int[4];
+        } else if (count == references.length) {
+            int newLength = count * 2;
+            ByteBuffer[] newReferences = new ByteBuffer[newLength];
+            int[] newIndexes = new int[newLength];
+            System.arraycopy(references, 0, newReferences, 0, count);
+            System.arraycopy(indexes, 0, newIndexes, 0, count);
+            references = newReferences;
+            indexes = newIndexes;
+        }
+        // The order must match the copied parts in the composite buffer
+        references[count] = value.duplicate().order(ByteOrder.BIG_ENDIAN);
+        indexes[count] = writerIndex();
+        count++;
+    }
+
+    @Override
+    public void setBytes(int index, ByteBuffer src) {
+        if (direct == null) {
+            super.setBytes(index, src);
+        } else {
+            checkIndex(index, src.remaining());
+            direct.limit(index + src.remaining()).position(index);
+            direct.put(src);
+        }
+    }
+
+    @Override
+    public void setBytes(int index, byte[] src, int srcIndex, int length) {
+        if (direct == null) {
+            super.setBytes(index, src, srcIndex, length);
+        } else {
+            checkIndex(index, length);
+            direct.limit(index + length).position(index);
+            direct.put(src, srcIndex, length);
+        }
+    }
+
+    private void checkIndex(int index, int length) {
+        if (index < 0 || index + length > capacity())
+            throw new IndexOutOfBoundsException("Too many bytes written: " + (index + length) + ", capacity: " + capacity());
+    }
+
+    private ChannelBuffer toChannelBuffer() {
+        if (count == 0)
+            return this;
+
+        ChannelBuffer[] components = new ChannelBuffer[2 * count + 1];
+        int start = 0;
+        for (int i = 0; i < count; i++) {
+            components[2 * i] = slice(start, indexes[i] - start);
+            components[2 * i + 1] = ChannelBuffers.wrappedBuffer(references[i]);
+            start = indexes[i];
+        }
+        components[2 * count] = slice(start, writerIndex() - start);
+        return ChannelBuffers.wrappedBuffer(components);
+    }
+
+    // This must match the values that writeValue references
+    private static int referencedSize(Message.Request request, int copyThreshold) {
+        switch (request.type) {
+            case QUERY:
+                return referencedSize(((Requests.Query)request).options.values, copyThreshold);
+            case EXECUTE:
+                return referencedSize(((Requests.Execute)request).options.values, copyThreshold);
+            case BATCH:
+                int size = 0;
+                for (List<ByteBuffer> values : ((Requests.Batch)request).values)
+                    size += referencedSize(values, copyThreshold);
+                return size;
+            default:
+                return 0;
+        }
+    }
+
+    private static int referencedSize(List<ByteBuffer> values, int copyThreshold) {
+        int size = 0;
+        for (int i = 0; i < values.size(); i++) {
+            ByteBuffer value = values.get(i);
+            if (value != null && value.remaining() > copyThreshold)
+                size += value.remaining();
+        }
+        return size;
+    }
+
+    private static class Release implements ChannelFutureListener {
+        private final BufferAllocator allocator;
+        private final ByteBuffer buffer;
+
+        Release(BufferAllocator allocator, ByteBuffer buffer) {
+            this.allocator = allocator;
+            this.buffer = buffer;
+        }
+
+        public void operationComplete(ChannelFuture future) {
+            allocator.release(buffer);
+        }
+    }
+}
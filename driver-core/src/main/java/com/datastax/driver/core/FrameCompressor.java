@@ -18,6 +18,7 @@ package com.datastax.driver.core;
 import java.io.IOException;
 
 import net.jpountz.lz4.LZ4Factory;
+import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,9 +30,43 @@ abstract class FrameCompressor {
 
     private static final Logger logger = LoggerFactory.getLogger(FrameCompressor.class);
 
+    // Scratch arrays bigger than this are not kept for reuse, so that a single large frame does not pin
+    // memory in every I/O thread.
+    private static final int MAX_RETAINED_SCRATCH_SIZE = 256 * 1024;
+
+    private static final ThreadLocal<byte[]> scratch = new ThreadLocal<byte[]>();
+
     public abstract Frame compress(Frame frame) throws IOException;
     public abstract Frame decompress(Frame frame) throws IOException;
 
+    /**
+     * Returns an array holding the readable bytes of {@code buffer}, starting at {@link #inputOffset}.
+     * <p>
+     * For heap buffers (which is what the frame decoder and the message encoders produce), this is the
+     * backing array itself. Otherwise, the bytes are copied into a per-thread scratch array, which is only
+     * valid until the next call on the same thread.
+     */
+    static byte[] inputArray(ChannelBuffer buffer) {
+        if (buffer.hasArray())
+            return buffer.array();
+
+        int length = buffer.readableBytes();
+        byte[] array = scratch.get();
+        if (array == null || array.length < length) {
+            array = new byte[length];
+            if (length <= MAX_RETAINED_SCRATCH_SIZE)
+                scratch.set(array);
+        }
+        buffer.getBytes(buffer.readerIndex(), array, 0, length);
+        return array;
+    }
+
+    static int inputOffset(ChannelBuffer buffer) {
+        return buffer.hasArray()
+             ? buffer.arrayOffset() + buffer.readerIndex()
+             : 0;
+    }
+
     public static class SnappyCompressor extends FrameCompressor {
 
         public static final SnappyCompressor instance;
@@ -56,21 +91,27 @@ abstract class FrameCompressor {
         }
 
         public Frame compress(Frame frame) throws IOException {
-            byte[] input = CBUtil.readRawBytes(frame.body);
-            byte[] output = new byte[Snappy.maxCompressedLength(input.length)];
+            ChannelBuffer body = frame.body;
+            byte[] input = inputArray(body);
+            int inputOffset = inputOffset(body);
+            int inputLength = body.readableBytes();
 
-            int written = Snappy.compress(input, 0, input.length, output, 0);
+            byte[] output = new byte[Snappy.maxCompressedLength(inputLength)];
+            int written = Snappy.compress(input, inputOffset, inputLength, output, 0);
             return frame.with(ChannelBuffers.wrappedBuffer(output, 0, written));
         }
 
         public Frame decompress(Frame frame) throws IOException {
-            byte[] input = CBUtil.readRawBytes(frame.body);
+            ChannelBuffer body = frame.body;
+            byte[] input = inputArray(body);
+            int inputOffset = inputOffset(body);
+            int inputLength = body.readableBytes();
 
-            if (!Snappy.isValidCompressedBuffer(input, 0, input.length))
+            if (!Snappy.isValidCompressedBuffer(input, inputOffset, inputLength))
                 throw new DriverInternalError("Provided frame does not appear to be Snappy compressed");
 
-            byte[] output = new byte[Snappy.uncompressedLength(input)];
-            int size = Snappy.uncompress(input, 0, input.length, output, 0);
+            byte[] output = new byte[Snappy.uncompressedLength(input, inputOffset, inputLength)];
+            int size = Snappy.uncompress(input, inputOffset, inputLength, output, 0);
             return frame.with(ChannelBuffers.wrappedBuffer(output, 0, size));
         }
     }
@@ -103,18 +144,21 @@ abstract class FrameCompressor {
         }
 
         public Frame compress(Frame frame) throws IOException {
-            byte[] input = CBUtil.readRawBytes(frame.body);
+            ChannelBuffer body = frame.body;
+            byte[] input = inputArray(body);
+            int inputOffset = inputOffset(body);
+            int inputLength = body.readableBytes();
 
-            int maxCompressedLength = compressor.maxCompressedLength(input.length);
+            int maxCompressedLength = compressor.maxCompressedLength(inputLength);
             byte[] output = new byte[INTEGER_BYTES + maxCompressedLength];
 
-            output[0] = (byte) (input.length >>> 24);
-            output[1] = (byte) (input.length >>> 16);
-            output[2] = (byte) (input.length >>>  8);
-            output[3] = (byte) (input.length);
+            output[0] = (byte) (inputLength >>> 24);
+            output[1] = (byte) (inputLength >>> 16);
+            output[2] = (byte) (inputLength >>>  8);
+            output[3] = (byte) (inputLength);
 
             try {
-                int written = compressor.compress(input, 0, input.length, output, INTEGER_BYTES, maxCompressedLength);
+                int written = compressor.compress(input, inputOffset, inputLength, output, INTEGER_BYTES, maxCompressedLength);
                 return frame.with(ChannelBuffers.wrappedBuffer(output, 0, INTEGER_BYTES + written));
             } catch (Exception e) {
                 throw new IOException(e);
@@ -122,18 +166,19 @@ abstract class FrameCompressor {
         }
 
         public Frame decompress(Frame frame) throws IOException {
-            byte[] input = CBUtil.readRawBytes(frame.body);
+            ChannelBuffer body = frame.body;
+            // The uncompressed length is read directly from the buffer, it is not part of the LZ4 block
+            int uncompressedLength = body.getInt(body.readerIndex());
+            int compressedLength = body.readableBytes() - INTEGER_BYTES;
 
-            int uncompressedLength = ((input[0] & 0xFF) << 24)
-                                   | ((input[1] & 0xFF) << 16)
-                                   | ((input[2] & 0xFF) <<  8)
-                                   | ((input[3] & 0xFF));
+            byte[] input = inputArray(body);
+            int inputOffset = inputOffset(body) + INTEGER_BYTES;
 
             byte[] output = new byte[uncompressedLength];
 
             try {
-                int read = decompressor.decompress(input, INTEGER_BYTES, output, 0, uncompressedLength);
-                if (read != input.length - INTEGER_BYTES)
+                int read = decompressor.decompress(input, inputOffset, output, 0, uncompressedLength);
+                if (read != compressedLength)
                     throw new IOException("Compressed lengths mismatch");
 
                 return frame.with(ChannelBuffers.wrappedBuffer(output));
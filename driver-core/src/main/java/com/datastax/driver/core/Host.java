@@ -239,6 +239,18 @@ public class Host {
         this.manager.startSingleReconnectionAttempt(this);
     }
 
+    /**
+     * Returns the number of requests currently in flight to this host, across all the sessions of the cluster.
+     * <p>
+     * This method is intended for load balancing policies that take the current load of hosts into account.
+     * It is cheap but not free, since it sums the counters of each connection to the host.
+     *
+     * @return the number of requests in flight to this host.
+     */
+    public int getInFlightQueries() {
+        return manager.inFlightQueries(this);
+    }
+
     @Override
     public boolean equals(Object other) {
         if (other instanceof Host) {
@@ -15,14 +15,33 @@
  */
 package com.datastax.driver.core;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
+import com.google.common.util.concurrent.AsyncFunction;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.TimerTask;
+
+import com.datastax.driver.core.exceptions.DriverInternalError;
+
 /**
  * A set of connections to a live host.
  *
  * We use different strategies depending of the protocol version in use.
+ *
+ * Borrowing never blocks on a lock: implementations acquire a stream with a CAS on the connection's
+ * in-flight count ({@link #tryBorrowConnection}), and when the pool is saturated the borrower is parked
+ * in a bounded queue of pending borrows (see {@link PoolingOptions#getMaxQueueSize()}) that is served,
+ * in arrival order, whenever a connection is returned or added to the pool.
  */
 abstract class HostConnectionPool {
 
@@ -44,6 +63,10 @@ abstract class HostConnectionPool {
 
     protected final AtomicReference<CloseFuture> closeFuture = new AtomicReference<CloseFuture>();
 
+    private final Queue<PendingBorrow> pendingBorrows = new ConcurrentLinkedQueue<PendingBorrow>();
+    // ConcurrentLinkedQueue.size() is linear, so track the size separately. Decremented by whoever removes an element.
+    private final AtomicInteger pendingBorrowCount = new AtomicInteger();
+
     protected HostConnectionPool(Host host, HostDistance hostDistance, SessionManager manager) {
         assert hostDistance != HostDistance.IGNORED;
         this.host = host;
@@ -51,7 +74,172 @@ abstract class HostConnectionPool {
         this.manager = manager;
     }
 
-    abstract PooledConnection borrowConnection(long timeout, TimeUnit unit) throws ConnectionException, TimeoutException;
+    /**
+     * Tries to acquire a connection without waiting, and schedules the creation of new connections if needed.
+     *
+     * @return a connection whose in-flight count has already been incremented, or {@code null} if the pool is
+     * currently saturated (or has no connection yet).
+     */
+    abstract PooledConnection tryBorrowConnection() throws ConnectionException;
+
+    /**
+     * Borrows a connection, blocking the calling thread at most {@code timeout} if the pool is saturated.
+     */
+    PooledConnection borrowConnection(long timeout, TimeUnit unit) throws ConnectionException, TimeoutException, BusyPoolException {
+        PooledConnection connection;
+        try {
+            connection = Uninterruptibles.getUninterruptibly(acquire(timeout, unit));
+        } catch (ExecutionException e) {
+            throw propagateBorrowFailure(e.getCause());
+        }
+        connection.setKeyspace(manager.poolsState.keyspace);
+        return connection;
+    }
+
+    /**
+     * Borrows a connection without ever blocking the calling thread.
+     * <p>
+     * If a connection is available right away, the returned future is already completed. Otherwise it completes
+     * when a connection gets returned to (or added to) the pool, or fails with a {@link TimeoutException} after
+     * {@code timeout}, or with a {@link ConnectionException} if the pool gets closed in the meantime. If too many
+     * borrowers are already waiting, it fails immediately with a {@link BusyPoolException}.
+     */
+    ListenableFuture<PooledConnection> borrowConnectionAsync(long timeout, TimeUnit unit) {
+        ListenableFuture<PooledConnection> future = acquire(timeout, unit);
+
+        if (future.isDone()) {
+            // Fast path: if the connection is already on the right keyspace, setKeyspace would be a no-op, don't pay
+            // for an executor hop. Otherwise it sends a USE request and blocks, which must not happen on this thread.
+            try {
+                PooledConnection connection = Uninterruptibles.getUninterruptibly(future);
+                String keyspace = manager.poolsState.keyspace;
+                if (keyspace == null || keyspace.equals(connection.keyspace()))
+                    return future;
+            } catch (ExecutionException e) {
+                return future;
+            }
+        }
+
+        // setKeyspace blocks, so it must not run on the thread that completes the future (usually a Netty I/O thread)
+        return Futures.transform(future, new AsyncFunction<PooledConnection, PooledConnection>() {
+            public ListenableFuture<PooledConnection> apply(PooledConnection connection) throws Exception {
+                try {
+                    connection.setKeyspace(manager.poolsState.keyspace);
+                    return Futures.immediateFuture(connection);
+                } catch (Exception e) {
+                    connection.release();
+                    throw e;
+                }
+            }
+        }, manager.executor());
+    }
+
+    private ListenableFuture<PooledConnection> acquire(long timeout, TimeUnit unit) {
+        if (isClosed())
+            // Note: failing with a ConnectionException is probably fine in practice as it will trigger the creation of a new host.
+            // That being said, maybe having a specific exception could be cleaner.
+            return Futures.immediateFailedFuture(new ConnectionException(host.getSocketAddress(), "Pool is shutdown"));
+
+        try {
+            // Don't jump ahead of borrowers that are already waiting
+            if (pendingBorrows.isEmpty()) {
+                PooledConnection connection = tryBorrowConnection();
+                if (connection != null)
+                    return Futures.immediateFuture(connection);
+            }
+        } catch (ConnectionException e) {
+            return Futures.immediateFailedFuture(e);
+        }
+
+        if (timeout == 0)
+            return Futures.immediateFailedFuture(new TimeoutException());
+
+        int maxQueueSize = manager.configuration().getPoolingOptions().getMaxQueueSize();
+        while (true) {
+            int count = pendingBorrowCount.get();
+            if (count >= maxQueueSize)
+                return Futures.immediateFailedFuture(new BusyPoolException(host.getSocketAddress(), count));
+            if (pendingBorrowCount.compareAndSet(count, count + 1))
+                break;
+        }
+
+        PendingBorrow pending = new PendingBorrow(timeout, unit);
+        pendingBorrows.offer(pending);
+
+        // A connection might have been returned between our attempt and the enqueue, or the pool closed.
+        if (isClosed())
+            failPendingBorrows();
+        else
+            dequeuePendingBorrows();
+
+        return pending.future;
+    }
+
+    /**
+     * Hands available connections to pending borrowers. Implementations must call this whenever a stream is
+     * released or a new connection is added to the pool.
+     */
+    protected void dequeuePendingBorrows() {
+        PendingBorrow pending;
+        while ((pending = pendingBorrows.peek()) != null) {
+            if (pending.future.isDone()) {
+                // timed out or cancelled
+                if (pendingBorrows.remove(pending))
+                    pendingBorrowCount.decrementAndGet();
+                continue;
+            }
+
+            PooledConnection connection;
+            try {
+                connection = tryBorrowConnection();
+            } catch (ConnectionException e) {
+                failPendingBorrows();
+                return;
+            }
+            if (connection == null)
+                return;
+
+            // Another thread might have served (or timeout might have failed) this borrower concurrently, in
+            // which case we give the stream back, which will serve the next borrower.
+            boolean removed = pendingBorrows.remove(pending);
+            if (removed)
+                pendingBorrowCount.decrementAndGet();
+            if (!removed || !pending.complete(connection)) {
+                connection.release();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Fails all pending borrowers. Implementations must call this when the pool gets closed.
+     */
+    protected void failPendingBorrows() {
+        PendingBorrow pending;
+        while ((pending = pendingBorrows.poll()) != null) {
+            pendingBorrowCount.decrementAndGet();
+            pending.fail(new ConnectionException(host.getSocketAddress(), "Pool is shutdown"));
+        }
+    }
+
+    /**
+     * @return the number of borrowers currently waiting for a connection.
+     */
+    int pendingBorrowCount() {
+        return pendingBorrowCount.get();
+    }
+
+    private static RuntimeException propagateBorrowFailure(Throwable cause) throws ConnectionException, TimeoutException, BusyPoolException {
+        if (cause instanceof ConnectionException)
+            throw (ConnectionException)cause;
+        if (cause instanceof TimeoutException)
+            throw (TimeoutException)cause;
+        if (cause instanceof BusyPoolException)
+            throw (BusyPoolException)cause;
+        if (cause instanceof RuntimeException)
+            throw (RuntimeException)cause;
+        return new DriverInternalError("Unexpected error while borrowing a connection", cause);
+    }
 
     abstract void returnConnection(PooledConnection connection);
 
@@ -82,6 +270,36 @@ abstract class HostConnectionPool {
             : closeFuture.get(); // We raced, it's ok, return the future that was actually set
     }
 
+    private class PendingBorrow implements TimerTask {
+        final SettableFuture<PooledConnection> future = SettableFuture.create();
+        private final long startNanos = System.nanoTime();
+        private final Timeout timeout;
+
+        PendingBorrow(long timeout, TimeUnit unit) {
+            this.timeout = manager.connectionFactory().timer.newTimeout(this, timeout, unit);
+        }
+
+        boolean complete(PooledConnection connection) {
+            if (!future.set(connection))
+                return false;
+            timeout.cancel();
+            if (manager.configuration().getMetricsOptions() != null)
+                manager.cluster.manager.metrics.getRequestQueueWaitTimer().update(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            return true;
+        }
+
+        void fail(Exception e) {
+            if (future.setException(e))
+                timeout.cancel();
+        }
+
+        @Override
+        public void run(Timeout t) {
+            if (future.setException(new TimeoutException()) && pendingBorrows.remove(this))
+                pendingBorrowCount.decrementAndGet();
+        }
+    }
+
     static class PoolState {
         volatile String keyspace;
 
@@ -0,0 +1,86 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.google.common.base.Ticker;
+
+/**
+ * Records values into a {@link LatencyHistogram} for the current time interval, and periodically swaps it with a
+ * fresh one; the swapped-out histogram then serves as the source for all reads until the next swap.
+ * <p>
+ * Reads are thus always based on the complete set of data of the previous interval. Recording is lock-free and
+ * allocation-free, except for the thread that performs the swap.
+ */
+class IntervalHistogram {
+
+    private final long highestTrackableValue;
+    private final long intervalNanos;
+    private final Ticker ticker;
+
+    private volatile LatencyHistogram current;
+    private volatile LatencyHistogram.Snapshot lastInterval;
+    private volatile long intervalStart;
+    private final AtomicBoolean rolling = new AtomicBoolean();
+
+    IntervalHistogram(long highestTrackableValue, long intervalNanos) {
+        this(highestTrackableValue, intervalNanos, Ticker.systemTicker());
+    }
+
+    IntervalHistogram(long highestTrackableValue, long intervalNanos, Ticker ticker) {
+        this.highestTrackableValue = highestTrackableValue;
+        this.intervalNanos = intervalNanos;
+        this.ticker = ticker;
+        this.current = new LatencyHistogram(highestTrackableValue);
+        this.intervalStart = ticker.read();
+    }
+
+    void record(long value) {
+        maybeRoll();
+        current.record(value);
+    }
+
+    /**
+     * @return the values recorded during the previous interval, or {@code null} if the first interval has not
+     * elapsed yet, or if nothing was recorded for more than an interval.
+     */
+    LatencyHistogram.Snapshot lastInterval() {
+        maybeRoll();
+        return lastInterval;
+    }
+
+    private void maybeRoll() {
+        long now = ticker.read();
+        if (now - intervalStart < intervalNanos)
+            return;
+        // Only one thread rolls; the others keep recording in the histogram that is being swapped out, which
+        // is harmless since its snapshot is only taken once the new histogram is in place.
+        if (!rolling.compareAndSet(false, true))
+            return;
+        try {
+            if (now - intervalStart < intervalNanos)
+                return;
+            LatencyHistogram previous = current;
+            current = new LatencyHistogram(highestTrackableValue);
+            // If no value was recorded or read for more than an interval, the data is stale: discard it
+            lastInterval = (now - intervalStart < 2 * intervalNanos) ? previous.snapshot() : null;
+            intervalStart = now;
+        } finally {
+            rolling.set(false);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of non-negative values (typically latencies), recorded with a bounded
+ * relative error.
+ * <p>
+ * Values are stored in log-linear buckets: values below {@code 2^precisionBits} each have their own
+ * bucket, and each subsequent power of two is split into {@code 2^(precisionBits - 1)} linear
+ * sub-buckets. The relative error of any reported value is thus bounded by {@code 2^-(precisionBits - 1)}
+ * (less than 1% with the default of 8 bits), and the memory footprint only grows logarithmically with
+ * the highest trackable value.
+ * <p>
+ * Recording a value is a single atomic increment and never allocates; reading is done through an
+ * immutable {@link Snapshot}.
+ */
+class LatencyHistogram {
+
+    static final int DEFAULT_PRECISION_BITS = 8;
+
+    private final int precisionBits;
+    private final long highestTrackableValue;
+    private final AtomicLongArray counts;
+
+    LatencyHistogram(long highestTrackableValue) {
+        this(highestTrackableValue, DEFAULT_PRECISION_BITS);
+    }
+
+    LatencyHistogram(long highestTrackableValue, int precisionBits) {
+        if (highestTrackableValue < 1)
+            throw new IllegalArgumentException("highestTrackableValue must be strictly positive, got " + highestTrackableValue);
+        if (precisionBits < 1 || precisionBits > 16)
+            throw new IllegalArgumentException("precisionBits must be between 1 and 16, got " + precisionBits);
+
+        this.precisionBits = precisionBits;
+        this.highestTrackableValue = highestTrackableValue;
+        this.counts = new AtomicLongArray(indexOf(highestTrackableValue, precisionBits) + 1);
+    }
+
+    long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    /**
+     * Records a value. Values outside of {@code [0, highestTrackableValue]} are clamped.
+     */
+    void record(long value) {
+        if (value < 0)
+            value = 0;
+        else if (value > highestTrackableValue)
+            value = highestTrackableValue;
+        counts.incrementAndGet(indexOf(value, precisionBits));
+    }
+
+    /**
+     * Returns an immutable view of the values recorded so far.
+     * <p>
+     * This is not atomic with respect to concurrent calls to {@link #record}: values recorded
+     * while the snapshot is taken may or may not be included.
+     */
+    Snapshot snapshot() {
+        long[] cumulativeCounts = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < cumulativeCounts.length; i++) {
+            total += counts.get(i);
+            cumulativeCounts[i] = total;
+        }
+        return new Snapshot(cumulativeCounts, precisionBits, highestTrackableValue);
+    }
+
+    static int indexOf(long value, int precisionBits) {
+        if (value < (1L << precisionBits))
+            return (int)value;
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int shift = msb - precisionBits + 1;
+        return (shift << (precisionBits - 1)) + (int)(value >>> shift);
+    }
+
+    static long lowestValueAt(int index, int precisionBits) {
+        if (index < (1 << precisionBits))
+            return index;
+        int shift = (index >> (precisionBits - 1)) - 1;
+        long subBucket = index - (shift << (precisionBits - 1));
+        return subBucket << shift;
+    }
+
+    static long highestValueAt(int index, int precisionBits) {
+        return lowestValueAt(index + 1, precisionBits) - 1;
+    }
+
+    static class Snapshot {
+        private final long[] cumulativeCounts;
+        private final int precisionBits;
+        private final long highestTrackableValue;
+
+        private Snapshot(long[] cumulativeCounts, int precisionBits, long highestTrackableValue) {
+            this.cumulativeCounts = cumulativeCounts;
+            this.precisionBits = precisionBits;
+            this.highestTrackableValue = highestTrackableValue;
+        }
+
+        long getTotalCount() {
+            return cumulativeCounts.length == 0 ? 0 : cumulativeCounts[cumulativeCounts.length - 1];
+        }
+
+        /**
+         * Returns the (highest equivalent) value at the given percentile, or -1 if no values were recorded.
+         */
+        long getValueAtPercentile(double percentile) {
+            long total = getTotalCount();
+            if (total == 0)
+                return -1;
+
+            long rank = (long)Math.ceil(Math.min(percentile, 100.0) / 100.0 * total);
+            if (rank < 1)
+                rank = 1;
+
+            // Binary search for the first bucket whose cumulative count reaches the rank
+            int low = 0, high = cumulativeCounts.length - 1;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (cumulativeCounts[mid] < rank)
+                    low = mid + 1;
+                else
+                    high = mid;
+            }
+            return Math.min(highestValueAt(low, precisionBits), highestTrackableValue);
+        }
+
+        long getMax() {
+            return getValueAtPercentile(100.0);
+        }
+
+        /**
+         * Returns the mean of the recorded values (approximated by the midpoint of each bucket),
+         * or -1 if no values were recorded.
+         */
+        double getMean() {
+            long total = getTotalCount();
+            if (total == 0)
+                return -1;
+
+            double sum = 0;
+            long previous = 0;
+            for (int i = 0; i < cumulativeCounts.length; i++) {
+                long count = cumulativeCounts[i] - previous;
+                previous = cumulativeCounts[i];
+                if (count > 0)
+                    sum += count * ((lowestValueAt(i, precisionBits) + highestValueAt(i, precisionBits)) / 2.0);
+            }
+            return sum / total;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A {@link BufferAllocator} that keeps track of the buffers allocated by another one, to
+ * detect the buffers that are never released, or released twice.
+ * <p>
+ * This records a stack trace for each allocation, and is meant for tests:
+ * <pre>
+ *     LeakDetectingBufferAllocator allocator = new LeakDetectingBufferAllocator(new PooledBufferAllocator());
+ *     Cluster cluster = Cluster.builder()
+ *                              .addContactPoint("127.0.0.1")
+ *                              .withSocketOptions(new SocketOptions().setBufferAllocator(allocator))
+ *                              .build();
+ *     ...
+ *     cluster.close();
+ *     allocator.checkNoLeaks();
+ * </pre>
+ */
+public class LeakDetectingBufferAllocator implements BufferAllocator {
+
+    private final BufferAllocator delegate;
+    private final Map<ByteBuffer, Throwable> allocated = new IdentityHashMap<ByteBuffer, Throwable>();
+
+    /**
+     * Creates a new instance that tracks the buffers of {@link BufferAllocator#HEAP}.
+     */
+    public LeakDetectingBufferAllocator() {
+        this(BufferAllocator.HEAP);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param delegate the allocator to track the buffers of.
+     */
+    public LeakDetectingBufferAllocator(BufferAllocator delegate) {
+        this.delegate = delegate;
+    }
+
+    public ByteBuffer allocate(int size) {
+        ByteBuffer buffer = delegate.allocate(size);
+        Throwable trace = new Throwable("Allocation of a " + size + " bytes buffer");
+        synchronized (allocated) {
+            allocated.put(buffer, trace);
+        }
+        return buffer;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IllegalStateException if {@code buffer} was already released, or was not
+     * allocated by this allocator.
+     */
+    public void release(ByteBuffer buffer) {
+        Throwable trace;
+        synchronized (allocated) {
+            trace = allocated.remove(buffer);
+        }
+        if (trace == null)
+            throw new IllegalStateException("Released a buffer twice, or one that was not allocated by this allocator: " + buffer);
+        delegate.release(buffer);
+    }
+
+    /**
+     * Returns the number of buffers currently allocated and not released.
+     *
+     * @return the number of buffers.
+     */
+    public int getUnreleasedCount() {
+        synchronized (allocated) {
+            return allocated.size();
+        }
+    }
+
+    /**
+     * Checks that all allocated buffers were released.
+     *
+     * @throws IllegalStateException if some buffers were not released. Its cause is the stack
+     * trace of the allocation of one of them.
+     */
+    public void checkNoLeaks() {
+        synchronized (allocated) {
+            if (!allocated.isEmpty())
+                throw new IllegalStateException(allocated.size() + " buffer(s) allocated but not released",
+                                                allocated.values().iterator().next());
+        }
+    }
+}
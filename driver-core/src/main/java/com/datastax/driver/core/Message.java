@@ -19,9 +19,11 @@ import java.util.EnumSet;
 import java.util.UUID;
 
 import org.jboss.netty.buffer.ChannelBuffer;
-import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelFuture;
 import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.Channels;
+import org.jboss.netty.channel.MessageEvent;
 import org.jboss.netty.handler.codec.oneone.OneToOneDecoder;
 import org.jboss.netty.handler.codec.oneone.OneToOneEncoder;
 import org.slf4j.Logger;
@@ -94,6 +96,24 @@ abstract class Message {
         public boolean isTracingRequested() {
             return tracingRequested;
         }
+
+        /**
+         * Returns a copy of this request.
+         * <p>
+         * Since the stream id is stored in the request itself, the same instance can't
+         * be in flight on two connections at once; this is used when a request needs to
+         * be sent again while the previous attempt might still be running (speculative
+         * executions).
+         */
+        Request copy() {
+            Request copy = copyInternal();
+            copy.tracingRequested = tracingRequested;
+            return copy;
+        }
+
+        protected Request copyInternal() {
+            throw new UnsupportedOperationException(type + " requests can't be copied");
+        }
     }
 
     public static abstract class Response extends Message {
@@ -173,24 +193,41 @@ abstract class Message {
     public static class ProtocolEncoder extends OneToOneEncoder {
 
         private final ProtocolVersion protocolVersion;
+        private final int valueCopyThreshold;
+        private final BufferAllocator allocator;
 
-        public ProtocolEncoder(ProtocolVersion version) {
+        public ProtocolEncoder(ProtocolVersion version, int valueCopyThreshold, BufferAllocator allocator) {
             this.protocolVersion = version;
+            this.valueCopyThreshold = valueCopyThreshold;
+            this.allocator = allocator;
         }
 
-        @SuppressWarnings("unchecked")
+        @Override
+        protected boolean doEncode(ChannelHandlerContext ctx, MessageEvent e) {
+            // Same as the parent, but releases the body's buffer once the frame is written
+            Frame frame = encode((Request)e.getMessage(), e.getFuture());
+            Channels.write(ctx, e.getFuture(), frame, e.getRemoteAddress());
+            return true;
+        }
+
+        /**
+         * Encodes a request outside of a pipeline. Note that the body's buffer is never released.
+         */
         public Object encode(ChannelHandlerContext ctx, Channel channel, Object msg) {
             assert msg instanceof Request : "Expecting request, got " + msg;
 
-            Request request = (Request)msg;
+            return encode((Request)msg, null);
+        }
+
+        @SuppressWarnings("unchecked")
+        Frame encode(Request request, ChannelFuture writeFuture) {
 
             EnumSet<Frame.Header.Flag> flags = EnumSet.noneOf(Frame.Header.Flag.class);
             if (request.isTracingRequested())
                 flags.add(Frame.Header.Flag.TRACING);
 
             Coder<Request> coder = (Coder<Request>)request.type.coder;
-            ChannelBuffer body = ChannelBuffers.buffer(coder.encodedSize(request, protocolVersion));
-            coder.encode(request, body, protocolVersion);
+            ChannelBuffer body = FrameBodyBuffer.encode(request, coder, protocolVersion, valueCopyThreshold, allocator, writeFuture);
 
             return Frame.create(protocolVersion, request.type.opcode, request.getStreamId(), flags, body);
         }
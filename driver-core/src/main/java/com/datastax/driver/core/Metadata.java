@@ -22,6 +22,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 
+import com.google.common.base.Objects;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
@@ -43,6 +44,8 @@ public class Metadata {
     private final ConcurrentMap<InetSocketAddress, Host> hosts = new ConcurrentHashMap<InetSocketAddress, Host>();
     private final ConcurrentMap<String, KeyspaceMetadata> keyspaces = new ConcurrentHashMap<String, KeyspaceMetadata>();
     volatile TokenMap tokenMap;
+    // Quoted keyspace names, for getReplicasOfInternalName
+    private final ConcurrentMap<String, String> quotedKeyspaces = new ConcurrentHashMap<String, String>();
 
     private static final Pattern cqlId = Pattern.compile("\\w+");
     private static final Pattern lowercaseId = Pattern.compile("[a-z][a-z0-9_]*");
@@ -51,8 +54,10 @@ public class Metadata {
         this.cluster = cluster;
     }
 
-    // Synchronized to make it easy to detect dropped keyspaces
-    synchronized void rebuildSchema(String keyspaceName, String tableName, String udtName, ResultSet ks, ResultSet udts, ResultSet cfs, ResultSet cols, VersionNumber cassandraVersion) {
+    // Synchronized to make it easy to detect dropped keyspaces.
+    // Returns whether the replication of any keyspace changed (including keyspaces being created or dropped),
+    // in which case the token map must be rebuilt.
+    synchronized boolean rebuildSchema(String keyspaceName, String tableName, String udtName, ResultSet ks, ResultSet udts, ResultSet cfs, ResultSet cols, VersionNumber cassandraVersion) {
 
         Map<String, List<Row>> cfDefs = new HashMap<String, List<Row>>();
         Map<String, List<Row>> udtDefs = new HashMap<String, List<Row>>();
@@ -104,6 +109,7 @@ public class Metadata {
             }
         }
 
+        boolean replicationChanged = false;
         if (tableName == null && udtName == null) { // Refresh one or all keyspaces
             assert ks != null;
             Set<String> addedKs = new HashSet<String>();
@@ -115,7 +121,9 @@ public class Metadata {
                     buildTableMetadata(ksm, cfDefs.get(ksName), colsDefs.get(ksName), cassandraVersion);
                 }
                 addedKs.add(ksName);
-                keyspaces.put(ksName, ksm);
+                KeyspaceMetadata previous = keyspaces.put(ksName, ksm);
+                if (previous == null || !previous.getReplication().equals(ksm.getReplication()))
+                    replicationChanged = true;
             }
 
             // If keyspace is null, it means we're rebuilding from scratch, so
@@ -123,8 +131,10 @@ public class Metadata {
             if (keyspaceName == null) {
                 Iterator<String> iter = keyspaces.keySet().iterator();
                 while (iter.hasNext()) {
-                    if (!addedKs.contains(iter.next()))
+                    if (!addedKs.contains(iter.next())) {
                         iter.remove();
+                        replicationChanged = true;
+                    }
                 }
             }
         } else if (tableName != null) {
@@ -136,7 +146,7 @@ public class Metadata {
             if (ksm == null) {
                 logger.error(String.format("Asked to rebuild table %s.%s but I don't know keyspace %s", keyspaceName, tableName, keyspaceName));
                 cluster.submitSchemaRefresh(null, null, null);
-                return;
+                return false;
             }
 
             if (cfDefs.containsKey(keyspaceName))
@@ -148,12 +158,13 @@ public class Metadata {
             if (ksm == null) {
                 logger.error(String.format("Asked to rebuild type %s.%s but I don't know keyspace %s", keyspaceName, udtName, keyspaceName));
                 cluster.submitSchemaRefresh(null, null, null);
-                return;
+                return false;
             }
 
             if (udtDefs.containsKey(keyspaceName))
                 ksm.addUserTypes(udtDefs.get(keyspaceName));
         }
+        return replicationChanged;
     }
 
     private void buildTableMetadata(KeyspaceMetadata ksm, List<Row> cfRows, Map<String, Map<String, ColumnMetadata.Raw>> colsDefs, VersionNumber cassandraVersion) {
@@ -200,7 +211,7 @@ public class Metadata {
         if (factory == null)
             return;
 
-        this.tokenMap = TokenMap.build(factory, allTokens, keyspaces.values());
+        this.tokenMap = TokenMap.build(factory, allTokens, keyspaces.values(), tokenMap);
     }
 
     Host add(InetSocketAddress address) {
@@ -324,16 +335,40 @@ public class Metadata {
      * by the driver.
      */
     public Set<Host> getReplicas(String keyspace, ByteBuffer partitionKey) {
-        keyspace = handleId(keyspace);
+        // Note: the keyspace identifier is handled by TokenMap, which can avoid parsing it
         TokenMap current = tokenMap;
         if (current == null) {
             return Collections.emptySet();
         } else {
-            Set<Host> hosts = current.getReplicas(keyspace, current.factory.hash(partitionKey));
+            Set<Host> hosts = current.getReplicas(keyspace, partitionKey);
             return hosts == null ? Collections.<Host>emptySet() : hosts;
         }
     }
 
+    /**
+     * Returns the set of hosts that are replica for a given partition key, in a keyspace
+     * designated by its internal (case sensitive, unquoted) name.
+     * <p>
+     * This is equivalent to {@code getReplicas(Metadata.quote(keyspace), partitionKey)},
+     * without allocating the quoted name on each call. It's meant for load balancing
+     * policies, which get the keyspace of a query from {@link Statement#getKeyspace()} or
+     * from the session.
+     *
+     * @param keyspace the internal name of the keyspace to get replicas for.
+     * @param partitionKey the partition key for which to find the set of
+     * replica.
+     * @return the (immutable) set of replicas for {@code partitionKey} as known
+     * by the driver.
+     */
+    public Set<Host> getReplicasOfInternalName(String keyspace, ByteBuffer partitionKey) {
+        String quoted = quotedKeyspaces.get(keyspace);
+        if (quoted == null) {
+            quoted = quote(keyspace);
+            quotedKeyspaces.put(keyspace, quoted);
+        }
+        return getReplicas(quoted, partitionKey);
+    }
+
     /**
      * Returns the set of hosts that are replica for a given token range.
      * <p>
@@ -406,7 +441,7 @@ public class Metadata {
     void removeKeyspace(String keyspace) {
         keyspaces.remove(keyspace);
         if (tokenMap != null)
-            tokenMap.tokenToHosts.remove(keyspace);
+            tokenMap.removeKeyspace(keyspace);
     }
 
     /**
@@ -483,18 +518,32 @@ public class Metadata {
         private final List<Token> ring;
         private final Set<TokenRange> tokenRanges;
         final Set<Host> hosts;
+        // null if the partitioner is not Murmur3
+        private final ReplicaIndex replicaIndex;
+
+        // What's needed to update this map incrementally: keyspaces with the same replication share their replicas,
+        // and the location of each host is recorded because Host objects are updated in place.
+        private final Map<Token, Host> tokenToPrimary;
+        private final Map<Host, List<String>> locations;
+        private final Map<ReplicationStrategy, Replicas> replicasByStrategy;
 
         private TokenMap(Token.Factory factory,
                          Map<Host, Set<Token>> primaryToTokens,
                          Map<String, Map<Token, Set<Host>>> tokenToHosts,
                          Map<String, Map<Host, Set<TokenRange>>> hostsToRanges,
-                         List<Token> ring, Set<TokenRange> tokenRanges, Set<Host> hosts) {
+                         List<Token> ring, Set<TokenRange> tokenRanges, Set<Host> hosts,
+                         Map<Token, Host> tokenToPrimary, Map<Host, List<String>> locations,
+                         Map<ReplicationStrategy, Replicas> replicasByStrategy) {
             this.factory = factory;
             this.tokenToHosts = tokenToHosts;
+            this.replicaIndex = ReplicaIndex.build(factory, ring, tokenToHosts);
             this.hostsToRanges = hostsToRanges;
             this.ring = ring;
             this.tokenRanges = tokenRanges;
             this.hosts = hosts;
+            this.tokenToPrimary = tokenToPrimary;
+            this.locations = locations;
+            this.replicasByStrategy = replicasByStrategy;
             for (Map.Entry<Host, Set<Token>> entry : primaryToTokens.entrySet()) {
                 Host host = entry.getKey();
                 host.setTokens(ImmutableSet.copyOf(entry.getValue()));
@@ -502,14 +551,24 @@ public class Metadata {
         }
 
         public static TokenMap build(Token.Factory factory, Map<Host, Collection<String>> allTokens, Collection<KeyspaceMetadata> keyspaces) {
+            return build(factory, allTokens, keyspaces, null);
+        }
+
+        /**
+         * @param previous the current token map, if any. The replicas that are not affected by the differences between
+         *                 its ring and the new one are reused rather than recomputed.
+         */
+        static TokenMap build(Token.Factory factory, Map<Host, Collection<String>> allTokens, Collection<KeyspaceMetadata> keyspaces, TokenMap previous) {
 
             Set<Host> hosts = allTokens.keySet();
             Map<Token, Host> tokenToPrimary = new HashMap<Token, Host>();
             Map<Host, Set<Token>> primaryToTokens = new HashMap<Host, Set<Token>>();
+            Map<Host, List<String>> locations = Maps.newHashMapWithExpectedSize(hosts.size());
             Set<Token> allSorted = new TreeSet<Token>();
 
             for (Map.Entry<Host, Collection<String>> entry : allTokens.entrySet()) {
                 Host host = entry.getKey();
+                locations.put(host, Arrays.asList(host.getDatacenter(), host.getRack()));
                 for (String tokenStr : entry.getValue()) {
                     try {
                         Token t = factory.fromString(tokenStr);
@@ -528,32 +587,53 @@ public class Metadata {
             }
 
             List<Token> ring = new ArrayList<Token>(allSorted);
-            Set<TokenRange> tokenRanges = makeTokenRanges(ring, factory);
+
+            // Incremental updates only make sense when the ring has more than one token (see JAVA-684 below)
+            RingChanges changes = null;
+            if (previous != null && previous.factory == factory && previous.ring.size() > 1 && ring.size() > 1)
+                changes = new RingChanges(previous, ring, tokenToPrimary, locations);
+
+            Set<TokenRange> tokenRanges = (changes != null && ring.equals(previous.ring))
+                                          ? previous.tokenRanges
+                                          : makeTokenRanges(ring, factory);
 
             Map<String, Map<Token, Set<Host>>> tokenToHosts = new HashMap<String, Map<Token, Set<Host>>>();
             Map<String, Map<Host, Set<TokenRange>>> hostsToRanges = new HashMap<String, Map<Host, Set<TokenRange>>>();
+            Map<ReplicationStrategy, Replicas> replicasByStrategy = new HashMap<ReplicationStrategy, Replicas>();
             for (KeyspaceMetadata keyspace : keyspaces)
             {
                 ReplicationStrategy strategy = keyspace.replicationStrategy();
-                Map<Token, Set<Host>> ksTokens = (strategy == null)
-                    ? makeNonReplicatedMap(tokenToPrimary)
-                    : strategy.computeTokenToReplicaMap(tokenToPrimary, ring);
-
-                tokenToHosts.put(keyspace.getName(), ksTokens);
-
-                Map<Host, Set<TokenRange>> ksRanges;
-                if (ring.size() == 1) {
-                    // We forced the single range to ]minToken,minToken], make sure to use that instead of relying on the host's token
-                    ImmutableMap.Builder<Host, Set<TokenRange>> builder = ImmutableMap.builder();
-                    for (Host host : allTokens.keySet())
-                        builder.put(host, tokenRanges);
-                    ksRanges = builder.build();
-                } else {
-                    ksRanges = computeHostsToRangesMap(tokenRanges, ksTokens, hosts.size());
+                Replicas replicas = replicasByStrategy.get(strategy);
+                if (replicas == null) {
+                    Replicas previousReplicas = (changes == null) ? null : previous.replicasByStrategy.get(strategy);
+                    replicas = (previousReplicas == null)
+                               ? Replicas.compute(strategy, tokenToPrimary, ring, tokenRanges, hosts)
+                               : Replicas.update(previousReplicas, previous, changes, strategy, tokenToPrimary, ring, tokenRanges, hosts);
+                    replicasByStrategy.put(strategy, replicas);
                 }
-                hostsToRanges.put(keyspace.getName(), ksRanges);
+                tokenToHosts.put(keyspace.getName(), replicas.tokenToHosts);
+                hostsToRanges.put(keyspace.getName(), replicas.hostsToRanges);
+            }
+            return new TokenMap(factory, primaryToTokens, tokenToHosts, hostsToRanges, ring, tokenRanges, hosts,
+                                tokenToPrimary, locations, replicasByStrategy);
+        }
+
+        /**
+         * @param keyspaceId the keyspace, as a CQL identifier (quoted if case sensitive).
+         */
+        private Set<Host> getReplicas(String keyspaceId, ByteBuffer partitionKey) {
+            if (replicaIndex != null) {
+                Set<Host> hosts = replicaIndex.getReplicas(keyspaceId, partitionKey);
+                if (hosts != null)
+                    return hosts;
             }
-            return new TokenMap(factory, primaryToTokens, tokenToHosts, hostsToRanges, ring, tokenRanges, hosts);
+            return getReplicas(handleId(keyspaceId), factory.hash(partitionKey));
+        }
+
+        private void removeKeyspace(String keyspace) {
+            tokenToHosts.remove(keyspace);
+            if (replicaIndex != null)
+                replicaIndex.removeKeyspace(keyspace);
         }
 
         private Set<Host> getReplicas(String keyspace, Token token) {
@@ -601,10 +681,19 @@ public class Metadata {
         }
 
         private static Map<Host, Set<TokenRange>> computeHostsToRangesMap(Set<TokenRange> tokenRanges, Map<Token, Set<Host>> ksTokens, int hostCount) {
+            return computeHostsToRangesMap(tokenRanges, ksTokens, hostCount, null);
+        }
+
+        /**
+         * @param onlyHosts if not null, the map is only computed for these hosts.
+         */
+        private static Map<Host, Set<TokenRange>> computeHostsToRangesMap(Set<TokenRange> tokenRanges, Map<Token, Set<Host>> ksTokens, int hostCount, Set<Host> onlyHosts) {
             Map<Host, ImmutableSet.Builder<TokenRange>> builders = Maps.newHashMapWithExpectedSize(hostCount);
             for (TokenRange range : tokenRanges) {
                 Set<Host> replicas = ksTokens.get(range.getEnd());
                 for (Host host : replicas) {
+                    if (onlyHosts != null && !onlyHosts.contains(host))
+                        continue;
                     ImmutableSet.Builder<TokenRange> hostRanges = builders.get(host);
                     if (hostRanges == null) {
                         hostRanges = ImmutableSet.builder();
@@ -619,5 +708,235 @@ public class Metadata {
             }
             return ksRanges;
         }
+
+        /**
+         * The replicas of a replication strategy, shared by all the keyspaces that use it.
+         */
+        private static class Replicas {
+            final Object topology;
+            final Map<Token, Set<Host>> tokenToHosts;
+            final Map<Host, Set<TokenRange>> hostsToRanges;
+            // For each token of the ring, the number of tokens walked to compute its replicas
+            final int[] walkLengths;
+
+            private Replicas(Object topology, Map<Token, Set<Host>> tokenToHosts, Map<Host, Set<TokenRange>> hostsToRanges, int[] walkLengths) {
+                this.topology = topology;
+                this.tokenToHosts = tokenToHosts;
+                this.hostsToRanges = hostsToRanges;
+                this.walkLengths = walkLengths;
+            }
+
+            /**
+             * @param strategy the strategy, or {@code null} if the keyspace is not replicated (in which case the
+             *                 only replica of a token is its primary).
+             */
+            static Replicas compute(ReplicationStrategy strategy, Map<Token, Host> tokenToPrimary, List<Token> ring, Set<TokenRange> tokenRanges, Set<Host> hosts) {
+                int[] walkLengths = new int[ring.size()];
+                Map<Token, Set<Host>> ksTokens;
+                if (strategy == null) {
+                    ksTokens = makeNonReplicatedMap(tokenToPrimary);
+                    Arrays.fill(walkLengths, 1);
+                } else {
+                    ksTokens = strategy.computeTokenToReplicaMap(tokenToPrimary, ring, walkLengths);
+                }
+                Object topology = (strategy == null) ? null : strategy.topology(tokenToPrimary, ring);
+                return new Replicas(topology, ksTokens, hostsToRanges(tokenRanges, ksTokens, hosts), walkLengths);
+            }
+
+            /**
+             * Only recomputes the replicas of the tokens whose walk, in the previous ring, went over a token that
+             * changed: the replicas of the other tokens can't have changed, since walking the new ring from them
+             * meets the same hosts in the same order.
+             */
+            static Replicas update(Replicas previous, TokenMap previousMap, RingChanges changes, ReplicationStrategy strategy,
+                                   Map<Token, Host> tokenToPrimary, List<Token> ring, Set<TokenRange> tokenRanges, Set<Host> hosts) {
+                Object topology = (strategy == null) ? null : strategy.topology(tokenToPrimary, ring);
+                // A different topology can change the replicas of any token (for example, a new rack)
+                if (!Objects.equal(topology, previous.topology))
+                    return compute(strategy, tokenToPrimary, ring, tokenRanges, hosts);
+                if (changes.isEmpty())
+                    return previous;
+
+                List<Token> previousRing = previousMap.ring;
+                int[] walkLengths = new int[ring.size()];
+                Map<Token, Set<Host>> ksTokens = new HashMap<Token, Set<Host>>(tokenToPrimary.size());
+                for (int i = 0; i < ring.size(); i++) {
+                    Token token = ring.get(i);
+                    Set<Host> previousReplicas = previous.tokenToHosts.get(token);
+                    int j = changes.previousIndex(i);
+                    if (previousReplicas != null && j >= 0 && !changes.isChanged(i)) {
+                        int length = Math.max(previous.walkLengths[j], 1);
+                        if (length < previousRing.size()
+                            && !changes.anyChangedBetween(j, (j + length - 1) % previousRing.size())) {
+                            ksTokens.put(token, previousReplicas);
+                            walkLengths[i] = previous.walkLengths[j];
+                            continue;
+                        }
+                    }
+                    Set<Host> replicas;
+                    if (strategy == null) {
+                        replicas = ImmutableSet.of(tokenToPrimary.get(token));
+                        walkLengths[i] = 1;
+                    } else {
+                        replicas = strategy.computeReplicas(i, tokenToPrimary, ring, topology, walkLengths);
+                    }
+                    // Keep the previous instance if it didn't change, this is what hostsToRanges below relies on
+                    ksTokens.put(token, replicas.equals(previousReplicas) ? previousReplicas : replicas);
+                }
+
+                // Only the hosts that lose or gain a range, or are replicas of a range whose replicas changed,
+                // have different ranges
+                Set<Host> affectedHosts = new HashSet<Host>();
+                for (int i = 0; i < ring.size(); i++) {
+                    Token end = ring.get((i + 1) % ring.size());
+                    Set<Host> replicas = ksTokens.get(end);
+                    Set<Host> previousReplicas = previous.tokenToHosts.get(end);
+                    if (replicas != previousReplicas || !changes.isRangeKept(i)) {
+                        affectedHosts.addAll(replicas);
+                        if (previousReplicas != null)
+                            affectedHosts.addAll(previousReplicas);
+                    }
+                }
+                for (int j = 0; j < previousRing.size(); j++) {
+                    if (!changes.isPreviousRangeKept(j))
+                        affectedHosts.addAll(previous.tokenToHosts.get(previousRing.get((j + 1) % previousRing.size())));
+                }
+
+                Map<Host, Set<TokenRange>> ksRanges;
+                if (affectedHosts.isEmpty()) {
+                    ksRanges = previous.hostsToRanges;
+                } else {
+                    ksRanges = computeHostsToRangesMap(tokenRanges, ksTokens, hosts.size(), affectedHosts);
+                    for (Map.Entry<Host, Set<TokenRange>> entry : previous.hostsToRanges.entrySet()) {
+                        if (!affectedHosts.contains(entry.getKey()))
+                            ksRanges.put(entry.getKey(), entry.getValue());
+                    }
+                }
+                return new Replicas(topology, ksTokens, ksRanges, walkLengths);
+            }
+
+            private static Map<Host, Set<TokenRange>> hostsToRanges(Set<TokenRange> tokenRanges, Map<Token, Set<Host>> ksTokens, Set<Host> hosts) {
+                if (tokenRanges.size() == 1) {
+                    // We forced the single range to ]minToken,minToken], make sure to use that instead of relying on the host's token
+                    ImmutableMap.Builder<Host, Set<TokenRange>> builder = ImmutableMap.builder();
+                    for (Host host : hosts)
+                        builder.put(host, tokenRanges);
+                    return builder.build();
+                }
+                return computeHostsToRangesMap(tokenRanges, ksTokens, hosts.size());
+            }
+        }
+
+        /**
+         * The tokens that differ between the ring of a token map and a new ring: tokens that were added or removed,
+         * whose primary changed, or whose primary moved to another datacenter or rack.
+         */
+        private static class RingChanges {
+            // Both rings are merged, in order: changedBefore[k] is the number of changed tokens in merged[0..k-1]
+            private final int size;
+            private final int[] changedBefore;
+            // For each token of the new ring, its index in the merged ring and in the previous ring (-1 if absent)
+            private final int[] mergedIndex;
+            private final int[] previousIndex;
+            // For each token of the previous ring, its index in the merged ring and in the new ring (-1 if absent)
+            private final int[] previousMergedIndex;
+            private final int[] currentIndex;
+
+            RingChanges(TokenMap previous, List<Token> ring, Map<Token, Host> tokenToPrimary, Map<Host, List<String>> locations) {
+                Set<Host> movedHosts = new HashSet<Host>();
+                for (Map.Entry<Host, List<String>> entry : locations.entrySet()) {
+                    List<String> previousLocation = previous.locations.get(entry.getKey());
+                    if (previousLocation != null && !previousLocation.equals(entry.getValue()))
+                        movedHosts.add(entry.getKey());
+                }
+
+                List<Token> previousRing = previous.ring;
+                mergedIndex = new int[ring.size()];
+                previousIndex = new int[ring.size()];
+                previousMergedIndex = new int[previousRing.size()];
+                currentIndex = new int[previousRing.size()];
+                changedBefore = new int[ring.size() + previousRing.size() + 1];
+
+                int i = 0, j = 0, k = 0;
+                while (i < previousRing.size() || j < ring.size()) {
+                    int cmp = (j == ring.size()) ? -1
+                              : (i == previousRing.size()) ? 1
+                              : previousRing.get(i).compareTo(ring.get(j));
+                    boolean changed;
+                    if (cmp < 0) {
+                        // Removed
+                        previousMergedIndex[i] = k;
+                        currentIndex[i++] = -1;
+                        changed = true;
+                    } else if (cmp > 0) {
+                        // Added
+                        mergedIndex[j] = k;
+                        previousIndex[j++] = -1;
+                        changed = true;
+                    } else {
+                        Host primary = tokenToPrimary.get(ring.get(j));
+                        changed = !primary.equals(previous.tokenToPrimary.get(ring.get(j))) || movedHosts.contains(primary);
+                        previousMergedIndex[i] = k;
+                        mergedIndex[j] = k;
+                        currentIndex[i] = j;
+                        previousIndex[j++] = i++;
+                    }
+                    changedBefore[k + 1] = changedBefore[k] + (changed ? 1 : 0);
+                    k++;
+                }
+                size = k;
+            }
+
+            boolean isEmpty() {
+                return changedBefore[size] == 0;
+            }
+
+            /**
+             * @return the index in the previous ring of the token at index {@code i} in the new ring, or -1 if
+             * that token was added.
+             */
+            int previousIndex(int i) {
+                return previousIndex[i];
+            }
+
+            /**
+             * Whether the token at index {@code i} in the new ring changed.
+             */
+            boolean isChanged(int i) {
+                int k = mergedIndex[i];
+                return changedBefore[k + 1] > changedBefore[k];
+            }
+
+            /**
+             * Whether the range that starts at index {@code i} of the new ring was also a range of the previous ring.
+             */
+            boolean isRangeKept(int i) {
+                return isConsecutive(previousIndex[i], previousIndex[(i + 1) % previousIndex.length], currentIndex.length);
+            }
+
+            /**
+             * Whether the range that starts at index {@code j} of the previous ring is also a range of the new ring.
+             */
+            boolean isPreviousRangeKept(int j) {
+                return isConsecutive(currentIndex[j], currentIndex[(j + 1) % currentIndex.length], previousIndex.length);
+            }
+
+            private static boolean isConsecutive(int index, int nextIndex, int ringSize) {
+                return index >= 0 && nextIndex >= 0 && nextIndex == (index + 1) % ringSize;
+            }
+
+            /**
+             * Whether a token changed between the tokens at indices {@code first} and {@code last} (both inclusive)
+             * of the previous ring, wrapping around the ring if {@code last} is before {@code first}.
+             */
+            boolean anyChangedBetween(int first, int last) {
+                int i = previousMergedIndex[first];
+                int j = previousMergedIndex[last];
+                int count = (i <= j)
+                            ? changedBefore[j + 1] - changedBefore[i]
+                            : changedBefore[size] - changedBefore[i] + changedBefore[j + 1];
+                return count > 0;
+            }
+        }
     }
 }
@@ -17,12 +17,20 @@ package com.datastax.driver.core;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistryListener;
+import com.google.common.base.Ticker;
 
 import com.codahale.metrics.*;
 
+import com.datastax.driver.core.querybuilder.Batch;
+import com.datastax.driver.core.querybuilder.BuiltStatement;
+import com.datastax.driver.core.querybuilder.Select;
+
 /**
  * Metrics exposed by the driver.
  * <p>
@@ -41,8 +49,14 @@ public class Metrics {
     private final MetricRegistry registry = new MetricRegistry();
     private final JmxReporter jmxReporter;
     private final Errors errors = new Errors();
+    // null if latency histograms are disabled
+    private final Latencies latencies;
 
     private final Timer requests = registry.timer("requests");
+    // null if replica routing metrics are disabled
+    private final Counter routableRequests;
+    private final Counter requestsRoutedToReplica;
+    private final Gauge<Double> replicaRoutingRatio;
 
     private final Gauge<Integer> knownHosts = registry.register("known-hosts", new Gauge<Integer>() {
         @Override
@@ -84,6 +98,19 @@ public class Metrics {
         }
     });
 
+    private final Gauge<Integer> requestQueueDepth = registry.register("request-queue-depth", new Gauge<Integer>() {
+        @Override
+        public Integer getValue() {
+            int value = 0;
+            for (SessionManager session : manager.sessions)
+                for (HostConnectionPool pool : session.pools.values())
+                    value += pool.pendingBorrowCount();
+            return value;
+        }
+    });
+
+    private final Timer requestQueueWait = registry.timer("request-queue-wait");
+
     private final Gauge<Integer> reconnectionSchedulerQueueSize= registry.register("reconnection-scheduler-task-count", new Gauge<Integer>() {
         @Override
         public Integer getValue() {
@@ -100,7 +127,26 @@ public class Metrics {
 
     Metrics(Cluster.Manager manager) {
         this.manager = manager;
-        if (manager.configuration.getMetricsOptions().isJMXReportingEnabled()) {
+        MetricsOptions options = manager.configuration.getMetricsOptions();
+        this.latencies = options.isLatencyHistogramsEnabled()
+                       ? new Latencies(registry, options.getLatencyHistogramsIntervalMillis(), Ticker.systemTicker())
+                       : null;
+        if (options.isReplicaRoutingMetricsEnabled()) {
+            this.routableRequests = registry.counter("routable-requests");
+            this.requestsRoutedToReplica = registry.counter("requests-routed-to-replica");
+            this.replicaRoutingRatio = registry.register("replica-routing-ratio", new Gauge<Double>() {
+                @Override
+                public Double getValue() {
+                    long total = routableRequests.getCount();
+                    return total == 0 ? 0.0 : (double)requestsRoutedToReplica.getCount() / total;
+                }
+            });
+        } else {
+            this.routableRequests = null;
+            this.requestsRoutedToReplica = null;
+            this.replicaRoutingRatio = null;
+        }
+        if (options.isJMXReportingEnabled()) {
             this.jmxReporter = JmxReporter.forRegistry(registry).inDomain(manager.clusterName + "-metrics").build();
             this.jmxReporter.start();
         } else {
@@ -167,6 +213,51 @@ public class Metrics {
         return requests;
     }
 
+    /**
+     * Returns the number of user requests that could be routed to a replica, because
+     * they have a routing key (see {@link Statement#getRoutingKey()}) and a keyspace.
+     * <p>
+     * Replica routing metrics are opt-in, see {@link Cluster.Builder#withReplicaRoutingMetrics()}.
+     *
+     * @return the number of requests that could be routed to a replica, or {@code null}
+     * if replica routing metrics are disabled.
+     */
+    public Counter getRoutableRequests() {
+        return routableRequests;
+    }
+
+    /**
+     * Returns the number of user requests that were coordinated by a replica of the
+     * data they access.
+     * <p>
+     * Only {@link #getRoutableRequests() routable requests} are counted here; routing
+     * them to a replica requires a token aware load balancing policy, such as
+     * {@link com.datastax.driver.core.policies.TokenAwarePolicy}.
+     * <p>
+     * Replica routing metrics are opt-in, see {@link Cluster.Builder#withReplicaRoutingMetrics()}.
+     *
+     * @return the number of requests routed to a replica, or {@code null} if replica
+     * routing metrics are disabled.
+     */
+    public Counter getRequestsRoutedToReplica() {
+        return requestsRoutedToReplica;
+    }
+
+    /**
+     * Returns the fraction (between 0 and 1) of routable user requests that were
+     * coordinated by a replica of the data they access, that is
+     * {@link #getRequestsRoutedToReplica()} divided by {@link #getRoutableRequests()}.
+     * Requests without a routing key are not part of this ratio.
+     * <p>
+     * Replica routing metrics are opt-in, see {@link Cluster.Builder#withReplicaRoutingMetrics()}.
+     *
+     * @return the fraction of routable requests routed to a replica (0 if there was
+     * no routable request yet), or {@code null} if replica routing metrics are disabled.
+     */
+    public Gauge<Double> getReplicaRoutingRatio() {
+        return replicaRoutingRatio;
+    }
+
     /**
      * Returns an object grouping metrics related to the errors encountered.
      *
@@ -176,6 +267,17 @@ public class Metrics {
         return errors;
     }
 
+    /**
+     * Returns the latency histograms, if they are enabled.
+     * <p>
+     * Latency histograms are opt-in, see {@link Cluster.Builder#withLatencyHistograms()}.
+     *
+     * @return an object grouping latency histograms, or {@code null} if they are disabled.
+     */
+    public Latencies getLatencies() {
+        return latencies;
+    }
+
     /**
      * Returns the number of Cassandra hosts currently known by the driver (that is
      * whether they are currently considered up or down).
@@ -219,6 +321,25 @@ public class Metrics {
         return blockingExecutorQueueDepth;
     }
 
+    /**
+     * @return The number of requests currently waiting for a connection in the hosts' pools (see
+     * {@link PoolingOptions#setMaxQueueSize(int)}).
+     */
+    public Gauge<Integer> getRequestQueueDepth() {
+        return requestQueueDepth;
+    }
+
+    /**
+     * Returns metrics on the time that requests spent waiting for a connection when a host's pool was saturated.
+     * <p>
+     * Only requests that actually had to wait are recorded.
+     *
+     * @return a {@code Timer} metric object exposing the rate and wait time of queued requests.
+     */
+    public Timer getRequestQueueWaitTimer() {
+        return requestQueueWait;
+    }
+
     /**
      * @return The size of the work queue for the reconnection scheduler (Reconnection).  A queue size > 0 does not
      * necessarily indicate a backlog as some tasks may not have been scheduled to execute yet.
@@ -262,6 +383,9 @@ public class Metrics {
         private final Counter ignoresOnReadTimeout = registry.counter("ignores-on-read-timeout");
         private final Counter ignoresOnUnavailable = registry.counter("ignores-on-unavailable");
 
+        private final Counter speculativeExecutions = registry.counter("speculative-executions");
+        private final Counter speculativeExecutionsWon = registry.counter("speculative-executions-won");
+
         /**
          * Returns the number of connection to Cassandra nodes errors.
          * <p>
@@ -421,5 +545,265 @@ public class Metrics {
         public Counter getIgnoresOnUnavailable() {
             return ignoresOnUnavailable;
         }
+
+        /**
+         * Returns the number of times a speculative execution was started
+         * because a previous execution did not complete within the delay
+         * specified by the {@link com.datastax.driver.core.policies.SpeculativeExecutionPolicy}.
+         *
+         * @return the number of speculative executions.
+         */
+        public Counter getSpeculativeExecutions() {
+            return speculativeExecutions;
+        }
+
+        /**
+         * Returns the number of requests for which a speculative execution
+         * (as opposed to the initial execution) provided the final response.
+         * <p>
+         * Comparing this value to {@link #getSpeculativeExecutions()} gives an
+         * indication of how effective the
+         * {@link com.datastax.driver.core.policies.SpeculativeExecutionPolicy}
+         * is: a low ratio means that most speculative executions only added load
+         * to the cluster.
+         *
+         * @return the number of speculative executions that won.
+         */
+        public Counter getSpeculativeExecutionsWon() {
+            return speculativeExecutionsWon;
+        }
+    }
+
+    /**
+     * The kinds of statements that {@link Latencies} distinguishes.
+     */
+    public enum StatementKind {
+        /** A {@code SELECT} query, other than a bound statement. */
+        READ,
+        /** A query other than a {@code SELECT} or a batch, other than a bound statement. */
+        WRITE,
+        /** A batch, either a {@link BatchStatement} or a {@code BEGIN BATCH} query. */
+        BATCH,
+        /** A {@link BoundStatement}, that is the execution of a prepared statement. */
+        PREPARED;
+
+        /**
+         * @return the kind, or {@code null} for the driver's internal requests.
+         */
+        static StatementKind of(Statement statement) {
+            if (statement == Statement.DEFAULT)
+                return null;
+            if (statement instanceof BoundStatement)
+                return PREPARED;
+            if (statement instanceof BatchStatement)
+                return BATCH;
+            // Built statements are classified by type, since generating their query string is expensive
+            if (statement instanceof Select || statement instanceof Select.Where)
+                return READ;
+            if (statement instanceof Batch || statement instanceof Batch.Options)
+                return BATCH;
+            // Insert, Update, Delete and Truncate, and their inner classes (Where, Options...)
+            if (statement instanceof BuiltStatement)
+                return WRITE;
+            if (statement instanceof RegularStatement) {
+                String query = ((RegularStatement)statement).getQueryString();
+                int start = 0;
+                while (start < query.length() && Character.isWhitespace(query.charAt(start)))
+                    start++;
+                if (query.regionMatches(true, start, "SELECT", 0, 6))
+                    return READ;
+                if (query.regionMatches(true, start, "BEGIN", 0, 5))
+                    return BATCH;
+            }
+            return WRITE;
+        }
+    }
+
+    /**
+     * Latency histograms per host, per datacenter and per kind of statement.
+     * <p>
+     * Latencies are recorded (with microsecond precision and a relative error below 1%) into histograms
+     * that are reset every {@link MetricsOptions#getLatencyHistogramsIntervalMillis() interval}; the
+     * values returned by this object, and by the corresponding metrics of the registry, are those of the
+     * <em>previous</em> interval. No value is available until one full interval has elapsed.
+     * <p>
+     * For each host, datacenter and kind of statement, the following gauges, in milliseconds, are registered
+     * into the {@link #getRegistry() registry}: {@code p50}, {@code p99}, {@code p999}, {@code max} and
+     * {@code mean}, as well as {@code count}, the number of values recorded during the interval. Their names are
+     * prefixed with {@code latencies.hosts.<address>}, {@code latencies.datacenters.<name>} or
+     * {@code latencies.statements.<kind>} respectively, for example
+     * {@code latencies.hosts.127.0.0.1.p99}. Gauges return a negative value when no data is available.
+     * <p>
+     * Recording a latency is lock-free, and does not allocate.
+     */
+    public static class Latencies {
+
+        // Latencies are recorded in microseconds, higher values are clamped
+        static final long HIGHEST_TRACKABLE_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(2);
+
+        private final MetricRegistry registry;
+        private final long intervalNanos;
+        private final Ticker ticker;
+
+        private final ConcurrentMap<Host, IntervalHistogram> byHost = new ConcurrentHashMap<Host, IntervalHistogram>();
+        private final ConcurrentMap<String, IntervalHistogram> byDatacenter = new ConcurrentHashMap<String, IntervalHistogram>();
+        private final IntervalHistogram[] byStatementKind;
+
+        Latencies(MetricRegistry registry, long intervalMillis, Ticker ticker) {
+            this.registry = registry;
+            this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+            this.ticker = ticker;
+
+            StatementKind[] kinds = StatementKind.values();
+            this.byStatementKind = new IntervalHistogram[kinds.length];
+            for (StatementKind kind : kinds)
+                byStatementKind[kind.ordinal()] = newHistogram("latencies.statements." + kind.name().toLowerCase());
+        }
+
+        /**
+         * Returns the latency of the requests sent to a host at a given percentile.
+         *
+         * @param host the host.
+         * @param percentile the percentile (for example, {@code 99.0} for the 99th percentile).
+         * @return the latency in milliseconds, or a negative value if none is available.
+         *
+         * @throws IllegalArgumentException if {@code percentile} is not in {@code ]0, 100]}.
+         */
+        public double getLatencyAtPercentile(Host host, double percentile) {
+            return latencyAtPercentile(byHost.get(host), percentile);
+        }
+
+        /**
+         * Returns the latency of the requests sent to the hosts of a datacenter at a given percentile.
+         *
+         * @param datacenter the name of the datacenter.
+         * @param percentile the percentile (for example, {@code 99.0} for the 99th percentile).
+         * @return the latency in milliseconds, or a negative value if none is available.
+         *
+         * @throws IllegalArgumentException if {@code percentile} is not in {@code ]0, 100]}.
+         */
+        public double getLatencyAtPercentile(String datacenter, double percentile) {
+            return latencyAtPercentile(byDatacenter.get(datacenter), percentile);
+        }
+
+        /**
+         * Returns the latency of the requests for a kind of statement at a given percentile.
+         * <p>
+         * Each execution of a statement is recorded, including retries and speculative executions.
+         *
+         * @param kind the kind of statement.
+         * @param percentile the percentile (for example, {@code 99.0} for the 99th percentile).
+         * @return the latency in milliseconds, or a negative value if none is available.
+         *
+         * @throws IllegalArgumentException if {@code percentile} is not in {@code ]0, 100]}.
+         */
+        public double getLatencyAtPercentile(StatementKind kind, double percentile) {
+            return latencyAtPercentile(byStatementKind[kind.ordinal()], percentile);
+        }
+
+        void record(Host host, StatementKind kind, long latencyNanos) {
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(latencyNanos);
+
+            IntervalHistogram hostHistogram = byHost.get(host);
+            if (hostHistogram == null)
+                hostHistogram = register(byHost, host, "latencies.hosts." + metricName(host));
+            hostHistogram.record(latencyMicros);
+
+            String datacenter = host.getDatacenter();
+            if (datacenter != null) {
+                IntervalHistogram dcHistogram = byDatacenter.get(datacenter);
+                if (dcHistogram == null)
+                    dcHistogram = register(byDatacenter, datacenter, "latencies.datacenters." + datacenter);
+                dcHistogram.record(latencyMicros);
+            }
+
+            if (kind != null)
+                byStatementKind[kind.ordinal()].record(latencyMicros);
+        }
+
+        void onRemove(Host host) {
+            if (byHost.remove(host) != null) {
+                final String prefix = "latencies.hosts." + metricName(host) + '.';
+                registry.removeMatching(new MetricFilter() {
+                    @Override
+                    public boolean matches(String name, Metric metric) {
+                        return name.startsWith(prefix);
+                    }
+                });
+            }
+        }
+
+        private <K> IntervalHistogram register(ConcurrentMap<K, IntervalHistogram> histograms, K key, String name) {
+            IntervalHistogram histogram = new IntervalHistogram(HIGHEST_TRACKABLE_LATENCY_MICROS, intervalNanos, ticker);
+            IntervalHistogram previous = histograms.putIfAbsent(key, histogram);
+            if (previous != null)
+                return previous;
+            registerGauges(histogram, name);
+            return histogram;
+        }
+
+        private IntervalHistogram newHistogram(String name) {
+            IntervalHistogram histogram = new IntervalHistogram(HIGHEST_TRACKABLE_LATENCY_MICROS, intervalNanos, ticker);
+            registerGauges(histogram, name);
+            return histogram;
+        }
+
+        private void registerGauges(final IntervalHistogram histogram, String name) {
+            registerGauge(name + ".p50", new PercentileGauge(histogram, 50.0));
+            registerGauge(name + ".p99", new PercentileGauge(histogram, 99.0));
+            registerGauge(name + ".p999", new PercentileGauge(histogram, 99.9));
+            registerGauge(name + ".max", new PercentileGauge(histogram, 100.0));
+            registerGauge(name + ".mean", new Gauge<Double>() {
+                @Override
+                public Double getValue() {
+                    LatencyHistogram.Snapshot snapshot = histogram.lastInterval();
+                    return (snapshot == null || snapshot.getTotalCount() == 0) ? -1.0 : snapshot.getMean() / 1000;
+                }
+            });
+            registerGauge(name + ".count", new Gauge<Long>() {
+                @Override
+                public Long getValue() {
+                    LatencyHistogram.Snapshot snapshot = histogram.lastInterval();
+                    return snapshot == null ? 0 : snapshot.getTotalCount();
+                }
+            });
+        }
+
+        private void registerGauge(String name, Gauge<?> gauge) {
+            // A host that was removed and added back again
+            registry.remove(name);
+            registry.register(name, gauge);
+        }
+
+        private static double latencyAtPercentile(IntervalHistogram histogram, double percentile) {
+            if (percentile <= 0.0 || percentile > 100.0)
+                throw new IllegalArgumentException("percentile must be between 0.0 (exclusive) and 100 (inclusive), got " + percentile);
+            if (histogram == null)
+                return -1;
+            LatencyHistogram.Snapshot snapshot = histogram.lastInterval();
+            if (snapshot == null || snapshot.getTotalCount() == 0)
+                return -1;
+            return snapshot.getValueAtPercentile(percentile) / 1000.0;
+        }
+
+        // JMX object names can't contain colons, which IPv6 addresses do
+        private static String metricName(Host host) {
+            return host.getAddress().getHostAddress().replace(':', '_');
+        }
+
+        private static class PercentileGauge implements Gauge<Double> {
+            private final IntervalHistogram histogram;
+            private final double percentile;
+
+            PercentileGauge(IntervalHistogram histogram, double percentile) {
+                this.histogram = histogram;
+                this.percentile = percentile;
+            }
+
+            @Override
+            public Double getValue() {
+                return latencyAtPercentile(histogram, percentile);
+            }
+        }
     }
 }
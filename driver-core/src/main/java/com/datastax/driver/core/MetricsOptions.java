@@ -20,7 +20,15 @@ package com.datastax.driver.core;
  */
 public class MetricsOptions {
 
+    /**
+     * The default interval over which latency histograms are computed: 1 minute.
+     */
+    public static final long DEFAULT_LATENCY_HISTOGRAMS_INTERVAL_MILLIS = 60000;
+
     private final boolean jmxEnabled;
+    private final boolean latencyHistogramsEnabled;
+    private final long latencyHistogramsIntervalMillis;
+    private final boolean replicaRoutingMetricsEnabled;
 
     /**
      * Creates a new {@code MetricsOptions} object with default values.
@@ -31,13 +39,65 @@ public class MetricsOptions {
     }
 
     /**
-     * Creates a new {@code MetricsOptions} object.
+     * Creates a new {@code MetricsOptions} object, with latency histograms disabled.
      *
      * @param jmxEnabled whether to enable JMX reporting or not.
      */
     public MetricsOptions(boolean jmxEnabled)
     {
+        this(jmxEnabled, false);
+    }
+
+    /**
+     * Creates a new {@code MetricsOptions} object, with the default interval for latency
+     * histograms.
+     *
+     * @param jmxEnabled whether to enable JMX reporting or not.
+     * @param latencyHistogramsEnabled whether to record latency histograms or not (see
+     * {@link Metrics#getLatencies()}).
+     */
+    public MetricsOptions(boolean jmxEnabled, boolean latencyHistogramsEnabled)
+    {
+        this(jmxEnabled, latencyHistogramsEnabled, DEFAULT_LATENCY_HISTOGRAMS_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Creates a new {@code MetricsOptions} object.
+     *
+     * @param jmxEnabled whether to enable JMX reporting or not.
+     * @param latencyHistogramsEnabled whether to record latency histograms or not (see
+     * {@link Metrics#getLatencies()}).
+     * @param latencyHistogramsIntervalMillis the interval over which latency histograms are
+     * computed.
+     *
+     * @throws IllegalArgumentException if {@code latencyHistogramsIntervalMillis <= 0}.
+     */
+    public MetricsOptions(boolean jmxEnabled, boolean latencyHistogramsEnabled, long latencyHistogramsIntervalMillis)
+    {
+        this(jmxEnabled, latencyHistogramsEnabled, latencyHistogramsIntervalMillis, false);
+    }
+
+    /**
+     * Creates a new {@code MetricsOptions} object.
+     *
+     * @param jmxEnabled whether to enable JMX reporting or not.
+     * @param latencyHistogramsEnabled whether to record latency histograms or not (see
+     * {@link Metrics#getLatencies()}).
+     * @param latencyHistogramsIntervalMillis the interval over which latency histograms are
+     * computed.
+     * @param replicaRoutingMetricsEnabled whether to count the requests coordinated by a
+     * replica or not (see {@link Metrics#getRequestsRoutedToReplica()}).
+     *
+     * @throws IllegalArgumentException if {@code latencyHistogramsIntervalMillis <= 0}.
+     */
+    public MetricsOptions(boolean jmxEnabled, boolean latencyHistogramsEnabled, long latencyHistogramsIntervalMillis, boolean replicaRoutingMetricsEnabled)
+    {
+        if (latencyHistogramsIntervalMillis <= 0)
+            throw new IllegalArgumentException("Invalid latency histograms interval, should be strictly positive, got " + latencyHistogramsIntervalMillis);
         this.jmxEnabled = jmxEnabled;
+        this.latencyHistogramsEnabled = latencyHistogramsEnabled;
+        this.latencyHistogramsIntervalMillis = latencyHistogramsIntervalMillis;
+        this.replicaRoutingMetricsEnabled = replicaRoutingMetricsEnabled;
     }
 
     /**
@@ -49,4 +109,35 @@ public class MetricsOptions {
     {
         return jmxEnabled;
     }
+
+    /**
+     * Returns whether latency histograms are recorded. They are disabled by default.
+     *
+     * @return whether latency histograms are recorded.
+     */
+    public boolean isLatencyHistogramsEnabled()
+    {
+        return latencyHistogramsEnabled;
+    }
+
+    /**
+     * Returns the interval over which latency histograms are computed.
+     *
+     * @return the interval, in milliseconds.
+     */
+    public long getLatencyHistogramsIntervalMillis()
+    {
+        return latencyHistogramsIntervalMillis;
+    }
+
+    /**
+     * Returns whether the requests coordinated by a replica are counted. This is disabled
+     * by default, since it costs a replica lookup for each request.
+     *
+     * @return whether the requests coordinated by a replica are counted.
+     */
+    public boolean isReplicaRoutingMetricsEnabled()
+    {
+        return replicaRoutingMetricsEnabled;
+    }
 }
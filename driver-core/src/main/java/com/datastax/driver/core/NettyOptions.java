@@ -0,0 +1,163 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.jboss.netty.channel.ChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioClientBossPool;
+import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
+import org.jboss.netty.channel.socket.nio.NioWorkerPool;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.ThreadNameDeterminer;
+
+/**
+ * Options related to the network layer (Netty) that the connections of a {@code Cluster} run on: its
+ * I/O threads, the timer of request timeouts and the flusher of write coalescing.
+ * <p>
+ * By default ({@link #DEFAULT_INSTANCE}), each {@code Cluster} creates its own, with
+ * {@link SocketOptions#getIoThreads()} I/O threads, and releases them when it is closed. Applications
+ * that create many {@code Cluster} instances can instead have them share a fixed set of threads:
+ * <pre>
+ *     NettyOptions shared = NettyOptions.shared(8);
+ *     Cluster cluster1 = Cluster.builder().addContactPoint("10.0.0.1").withNettyOptions(shared).build();
+ *     Cluster cluster2 = Cluster.builder().addContactPoint("10.1.0.1").withNettyOptions(shared).build();
+ *     ...
+ *     cluster1.close();
+ *     cluster2.close();
+ *     shared.close();
+ * </pre>
+ */
+public class NettyOptions {
+
+    /**
+     * The default instance, with which each {@code Cluster} has its own resources.
+     */
+    public static final NettyOptions DEFAULT_INSTANCE = new NettyOptions(null);
+
+    // null for DEFAULT_INSTANCE
+    private final Resources shared;
+
+    private NettyOptions(Resources shared) {
+        this.shared = shared;
+    }
+
+    /**
+     * Creates a new instance that all the {@code Cluster} instances that use it share.
+     * <p>
+     * The threads are started by this method, and run until {@link #close()} is called. The
+     * {@link SocketOptions#getIoThreads() number of I/O threads} of the clusters is ignored.
+     *
+     * @param ioThreads the number of I/O threads, that the connections of all the clusters are spread on.
+     * @return the new instance.
+     *
+     * @throws IllegalArgumentException if {@code ioThreads <= 0}.
+     */
+    public static NettyOptions shared(int ioThreads) {
+        if (ioThreads <= 0)
+            throw new IllegalArgumentException("ioThreads must be strictly positive, got " + ioThreads);
+        return new NettyOptions(new Resources(ioThreads));
+    }
+
+    /**
+     * Whether the {@code Cluster} instances that use this instance share their resources.
+     *
+     * @return {@code false} for {@link #DEFAULT_INSTANCE}, {@code true} for instances created by
+     * {@link #shared(int)}.
+     */
+    public boolean isShared() {
+        return shared != null;
+    }
+
+    /**
+     * Stops the threads of a shared instance.
+     * <p>
+     * This must only be called once all the {@code Cluster} instances that use this instance are closed,
+     * and not from one of the threads that it stops. This does nothing for {@link #DEFAULT_INSTANCE}.
+     */
+    public void close() {
+        if (shared != null)
+            shared.release();
+    }
+
+    /**
+     * Returns the resources for a new {@code Cluster}. Unless they are shared, it must release them
+     * when it is closed.
+     */
+    Resources resourcesFor(SocketOptions socketOptions) {
+        return shared != null ? shared : new Resources(socketOptions.getIoThreads());
+    }
+
+    static class Resources {
+
+        // Netty starts one long-running task per boss and worker, so these pools never need more threads
+        private final ExecutorService bossExecutor;
+        private final ExecutorService workerExecutor;
+        private final NioClientBossPool bossPool;
+        private final NioWorkerPool workerPool;
+
+        // This timer also schedules speculative executions, whose delays are typically a few milliseconds: use a finer tick
+        // than the default (100 ms).
+        final HashedWheelTimer timer = new HashedWheelTimer(new ThreadFactoryBuilder().setNameFormat("Timeouter-%d").build(), 10, TimeUnit.MILLISECONDS);
+
+        // Only created if write coalescing is enabled, see flusher()
+        private volatile ScheduledExecutorService flusher;
+
+        Resources(int ioThreads) {
+            this.bossExecutor = Executors.newFixedThreadPool(1, new ThreadFactoryBuilder().setNameFormat("Cassandra Java Driver I/O boss-%d").build());
+            this.workerExecutor = Executors.newFixedThreadPool(ioThreads, new ThreadFactoryBuilder().setNameFormat("Cassandra Java Driver I/O worker-%d").build());
+            // The boss uses our timer for connection timeouts rather than starting its own. ThreadNameDeterminer.CURRENT
+            // keeps the names above instead of Netty's generic ones.
+            this.bossPool = new NioClientBossPool(bossExecutor, 1, timer, ThreadNameDeterminer.CURRENT);
+            this.workerPool = new NioWorkerPool(workerExecutor, ioThreads, ThreadNameDeterminer.CURRENT);
+        }
+
+        /**
+         * Creates a factory for the channels of a {@code Cluster}. It doesn't own any resource, so it must not
+         * be released: release these resources instead.
+         */
+        ChannelFactory newChannelFactory() {
+            return new NioClientSocketChannelFactory(bossPool, workerPool);
+        }
+
+        ScheduledExecutorService flusher() {
+            ScheduledExecutorService result = flusher;
+            if (result == null) {
+                synchronized (this) {
+                    result = flusher;
+                    if (result == null)
+                        flusher = result = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("Flusher-%d").setDaemon(true).build());
+                }
+            }
+            return result;
+        }
+
+        void release() {
+            // This calls shutdownNow on the boss and worker executors
+            bossPool.releaseExternalResources();
+            workerPool.releaseExternalResources();
+            timer.stop();
+            synchronized (this) {
+                if (flusher != null)
+                    flusher.shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,220 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link LatencyTracker} that records latencies for each host over a sliding time interval, and exposes an
+ * API to retrieve the latency at a given percentile.
+ * <p>
+ * To use this class, build an instance with {@link #builderWithHighestTrackableLatencyMillis(long)} and register
+ * it with your {@link com.datastax.driver.core.Cluster} instance:
+ * <pre>
+ * PerHostPercentileTracker tracker = PerHostPercentileTracker
+ *     .builderWithHighestTrackableLatencyMillis(15000)
+ *     .build();
+ *
+ * cluster.register(tracker);
+ * ...
+ * tracker.getLatencyAtPercentile(host1, 99.0);
+ * </pre>
+ * <p>
+ * Latencies are recorded into the histogram of the current interval; percentiles are always computed on the
+ * histogram of the <em>previous</em> interval, so that the results are based on a complete set of data. This means
+ * that no results are available for a host until one full interval has elapsed after its first query.
+ * <p>
+ * Recording a latency is lock-free and allocation-free. The histograms of a host are dropped when it is removed
+ * from the cluster (see {@link #onRemove(Host)}).
+ *
+ * @see com.datastax.driver.core.policies.PercentileSpeculativeExecutionPolicy
+ */
+public class PerHostPercentileTracker implements LatencyTracker {
+    private static final Logger logger = LoggerFactory.getLogger(PerHostPercentileTracker.class);
+
+    private final ConcurrentMap<Host, IntervalHistogram> recorders;
+    private final long highestTrackableLatencyMillis;
+    private final long intervalNanos;
+    private final int minRecordedValues;
+
+    private PerHostPercentileTracker(long highestTrackableLatencyMillis, int numberOfHostsHint, long intervalMs, int minRecordedValues) {
+        this.highestTrackableLatencyMillis = highestTrackableLatencyMillis;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMs);
+        this.minRecordedValues = minRecordedValues;
+        this.recorders = new ConcurrentHashMap<Host, IntervalHistogram>(numberOfHostsHint, 0.75f, 1);
+    }
+
+    /**
+     * Returns a builder to create a new instance.
+     *
+     * @param highestTrackableLatencyMillis the highest expected latency. If a higher value is reported, it will be
+     * ignored and a warning will be logged. A good rule of thumb is to set it slightly higher than
+     * {@link SocketOptions#getReadTimeoutMillis()}.
+     * @return the builder.
+     */
+    public static Builder builderWithHighestTrackableLatencyMillis(long highestTrackableLatencyMillis) {
+        return new Builder(highestTrackableLatencyMillis);
+    }
+
+    @Override
+    public void update(Host host, long newLatencyNanos) {
+        long latencyMs = TimeUnit.NANOSECONDS.toMillis(newLatencyNanos);
+        if (latencyMs > highestTrackableLatencyMillis) {
+            logger.warn("Got request with latency of {} ms, which exceeds the configured maximum trackable value {}",
+                        latencyMs, highestTrackableLatencyMillis);
+            return;
+        }
+        // Record in microseconds, so that sub-millisecond latencies can be told apart
+        getRecorder(host).record(TimeUnit.NANOSECONDS.toMicros(newLatencyNanos));
+    }
+
+    /**
+     * Drops the latencies recorded for a host.
+     * <p>
+     * A {@code Cluster} calls this for the trackers registered with it when a host is removed; policies that
+     * use a tracker internally should call it from their own {@code onRemove}.
+     *
+     * @param host the host that was removed.
+     */
+    public void onRemove(Host host) {
+        recorders.remove(host);
+    }
+
+    /**
+     * Returns the request latency for a host at a given percentile.
+     *
+     * @param host the host.
+     * @param percentile the percentile (for example, {@code 99.0} for the 99th percentile).
+     * @return the latency (in milliseconds) at the given percentile, or a negative value if it's not available yet
+     * (either the first interval has not elapsed, or less than the configured minimum number of values were recorded
+     * during the previous interval).
+     */
+    public long getLatencyAtPercentile(Host host, double percentile) {
+        return getLatencyAtPercentile(host, percentile, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the request latency for a host at a given percentile, in the given unit.
+     * <p>
+     * Latencies are recorded with a microsecond resolution, so this is more precise than
+     * {@link #getLatencyAtPercentile(Host, double)} for fast hosts.
+     *
+     * @param host the host.
+     * @param percentile the percentile (for example, {@code 99.0} for the 99th percentile).
+     * @param unit the unit of the result.
+     * @return the latency at the given percentile, or a negative value if it's not available yet (see
+     * {@link #getLatencyAtPercentile(Host, double)}).
+     */
+    public long getLatencyAtPercentile(Host host, double percentile, TimeUnit unit) {
+        if (percentile <= 0.0 || percentile >= 100.0)
+            throw new IllegalArgumentException("percentile must be between 0.0 and 100 (was " + percentile + ")");
+
+        IntervalHistogram recorder = recorders.get(host);
+        if (recorder == null)
+            return -1;
+
+        LatencyHistogram.Snapshot snapshot = recorder.lastInterval();
+        if (snapshot == null || snapshot.getTotalCount() < minRecordedValues)
+            return -1;
+
+        return unit.convert(snapshot.getValueAtPercentile(percentile), TimeUnit.MICROSECONDS);
+    }
+
+    private IntervalHistogram getRecorder(Host host) {
+        IntervalHistogram recorder = recorders.get(host);
+        if (recorder == null) {
+            recorder = new IntervalHistogram(TimeUnit.MILLISECONDS.toMicros(highestTrackableLatencyMillis), intervalNanos);
+            IntervalHistogram old = recorders.putIfAbsent(host, recorder);
+            if (old != null)
+                recorder = old;
+        }
+        return recorder;
+    }
+
+    /**
+     * Helper class to build {@code PerHostPercentileTracker} instances with a fluent interface.
+     */
+    public static class Builder {
+        private final long highestTrackableLatencyMillis;
+        private int numberOfHostsHint = 16;
+        private long intervalMs = TimeUnit.MINUTES.toMillis(5);
+        private int minRecordedValues = 1000;
+
+        Builder(long highestTrackableLatencyMillis) {
+            if (highestTrackableLatencyMillis <= 0)
+                throw new IllegalArgumentException("highestTrackableLatencyMillis must be strictly positive, got " + highestTrackableLatencyMillis);
+            this.highestTrackableLatencyMillis = highestTrackableLatencyMillis;
+        }
+
+        /**
+         * Sets the number of distinct hosts that the driver will ever connect to.
+         * <p>
+         * This parameter is only used to pre-size internal maps in order to avoid unnecessary rehashing.
+         * The default is 16.
+         *
+         * @param numberOfHosts the number of hosts.
+         * @return this builder.
+         */
+        public Builder withNumberOfHostsHint(int numberOfHosts) {
+            this.numberOfHostsHint = numberOfHosts;
+            return this;
+        }
+
+        /**
+         * Sets the time interval over which percentiles are computed.
+         * <p>
+         * The default is 5 minutes.
+         *
+         * @param interval the interval.
+         * @param unit the unit of {@code interval}.
+         * @return this builder.
+         */
+        public Builder withInterval(long interval, TimeUnit unit) {
+            if (interval <= 0)
+                throw new IllegalArgumentException("interval must be strictly positive, got " + interval);
+            this.intervalMs = unit.toMillis(interval);
+            return this;
+        }
+
+        /**
+         * Sets the minimum number of values that must be recorded for a host during an interval before
+         * {@link PerHostPercentileTracker#getLatencyAtPercentile} starts returning results.
+         * <p>
+         * The default is 1000.
+         *
+         * @param minRecordedValues the minimum number of values.
+         * @return this builder.
+         */
+        public Builder withMinRecordedValues(int minRecordedValues) {
+            this.minRecordedValues = minRecordedValues;
+            return this;
+        }
+
+        /**
+         * Builds the {@code PerHostPercentileTracker} instance configured with this builder.
+         *
+         * @return the instance.
+         */
+        public PerHostPercentileTracker build() {
+            return new PerHostPercentileTracker(highestTrackableLatencyMillis, numberOfHostsHint, intervalMs, minRecordedValues);
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A {@link BufferAllocator} that recycles direct buffers.
+ * <p>
+ * Buffers are carved out of big direct "slabs", in power-of-two size classes (from 64 bytes
+ * to {@link #getMaxPooledSize()}); released buffers go back to the free list of their class.
+ * Direct buffers are written to the socket without being copied first, and since they are
+ * recycled, encoding requests doesn't generate garbage.
+ * <p>
+ * The memory reserved by slabs is never given back, and is bounded by {@link #getMaxMemory()}.
+ * Requests bigger than the biggest size class, or allocated while the pool is exhausted, get
+ * a regular heap buffer.
+ */
+public class PooledBufferAllocator implements BufferAllocator {
+
+    /**
+     * The default value for {@link #getMaxPooledSize()}: 64 kilobytes.
+     */
+    public static final int DEFAULT_MAX_POOLED_SIZE = 64 * 1024;
+
+    /**
+     * The default value for {@link #getMaxMemory()}: 32 megabytes.
+     */
+    public static final long DEFAULT_MAX_MEMORY = 32 * 1024 * 1024;
+
+    private static final int MIN_POOLED_SIZE_SHIFT = 6; // 64 bytes
+    private static final int SLAB_SIZE = 256 * 1024;
+
+    private final int maxPooledSize;
+    private final long maxMemory;
+    private final SizeClass[] sizeClasses;
+    private final AtomicLong reservedMemory = new AtomicLong();
+
+    /**
+     * Creates a new allocator with the default settings.
+     */
+    public PooledBufferAllocator() {
+        this(DEFAULT_MAX_POOLED_SIZE, DEFAULT_MAX_MEMORY);
+    }
+
+    /**
+     * Creates a new allocator.
+     *
+     * @param maxPooledSize the size of the biggest buffers that get pooled. This is rounded up to
+     * a power of two.
+     * @param maxMemory the maximum amount of direct memory that the pool can reserve.
+     *
+     * @throws IllegalArgumentException if {@code maxPooledSize} is not in [64, 16777216], or if
+     * {@code maxMemory} is negative.
+     */
+    public PooledBufferAllocator(int maxPooledSize, long maxMemory) {
+        if (maxPooledSize < (1 << MIN_POOLED_SIZE_SHIFT) || maxPooledSize > (1 << 24))
+            throw new IllegalArgumentException("Invalid maximum pooled size, should be in [64, 16777216], got " + maxPooledSize);
+        if (maxMemory < 0)
+            throw new IllegalArgumentException("Invalid maximum memory, should be >= 0, got " + maxMemory);
+
+        this.maxPooledSize = Integer.highestOneBit(maxPooledSize - 1) << 1;
+        this.maxMemory = maxMemory;
+        this.sizeClasses = new SizeClass[sizeClassIndex(this.maxPooledSize) + 1];
+        for (int i = 0; i < sizeClasses.length; i++)
+            sizeClasses[i] = new SizeClass(1 << (i + MIN_POOLED_SIZE_SHIFT));
+    }
+
+    /**
+     * Returns the size of the biggest buffers that get pooled.
+     *
+     * @return the size, in bytes.
+     */
+    public int getMaxPooledSize() {
+        return maxPooledSize;
+    }
+
+    /**
+     * Returns the maximum amount of direct memory that the pool can reserve.
+     *
+     * @return the amount, in bytes.
+     */
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * Returns the amount of direct memory currently reserved by the pool, whether the buffers
+     * carved out of it are in use or free.
+     *
+     * @return the amount, in bytes.
+     */
+    public long getReservedMemory() {
+        return reservedMemory.get();
+    }
+
+    public ByteBuffer allocate(int size) {
+        if (size > maxPooledSize)
+            return ByteBuffer.allocate(size);
+
+        ByteBuffer buffer = sizeClasses[sizeClassIndex(size)].take();
+        if (buffer == null)
+            return ByteBuffer.allocate(size);
+
+        buffer.limit(size);
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer) {
+        // Heap buffers were not pooled in the first place
+        if (!buffer.isDirect())
+            return;
+
+        int capacity = buffer.capacity();
+        assert Integer.bitCount(capacity) == 1 && capacity <= maxPooledSize : "Not a pooled buffer: " + buffer;
+        buffer.clear();
+        sizeClasses[sizeClassIndex(capacity)].put(buffer);
+    }
+
+    // The index of the smallest size class that fits size
+    private static int sizeClassIndex(int size) {
+        return size <= (1 << MIN_POOLED_SIZE_SHIFT)
+             ? 0
+             : 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_POOLED_SIZE_SHIFT;
+    }
+
+    private boolean reserve(int slabSize) {
+        while (true) {
+            long reserved = reservedMemory.get();
+            if (reserved + slabSize > maxMemory)
+                return false;
+            if (reservedMemory.compareAndSet(reserved, reserved + slabSize))
+                return true;
+        }
+    }
+
+    private class SizeClass {
+        private final int bufferSize;
+        private final int buffersPerSlab;
+
+        // A stack of the free buffers. Its capacity is the number of buffers carved so far
+        private ByteBuffer[] free;
+        private int freeCount;
+
+        SizeClass(int bufferSize) {
+            this.bufferSize = bufferSize;
+            this.buffersPerSlab = Math.max(1, SLAB_SIZE / bufferSize);
+            this.free = new ByteBuffer[0];
+        }
+
+        synchronized ByteBuffer take() {
+            if (freeCount == 0 && !carveSlab())
+                return null;
+            ByteBuffer buffer = free[--freeCount];
+            free[freeCount] = null;
+            return buffer;
+        }
+
+        synchronized void put(ByteBuffer buffer) {
+            assert freeCount < free.length : "More buffers released than allocated";
+            free[freeCount++] = buffer;
+        }
+
+        private boolean carveSlab() {
+            int slabSize = buffersPerSlab * bufferSize;
+            if (!reserve(slabSize))
+                return false;
+
+            ByteBuffer slab = ByteBuffer.allocateDirect(slabSize);
+            ByteBuffer[] newFree = new ByteBuffer[free.length + buffersPerSlab];
+            System.arraycopy(free, 0, newFree, 0, freeCount);
+            for (int i = 0; i < buffersPerSlab; i++) {
+                slab.limit((i + 1) * bufferSize).position(i * bufferSize);
+                newFree[freeCount++] = slab.slice();
+            }
+            free = newFree;
+            return true;
+        }
+    }
+}
@@ -65,6 +65,7 @@ public class PoolingOptions {
     private static final int DEFAULT_MAX_REQUESTS_PER_HOST_REMOTE = 256;
 
     private static final int DEFAULT_POOL_TIMEOUT_MILLIS = 5000;
+    private static final int DEFAULT_MAX_QUEUE_SIZE = 256;
     private static final int DEFAULT_HEARTBEAT_INTERVAL_SECONDS = 30;
 
     private volatile Cluster.Manager manager;
@@ -80,6 +81,7 @@ public class PoolingOptions {
 
 
     private volatile int poolTimeoutMillis = DEFAULT_POOL_TIMEOUT_MILLIS;
+    private volatile int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
     private volatile int heartbeatIntervalSeconds = DEFAULT_HEARTBEAT_INTERVAL_SECONDS;
 
     public PoolingOptions() {}
@@ -278,8 +280,11 @@ public class PoolingOptions {
     /**
      * Sets the timeout when trying to acquire a connection from a host's pool.
      * <p>
-     * If no connection is available within that time, the driver will try the
-     * next host from the query plan.
+     * When a host's pool is saturated, requests are parked in a queue (without blocking
+     * the calling thread, see {@link #setMaxQueueSize(int)}) until a connection becomes
+     * available. This is the maximum time a request will stay in that queue: if no
+     * connection is available within that time, the driver will try the next host from
+     * the query plan.
      * <p>
      * If this option is set to zero, the driver won't wait at all.
      *
@@ -295,6 +300,40 @@ public class PoolingOptions {
         return this;
     }
 
+    /**
+     * Returns the maximum number of requests that can wait for a connection in a host's pool.
+     *
+     * @return the maximum queue size.
+     */
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    /**
+     * Sets the maximum number of requests that can wait for a connection in a host's pool.
+     * <p>
+     * When a host's pool is saturated (all its connections have reached their maximum number
+     * of simultaneous requests), new requests are queued and dispatched as soon as a response
+     * frees a connection, or abandoned after {@link #getPoolTimeoutMillis()}. If the queue is
+     * full, the driver immediately tries the next host from the query plan.
+     * <p>
+     * The current depth of the queues and the time spent in them are exposed by
+     * {@link Metrics#getRequestQueueDepth()} and {@link Metrics#getRequestQueueWaitTimer()}.
+     * <p>
+     * The default value for this option is 256.
+     *
+     * @param maxQueueSize the new value.
+     * @return this {@code PoolingOptions}
+     *
+     * @throws IllegalArgumentException if the size is negative.
+     */
+    public PoolingOptions setMaxQueueSize(int maxQueueSize) {
+        if (maxQueueSize < 0)
+            throw new IllegalArgumentException("Max queue size must be positive");
+        this.maxQueueSize = maxQueueSize;
+        return this;
+    }
+
     /**
      * Returns the heart beat interval, after which a message is sent on an idle connection to make sure it's still alive.
      * @return the interval.
@@ -67,6 +67,16 @@ public class ProtocolOptions {
      */
     public static final int DEFAULT_MAX_SCHEMA_AGREEMENT_WAIT_SECONDS = 10;
 
+    /**
+     * The default value for {@link #getCompressionThreshold()}: 256 bytes.
+     */
+    public static final int DEFAULT_COMPRESSION_THRESHOLD = 256;
+
+    /**
+     * The default value for {@link #getValueCopyThreshold()}: 1024 bytes.
+     */
+    public static final int DEFAULT_VALUE_COPY_THRESHOLD = 1024;
+
     /**
      * The newest version of the protocol that this version of the driver support.
      *
@@ -86,6 +96,8 @@ public class ProtocolOptions {
     private final AuthProvider authProvider;
 
     private volatile Compression compression = Compression.NONE;
+    private volatile int compressionThreshold = DEFAULT_COMPRESSION_THRESHOLD;
+    private volatile int valueCopyThreshold = DEFAULT_VALUE_COPY_THRESHOLD;
 
     /**
      * Creates a new {@code ProtocolOptions} instance using the {@code DEFAULT_PORT}
@@ -208,6 +220,79 @@ public class ProtocolOptions {
         return this;
     }
 
+    /**
+     * Returns the size under which request frames are sent uncompressed, even if
+     * {@link #getCompression() compression} is enabled.
+     *
+     * @return the threshold, in bytes.
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Sets the size under which request frames are sent uncompressed, even if
+     * {@link #getCompression() compression} is enabled.
+     * <p>
+     * Compressing small frames costs CPU for little or no gain (LZ4 and Snappy can
+     * even make them bigger). This only applies to requests: Cassandra decides whether to
+     * compress responses. Use 0 to compress all frames.
+     * <p>
+     * Note that while this setting can be changed at any time, it will
+     * only apply to newly created connections.
+     *
+     * @param compressionThreshold the threshold, in bytes, of the frame body.
+     * @return this {@code ProtocolOptions} object.
+     *
+     * @throws IllegalArgumentException if {@code compressionThreshold} is negative.
+     */
+    public ProtocolOptions setCompressionThreshold(int compressionThreshold) {
+        if (compressionThreshold < 0)
+            throw new IllegalArgumentException("Invalid compression threshold, should be >= 0, got " + compressionThreshold);
+
+        this.compressionThreshold = compressionThreshold;
+        return this;
+    }
+
+    /**
+     * Returns the size above which bound values are sent directly from the buffer
+     * they were serialized into, instead of being copied into the request frame.
+     *
+     * @return the threshold, in bytes.
+     */
+    public int getValueCopyThreshold() {
+        return valueCopyThreshold;
+    }
+
+    /**
+     * Sets the size above which bound values are sent directly from the buffer
+     * they were serialized into, instead of being copied into the request frame.
+     * <p>
+     * Values are serialized when they are bound to a statement. Copying them into
+     * the frame again doubles the memory allocated for big values such as blobs;
+     * on the other hand, each value that is not copied adds a component to the
+     * (composite) frame buffer, which costs more than copying a few bytes. Use
+     * {@code Integer.MAX_VALUE} to always copy values.
+     * <p>
+     * Buffers passed to {@link BoundStatement#setBytes} should not be modified until
+     * the query has completed; this applies whatever the threshold.
+     * <p>
+     * Note that while this setting can be changed at any time, it will
+     * only apply to newly created connections.
+     *
+     * @param valueCopyThreshold the threshold, in bytes, of the serialized value.
+     * @return this {@code ProtocolOptions} object.
+     *
+     * @throws IllegalArgumentException if {@code valueCopyThreshold} is negative.
+     */
+    public ProtocolOptions setValueCopyThreshold(int valueCopyThreshold) {
+        if (valueCopyThreshold < 0)
+            throw new IllegalArgumentException("Invalid value copy threshold, should be >= 0, got " + valueCopyThreshold);
+
+        this.valueCopyThreshold = valueCopyThreshold;
+        return this;
+    }
+
     /**
      * Returns the maximum time to wait for schema agreement before returning from a DDL query.
      *
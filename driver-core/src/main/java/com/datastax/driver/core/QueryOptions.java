@@ -37,9 +37,64 @@ public class QueryOptions {
      */
     public static final int DEFAULT_FETCH_SIZE = 5000;
 
+    /**
+     * The default value for {@link #getDefaultIdempotence()}: {@code false}.
+     */
+    public static final boolean DEFAULT_IDEMPOTENCE = false;
+
+    /**
+     * The default prefetch threshold: 0, which means that pages are only fetched when the
+     * previous one is exhausted (or when {@link ResultSet#fetchMoreResults} is called explicitly).
+     */
+    public static final int DEFAULT_PREFETCH_THRESHOLD = 0;
+
+    /**
+     * The default maximum number of pages fetched ahead of the page being consumed: 1.
+     */
+    public static final int DEFAULT_MAX_PREFETCHED_PAGES = 1;
+
+    /**
+     * The default window for schema refresh debouncing: 1 second.
+     */
+    public static final int DEFAULT_REFRESH_SCHEMA_INTERVAL_MILLIS = 1000;
+
+    /**
+     * The default maximum number of pending schema refresh requests: 20.
+     */
+    public static final int DEFAULT_MAX_PENDING_REFRESH_SCHEMA_REQUESTS = 20;
+
+    /**
+     * The default window for node list refresh debouncing: 1 second.
+     */
+    public static final int DEFAULT_REFRESH_NODE_LIST_INTERVAL_MILLIS = 1000;
+
+    /**
+     * The default maximum number of pending node list refresh requests: 20.
+     */
+    public static final int DEFAULT_MAX_PENDING_REFRESH_NODE_LIST_REQUESTS = 20;
+
+    /**
+     * The default maximum number of concurrent requests when re-preparing statements on a node: 32.
+     */
+    public static final int DEFAULT_MAX_CONCURRENT_REPREPARES = 32;
+
+    /**
+     * The default fraction of statements that must be re-prepared before a node is marked up: 1.0 (all of them).
+     */
+    public static final double DEFAULT_REPREPARE_THRESHOLD = 1.0;
+
     private volatile ConsistencyLevel consistency = DEFAULT_CONSISTENCY_LEVEL;
     private volatile ConsistencyLevel serialConsistency = DEFAULT_SERIAL_CONSISTENCY_LEVEL;
     private volatile int fetchSize = DEFAULT_FETCH_SIZE;
+    private volatile boolean defaultIdempotence = DEFAULT_IDEMPOTENCE;
+    private volatile int prefetchThreshold = DEFAULT_PREFETCH_THRESHOLD;
+    private volatile int maxPrefetchedPages = DEFAULT_MAX_PREFETCHED_PAGES;
+    private volatile int refreshSchemaIntervalMillis = DEFAULT_REFRESH_SCHEMA_INTERVAL_MILLIS;
+    private volatile int maxPendingRefreshSchemaRequests = DEFAULT_MAX_PENDING_REFRESH_SCHEMA_REQUESTS;
+    private volatile int refreshNodeListIntervalMillis = DEFAULT_REFRESH_NODE_LIST_INTERVAL_MILLIS;
+    private volatile int maxPendingRefreshNodeListRequests = DEFAULT_MAX_PENDING_REFRESH_NODE_LIST_REQUESTS;
+    private volatile int maxConcurrentReprepares = DEFAULT_MAX_CONCURRENT_REPREPARES;
+    private volatile double reprepareThreshold = DEFAULT_REPREPARE_THRESHOLD;
     private volatile Cluster.Manager manager;
 
     /**
@@ -138,4 +193,280 @@ public class QueryOptions {
     public int getFetchSize() {
         return fetchSize;
     }
+
+    /**
+     * Sets the default idempotence for queries.
+     * <p>
+     * This will be used for statements for which {@link Statement#isIdempotent()}
+     * returns {@code null}.
+     *
+     * @param defaultIdempotence the new value to set as default idempotence.
+     * @return this {@code QueryOptions} instance.
+     */
+    public QueryOptions setDefaultIdempotence(boolean defaultIdempotence) {
+        this.defaultIdempotence = defaultIdempotence;
+        return this;
+    }
+
+    /**
+     * The default idempotence for queries.
+     * <p>
+     * It defaults to {@link #DEFAULT_IDEMPOTENCE}.
+     *
+     * @return the default idempotence for queries.
+     */
+    public boolean getDefaultIdempotence() {
+        return defaultIdempotence;
+    }
+
+    /**
+     * Sets the default prefetch threshold for paged queries.
+     * <p>
+     * When iterating over a paged result set, the next page will be fetched in the background as
+     * soon as fewer than {@code prefetchThreshold} rows remain to be consumed, so that iteration does
+     * not stall on one round trip per page. A good value is a fraction of the fetch size, large enough
+     * to cover the time it takes to fetch a page.
+     * <p>
+     * This will be used for statements for which {@link Statement#getPrefetchThreshold()}
+     * returns {@code null}.
+     *
+     * @param prefetchThreshold the threshold, in number of rows. 0 (the default) disables background
+     * prefetching.
+     * @return this {@code QueryOptions} instance.
+     *
+     * @throws IllegalArgumentException if {@code prefetchThreshold < 0}.
+     */
+    public QueryOptions setPrefetchThreshold(int prefetchThreshold) {
+        if (prefetchThreshold < 0)
+            throw new IllegalArgumentException("Invalid prefetchThreshold, should be >= 0, got " + prefetchThreshold);
+        this.prefetchThreshold = prefetchThreshold;
+        return this;
+    }
+
+    /**
+     * The default prefetch threshold for paged queries.
+     * <p>
+     * It defaults to {@link #DEFAULT_PREFETCH_THRESHOLD}.
+     *
+     * @return the default prefetch threshold.
+     */
+    public int getPrefetchThreshold() {
+        return prefetchThreshold;
+    }
+
+    /**
+     * Sets the maximum number of pages that background prefetching can fetch ahead of the page
+     * being consumed.
+     * <p>
+     * Pages are always fetched one after the other (each request needs the paging state returned
+     * by the previous one), so this bounds the number of pages held in memory, not the number of
+     * concurrent requests.
+     *
+     * @param maxPrefetchedPages the maximum number of pages. Must be strictly positive.
+     * @return this {@code QueryOptions} instance.
+     *
+     * @throws IllegalArgumentException if {@code maxPrefetchedPages <= 0}.
+     */
+    public QueryOptions setMaxPrefetchedPages(int maxPrefetchedPages) {
+        if (maxPrefetchedPages <= 0)
+            throw new IllegalArgumentException("Invalid maxPrefetchedPages, should be > 0, got " + maxPrefetchedPages);
+        this.maxPrefetchedPages = maxPrefetchedPages;
+        return this;
+    }
+
+    /**
+     * The maximum number of pages that background prefetching can fetch ahead of the page being
+     * consumed.
+     * <p>
+     * It defaults to {@link #DEFAULT_MAX_PREFETCHED_PAGES}.
+     *
+     * @return the maximum number of prefetched pages.
+     */
+    public int getMaxPrefetchedPages() {
+        return maxPrefetchedPages;
+    }
+
+    /**
+     * Sets the debouncing window for schema refreshes.
+     * <p>
+     * Schema refreshes triggered by {@code SCHEMA_CHANGE} events are not executed right away: they are
+     * accumulated until no new event has been received for this amount of time (or
+     * {@link #setMaxPendingRefreshSchemaRequests(int) too many are pending}), and then merged into as few
+     * refreshes as possible. For example, creating 100 tables in a keyspace results in a single refresh of
+     * that keyspace.
+     * <p>
+     * This does not apply to the refresh that follows a schema-altering query executed by this driver:
+     * that query only completes once the schema is refreshed.
+     *
+     * @param refreshSchemaIntervalMillis the window, in milliseconds. 0 disables debouncing.
+     * @return this {@code QueryOptions} instance.
+     *
+     * @throws IllegalArgumentException if {@code refreshSchemaIntervalMillis < 0}.
+     */
+    public QueryOptions setRefreshSchemaIntervalMillis(int refreshSchemaIntervalMillis) {
+        if (refreshSchemaIntervalMillis < 0)
+            throw new IllegalArgumentException("Invalid refreshSchemaIntervalMillis, should be >= 0, got " + refreshSchemaIntervalMillis);
+        this.refreshSchemaIntervalMillis = refreshSchemaIntervalMillis;
+        return this;
+    }
+
+    /**
+     * The debouncing window for schema refreshes.
+     * <p>
+     * It defaults to {@link #DEFAULT_REFRESH_SCHEMA_INTERVAL_MILLIS}.
+     *
+     * @return the window, in milliseconds.
+     */
+    public int getRefreshSchemaIntervalMillis() {
+        return refreshSchemaIntervalMillis;
+    }
+
+    /**
+     * Sets the maximum number of schema refresh requests that can accumulate during the
+     * {@link #setRefreshSchemaIntervalMillis(int) debouncing window}. Once it is reached, pending
+     * requests are executed right away.
+     *
+     * @param maxPendingRefreshSchemaRequests the maximum number of requests. Must be strictly positive.
+     * @return this {@code QueryOptions} instance.
+     *
+     * @throws IllegalArgumentException if {@code maxPendingRefreshSchemaRequests <= 0}.
+     */
+    public QueryOptions setMaxPendingRefreshSchemaRequests(int maxPendingRefreshSchemaRequests) {
+        if (maxPendingRefreshSchemaRequests <= 0)
+            throw new IllegalArgumentException("Invalid maxPendingRefreshSchemaRequests, should be > 0, got " + maxPendingRefreshSchemaRequests);
+        this.maxPendingRefreshSchemaRequests = maxPendingRefreshSchemaRequests;
+        return this;
+    }
+
+    /**
+     * The maximum number of schema refresh requests that can accumulate during the debouncing window.
+     * <p>
+     * It defaults to {@link #DEFAULT_MAX_PENDING_REFRESH_SCHEMA_REQUESTS}.
+     *
+     * @return the maximum number of requests.
+     */
+    public int getMaxPendingRefreshSchemaRequests() {
+        return maxPendingRefreshSchemaRequests;
+    }
+
+    /**
+     * Sets the debouncing window for node list and token map refreshes.
+     * <p>
+     * Refreshes triggered by {@code TOPOLOGY_CHANGE} events that move tokens are accumulated until no new
+     * event has been received for this amount of time (or
+     * {@link #setMaxPendingRefreshNodeListRequests(int) too many are pending}), and then executed once.
+     *
+     * @param refreshNodeListIntervalMillis the window, in milliseconds. 0 disables debouncing.
+     * @return this {@code QueryOptions} instance.
+     *
+     * @throws IllegalArgumentException if {@code refreshNodeListIntervalMillis < 0}.
+     */
+    public QueryOptions setRefreshNodeListIntervalMillis(int refreshNodeListIntervalMillis) {
+        if (refreshNodeListIntervalMillis < 0)
+            throw new IllegalArgumentException("Invalid refreshNodeListIntervalMillis, should be >= 0, got " + refreshNodeListIntervalMillis);
+        this.refreshNodeListIntervalMillis = refreshNodeListIntervalMillis;
+        return this;
+    }
+
+    /**
+     * The debouncing window for node list and token map refreshes.
+     * <p>
+     * It defaults to {@link #DEFAULT_REFRESH_NODE_LIST_INTERVAL_MILLIS}.
+     *
+     * @return the window, in milliseconds.
+     */
+    public int getRefreshNodeListIntervalMillis() {
+        return refreshNodeListIntervalMillis;
+    }
+
+    /**
+     * Sets the maximum number of node list refresh requests that can accumulate during the
+     * {@link #setRefreshNodeListIntervalMillis(int) debouncing window}. Once it is reached, the refresh
+     * is executed right away.
+     *
+     * @param maxPendingRefreshNodeListRequests the maximum number of requests. Must be strictly positive.
+     * @return this {@code QueryOptions} instance.
+     *
+     * @throws IllegalArgumentException if {@code maxPendingRefreshNodeListRequests <= 0}.
+     */
+    public QueryOptions setMaxPendingRefreshNodeListRequests(int maxPendingRefreshNodeListRequests) {
+        if (maxPendingRefreshNodeListRequests <= 0)
+            throw new IllegalArgumentException("Invalid maxPendingRefreshNodeListRequests, should be > 0, got " + maxPendingRefreshNodeListRequests);
+        this.maxPendingRefreshNodeListRequests = maxPendingRefreshNodeListRequests;
+        return this;
+    }
+
+    /**
+     * The maximum number of node list refresh requests that can accumulate during the debouncing window.
+     * <p>
+     * It defaults to {@link #DEFAULT_MAX_PENDING_REFRESH_NODE_LIST_REQUESTS}.
+     *
+     * @return the maximum number of requests.
+     */
+    public int getMaxPendingRefreshNodeListRequests() {
+        return maxPendingRefreshNodeListRequests;
+    }
+
+    /**
+     * Sets the maximum number of concurrent requests when re-preparing statements on a node.
+     * <p>
+     * When a node is added or comes back up, the driver re-prepares all known prepared statements on it
+     * over a dedicated connection. Requests are pipelined on that connection, but no more than this number
+     * are in flight at any time, so that a large number of statements does not flood the node right when it
+     * starts.
+     *
+     * @param maxConcurrentReprepares the maximum number of concurrent requests. Must be strictly positive.
+     * @return this {@code QueryOptions} instance.
+     *
+     * @throws IllegalArgumentException if {@code maxConcurrentReprepares <= 0}.
+     */
+    public QueryOptions setMaxConcurrentReprepares(int maxConcurrentReprepares) {
+        if (maxConcurrentReprepares <= 0)
+            throw new IllegalArgumentException("Invalid maxConcurrentReprepares, should be > 0, got " + maxConcurrentReprepares);
+        this.maxConcurrentReprepares = maxConcurrentReprepares;
+        return this;
+    }
+
+    /**
+     * The maximum number of concurrent requests when re-preparing statements on a node.
+     * <p>
+     * It defaults to {@link #DEFAULT_MAX_CONCURRENT_REPREPARES}.
+     *
+     * @return the maximum number of concurrent requests.
+     */
+    public int getMaxConcurrentReprepares() {
+        return maxConcurrentReprepares;
+    }
+
+    /**
+     * Sets the fraction of prepared statements that must be re-prepared on a node that is added or comes
+     * back up before it is marked up (and therefore included in query plans).
+     * <p>
+     * The remaining statements are re-prepared in the background. Queries that use one of them before it is
+     * re-prepared are still executed, at the cost of an additional round trip (the node replies that the
+     * statement is unknown, and the driver prepares it and retries).
+     *
+     * @param reprepareThreshold the fraction, between 0 (mark the node up right away) and 1 (wait for all
+     * statements to be re-prepared, the default).
+     * @return this {@code QueryOptions} instance.
+     *
+     * @throws IllegalArgumentException if {@code reprepareThreshold} is not between 0 and 1.
+     */
+    public QueryOptions setReprepareThreshold(double reprepareThreshold) {
+        if (reprepareThreshold < 0 || reprepareThreshold > 1)
+            throw new IllegalArgumentException("Invalid reprepareThreshold, should be between 0 and 1, got " + reprepareThreshold);
+        this.reprepareThreshold = reprepareThreshold;
+        return this;
+    }
+
+    /**
+     * The fraction of prepared statements that must be re-prepared on a node before it is marked up.
+     * <p>
+     * It defaults to {@link #DEFAULT_REPREPARE_THRESHOLD}.
+     *
+     * @return the fraction.
+     */
+    public double getReprepareThreshold() {
+        return reprepareThreshold;
+    }
 }
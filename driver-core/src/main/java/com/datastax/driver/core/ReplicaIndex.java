@@ -0,0 +1,107 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A precomputed, allocation-free structure to find the replicas of a partition key with the
+ * Murmur3 partitioner.
+ * <p>
+ * The ring is stored as a sorted array of primitive tokens and, for each keyspace, the replicas
+ * of each ring position are stored in an array with the same indexes. A lookup is thus a
+ * murmur hash, a binary search and two array accesses.
+ * <p>
+ * Keyspaces are indexed by their quoted name and, when it's a valid unquoted CQL identifier,
+ * by their plain name, so that the keyspace identifiers that the driver commonly receives
+ * can be looked up without being parsed.
+ * <p>
+ * Instances are built along with the token map that they belong to, and are thus replaced
+ * atomically with it whenever the token map is rebuilt.
+ */
+class ReplicaIndex {
+
+    private final long[] ring;
+    private final ConcurrentMap<String, Set<Host>[]> replicas;
+
+    private ReplicaIndex(long[] ring, ConcurrentMap<String, Set<Host>[]> replicas) {
+        this.ring = ring;
+        this.replicas = replicas;
+    }
+
+    /**
+     * @return the index, or {@code null} if the partitioner is not Murmur3 or the ring is empty.
+     */
+    static ReplicaIndex build(Token.Factory factory, List<Token> ring, Map<String, Map<Token, Set<Host>>> tokenToHosts) {
+        if (factory != Token.M3PToken.FACTORY || ring.isEmpty())
+            return null;
+
+        long[] tokens = new long[ring.size()];
+        for (int i = 0; i < tokens.length; i++)
+            tokens[i] = (Long)ring.get(i).getValue();
+
+        ConcurrentMap<String, Set<Host>[]> replicas = new ConcurrentHashMap<String, Set<Host>[]>(tokenToHosts.size() * 2);
+        // Keyspaces with the same replication share their token map, and can share their array as well
+        Map<Map<Token, Set<Host>>, Set<Host>[]> byTokenMap = new IdentityHashMap<Map<Token, Set<Host>>, Set<Host>[]>();
+        for (Map.Entry<String, Map<Token, Set<Host>>> entry : tokenToHosts.entrySet()) {
+            Map<Token, Set<Host>> ksTokens = entry.getValue();
+            Set<Host>[] ksReplicas = byTokenMap.get(ksTokens);
+            if (ksReplicas == null) {
+                // Arrays of a generic type can't be created directly
+                @SuppressWarnings({"unchecked", "rawtypes"})
+                Set<Host>[] array = new Set[tokens.length];
+                ksReplicas = array;
+                for (int i = 0; i < tokens.length; i++) {
+                    Set<Host> hosts = ksTokens.get(ring.get(i));
+                    ksReplicas[i] = hosts == null ? Collections.<Host>emptySet() : hosts;
+                }
+                byTokenMap.put(ksTokens, ksReplicas);
+            }
+            String keyspace = entry.getKey();
+            replicas.put(Metadata.quote(keyspace), ksReplicas);
+            replicas.put(Metadata.escapeId(keyspace), ksReplicas);
+        }
+        return new ReplicaIndex(tokens, replicas);
+    }
+
+    /**
+     * @param keyspace the keyspace, as a CQL identifier (quoted if case sensitive).
+     * @return the replicas, or {@code null} if the keyspace is not indexed under that identifier (which
+     * doesn't necessarily mean it doesn't exist, the caller should fall back to the slow path).
+     */
+    Set<Host> getReplicas(String keyspace, ByteBuffer partitionKey) {
+        Set<Host>[] ksReplicas = replicas.get(keyspace);
+        if (ksReplicas == null)
+            return null;
+
+        int i = Arrays.binarySearch(ring, Token.M3PToken.hashToLong(partitionKey));
+        if (i < 0) {
+            // the closest "primary" token on the ring
+            i = -i - 1;
+            if (i >= ring.length)
+                i = 0;
+        }
+        return ksReplicas[i];
+    }
+
+    void removeKeyspace(String keyspace) {
+        replicas.remove(Metadata.quote(keyspace));
+        replicas.remove(Metadata.escapeId(keyspace));
+    }
+}
@@ -56,7 +56,36 @@ abstract class ReplicationStrategy {
         }
     }
 
-    abstract Map<Token, Set<Host>> computeTokenToReplicaMap(Map<Token, Host> tokenToPrimary, List<Token> ring);
+    Map<Token, Set<Host>> computeTokenToReplicaMap(Map<Token, Host> tokenToPrimary, List<Token> ring) {
+        return computeTokenToReplicaMap(tokenToPrimary, ring, null);
+    }
+
+    /**
+     * @param walkLengths if not null, receives the walk length of each token (see {@link #computeReplicas}).
+     */
+    Map<Token, Set<Host>> computeTokenToReplicaMap(Map<Token, Host> tokenToPrimary, List<Token> ring, int[] walkLengths) {
+        Object topology = topology(tokenToPrimary, ring);
+        Map<Token, Set<Host>> replicaMap = new HashMap<Token, Set<Host>>(tokenToPrimary.size());
+        for (int i = 0; i < ring.size(); i++)
+            replicaMap.put(ring.get(i), computeReplicas(i, tokenToPrimary, ring, topology, walkLengths));
+        return replicaMap;
+    }
+
+    /**
+     * Returns what, apart from the hosts met when walking the ring, the replicas depend on. As long as it doesn't
+     * change, the replicas of a token only depend on the sequence of hosts that was walked to compute them, which
+     * allows the token map to update them incrementally.
+     */
+    abstract Object topology(Map<Token, Host> tokenToPrimary, List<Token> ring);
+
+    /**
+     * Computes the replicas of the {@code i}th token of the ring, by walking the ring from that token.
+     *
+     * @param topology the result of {@link #topology} for this ring.
+     * @param walkLengths if not null, receives at index {@code i} the number of tokens that were walked, including
+     *                    the {@code i}th one. It is the size of the ring if the walk wrapped all the way around.
+     */
+    abstract Set<Host> computeReplicas(int i, Map<Token, Host> tokenToPrimary, List<Token> ring, Object topology, int[] walkLengths);
 
     private static Token getTokenWrapping(int i, List<Token> ring) {
         return ring.get(i % ring.size());
@@ -70,19 +99,32 @@ abstract class ReplicationStrategy {
             this.replicationFactor = replicationFactor;
         }
 
-        Map<Token, Set<Host>> computeTokenToReplicaMap(Map<Token, Host> tokenToPrimary, List<Token> ring) {
+        Object topology(Map<Token, Host> tokenToPrimary, List<Token> ring) {
+            return Math.min(replicationFactor, ring.size());
+        }
 
-            int rf = Math.min(replicationFactor, ring.size());
+        Set<Host> computeReplicas(int i, Map<Token, Host> tokenToPrimary, List<Token> ring, Object topology, int[] walkLengths) {
 
-            Map<Token, Set<Host>> replicaMap = new HashMap<Token, Set<Host>>(tokenToPrimary.size());
-            for (int i = 0; i < ring.size(); i++) {
-                // Consecutive sections of the ring can assigned to the same host
-                Set<Host> replicas = new LinkedHashSet<Host>();
-                for (int j = 0; j < ring.size() && replicas.size() < rf; j++)
-                    replicas.add(tokenToPrimary.get(getTokenWrapping(i+j, ring)));
-                replicaMap.put(ring.get(i), ImmutableSet.copyOf(replicas));
-            }
-            return replicaMap;
+            int rf = (Integer)topology;
+
+            // Consecutive sections of the ring can assigned to the same host
+            Set<Host> replicas = new LinkedHashSet<Host>();
+            int j = 0;
+            for (; j < ring.size() && replicas.size() < rf; j++)
+                replicas.add(tokenToPrimary.get(getTokenWrapping(i+j, ring)));
+            if (walkLengths != null)
+                walkLengths[i] = j;
+            return ImmutableSet.copyOf(replicas);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof SimpleStrategy && ((SimpleStrategy)other).replicationFactor == replicationFactor;
+        }
+
+        @Override
+        public int hashCode() {
+            return replicationFactor;
         }
     }
 
@@ -94,62 +136,77 @@ abstract class ReplicationStrategy {
             this.replicationFactors = replicationFactors;
         }
 
-        Map<Token, Set<Host>> computeTokenToReplicaMap(Map<Token, Host> tokenToPrimary, List<Token> ring) {
-
-             // This is essentially a copy of org.apache.cassandra.locator.NetworkTopologyStrategy
-            Map<String, Set<String>> racks = getRacksInDcs(tokenToPrimary.values());
-            Map<Token, Set<Host>> replicaMap = new HashMap<Token, Set<Host>>(tokenToPrimary.size());
-            for (int i = 0; i < ring.size(); i++) {
-                Map<String, Set<Host>> allDcReplicas = new HashMap<String, Set<Host>>();
-                Map<String, Set<String>> seenRacks = new HashMap<String, Set<String>>();
-                Map<String, Set<Host>> skippedDcEndpoints = new HashMap<String, Set<Host>>();
-                for (String dc : replicationFactors.keySet()) {
-                    allDcReplicas.put(dc, new HashSet<Host>());
-                    seenRacks.put(dc, new HashSet<String>());
-                    skippedDcEndpoints.put(dc, new LinkedHashSet<Host>()); // preserve order
-                }
+        Object topology(Map<Token, Host> tokenToPrimary, List<Token> ring) {
+            return getRacksInDcs(tokenToPrimary.values());
+        }
 
-                // Preserve order - primary replica will be first
-                Set<Host> replicas = new LinkedHashSet<Host>();
-                for (int j = 0; j < ring.size() && !allDone(allDcReplicas); j++) {
-                    Host h = tokenToPrimary.get(getTokenWrapping(i + j, ring));
-                    String dc = h.getDatacenter();
-                    if (dc == null || !allDcReplicas.containsKey(dc))
-                        continue;
+        @SuppressWarnings("unchecked")
+        Set<Host> computeReplicas(int i, Map<Token, Host> tokenToPrimary, List<Token> ring, Object topology, int[] walkLengths) {
 
-                    Integer rf = replicationFactors.get(dc);
-                    Set<Host> dcReplicas = allDcReplicas.get(dc);
-                    if (rf == null || dcReplicas.size() >= rf)
-                        continue;
+             // This is essentially a copy of org.apache.cassandra.locator.NetworkTopologyStrategy
+            Map<String, Set<String>> racks = (Map<String, Set<String>>)topology;
+            Map<String, Set<Host>> allDcReplicas = new HashMap<String, Set<Host>>();
+            Map<String, Set<String>> seenRacks = new HashMap<String, Set<String>>();
+            Map<String, Set<Host>> skippedDcEndpoints = new HashMap<String, Set<Host>>();
+            for (String dc : replicationFactors.keySet()) {
+                allDcReplicas.put(dc, new HashSet<Host>());
+                seenRacks.put(dc, new HashSet<String>());
+                skippedDcEndpoints.put(dc, new LinkedHashSet<Host>()); // preserve order
+            }
 
-                    String rack = h.getRack();
-                    // Check if we already visited all racks in dc
-                    if (rack == null || seenRacks.get(dc).size() == racks.get(dc).size()) {
+            // Preserve order - primary replica will be first
+            Set<Host> replicas = new LinkedHashSet<Host>();
+            int j = 0;
+            for (; j < ring.size() && !allDone(allDcReplicas); j++) {
+                Host h = tokenToPrimary.get(getTokenWrapping(i + j, ring));
+                String dc = h.getDatacenter();
+                if (dc == null || !allDcReplicas.containsKey(dc))
+                    continue;
+
+                Integer rf = replicationFactors.get(dc);
+                Set<Host> dcReplicas = allDcReplicas.get(dc);
+                if (rf == null || dcReplicas.size() >= rf)
+                    continue;
+
+                String rack = h.getRack();
+                // Check if we already visited all racks in dc
+                if (rack == null || seenRacks.get(dc).size() == racks.get(dc).size()) {
+                    replicas.add(h);
+                    dcReplicas.add(h);
+                } else {
+                    // Is this a new rack?
+                    if (seenRacks.get(dc).contains(rack)) {
+                        skippedDcEndpoints.get(dc).add(h);
+                    } else {
                         replicas.add(h);
                         dcReplicas.add(h);
-                    } else {
-                        // Is this a new rack?
-                        if (seenRacks.get(dc).contains(rack)) {
-                            skippedDcEndpoints.get(dc).add(h);
-                        } else {
-                            replicas.add(h);
-                            dcReplicas.add(h);
-                            seenRacks.get(dc).add(rack);
-                            // If we've run out of distinct racks, add the nodes skipped so far
-                            if (seenRacks.get(dc).size() == racks.get(dc).size()) {
-                                Iterator<Host> skippedIt = skippedDcEndpoints.get(dc).iterator();
-                                while (skippedIt.hasNext() && dcReplicas.size() < rf) {
-                                    Host nextSkipped = skippedIt.next();
-                                    replicas.add(nextSkipped);
-                                    dcReplicas.add(nextSkipped);
-                                }
+                        seenRacks.get(dc).add(rack);
+                        // If we've run out of distinct racks, add the nodes skipped so far
+                        if (seenRacks.get(dc).size() == racks.get(dc).size()) {
+                            Iterator<Host> skippedIt = skippedDcEndpoints.get(dc).iterator();
+                            while (skippedIt.hasNext() && dcReplicas.size() < rf) {
+                                Host nextSkipped = skippedIt.next();
+                                replicas.add(nextSkipped);
+                                dcReplicas.add(nextSkipped);
                             }
                         }
                     }
                 }
-                replicaMap.put(ring.get(i), ImmutableSet.copyOf(replicas));
             }
-            return replicaMap;
+            if (walkLengths != null)
+                walkLengths[i] = j;
+            return ImmutableSet.copyOf(replicas);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof NetworkTopologyStrategy
+                && ((NetworkTopologyStrategy)other).replicationFactors.equals(replicationFactors);
+        }
+
+        @Override
+        public int hashCode() {
+            return replicationFactors.hashCode();
         }
 
         private boolean allDone(Map<String, Set<Host>> map) {
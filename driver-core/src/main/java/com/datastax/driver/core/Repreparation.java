@@ -0,0 +1,195 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Re-prepares a set of queries on a (dedicated) connection to a node that was added or came back up.
+ * <p>
+ * Queries are grouped by keyspace; the keyspace of each group is set before its queries are prepared.
+ * Within a group, prepare requests are pipelined, with at most {@code maxConcurrent} of them in flight.
+ * Everything is driven by the completion of the responses, so no thread is blocked while the queries are
+ * re-prepared; the connection is closed once all of them are done.
+ */
+class Repreparation {
+
+    private static final Logger logger = LoggerFactory.getLogger(Repreparation.class);
+
+    private final Connection connection;
+    private final Iterator<Map.Entry<String, Collection<String>>> keyspaces;
+    private final int maxConcurrent;
+    private final int threshold;
+    private final SettableFuture<Void> thresholdReached = SettableFuture.create();
+
+    // All mutable state is guarded by 'this'
+    private Iterator<String> queries;
+    private int inFlight;
+    private int done;
+    private boolean settingKeyspace;
+    private boolean sending;
+    private boolean finished;
+
+    /**
+     * @param connection the connection to use. It is closed once all queries are re-prepared.
+     * @param perKeyspace the queries to prepare, by keyspace. The empty string means no keyspace.
+     * @param maxConcurrent the maximum number of requests in flight at any time.
+     * @param threshold the number of queries after which {@link #start()}'s future completes.
+     */
+    Repreparation(Connection connection, Map<String, Collection<String>> perKeyspace, int maxConcurrent, int threshold) {
+        this.connection = connection;
+        this.keyspaces = perKeyspace.entrySet().iterator();
+        this.maxConcurrent = Math.max(1, Math.min(maxConcurrent, connection.maxAvailableStreams()));
+        this.threshold = threshold;
+    }
+
+    /**
+     * Starts sending requests.
+     *
+     * @return a future that completes once {@code threshold} queries are re-prepared (whether they succeeded or
+     * not), or if re-preparation is aborted because of a connection error. It never fails.
+     */
+    ListenableFuture<Void> start() {
+        synchronized (this) {
+            if (done >= threshold)
+                thresholdReached.set(null);
+            sendMore();
+        }
+        return thresholdReached;
+    }
+
+    private synchronized void sendMore() {
+        // Responses can complete synchronously while we write (on connection errors), which calls us back
+        // re-entrantly: in that case, let the outer loop carry on.
+        if (sending || finished)
+            return;
+        sending = true;
+        try {
+            // Requests are not necessarily processed in order by the node, so wait for the keyspace to be set
+            while (inFlight < maxConcurrent && !settingKeyspace) {
+                if (queries != null && queries.hasNext()) {
+                    inFlight += 1;
+                    Futures.addCallback(connection.write(new Requests.Prepare(queries.next())), prepareCallback, MoreExecutors.sameThreadExecutor());
+                } else if (inFlight > 0) {
+                    // Wait for the current group to complete before switching keyspaces
+                    return;
+                } else if (keyspaces.hasNext()) {
+                    Map.Entry<String, Collection<String>> entry = keyspaces.next();
+                    queries = entry.getValue().iterator();
+                    // Empty string means no particular keyspace to set
+                    if (!entry.getKey().isEmpty()) {
+                        inFlight += 1;
+                        settingKeyspace = true;
+                        // Note: we quote the keyspace below, because the name is the one coming from Cassandra, so it's in the right case already
+                        Futures.addCallback(connection.write(new Requests.Query("USE \"" + entry.getKey() + '"')), useCallback(entry.getValue().size()), MoreExecutors.sameThreadExecutor());
+                    }
+                } else {
+                    finish();
+                    return;
+                }
+            }
+        } catch (ConnectionException e) {
+            // Ignore, not a big deal: the queries will be prepared on the fly when they are first executed
+            abort(e);
+        } catch (BusyConnectionException e) {
+            abort(e);
+        } finally {
+            sending = false;
+        }
+    }
+
+    private final FutureCallback<Message.Response> prepareCallback = new FutureCallback<Message.Response>() {
+        @Override
+        public void onSuccess(Message.Response response) {
+            if (response.type == Message.Response.Type.ERROR)
+                // This "might" happen if we drop a CF but haven't removed it's prepared queries (which we don't do
+                // currently). It's not a big deal however as if it's a more serious problem it'll show up later when
+                // the query is tried for execution.
+                logger.debug("Unexpected error while preparing queries on new/newly up host: {}", response);
+            completed(1);
+        }
+
+        @Override
+        public void onFailure(Throwable t) {
+            logger.debug("Unexpected error while preparing queries on new/newly up host", t);
+            completed(1);
+        }
+    };
+
+    private FutureCallback<Message.Response> useCallback(final int groupSize) {
+        return new FutureCallback<Message.Response>() {
+            @Override
+            public void onSuccess(Message.Response response) {
+                if (response.type == Message.Response.Type.RESULT) {
+                    keyspaceSet();
+                } else {
+                    // The node is probably not up on the schema yet; the queries of this keyspace will be prepared
+                    // on the fly when they are first executed.
+                    logger.debug("Problem while setting keyspace to re-prepare queries, got {} as response", response);
+                    skipGroup(groupSize);
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                logger.debug("Error while setting keyspace to re-prepare queries", t);
+                skipGroup(groupSize);
+            }
+        };
+    }
+
+    private synchronized void completed(int count) {
+        inFlight -= 1;
+        done += count;
+        if (done >= threshold)
+            thresholdReached.set(null);
+        sendMore();
+    }
+
+    private synchronized void keyspaceSet() {
+        settingKeyspace = false;
+        completed(0);
+    }
+
+    private synchronized void skipGroup(int groupSize) {
+        settingKeyspace = false;
+        queries = null;
+        completed(groupSize);
+    }
+
+    private synchronized void abort(Exception e) {
+        logger.debug("Aborting re-preparation of queries on " + connection.address, e);
+        finish();
+    }
+
+    private void finish() {
+        if (finished)
+            return;
+        finished = true;
+        thresholdReached.set(null);
+        connection.closeAsync();
+    }
+}
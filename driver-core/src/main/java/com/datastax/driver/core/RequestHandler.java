@@ -17,17 +17,27 @@ package com.datastax.driver.core;
 
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import com.codahale.metrics.Timer;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.jboss.netty.util.HashedWheelTimer;
+import org.jboss.netty.util.Timeout;
+import org.jboss.netty.util.TimerTask;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -43,34 +53,39 @@ import com.datastax.driver.core.policies.RetryPolicy.RetryDecision.Type;
 /**
  * Handles a request to cassandra, dealing with host failover and retries on
  * unavailable/timeout.
+ * <p>
+ * The request is sent by one or more {@link SpeculativeExecution executions}. There is always
+ * an initial execution; if the statement is idempotent, the {@link SpeculativeExecutionPolicy}
+ * can start additional ones on the next hosts of the query plan while the previous ones are still
+ * running. The first execution to complete wins, the others are cancelled.
  */
-class RequestHandler implements Connection.ResponseCallback {
+class RequestHandler {
     private static final Logger logger = LoggerFactory.getLogger(RequestHandler.class);
 
     private final SessionManager manager;
     private final Callback callback;
 
-    private final Iterator<Host> queryPlan;
+    private final QueryPlan queryPlan;
     private final Statement statement;
-    private volatile Host current;
-    private volatile List<Host> triedHosts;
-    private volatile HostConnectionPool currentPool;
-    private final AtomicReference<QueryState> queryStateRef;
-
-    // This represents the number of times a retry has been triggered by the RetryPolicy (this is different from
-    // queryStateRef.get().retryCount, because some retries don't involve the policy, for example after an
-    // OVERLOADED error).
-    // This is incremented by one writer at a time, so volatile is good enough.
-    private volatile int retriesByPolicy;
+    private final boolean allowSpeculativeExecutions;
+    private final SpeculativeExecutionPolicy.SpeculativeExecutionPlan speculativeExecutionPlan;
+    private final HashedWheelTimer scheduler;
 
-    private volatile ConsistencyLevel retryConsistencyLevel;
+    private final Set<SpeculativeExecution> runningExecutions = new CopyOnWriteArraySet<SpeculativeExecution>();
+    private final Set<Timeout> scheduledExecutions = new CopyOnWriteArraySet<Timeout>();
+    private final AtomicInteger executionCount = new AtomicInteger();
 
+    // Shared by all executions. Lazily initialized because most requests succeed on the first host.
+    private volatile List<Host> triedHosts;
     private volatile Map<InetSocketAddress, Throwable> errors;
 
-    private volatile Connection.ResponseHandler connectionHandler;
+    private final AtomicBoolean isDone = new AtomicBoolean();
 
     private final Timer.Context timerContext;
     private final long startTime;
+    // null if latency histograms are disabled
+    private final Metrics.StatementKind statementKind;
+    private final boolean countReplicaRouting;
 
     public RequestHandler(SessionManager manager, Callback callback, Statement statement) {
         this.manager = manager;
@@ -78,13 +93,24 @@ class RequestHandler implements Connection.ResponseCallback {
 
         callback.register(this);
 
-        this.queryPlan = manager.loadBalancingPolicy().newQueryPlan(manager.poolsState.keyspace, statement);
+        this.queryPlan = new QueryPlan(manager.loadBalancingPolicy().newQueryPlan(manager.poolsState.keyspace, statement));
         this.statement = statement;
-        this.queryStateRef = new AtomicReference<QueryState>(QueryState.INITIAL);
+
+        // Internal requests (Statement.DEFAULT) are never retried speculatively
+        this.allowSpeculativeExecutions = statement != Statement.DEFAULT
+                                          && statement.isIdempotentWithDefault(manager.configuration().getQueryOptions());
+        this.speculativeExecutionPlan = allowSpeculativeExecutions
+                                        ? manager.cluster.manager.speculativeExecutionPolicy().newPlan(manager.poolsState.keyspace, statement)
+                                        : null;
+        this.scheduler = manager.connectionFactory().timer;
 
         this.timerContext = metricsEnabled()
                           ? metrics().getRequestsTimer().time()
                           : null;
+        this.statementKind = (metricsEnabled() && metrics().getLatencies() != null)
+                             ? Metrics.StatementKind.of(statement)
+                             : null;
+        this.countReplicaRouting = metricsEnabled() && manager.configuration().getMetricsOptions().isReplicaRoutingMetricsEnabled();
         this.startTime = System.nanoTime();
     }
 
@@ -97,153 +123,160 @@ class RequestHandler implements Connection.ResponseCallback {
     }
 
     public void sendRequest() {
-        try {
-            while (queryPlan.hasNext() && !queryStateRef.get().isCancelled()) {
-                Host host = queryPlan.next();
-                logger.trace("Querying node {}", host);
-                if (query(host))
-                    return;
-            }
-            setFinalException(null, new NoHostAvailableException(errors == null ? Collections.<InetSocketAddress, Throwable>emptyMap() : errors));
-        } catch (Exception e) {
-            // Shouldn't happen really, but if ever the loadbalancing policy returned iterator throws, we don't want to block.
-            setFinalException(null, new DriverInternalError("An unexpected error happened while sending requests", e));
-        }
+        startNewExecution();
     }
 
-    private boolean query(Host host) {
-        currentPool = manager.pools.get(host);
-        if (currentPool == null || currentPool.isClosed())
-            return false;
+    private void startNewExecution() {
+        if (isDone.get())
+            return;
 
-        PooledConnection connection = null;
-        try {
-            connection = currentPool.borrowConnection(manager.configuration().getPoolingOptions().getPoolTimeoutMillis(), TimeUnit.MILLISECONDS);
-            if (current != null) {
-                if (triedHosts == null)
-                    triedHosts = new ArrayList<Host>();
-                triedHosts.add(current);
-            }
-            current = host;
-            write(connection, this);
-            return true;
-        } catch (ConnectionException e) {
-            // If we have any problem with the connection, move to the next node.
-            if (metricsEnabled())
-                metrics().getErrorMetrics().getConnectionErrors().inc();
-            if (connection != null)
-                connection.release();
-            logError(host.getSocketAddress(), e);
-            return false;
-        } catch (BusyConnectionException e) {
-            // The pool shouldn't have give us a busy connection unless we've maxed up the pool, so move on to the next host.
-            connection.release();
-            logError(host.getSocketAddress(), e);
-            return false;
-        } catch (TimeoutException e) {
-            // We timeout, log it but move to the next node.
-            logError(host.getSocketAddress(), new DriverException("Timeout while trying to acquire available connection (you may want to increase the driver number of per-host connections)"));
-            return false;
-        } catch (RuntimeException e) {
-            if (connection != null)
-                connection.release();
-            logger.error("Unexpected error while querying " + host.getAddress(), e);
-            logError(host.getSocketAddress(), e);
-            return false;
-        }
+        int position = executionCount.getAndIncrement();
+        Message.Request request = callback.request();
+        // The stream id is stored in the message, so concurrent executions can't share the same instance
+        if (position > 0)
+            request = request.copy();
+
+        SpeculativeExecution execution = new SpeculativeExecution(request, position);
+        runningExecutions.add(execution);
+        execution.sendRequest();
     }
 
-    private void write(Connection connection, Connection.ResponseCallback responseCallback) throws ConnectionException, BusyConnectionException {
-        // Make sure cancel() does not see a stale connectionHandler if it sees the new query state
-        // before connection.write has completed
-        connectionHandler = null;
+    private void scheduleExecution(long delayMillis) {
+        if (isDone.get() || delayMillis <= 0)
+            return;
+        logger.trace("Scheduling speculative execution in {} ms", delayMillis);
+        scheduledExecutions.add(scheduler.newTimeout(newExecutionTask, delayMillis, TimeUnit.MILLISECONDS));
+    }
 
-        // Ensure query state is "in progress" (can be already if connection.write failed on a previous node and we're retrying)
-        while (true) {
-            QueryState previous = queryStateRef.get();
-            if (previous.isCancelled()) {
-                if (connection instanceof PooledConnection)
-                    ((PooledConnection)connection).release();
+    private final TimerTask newExecutionTask = new TimerTask() {
+        @Override
+        public void run(Timeout timeout) {
+            scheduledExecutions.remove(timeout);
+            if (isDone.get())
                 return;
-            }
-            if (previous.inProgress || queryStateRef.compareAndSet(previous, previous.startNext()))
-                break;
+            // We're on the timer thread, which must not be blocked (borrowing a connection can block)
+            manager.executor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (isDone.get())
+                        return;
+                    if (metricsEnabled())
+                        metrics().getErrorMetrics().getSpeculativeExecutions().inc();
+                    startNewExecution();
+                }
+            });
         }
+    };
+
+    private void cancelPendingExecutions(SpeculativeExecution ignore) {
+        for (SpeculativeExecution execution : runningExecutions)
+            if (execution != ignore) // not vital but this produces nicer logs
+                execution.cancel();
+        for (Timeout timeout : scheduledExecutions)
+            timeout.cancel();
+    }
 
-        connectionHandler = connection.write(responseCallback, false);
-        // Only start the timeout when we're sure connectionHandler is set. This avoids an edge case where onTimeout() was triggered
-        // *before* the call to connection.write had returned.
-        connectionHandler.startTimeout();
-
-        // Note that we could have already received the response here (so onSet() / onException() would have been called). This is
-        // why we only test for CANCELLED_WHILE_IN_PROGRESS below.
+    public void cancel() {
+        if (!isDone.compareAndSet(false, true))
+            return;
+        cancelPendingExecutions(null);
+    }
 
-        // If cancel() was called after we set the state to "in progress", but before connection.write had completed, it might have
-        // missed the new value of connectionHandler. So make sure that cancelHandler() gets called here (we might call it twice,
-        // but it knows how to deal with it).
-        if (queryStateRef.get() == QueryState.CANCELLED_WHILE_IN_PROGRESS)
-            connectionHandler.cancelHandler();
+    private void addTriedHost(Host host) {
+        if (triedHosts == null) {
+            synchronized (this) {
+                if (triedHosts == null)
+                    triedHosts = new CopyOnWriteArrayList<Host>();
+            }
+        }
+        triedHosts.add(host);
     }
 
     private void logError(InetSocketAddress address, Throwable exception) {
         logger.debug("Error querying {}, trying next host (error is: {})", address, exception.toString());
-        if (errors == null)
-            errors = new HashMap<InetSocketAddress, Throwable>();
+        if (errors == null) {
+            synchronized (this) {
+                if (errors == null)
+                    errors = new ConcurrentHashMap<InetSocketAddress, Throwable>();
+            }
+        }
         errors.put(address, exception);
     }
 
-    private void retry(final boolean retryCurrent, ConsistencyLevel newConsistencyLevel) {
-        final Host h = current;
-        this.retryConsistencyLevel = newConsistencyLevel;
+    private void setFinalResult(SpeculativeExecution execution, Connection connection, Message.Response response) {
+        if (!isDone.compareAndSet(false, true)) {
+            logger.trace("Got a response from {} but the request was already completed, ignoring", connection.address);
+            return;
+        }
 
-        // We should not retry on the current thread as this will be an IO thread.
-        manager.executor().execute(new Runnable() {
-            @Override
-            public void run() {
-                if (queryStateRef.get().isCancelled())
-                    return;
-                try {
-                    if (retryCurrent) {
-                        if (query(h))
-                            return;
-                    }
-                    sendRequest();
-                } catch (Exception e) {
-                    setFinalException(null, new DriverInternalError("Unexpected exception while retrying query", e));
-                }
+        try {
+            cancelPendingExecutions(execution);
+
+            if (timerContext != null)
+                timerContext.stop();
+
+            if (metricsEnabled()) {
+                if (execution.position > 0)
+                    metrics().getErrorMetrics().getSpeculativeExecutionsWon().inc();
+                if (countReplicaRouting)
+                    countReplicaRouting(execution.current);
             }
-        });
-    }
 
-    public void cancel() {
-        // Atomically set a special QueryState, that will cause any further operation to abort.
-        // We want to remember whether a request was in progress when we did this, so there are two cancel states.
-        while (true) {
-            QueryState previous = queryStateRef.get();
-            if (previous.isCancelled()) {
-                return;
-            } else if (previous.inProgress && queryStateRef.compareAndSet(previous, QueryState.CANCELLED_WHILE_IN_PROGRESS)) {
-                // The connectionHandler should be non-null, but we might miss the update if we're racing with write().
-                // If it's still null, this will be handled by re-checking queryStateRef at the end of write().
-                if (connectionHandler != null)
-                    connectionHandler.cancelHandler();
-                return;
-            } else if (!previous.inProgress && queryStateRef.compareAndSet(previous, QueryState.CANCELLED_WHILE_COMPLETE)) {
-                return;
+            ExecutionInfo info = execution.current.defaultExecutionInfo;
+            if (triedHosts != null) {
+                triedHosts.add(execution.current);
+                info = new ExecutionInfo(triedHosts);
             }
+            if (execution.retryConsistencyLevel != null)
+                info = info.withAchievedConsistency(execution.retryConsistencyLevel);
+            callback.onSet(connection, response, info, statement, System.nanoTime() - startTime);
+        } catch (Exception e) {
+            callback.onException(connection, new DriverInternalError("Unexpected exception while setting final result from " + response, e), System.nanoTime() - startTime, execution.retryCount());
         }
     }
 
-    @Override
-    public Message.Request request() {
+    private void countReplicaRouting(Host coordinator) {
+        if (statement == Statement.DEFAULT)
+            return;
 
-        Message.Request request = callback.request();
-        if (retryConsistencyLevel != null && retryConsistencyLevel != consistencyOf(request))
-            request = manager.makeRequestMessage(statement, retryConsistencyLevel, serialConsistencyOf(request), pagingStateOf(request), defaultTimestampOf(request));
-        return request;
+        ByteBuffer routingKey = statement.getRoutingKey();
+        String keyspace = statement.getKeyspace();
+        if (keyspace == null)
+            keyspace = manager.poolsState.keyspace;
+        if (routingKey == null || keyspace == null)
+            return;
+
+        metrics().getRoutableRequests().inc();
+        if (manager.cluster.getMetadata().getReplicasOfInternalName(keyspace, routingKey).contains(coordinator))
+            metrics().getRequestsRoutedToReplica().inc();
+    }
+
+    private void setFinalException(SpeculativeExecution execution, Connection connection, Exception exception) {
+        if (!isDone.compareAndSet(false, true)) {
+            logger.trace("Got an exception but the request was already completed, ignoring ({})", exception.toString());
+            return;
+        }
+
+        try {
+            cancelPendingExecutions(execution);
+
+            if (timerContext != null)
+                timerContext.stop();
+        } finally {
+            callback.onException(connection, exception, System.nanoTime() - startTime, execution.retryCount());
+        }
     }
 
-    private ConsistencyLevel consistencyOf(Message.Request request) {
+    // Called when an execution reaches the end of the query plan. This is only a failure if no other
+    // execution is still running: since they all share the same query plan, executions that haven't started
+    // yet will have no hosts to try either.
+    private void reportNoMoreHosts(SpeculativeExecution execution) {
+        runningExecutions.remove(execution);
+        if (runningExecutions.isEmpty())
+            setFinalException(execution, null, new NoHostAvailableException(errors == null ? Collections.<InetSocketAddress, Throwable>emptyMap() : errors));
+    }
+
+    private static ConsistencyLevel consistencyOf(Message.Request request) {
         switch (request.type) {
             case QUERY:   return ((Requests.Query)request).options.consistency;
             case EXECUTE: return ((Requests.Execute)request).options.consistency;
@@ -252,7 +285,7 @@ class RequestHandler implements Connection.ResponseCallback {
         }
     }
 
-    private ConsistencyLevel serialConsistencyOf(Message.Request request) {
+    private static ConsistencyLevel serialConsistencyOf(Message.Request request) {
         switch (request.type) {
             case QUERY:   return ((Requests.Query)request).options.serialConsistency;
             case EXECUTE: return ((Requests.Execute)request).options.serialConsistency;
@@ -261,7 +294,7 @@ class RequestHandler implements Connection.ResponseCallback {
         }
     }
 
-    private long defaultTimestampOf(Message.Request request) {
+    private static long defaultTimestampOf(Message.Request request) {
         switch (request.type) {
             case QUERY:   return ((Requests.Query)request).options.defaultTimestamp;
             case EXECUTE: return ((Requests.Execute)request).options.defaultTimestamp;
@@ -270,7 +303,7 @@ class RequestHandler implements Connection.ResponseCallback {
         }
     }
 
-    private ByteBuffer pagingStateOf(Message.Request request) {
+    private static ByteBuffer pagingStateOf(Message.Request request) {
         switch (request.type) {
             case QUERY:   return ((Requests.Query)request).options.pagingState;
             case EXECUTE: return ((Requests.Execute)request).options.pagingState;
@@ -278,358 +311,560 @@ class RequestHandler implements Connection.ResponseCallback {
         }
     }
 
-    private void setFinalResult(Connection connection, Message.Response response) {
-        try {
-            if (timerContext != null)
-                timerContext.stop();
+    interface Callback extends Connection.ResponseCallback {
+        public void onSet(Connection connection, Message.Response response, ExecutionInfo info, Statement statement, long latency);
+        public void register(RequestHandler handler);
+    }
 
-            ExecutionInfo info = current.defaultExecutionInfo;
-            if (triedHosts != null) {
-                triedHosts.add(current);
-                info = new ExecutionInfo(triedHosts);
+    /**
+     * An execution of the request. It walks the (shared) query plan until it gets a response,
+     * handling retries on its own.
+     */
+    class SpeculativeExecution implements Connection.ResponseCallback {
+        private final Message.Request request;
+        // 0 for the initial execution, 1 for the first speculative execution, etc.
+        private final int position;
+        private volatile Host current;
+        private volatile ConsistencyLevel retryConsistencyLevel;
+        private final AtomicReference<QueryState> queryStateRef;
+        private final AtomicBoolean nextExecutionScheduled = new AtomicBoolean();
+
+        // This represents the number of times a retry has been triggered by the RetryPolicy (this is different from
+        // queryStateRef.get().retryCount, because some retries don't involve the policy, for example after an
+        // OVERLOADED error).
+        // This is incremented by one writer at a time, so volatile is good enough.
+        private volatile int retriesByPolicy;
+
+        private volatile Connection.ResponseHandler connectionHandler;
+
+        SpeculativeExecution(Message.Request request, int position) {
+            this.request = request;
+            this.position = position;
+            this.queryStateRef = new AtomicReference<QueryState>(QueryState.INITIAL);
+            logger.trace("Starting execution {}", position);
+        }
+
+        void sendRequest() {
+            try {
+                Host host;
+                while (!isDone.get() && (host = queryPlan.next()) != null && !queryStateRef.get().isCancelled()) {
+                    logger.trace("Querying node {} (execution {})", host, position);
+                    if (query(host))
+                        return;
+                }
+                reportNoMoreHosts(this);
+            } catch (Exception e) {
+                // Shouldn't happen really, but if ever the loadbalancing policy returned iterator throws, we don't want to block.
+                setFinalException(this, null, new DriverInternalError("An unexpected error happened while sending requests", e));
             }
-            if (retryConsistencyLevel != null)
-                info = info.withAchievedConsistency(retryConsistencyLevel);
-            callback.onSet(connection, response, info, statement, System.nanoTime() - startTime);
-        } catch (Exception e) {
-            callback.onException(connection, new DriverInternalError("Unexpected exception while setting final result from " + response, e), System.nanoTime() - startTime, retryCount());
         }
-    }
 
-    private void setFinalException(Connection connection, Exception exception) {
-        try {
-            if (timerContext != null)
-                timerContext.stop();
-        } finally {
-            callback.onException(connection, exception, System.nanoTime() - startTime, retryCount());
+        private boolean query(final Host host) {
+            HostConnectionPool currentPool = manager.pools.get(host);
+            if (currentPool == null || currentPool.isClosed())
+                return false;
+
+            final ListenableFuture<PooledConnection> connectionFuture = currentPool.borrowConnectionAsync(manager.configuration().getPoolingOptions().getPoolTimeoutMillis(), TimeUnit.MILLISECONDS);
+            if (connectionFuture.isDone())
+                return query(host, connectionFuture);
+
+            // The pool is saturated: don't block this thread, resume when a connection becomes available (or the
+            // borrow fails, in which case we move on to the next host).
+            connectionFuture.addListener(new Runnable() {
+                @Override
+                public void run() {
+                    if (!query(host, connectionFuture))
+                        sendRequest();
+                }
+            }, manager.executor());
+            return true;
         }
-    }
 
-    @Override
-    public void onSet(Connection connection, Message.Response response, long latency, int retryCount) {
-        QueryState queryState = queryStateRef.get();
-        if (!queryState.isInProgressAt(retryCount) ||
-            !queryStateRef.compareAndSet(queryState, queryState.complete())) {
-            logger.debug("onSet triggered but the response was completed by another thread, cancelling (retryCount = {}, queryState = {}, queryStateRef = {})",
-                         retryCount, queryState, queryStateRef.get());
-            return;
+        private boolean query(Host host, ListenableFuture<PooledConnection> connectionFuture) {
+            PooledConnection connection = null;
+            try {
+                connection = getBorrowedConnection(connectionFuture);
+                if (current != null)
+                    addTriedHost(current);
+                current = host;
+                write(connection, this);
+
+                // Only the first host queried by an execution can trigger the next speculative execution
+                if (allowSpeculativeExecutions && nextExecutionScheduled.compareAndSet(false, true))
+                    scheduleExecution(speculativeExecutionPlan.nextExecution(host));
+                return true;
+            } catch (ConnectionException e) {
+                // If we have any problem with the connection, move to the next node.
+                if (metricsEnabled())
+                    metrics().getErrorMetrics().getConnectionErrors().inc();
+                if (connection != null)
+                    connection.release();
+                logError(host.getSocketAddress(), e);
+                return false;
+            } catch (BusyConnectionException e) {
+                // The pool shouldn't have give us a busy connection unless we've maxed up the pool, so move on to the next host.
+                connection.release();
+                logError(host.getSocketAddress(), e);
+                return false;
+            } catch (TimeoutException e) {
+                // We timeout, log it but move to the next node.
+                logError(host.getSocketAddress(), new DriverException("Timeout while trying to acquire available connection (you may want to increase the driver number of per-host connections)"));
+                return false;
+            } catch (BusyPoolException e) {
+                // Too many requests are already waiting on that host, move to the next node.
+                logError(host.getSocketAddress(), new DriverException(e.getMessage()));
+                return false;
+            } catch (RuntimeException e) {
+                if (connection != null)
+                    connection.release();
+                logger.error("Unexpected error while querying " + host.getAddress(), e);
+                logError(host.getSocketAddress(), e);
+                return false;
+            }
         }
 
-        Host queriedHost = current;
-        boolean releaseConnection = true;
-        try {
-            switch (response.type) {
-                case RESULT:
-                    setFinalResult(connection, response);
+        // Only called once the future is done, so this never blocks
+        private PooledConnection getBorrowedConnection(ListenableFuture<PooledConnection> connectionFuture) throws ConnectionException, TimeoutException, BusyPoolException {
+            try {
+                return Uninterruptibles.getUninterruptibly(connectionFuture);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof ConnectionException)
+                    throw (ConnectionException)cause;
+                if (cause instanceof TimeoutException)
+                    throw (TimeoutException)cause;
+                if (cause instanceof BusyPoolException)
+                    throw (BusyPoolException)cause;
+                if (cause instanceof RuntimeException)
+                    throw (RuntimeException)cause;
+                throw new DriverInternalError("Unexpected error while borrowing a connection", cause);
+            }
+        }
+
+        private void write(Connection connection, Connection.ResponseCallback responseCallback) throws ConnectionException, BusyConnectionException {
+            // Make sure cancel() does not see a stale connectionHandler if it sees the new query state
+            // before connection.write has completed
+            connectionHandler = null;
+
+            // Ensure query state is "in progress" (can be already if connection.write failed on a previous node and we're retrying)
+            while (true) {
+                QueryState previous = queryStateRef.get();
+                if (previous.isCancelled()) {
+                    if (connection instanceof PooledConnection)
+                        ((PooledConnection)connection).release();
+                    return;
+                }
+                if (previous.inProgress || queryStateRef.compareAndSet(previous, previous.startNext()))
                     break;
-                case ERROR:
-                    Responses.Error err = (Responses.Error)response;
-                    RetryPolicy.RetryDecision retry = null;
-                    RetryPolicy retryPolicy = statement.getRetryPolicy() == null
-                                            ? manager.configuration().getPolicies().getRetryPolicy()
-                                            : statement.getRetryPolicy();
-                    switch (err.code) {
-                        case READ_TIMEOUT:
-                            assert err.infos instanceof ReadTimeoutException;
-                            if (metricsEnabled())
-                                metrics().getErrorMetrics().getReadTimeouts().inc();
-
-                            ReadTimeoutException rte = (ReadTimeoutException)err.infos;
-                            retry = retryPolicy.onReadTimeout(statement,
-                                                              rte.getConsistencyLevel(),
-                                                              rte.getRequiredAcknowledgements(),
-                                                              rte.getReceivedAcknowledgements(),
-                                                              rte.wasDataRetrieved(),
-                                                              retriesByPolicy);
-
-                            if (metricsEnabled()) {
-                                if (retry.getType() == Type.RETRY)
-                                    metrics().getErrorMetrics().getRetriesOnReadTimeout().inc();
-                                if (retry.getType() == Type.IGNORE)
-                                    metrics().getErrorMetrics().getIgnoresOnReadTimeout().inc();
-                            }
-                            break;
-                        case WRITE_TIMEOUT:
-                            assert err.infos instanceof WriteTimeoutException;
-                            if (metricsEnabled())
-                                metrics().getErrorMetrics().getWriteTimeouts().inc();
-
-                            WriteTimeoutException wte = (WriteTimeoutException)err.infos;
-                            retry = retryPolicy.onWriteTimeout(statement,
-                                                               wte.getConsistencyLevel(),
-                                                               wte.getWriteType(),
-                                                               wte.getRequiredAcknowledgements(),
-                                                               wte.getReceivedAcknowledgements(),
-                                                               retriesByPolicy);
-
-                            if (metricsEnabled()) {
-                                if (retry.getType() == Type.RETRY)
-                                    metrics().getErrorMetrics().getRetriesOnWriteTimeout().inc();
-                                if (retry.getType() == Type.IGNORE)
-                                    metrics().getErrorMetrics().getIgnoresOnWriteTimeout().inc();
-                            }
-                            break;
-                        case UNAVAILABLE:
-                            assert err.infos instanceof UnavailableException;
-                            if (metricsEnabled())
-                                metrics().getErrorMetrics().getUnavailables().inc();
-
-                            UnavailableException ue = (UnavailableException)err.infos;
-                            retry = retryPolicy.onUnavailable(statement,
-                                                              ue.getConsistencyLevel(),
-                                                              ue.getRequiredReplicas(),
-                                                              ue.getAliveReplicas(),
-                                                              retriesByPolicy);
-
-                            if (metricsEnabled()) {
-                                if (retry.getType() == Type.RETRY)
-                                    metrics().getErrorMetrics().getRetriesOnUnavailable().inc();
-                                if (retry.getType() == Type.IGNORE)
-                                    metrics().getErrorMetrics().getIgnoresOnUnavailable().inc();
-                            }
-                            break;
-                        case OVERLOADED:
-                            // Try another node
-                            logger.warn("Host {} is overloaded, trying next host.", connection.address);
-                            logError(connection.address, new DriverException("Host overloaded"));
-                            if (metricsEnabled())
-                                metrics().getErrorMetrics().getOthers().inc();
-                            retry(false, null);
-                            return;
-                        case SERVER_ERROR:
-                            // Defunct connection and try another node
-                            logger.warn("{} replied with server error ({}), trying next host.", connection.address, err.message);
-                            DriverException exception = new DriverException("Host replied with server error: " + err.message);
-                            logError(connection.address, exception);
-                            connection.defunct(exception);
-                            if (metricsEnabled())
-                                metrics().getErrorMetrics().getOthers().inc();
-                            retry(false, null);
-                            return;
-                        case IS_BOOTSTRAPPING:
-                            // Try another node
-                            logger.error("Query sent to {} but it is bootstrapping. This shouldn't happen but trying next host.", connection.address);
-                            logError(connection.address, new DriverException("Host is bootstrapping"));
-                            if (metricsEnabled())
-                                metrics().getErrorMetrics().getOthers().inc();
-                            retry(false, null);
-                            return;
-                        case UNPREPARED:
-                            assert err.infos instanceof MD5Digest;
-                            MD5Digest id = (MD5Digest)err.infos;
-                            PreparedStatement toPrepare = manager.cluster.manager.preparedQueries.get(id);
-                            if (toPrepare == null) {
-                                // This shouldn't happen
-                                String msg = String.format("Tried to execute unknown prepared query %s", id);
-                                logger.error(msg);
-                                setFinalException(connection, new DriverInternalError(msg));
-                                return;
-                            }
+            }
 
-                            String currentKeyspace = connection.keyspace();
-                            String prepareKeyspace = toPrepare.getQueryKeyspace();
-                            if (prepareKeyspace != null && (currentKeyspace == null || !currentKeyspace.equals(prepareKeyspace))) {
-                                // This shouldn't happen in normal use, because a user shouldn't try to execute
-                                // a prepared statement with the wrong keyspace set.
-                                // Fail fast (we can't change the keyspace to reprepare, because we're using a pooled connection
-                                // that's shared with other requests).
-                                throw new IllegalStateException(String.format("Statement was prepared on keyspace %s, can't execute it on %s (%s)",
-                                    toPrepare.getQueryKeyspace(), connection.keyspace(), toPrepare.getQueryString()));
-                            }
+            connectionHandler = connection.write(responseCallback, false);
+            // Only start the timeout when we're sure connectionHandler is set. This avoids an edge case where onTimeout() was triggered
+            // *before* the call to connection.write had returned.
+            connectionHandler.startTimeout();
 
-                            logger.info("Query {} is not prepared on {}, preparing before retrying executing. "
-                                      + "Seeing this message a few times is fine, but seeing it a lot may be source of performance problems",
-                                        toPrepare.getQueryString(), connection.address);
+            // Note that we could have already received the response here (so onSet() / onException() would have been called). This is
+            // why we only test for CANCELLED_WHILE_IN_PROGRESS below.
 
-                            releaseConnection = false; // we're reusing it for the prepare call
-                            write(connection, prepareAndRetry(toPrepare.getQueryString()));
-                            // we're done for now, the prepareAndRetry callback will handle the rest
-                            return;
-                        default:
-                            if (metricsEnabled())
-                                metrics().getErrorMetrics().getOthers().inc();
-                            break;
-                    }
+            // If cancel() was called after we set the state to "in progress", but before connection.write had completed, it might have
+            // missed the new value of connectionHandler. So make sure that cancelHandler() gets called here (we might call it twice,
+            // but it knows how to deal with it).
+            if (queryStateRef.get() == QueryState.CANCELLED_WHILE_IN_PROGRESS)
+                connectionHandler.cancelHandler();
+        }
 
-                    if (retry == null)
-                        setFinalResult(connection, response);
-                    else {
-                        switch (retry.getType()) {
-                            case RETRY:
-                                ++retriesByPolicy;
-                                if (logger.isDebugEnabled())
-                                    logger.debug("Doing retry {} for query {} at consistency {}", retriesByPolicy, statement, retry.getRetryConsistencyLevel());
-                                if (metricsEnabled())
-                                    metrics().getErrorMetrics().getRetries().inc();
-                                retry(true, retry.getRetryConsistencyLevel());
-                                break;
-                            case RETHROW:
-                                setFinalResult(connection, response);
-                                break;
-                            case IGNORE:
-                                if (metricsEnabled())
-                                    metrics().getErrorMetrics().getIgnores().inc();
-                                setFinalResult(connection, new Responses.Result.Void());
-                                break;
+        private void retry(final boolean retryCurrent, ConsistencyLevel newConsistencyLevel) {
+            final Host h = current;
+            this.retryConsistencyLevel = newConsistencyLevel;
+
+            // We should not retry on the current thread as this will be an IO thread.
+            manager.executor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (isDone.get() || queryStateRef.get().isCancelled())
+                        return;
+                    try {
+                        if (retryCurrent) {
+                            if (query(h))
+                                return;
                         }
+                        sendRequest();
+                    } catch (Exception e) {
+                        setFinalException(SpeculativeExecution.this, null, new DriverInternalError("Unexpected exception while retrying query", e));
                     }
-                    break;
-                default:
-                    setFinalResult(connection, response);
-                    break;
-            }
-        } catch (Exception e) {
-            setFinalException(connection, e);
-        } finally {
-            if (releaseConnection && connection instanceof PooledConnection)
-                ((PooledConnection)connection).release();
-
-            if (queriedHost != null)
-                manager.cluster.manager.reportLatency(queriedHost, latency);
+                }
+            });
         }
-    }
 
-    private Connection.ResponseCallback prepareAndRetry(final String toPrepare) {
-        return new Connection.ResponseCallback() {
-
-            @Override
-            public Message.Request request() {
-                return new Requests.Prepare(toPrepare);
-            }
-
-            @Override
-            public int retryCount() {
-                return RequestHandler.this.retryCount();
-            }
-
-            @Override
-            public void onSet(Connection connection, Message.Response response, long latency, int retryCount) {
-                QueryState queryState = queryStateRef.get();
-                if (!queryState.isInProgressAt(retryCount) ||
-                    !queryStateRef.compareAndSet(queryState, queryState.complete())) {
-                    logger.debug("onSet triggered but the response was completed by another thread, cancelling (retryCount = {}, queryState = {}, queryStateRef = {})",
-                                 retryCount, queryState, queryStateRef.get());
+        void cancel() {
+            // Atomically set a special QueryState, that will cause any further operation to abort.
+            // We want to remember whether a request was in progress when we did this, so there are two cancel states.
+            while (true) {
+                QueryState previous = queryStateRef.get();
+                if (previous.isCancelled()) {
+                    return;
+                } else if (previous.inProgress && queryStateRef.compareAndSet(previous, QueryState.CANCELLED_WHILE_IN_PROGRESS)) {
+                    logger.trace("Cancelling in-progress execution {}", position);
+                    // The connectionHandler should be non-null, but we might miss the update if we're racing with write().
+                    // If it's still null, this will be handled by re-checking queryStateRef at the end of write().
+                    // Note that cancelling the handler does not release the stream id right away: it will be released
+                    // when the (late) response arrives, to make sure it can't be mixed up with another request.
+                    if (connectionHandler != null)
+                        connectionHandler.cancelHandler();
+                    return;
+                } else if (!previous.inProgress && queryStateRef.compareAndSet(previous, QueryState.CANCELLED_WHILE_COMPLETE)) {
                     return;
                 }
+            }
+        }
 
-                if (connection instanceof PooledConnection)
-                    ((PooledConnection)connection).release();
+        @Override
+        public Message.Request request() {
+            if (retryConsistencyLevel != null && retryConsistencyLevel != consistencyOf(request))
+                return manager.makeRequestMessage(statement, retryConsistencyLevel, serialConsistencyOf(request), pagingStateOf(request), defaultTimestampOf(request));
+            return request;
+        }
+
+        @Override
+        public void onSet(Connection connection, Message.Response response, long latency, int retryCount) {
+            QueryState queryState = queryStateRef.get();
+            if (!queryState.isInProgressAt(retryCount) ||
+                !queryStateRef.compareAndSet(queryState, queryState.complete())) {
+                logger.debug("onSet triggered but the response was completed by another thread, cancelling (retryCount = {}, queryState = {}, queryStateRef = {})",
+                             retryCount, queryState, queryStateRef.get());
+                return;
+            }
 
-                // TODO should we check the response ?
+            Host queriedHost = current;
+            boolean releaseConnection = true;
+            try {
                 switch (response.type) {
                     case RESULT:
-                        if (((Responses.Result)response).kind == Responses.Result.Kind.PREPARED) {
-                            logger.debug("Scheduling retry now that query is prepared");
-                            retry(true, null);
-                        } else {
-                            logError(connection.address, new DriverException("Got unexpected response to prepare message: " + response));
-                            retry(false, null);
-                        }
+                        setFinalResult(this, connection, response);
                         break;
                     case ERROR:
-                        logError(connection.address, new DriverException("Error preparing query, got " + response));
-                        if (metricsEnabled())
-                            metrics().getErrorMetrics().getOthers().inc();
-                        retry(false, null);
+                        Responses.Error err = (Responses.Error)response;
+                        RetryPolicy.RetryDecision retry = null;
+                        RetryPolicy retryPolicy = statement.getRetryPolicy() == null
+                                                ? manager.configuration().getPolicies().getRetryPolicy()
+                                                : statement.getRetryPolicy();
+                        switch (err.code) {
+                            case READ_TIMEOUT:
+                                assert err.infos instanceof ReadTimeoutException;
+                                if (metricsEnabled())
+                                    metrics().getErrorMetrics().getReadTimeouts().inc();
+
+                                ReadTimeoutException rte = (ReadTimeoutException)err.infos;
+                                retry = retryPolicy.onReadTimeout(statement,
+                                                                  rte.getConsistencyLevel(),
+                                                                  rte.getRequiredAcknowledgements(),
+                                                                  rte.getReceivedAcknowledgements(),
+                                                                  rte.wasDataRetrieved(),
+                                                                  retriesByPolicy);
+
+                                if (metricsEnabled()) {
+                                    if (retry.getType() == Type.RETRY)
+                                        metrics().getErrorMetrics().getRetriesOnReadTimeout().inc();
+                                    if (retry.getType() == Type.IGNORE)
+                                        metrics().getErrorMetrics().getIgnoresOnReadTimeout().inc();
+                                }
+                                break;
+                            case WRITE_TIMEOUT:
+                                assert err.infos instanceof WriteTimeoutException;
+                                if (metricsEnabled())
+                                    metrics().getErrorMetrics().getWriteTimeouts().inc();
+
+                                WriteTimeoutException wte = (WriteTimeoutException)err.infos;
+                                retry = retryPolicy.onWriteTimeout(statement,
+                                                                   wte.getConsistencyLevel(),
+                                                                   wte.getWriteType(),
+                                                                   wte.getRequiredAcknowledgements(),
+                                                                   wte.getReceivedAcknowledgements(),
+                                                                   retriesByPolicy);
+
+                                if (metricsEnabled()) {
+                                    if (retry.getType() == Type.RETRY)
+                                        metrics().getErrorMetrics().getRetriesOnWriteTimeout().inc();
+                                    if (retry.getType() == Type.IGNORE)
+                                        metrics().getErrorMetrics().getIgnoresOnWriteTimeout().inc();
+                                }
+                                break;
+                            case UNAVAILABLE:
+                                assert err.infos instanceof UnavailableException;
+                                if (metricsEnabled())
+                                    metrics().getErrorMetrics().getUnavailables().inc();
+
+                                UnavailableException ue = (UnavailableException)err.infos;
+                                retry = retryPolicy.onUnavailable(statement,
+                                                                  ue.getConsistencyLevel(),
+                                                                  ue.getRequiredReplicas(),
+                                                                  ue.getAliveReplicas(),
+                                                                  retriesByPolicy);
+
+                                if (metricsEnabled()) {
+                                    if (retry.getType() == Type.RETRY)
+                                        metrics().getErrorMetrics().getRetriesOnUnavailable().inc();
+                                    if (retry.getType() == Type.IGNORE)
+                                        metrics().getErrorMetrics().getIgnoresOnUnavailable().inc();
+                                }
+                                break;
+                            case OVERLOADED:
+                                // Try another node
+                                logger.warn("Host {} is overloaded, trying next host.", connection.address);
+                                logError(connection.address, new DriverException("Host overloaded"));
+                                if (metricsEnabled())
+                                    metrics().getErrorMetrics().getOthers().inc();
+                                retry(false, null);
+                                return;
+                            case SERVER_ERROR:
+                                // Defunct connection and try another node
+                                logger.warn("{} replied with server error ({}), trying next host.", connection.address, err.message);
+                                DriverException exception = new DriverException("Host replied with server error: " + err.message);
+                                logError(connection.address, exception);
+                                connection.defunct(exception);
+                                if (metricsEnabled())
+                                    metrics().getErrorMetrics().getOthers().inc();
+                                retry(false, null);
+                                return;
+                            case IS_BOOTSTRAPPING:
+                                // Try another node
+                                logger.error("Query sent to {} but it is bootstrapping. This shouldn't happen but trying next host.", connection.address);
+                                logError(connection.address, new DriverException("Host is bootstrapping"));
+                                if (metricsEnabled())
+                                    metrics().getErrorMetrics().getOthers().inc();
+                                retry(false, null);
+                                return;
+                            case UNPREPARED:
+                                assert err.infos instanceof MD5Digest;
+                                MD5Digest id = (MD5Digest)err.infos;
+                                PreparedStatement toPrepare = manager.cluster.manager.preparedQueries.get(id);
+                                if (toPrepare == null) {
+                                    // This shouldn't happen
+                                    String msg = String.format("Tried to execute unknown prepared query %s", id);
+                                    logger.error(msg);
+                                    setFinalException(this, connection, new DriverInternalError(msg));
+                                    return;
+                                }
+
+                                String currentKeyspace = connection.keyspace();
+                                String prepareKeyspace = toPrepare.getQueryKeyspace();
+                                if (prepareKeyspace != null && (currentKeyspace == null || !currentKeyspace.equals(prepareKeyspace))) {
+                                    // This shouldn't happen in normal use, because a user shouldn't try to execute
+                                    // a prepared statement with the wrong keyspace set.
+                                    // Fail fast (we can't change the keyspace to reprepare, because we're using a pooled connection
+                                    // that's shared with other requests).
+                                    throw new IllegalStateException(String.format("Statement was prepared on keyspace %s, can't execute it on %s (%s)",
+                                        toPrepare.getQueryKeyspace(), connection.keyspace(), toPrepare.getQueryString()));
+                                }
+
+                                logger.info("Query {} is not prepared on {}, preparing before retrying executing. "
+                                          + "Seeing this message a few times is fine, but seeing it a lot may be source of performance problems",
+                                            toPrepare.getQueryString(), connection.address);
+
+                                releaseConnection = false; // we're reusing it for the prepare call
+                                write(connection, prepareAndRetry(toPrepare.getQueryString()));
+                                // we're done for now, the prepareAndRetry callback will handle the rest
+                                return;
+                            default:
+                                if (metricsEnabled())
+                                    metrics().getErrorMetrics().getOthers().inc();
+                                break;
+                        }
+
+                        if (retry == null)
+                            setFinalResult(this, connection, response);
+                        else {
+                            switch (retry.getType()) {
+                                case RETRY:
+                                    ++retriesByPolicy;
+                                    if (logger.isDebugEnabled())
+                                        logger.debug("Doing retry {} for query {} at consistency {}", retriesByPolicy, statement, retry.getRetryConsistencyLevel());
+                                    if (metricsEnabled())
+                                        metrics().getErrorMetrics().getRetries().inc();
+                                    retry(true, retry.getRetryConsistencyLevel());
+                                    break;
+                                case RETHROW:
+                                    setFinalResult(this, connection, response);
+                                    break;
+                                case IGNORE:
+                                    if (metricsEnabled())
+                                        metrics().getErrorMetrics().getIgnores().inc();
+                                    setFinalResult(this, connection, new Responses.Result.Void());
+                                    break;
+                            }
+                        }
                         break;
                     default:
-                        // Something's wrong, so we return but we let setFinalResult propagate the exception
-                        RequestHandler.this.setFinalResult(connection, response);
+                        setFinalResult(this, connection, response);
                         break;
                 }
-            }
+            } catch (Exception e) {
+                setFinalException(this, connection, e);
+            } finally {
+                if (releaseConnection && connection instanceof PooledConnection)
+                    ((PooledConnection)connection).release();
 
-            @Override
-            public void onException(Connection connection, Exception exception, long latency, int retryCount) {
-                RequestHandler.this.onException(connection, exception, latency, retryCount);
+                if (queriedHost != null)
+                    manager.cluster.manager.reportLatency(queriedHost, statementKind, latency);
             }
+        }
+
+        private Connection.ResponseCallback prepareAndRetry(final String toPrepare) {
+            return new Connection.ResponseCallback() {
 
-            @Override
-            public boolean onTimeout(Connection connection, long latency, int retryCount) {
-                QueryState queryState = queryStateRef.get();
-                if (!queryState.isInProgressAt(retryCount) ||
-                    !queryStateRef.compareAndSet(queryState, queryState.complete())) {
-                    logger.debug("onTimeout triggered but the response was completed by another thread, cancelling (retryCount = {}, queryState = {}, queryStateRef = {})",
-                                 retryCount, queryState, queryStateRef.get());
-                    return false;
+                @Override
+                public Message.Request request() {
+                    return new Requests.Prepare(toPrepare);
                 }
-                logError(connection.address, new DriverException("Timeout waiting for response to prepare message"));
-                retry(false, null);
-                return true;
+
+                @Override
+                public int retryCount() {
+                    return SpeculativeExecution.this.retryCount();
+                }
+
+                @Override
+                public void onSet(Connection connection, Message.Response response, long latency, int retryCount) {
+                    QueryState queryState = queryStateRef.get();
+                    if (!queryState.isInProgressAt(retryCount) ||
+                        !queryStateRef.compareAndSet(queryState, queryState.complete())) {
+                        logger.debug("onSet triggered but the response was completed by another thread, cancelling (retryCount = {}, queryState = {}, queryStateRef = {})",
+                                     retryCount, queryState, queryStateRef.get());
+                        return;
+                    }
+
+                    if (connection instanceof PooledConnection)
+                        ((PooledConnection)connection).release();
+
+                    // TODO should we check the response ?
+                    switch (response.type) {
+                        case RESULT:
+                            if (((Responses.Result)response).kind == Responses.Result.Kind.PREPARED) {
+                                logger.debug("Scheduling retry now that query is prepared");
+                                retry(true, null);
+                            } else {
+                                logError(connection.address, new DriverException("Got unexpected response to prepare message: " + response));
+                                retry(false, null);
+                            }
+                            break;
+                        case ERROR:
+                            logError(connection.address, new DriverException("Error preparing query, got " + response));
+                            if (metricsEnabled())
+                                metrics().getErrorMetrics().getOthers().inc();
+                            retry(false, null);
+                            break;
+                        default:
+                            // Something's wrong, so we return but we let setFinalResult propagate the exception
+                            RequestHandler.this.setFinalResult(SpeculativeExecution.this, connection, response);
+                            break;
+                    }
+                }
+
+                @Override
+                public void onException(Connection connection, Exception exception, long latency, int retryCount) {
+                    SpeculativeExecution.this.onException(connection, exception, latency, retryCount);
+                }
+
+                @Override
+                public boolean onTimeout(Connection connection, long latency, int retryCount) {
+                    QueryState queryState = queryStateRef.get();
+                    if (!queryState.isInProgressAt(retryCount) ||
+                        !queryStateRef.compareAndSet(queryState, queryState.complete())) {
+                        logger.debug("onTimeout triggered but the response was completed by another thread, cancelling (retryCount = {}, queryState = {}, queryStateRef = {})",
+                                     retryCount, queryState, queryStateRef.get());
+                        return false;
+                    }
+                    logError(connection.address, new DriverException("Timeout waiting for response to prepare message"));
+                    retry(false, null);
+                    return true;
+                }
+            };
+        }
+
+        @Override
+        public void onException(Connection connection, Exception exception, long latency, int retryCount) {
+            QueryState queryState = queryStateRef.get();
+            if (!queryState.isInProgressAt(retryCount) ||
+                !queryStateRef.compareAndSet(queryState, queryState.complete())) {
+                logger.debug("onException triggered but the response was completed by another thread, cancelling (retryCount = {}, queryState = {}, queryStateRef = {})",
+                             retryCount, queryState, queryStateRef.get());
+                return;
             }
-        };
-    }
 
-    @Override
-    public void onException(Connection connection, Exception exception, long latency, int retryCount) {
-        QueryState queryState = queryStateRef.get();
-        if (!queryState.isInProgressAt(retryCount) ||
-            !queryStateRef.compareAndSet(queryState, queryState.complete())) {
-            logger.debug("onException triggered but the response was completed by another thread, cancelling (retryCount = {}, queryState = {}, queryStateRef = {})",
-                         retryCount, queryState, queryStateRef.get());
-            return;
+            Host queriedHost = current;
+            try {
+                if (connection instanceof PooledConnection)
+                    ((PooledConnection)connection).release();
+
+                if (exception instanceof ConnectionException) {
+                    if (metricsEnabled())
+                        metrics().getErrorMetrics().getConnectionErrors().inc();
+                    ConnectionException ce = (ConnectionException)exception;
+                    logError(ce.address, ce);
+                    retry(false, null);
+                    return;
+                }
+                setFinalException(this, connection, exception);
+            } catch (Exception e) {
+                // This shouldn't happen, but if it does, we want to signal the callback, not let him hang indefinitively
+                setFinalException(this, null, new DriverInternalError("An unexpected error happened while handling exception " + exception, e));
+            } finally {
+                if (queriedHost != null)
+                    manager.cluster.manager.reportLatency(queriedHost, statementKind, latency);
+            }
         }
 
-        Host queriedHost = current;
-        try {
-            if (connection instanceof PooledConnection)
-                ((PooledConnection)connection).release();
+        @Override
+        public boolean onTimeout(Connection connection, long latency, int retryCount) {
+            QueryState queryState = queryStateRef.get();
+            if (!queryState.isInProgressAt(retryCount) ||
+                !queryStateRef.compareAndSet(queryState, queryState.complete())) {
+                logger.debug("onTimeout triggered but the response was completed by another thread, cancelling (retryCount = {}, queryState = {}, queryStateRef = {})",
+                             retryCount, queryState, queryStateRef.get());
+                return false;
+            }
 
-            if (exception instanceof ConnectionException) {
-                if (metricsEnabled())
-                    metrics().getErrorMetrics().getConnectionErrors().inc();
-                ConnectionException ce = (ConnectionException)exception;
-                logError(ce.address, ce);
+            Host queriedHost = current;
+            try {
+                // If a query times out, we consider that the host is unstable, so we defunct
+                // the connection to mark it down.
+                DriverException timeoutException = new DriverException("Timed out waiting for server response");
+                connection.defunct(timeoutException);
+
+                logError(connection.address, timeoutException);
                 retry(false, null);
-                return;
+            } catch (Exception e) {
+                // This shouldn't happen, but if it does, we want to signal the callback, not let him hang indefinitively
+                setFinalException(this, null, new DriverInternalError("An unexpected error happened while handling timeout", e));
+            } finally {
+                if (queriedHost != null)
+                    manager.cluster.manager.reportLatency(queriedHost, statementKind, latency);
             }
-            setFinalException(connection, exception);
-        } catch (Exception e) {
-            // This shouldn't happen, but if it does, we want to signal the callback, not let him hang indefinitively
-            setFinalException(null, new DriverInternalError("An unexpected error happened while handling exception " + exception, e));
-        } finally {
-            if (queriedHost != null)
-                manager.cluster.manager.reportLatency(queriedHost, latency);
+            return true;
         }
-    }
 
-    @Override
-    public boolean onTimeout(Connection connection, long latency, int retryCount) {
-        QueryState queryState = queryStateRef.get();
-        if (!queryState.isInProgressAt(retryCount) ||
-            !queryStateRef.compareAndSet(queryState, queryState.complete())) {
-            logger.debug("onTimeout triggered but the response was completed by another thread, cancelling (retryCount = {}, queryState = {}, queryStateRef = {})",
-                         retryCount, queryState, queryStateRef.get());
-            return false;
+        @Override
+        public int retryCount() {
+            return queryStateRef.get().retryCount;
         }
+    }
 
-        Host queriedHost = current;
-        try {
-            // If a query times out, we consider that the host is unstable, so we defunct
-            // the connection to mark it down.
-            DriverException timeoutException = new DriverException("Timed out waiting for server response");
-            connection.defunct(timeoutException);
+    /**
+     * Wraps the iterator returned by {@link LoadBalancingPolicy} to make it safe for concurrent access by multiple
+     * executions.
+     */
+    static class QueryPlan {
+        private final Iterator<Host> iterator;
 
-            logError(connection.address, timeoutException);
-            retry(false, null);
-        } catch (Exception e) {
-            // This shouldn't happen, but if it does, we want to signal the callback, not let him hang indefinitively
-            setFinalException(null, new DriverInternalError("An unexpected error happened while handling timeout", e));
-        } finally {
-            if (queriedHost != null)
-                manager.cluster.manager.reportLatency(queriedHost, latency);
+        QueryPlan(Iterator<Host> iterator) {
+            this.iterator = iterator;
         }
-        return true;
-    }
-
-    @Override
-    public int retryCount() {
-        return queryStateRef.get().retryCount;
-    }
 
-    interface Callback extends Connection.ResponseCallback {
-        public void onSet(Connection connection, Message.Response response, ExecutionInfo info, Statement statement, long latency);
-        public void register(RequestHandler handler);
+        /**
+         * @return null if there are no more hosts
+         */
+        synchronized Host next() {
+            return iterator.hasNext() ? iterator.next() : null;
+        }
     }
 
     // This is used to prevent races between request completion (either success or error) and timeout.
@@ -385,22 +385,14 @@ class Responses {
                     int rowCount = body.readInt();
                     int columnCount = metadata.columnCount;
 
-                    Queue<List<ByteBuffer>> data = new ArrayDeque<List<ByteBuffer>>(rowCount);
-                    for (int i = 0; i < rowCount; i++) {
-                        List<ByteBuffer> row = new ArrayList<ByteBuffer>(columnCount);
-                        for (int j = 0; j < columnCount; j++)
-                            row.add(CBUtil.readValue(body));
-                        data.add(row);
-                    }
-
-                    return new Rows(metadata, data);
+                    return new Rows(metadata, RowPage.decode(body, rowCount, columnCount));
                 }
             };
 
             public final Metadata metadata;
-            public final Queue<List<ByteBuffer>> data;
+            public final RowPage data;
 
-            private Rows(Metadata metadata, Queue<List<ByteBuffer>> data) {
+            private Rows(Metadata metadata, RowPage data) {
                 super(Kind.ROWS);
                 this.metadata = metadata;
                 this.data = data;
@@ -410,9 +402,9 @@ class Responses {
             public String toString() {
                 StringBuilder sb = new StringBuilder();
                 sb.append("ROWS ").append(metadata).append('\n');
-                for (List<ByteBuffer> row : data) {
-                    for (int i = 0; i < row.size(); i++) {
-                        ByteBuffer v = row.get(i);
+                for (int row = 0; row < data.rowCount(); row++) {
+                    for (int i = 0; i < data.columnCount(); i++) {
+                        ByteBuffer v = data.value(row, i);
                         if (v == null) {
                             sb.append(" | null");
                         } else {
@@ -21,6 +21,8 @@ import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.util.*;
 
+import com.google.common.reflect.TypeToken;
+
 import com.datastax.driver.core.exceptions.InvalidTypeException;
 
 /**
@@ -605,4 +607,396 @@ public interface Row extends GettableData {
      */
     @Override
     public <K, V> Map<K, V> getMap(String name, Class<K> keysClass, Class<V> valuesClass);
+
+    /**
+     * Returns whether the value of the column is NULL, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #isNull(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return whether the value of the column is NULL.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public boolean isNull(ColumnHandle column);
+
+    /**
+     * Returns the boolean value of the column, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getBool(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the boolean value of the column.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public boolean getBool(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as an integer, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getInt(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as an integer.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public int getInt(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as a long, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getLong(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as a long.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public long getLong(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as a date, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getDate(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as a date.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public Date getDate(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as a float, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getFloat(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as a float.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public float getFloat(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as a double, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getDouble(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as a double.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public double getDouble(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as a ByteBuffer, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getBytesUnsafe(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as a ByteBuffer.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public ByteBuffer getBytesUnsafe(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as a ByteBuffer, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getBytes(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as a ByteBuffer.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public ByteBuffer getBytes(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as a string, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getString(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as a string.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public String getString(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as a variable length integer, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getVarint(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as a variable length integer.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public BigInteger getVarint(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as a variable length decimal, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getDecimal(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as a variable length decimal.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public BigDecimal getDecimal(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as a UUID, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getUUID(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as a UUID.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public UUID getUUID(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as an InetAddress, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getInet(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as an InetAddress.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public InetAddress getInet(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as a token, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getToken(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as a token.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public Token getToken(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as a list, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getList(String, Class)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @param elementsClass see {@link #getList(String, Class)}.
+     * @return the value of the column as a list.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public <T> List<T> getList(ColumnHandle column, Class<T> elementsClass);
+
+    /**
+     * Returns the value of the column as a list, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getList(String, TypeToken)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @param elementsType see {@link #getList(String, TypeToken)}.
+     * @return the value of the column as a list.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public <T> List<T> getList(ColumnHandle column, TypeToken<T> elementsType);
+
+    /**
+     * Returns the value of the column as a set, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getSet(String, Class)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @param elementsClass see {@link #getSet(String, Class)}.
+     * @return the value of the column as a set.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public <T> Set<T> getSet(ColumnHandle column, Class<T> elementsClass);
+
+    /**
+     * Returns the value of the column as a set, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getSet(String, TypeToken)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @param elementsType see {@link #getSet(String, TypeToken)}.
+     * @return the value of the column as a set.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public <T> Set<T> getSet(ColumnHandle column, TypeToken<T> elementsType);
+
+    /**
+     * Returns the value of the column as a map, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getMap(String, Class, Class)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @param keysClass see {@link #getMap(String, Class, Class)}.
+     * @param valuesClass see {@link #getMap(String, Class, Class)}.
+     * @return the value of the column as a map.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public <K, V> Map<K, V> getMap(ColumnHandle column, Class<K> keysClass, Class<V> valuesClass);
+
+    /**
+     * Returns the value of the column as a map, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getMap(String, TypeToken, TypeToken)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @param keysType see {@link #getMap(String, TypeToken, TypeToken)}.
+     * @param valuesType see {@link #getMap(String, TypeToken, TypeToken)}.
+     * @return the value of the column as a map.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public <K, V> Map<K, V> getMap(ColumnHandle column, TypeToken<K> keysType, TypeToken<V> valuesType);
+
+    /**
+     * Returns the value of the column as a UDT value, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getUDTValue(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as a UDT value.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public UDTValue getUDTValue(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as a tuple value, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getTupleValue(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as a tuple value.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public TupleValue getTupleValue(ColumnHandle column);
+
+    /**
+     * Returns the value of the column as a Java object, using a precompiled handle.
+     * <p>
+     * This is equivalent to {@link #getObject(String)}, except that the name
+     * of the column is only looked up the first time the handle is used with
+     * the metadata of this row.
+     *
+     * @param column the handle of the column.
+     * @return the value of the column as a Java object.
+     *
+     * @throws IllegalArgumentException if the column is not part of the
+     * ResultSet this row is part of.
+     * @see ColumnHandle
+     */
+    public Object getObject(ColumnHandle column);
 }
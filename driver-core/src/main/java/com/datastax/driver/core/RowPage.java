@@ -0,0 +1,148 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+
+import com.datastax.driver.core.exceptions.DriverInternalError;
+
+/**
+ * A page of rows, as returned in a ROWS result.
+ * <p>
+ * Rather than materializing each row as a list of per-cell buffers, a page keeps the raw bytes of
+ * the rows section of the response, along with a flat table of the offset of each cell in those bytes.
+ * Decoding a page thus costs one {@code int[]} regardless of its size, and cells are only turned into
+ * buffers when (and if) they are read.
+ * <p>
+ * Instances are immutable and can be safely shared between threads.
+ */
+class RowPage {
+
+    static final RowPage EMPTY = new RowPage(ByteBuffer.allocate(0), 0, 0, new int[0]);
+
+    private final ByteBuffer data;
+    private final int rowCount;
+    private final int columnCount;
+    // offsets[row * columnCount + column] is the position in data of the value of that cell, or -1 if it's null.
+    // The length of the value is stored in the 4 bytes right before it.
+    private final int[] offsets;
+
+    private RowPage(ByteBuffer data, int rowCount, int columnCount, int[] offsets) {
+        this.data = data;
+        this.rowCount = rowCount;
+        this.columnCount = columnCount;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Decodes {@code rowCount} rows of {@code columnCount} cells, starting at the reader index of
+     * {@code body}. The reader index is moved past the rows.
+     */
+    static RowPage decode(ChannelBuffer body, int rowCount, int columnCount) {
+        if (rowCount == 0)
+            return new RowPage(EMPTY.data, 0, columnCount, EMPTY.offsets);
+
+        // For heap buffers (the common case), this wraps the underlying array without copying
+        ByteBuffer data = body.toByteBuffer(body.readerIndex(), body.readableBytes());
+        int base = data.position();
+        int limit = data.limit();
+        // Each cell takes at least 4 bytes (its length): check the counts before sizing the offsets on them
+        long cellCount = (long)rowCount * columnCount;
+        if (rowCount < 0 || columnCount < 0 || cellCount > (limit - base) / 4)
+            throw invalidRows(rowCount, columnCount);
+
+        int[] offsets = new int[(int)cellCount];
+        int position = base;
+        for (int i = 0; i < offsets.length; i++) {
+            if (limit - position < 4)
+                throw invalidRows(rowCount, columnCount);
+            int length = data.getInt(position);
+            position += 4;
+            if (length < 0) {
+                offsets[i] = -1;
+            } else {
+                if (length > limit - position)
+                    throw invalidRows(rowCount, columnCount);
+                offsets[i] = position;
+                position += length;
+            }
+        }
+        body.skipBytes(position - base);
+        return new RowPage(data, rowCount, columnCount, offsets);
+    }
+
+    private static DriverInternalError invalidRows(int rowCount, int columnCount) {
+        return new DriverInternalError(String.format("Invalid ROWS response: %d rows of %d columns overflow the frame body", rowCount, columnCount));
+    }
+
+    int rowCount() {
+        return rowCount;
+    }
+
+    int columnCount() {
+        return columnCount;
+    }
+
+    boolean isNull(int row, int column) {
+        return offsets[index(row, column)] < 0;
+    }
+
+    /**
+     * The position of the value of a cell in {@link #data()}, or -1 if the value is null.
+     */
+    int offset(int row, int column) {
+        return offsets[index(row, column)];
+    }
+
+    /**
+     * The length of the value of a cell, or -1 if the value is null.
+     */
+    int length(int row, int column) {
+        int offset = offsets[index(row, column)];
+        return offset < 0 ? -1 : data.getInt(offset - 4);
+    }
+
+    /**
+     * The raw bytes of the page. This is only meant for absolute reads at the positions returned
+     * by {@link #offset}: callers must not modify it.
+     */
+    ByteBuffer data() {
+        return data;
+    }
+
+    /**
+     * Returns a new buffer containing the value of a cell, or {@code null} if the value is null.
+     */
+    ByteBuffer value(int row, int column) {
+        int offset = offsets[index(row, column)];
+        if (offset < 0)
+            return null;
+        ByteBuffer value = data.duplicate();
+        value.position(offset);
+        value.limit(offset + data.getInt(offset - 4));
+        return value;
+    }
+
+    private int index(int row, int column) {
+        if (row < 0 || row >= rowCount)
+            throw new IndexOutOfBoundsException("Invalid row " + row + " (page has " + rowCount + " rows)");
+        if (column < 0 || column >= columnCount)
+            throw new IndexOutOfBoundsException("Invalid column " + column + " (page has " + columnCount + " columns)");
+        return row * columnCount + column;
+    }
+}
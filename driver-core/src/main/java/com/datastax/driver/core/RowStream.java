@@ -0,0 +1,108 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+/**
+ * A stream of rows with backpressure, as returned by {@link Session#executeStream}.
+ * <p>
+ * Rows are pushed to a {@link Listener}, but only as many as it asked for through
+ * {@link #request(long)}: the driver only fetches a new page of results when the current one
+ * has been entirely delivered and there is outstanding demand. This makes it possible to process
+ * arbitrarily large results with bounded memory, even with a slow consumer:
+ * <pre>
+ * session.executeStream(statement, new RowStream.Listener() {
+ *     private RowStream stream;
+ *
+ *     public void onSubscribe(RowStream stream) {
+ *         this.stream = stream;
+ *         stream.request(100);
+ *     }
+ *
+ *     public void onRow(Row row) {
+ *         process(row);
+ *         stream.request(1);
+ *     }
+ *
+ *     public void onComplete() { ... }
+ *
+ *     public void onError(Throwable t) { ... }
+ * });
+ * </pre>
+ * The listener's methods are never called concurrently. They are not called on the driver's
+ * I/O threads, but they should still not block for long, as they run on the driver's internal
+ * executor.
+ */
+public interface RowStream {
+
+    /**
+     * Requests more rows from the stream.
+     * <p>
+     * This method can be called from any thread, including from within {@link Listener#onRow}.
+     * Demand is cumulative: requesting {@code n} rows twice allows {@code 2 * n} rows to be delivered.
+     *
+     * @param n the number of additional rows to deliver. Use {@code Long.MAX_VALUE} for unbounded demand.
+     *
+     * @throws IllegalArgumentException if {@code n <= 0}.
+     */
+    public void request(long n);
+
+    /**
+     * Cancels the stream.
+     * <p>
+     * No more rows will be delivered after this method returns (unless it is called concurrently
+     * with {@link Listener#onRow}, in which case at most one more row might be delivered), and neither
+     * {@link Listener#onComplete} nor {@link Listener#onError} will be called. Pages that have already
+     * been requested from Cassandra are discarded.
+     */
+    public void cancel();
+
+    /**
+     * Receives the rows of a {@link RowStream}.
+     */
+    public interface Listener {
+
+        /**
+         * Called once, before any other method, with the stream that will deliver rows
+         * to this listener. No rows are delivered until {@link RowStream#request} is called.
+         *
+         * @param stream the stream.
+         */
+        public void onSubscribe(RowStream stream);
+
+        /**
+         * Called for each row, in order.
+         * <p>
+         * If this method throws an exception, the stream is cancelled and {@link #onError} is called.
+         *
+         * @param row the row.
+         */
+        public void onRow(Row row);
+
+        /**
+         * Called when all the rows have been delivered. This is a terminal event: no other method will
+         * be called after it.
+         */
+        public void onComplete();
+
+        /**
+         * Called if the query (or the fetch of one of its pages) fails. This is a terminal event: no
+         * other method will be called after it.
+         *
+         * @param t the error.
+         */
+        public void onError(Throwable t);
+    }
+}
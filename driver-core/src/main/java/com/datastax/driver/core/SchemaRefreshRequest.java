@@ -0,0 +1,100 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.*;
+
+import com.google.common.base.Objects;
+
+/**
+ * A request to refresh part of the schema: everything (all fields null), a keyspace, or a table or user type
+ * of a keyspace.
+ */
+class SchemaRefreshRequest {
+
+    static final SchemaRefreshRequest EVERYTHING = new SchemaRefreshRequest(null, null, null);
+
+    final String keyspace;
+    final String table;
+    final String udt;
+
+    SchemaRefreshRequest(String keyspace, String table, String udt) {
+        assert keyspace != null || (table == null && udt == null);
+        this.keyspace = keyspace;
+        this.table = table;
+        this.udt = udt;
+    }
+
+    /**
+     * Merges requests into the smallest set of refreshes that covers all of them.
+     * <p>
+     * A full refresh covers everything. Otherwise, requests are grouped by keyspace: a single table or type is
+     * refreshed on its own, but as soon as a keyspace has more than one element to refresh, the whole keyspace is
+     * refreshed instead, since that takes as many queries as refreshing two elements.
+     */
+    static List<SchemaRefreshRequest> coalesce(List<SchemaRefreshRequest> requests) {
+        Map<String, Set<SchemaRefreshRequest>> byKeyspace = new LinkedHashMap<String, Set<SchemaRefreshRequest>>();
+        for (SchemaRefreshRequest request : requests) {
+            if (request.keyspace == null)
+                return Collections.singletonList(EVERYTHING);
+
+            Set<SchemaRefreshRequest> forKeyspace = byKeyspace.get(request.keyspace);
+            if (forKeyspace == null) {
+                forKeyspace = new LinkedHashSet<SchemaRefreshRequest>();
+                byKeyspace.put(request.keyspace, forKeyspace);
+            }
+            forKeyspace.add(request);
+        }
+
+        List<SchemaRefreshRequest> result = new ArrayList<SchemaRefreshRequest>(byKeyspace.size());
+        for (Map.Entry<String, Set<SchemaRefreshRequest>> entry : byKeyspace.entrySet()) {
+            Set<SchemaRefreshRequest> forKeyspace = entry.getValue();
+            if (forKeyspace.size() == 1)
+                result.add(forKeyspace.iterator().next());
+            else
+                result.add(new SchemaRefreshRequest(entry.getKey(), null, null));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (other == this)
+            return true;
+        if (!(other instanceof SchemaRefreshRequest))
+            return false;
+        SchemaRefreshRequest that = (SchemaRefreshRequest)other;
+        return Objects.equal(this.keyspace, that.keyspace)
+            && Objects.equal(this.table, that.table)
+            && Objects.equal(this.udt, that.udt);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(keyspace, table, udt);
+    }
+
+    @Override
+    public String toString() {
+        if (keyspace == null)
+            return "everything";
+        if (table != null)
+            return keyspace + '.' + table + " (table)";
+        if (udt != null)
+            return keyspace + '.' + udt + " (UDT)";
+        return keyspace;
+    }
+}
@@ -205,6 +205,37 @@ public interface Session extends Closeable {
      */
     public ResultSetFuture executeAsync(Statement statement);
 
+    /**
+     * Executes the provided query and streams its rows, with backpressure.
+     * <p>
+     * This is a shorthand for {@code executeStream(new SimpleStatement(query), listener)}.
+     *
+     * @param query the CQL query to execute.
+     * @param listener the listener that will receive the rows.
+     * @return the stream, through which the listener requests rows. It is also passed to
+     * {@link RowStream.Listener#onSubscribe}.
+     */
+    public RowStream executeStream(String query, RowStream.Listener listener);
+
+    /**
+     * Executes the provided query and streams its rows, with backpressure.
+     * <p>
+     * This method does not block. Rows are delivered to {@code listener} as they are requested
+     * through {@link RowStream#request}; pages are fetched from Cassandra one at a time, and only when
+     * all the rows of the previous page have been delivered and the listener still has outstanding
+     * demand. The number of rows held in memory is thus bounded by the fetch size of the statement,
+     * regardless of the size of the result.
+     * <p>
+     * Any error (including the ones that {@link #executeAsync(Statement)} would report through its
+     * future) is reported to {@link RowStream.Listener#onError}.
+     *
+     * @param statement the CQL query to execute (that can be any {@code Statement}).
+     * @param listener the listener that will receive the rows.
+     * @return the stream, through which the listener requests rows. It is also passed to
+     * {@link RowStream.Listener#onSubscribe}.
+     */
+    public RowStream executeStream(Statement statement, RowStream.Listener listener);
+
     /**
      * Prepares the provided query string.
      *
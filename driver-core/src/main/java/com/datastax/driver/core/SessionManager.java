@@ -119,7 +119,19 @@ class SessionManager extends AbstractSession {
         return executeQuery(makeRequestMessage(statement, null), statement);
     }
 
+    public RowStream executeStream(Statement statement, RowStream.Listener listener) {
+        DefaultRowStream stream = new DefaultRowStream(listener, executor());
+        stream.start(executeAsync(statement));
+        return stream;
+    }
+
     public ListenableFuture<PreparedStatement> prepareAsync(String query) {
+        // Statements are prepared on all hosts, and re-prepared on the fly if a host doesn't know them anymore, so
+        // there's no need to ask the cluster again for a query that is already prepared.
+        PreparedStatement prepared = cluster.manager.getPrepared(query, poolsState.keyspace);
+        if (prepared != null)
+            return Futures.immediateFuture(prepared);
+
         Connection.Future future = new Connection.Future(new Requests.Prepare(query));
         execute(future, Statement.DEFAULT);
         return toPreparedStatement(query, future);
@@ -556,6 +568,8 @@ class SessionManager extends AbstractSession {
                 // Same as above
             } catch (TimeoutException e) {
                 // Same as above
+            } catch (BusyPoolException e) {
+                // Same as above
             } catch (ExecutionException e) {
                 // We shouldn't really get exception while preparing a
                 // query, so log this (but ignore otherwise as it's not a big deal)
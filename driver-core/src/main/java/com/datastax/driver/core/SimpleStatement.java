@@ -16,6 +16,7 @@
 package com.datastax.driver.core;
 
 import java.nio.ByteBuffer;
+import java.util.List;
 
 /**
  * A simple {@code RegularStatement} implementation built directly from a query
@@ -139,11 +140,12 @@ public class SimpleStatement extends RegularStatement {
      * Returns the routing key for the query.
      * <p>
      * Unless the routing key has been explicitly set through
-     * {@link #setRoutingKey}, this method will return {@code null} to
-     * avoid having to parse the query string to retrieve the partition key.
+     * {@link #setRoutingKey} or {@link #setRoutingHint}, this method will return
+     * {@code null} to avoid having to parse the query string to retrieve the
+     * partition key.
      *
-     * @return the routing key set through {@link #setRoutingKey} if such a key
-     * was set, {@code null} otherwise.
+     * @return the routing key set through {@link #setRoutingKey} or computed by
+     * {@link #setRoutingHint} if such a key was set, {@code null} otherwise.
      *
      * @see Statement#getRoutingKey
      */
@@ -229,6 +231,60 @@ public class SimpleStatement extends RegularStatement {
         return this;
     }
 
+    /**
+     * Computes the routing key of this query from its values, given the table it
+     * operates on.
+     * <p>
+     * This is a lightweight alternative to {@link #setRoutingKey(ByteBuffer...)}: rather
+     * than serializing the partition key yourself, you indicate which of this statement's
+     * values correspond to the columns of {@code table}'s partition key (in the order of
+     * {@link TableMetadata#getPartitionKey()}), and the driver serializes them with the
+     * columns' types. For example:
+     * <pre>
+     *     TableMetadata users = cluster.getMetadata().getKeyspace("ks").getTable("users");
+     *     // partition key is (id)
+     *     new SimpleStatement("UPDATE ks.users SET name = ? WHERE id = ?", "bob", 42)
+     *         .setRoutingHint(users, 1);
+     * </pre>
+     * If the keyspace of this statement was not set through {@link #setKeyspace}, it is
+     * set to {@code table}'s keyspace.
+     *
+     * @param table the table this query operates on.
+     * @param valueIndexes for each column of {@code table}'s partition key, the index of
+     * the corresponding value in this statement.
+     * @return this {@code SimpleStatement} object.
+     *
+     * @throws IllegalArgumentException if the number of indexes does not match the number
+     * of partition key columns, if an index is out of bounds or designates a {@code null}
+     * value.
+     * @throws com.datastax.driver.core.exceptions.InvalidTypeException if a value does not match the type of the corresponding
+     * partition key column.
+     *
+     * @see Statement#getRoutingKey
+     */
+    public SimpleStatement setRoutingHint(TableMetadata table, int... valueIndexes) {
+        List<ColumnMetadata> partitionKey = table.getPartitionKey();
+        if (valueIndexes.length != partitionKey.size())
+            throw new IllegalArgumentException(String.format("The partition key of %s has %d columns, got %d value indexes",
+                                                             table.getName(), partitionKey.size(), valueIndexes.length));
+
+        ByteBuffer[] components = new ByteBuffer[valueIndexes.length];
+        for (int i = 0; i < valueIndexes.length; i++) {
+            int index = valueIndexes[i];
+            if (index < 0 || index >= valuesCount())
+                throw new IllegalArgumentException(String.format("Invalid value index %d, this statement has %d values", index, valuesCount()));
+            Object value = values[index];
+            if (value == null)
+                throw new IllegalArgumentException(String.format("Value %d is null, it can't be part of the partition key", index));
+            components[i] = partitionKey.get(i).getType().serialize(value, ProtocolVersion.NEWEST_SUPPORTED);
+        }
+
+        this.routingKey = components.length == 1 ? components[0] : compose(components);
+        if (this.keyspace == null)
+            this.keyspace = table.getKeyspace().getName();
+        return this;
+    }
+
     // TODO: we could find that a better place (but it's not expose so it doesn't matter too much)
     static ByteBuffer compose(ByteBuffer... buffers) {
         int totalLength = 0;
@@ -20,13 +20,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 
 import com.google.common.util.concurrent.MoreExecutors;
 import org.slf4j.Logger;
@@ -52,10 +47,6 @@ class SingleConnectionPool extends HostConnectionPool {
     private final AtomicBoolean open = new AtomicBoolean();
     private final Set<Connection> trash = new CopyOnWriteArraySet<Connection>();
 
-    private volatile int waiter = 0;
-    private final Lock waitLock = new ReentrantLock(true);
-    private final Condition hasAvailableConnection = waitLock.newCondition();
-
     private final Runnable newConnectionTask;
 
     private final AtomicBoolean scheduledForCreation = new AtomicBoolean();
@@ -89,112 +80,26 @@ class SingleConnectionPool extends HostConnectionPool {
     }
 
     @Override
-    public PooledConnection borrowConnection(long timeout, TimeUnit unit) throws ConnectionException, TimeoutException {
-        if (isClosed())
-            // Note: throwing a ConnectionException is probably fine in practice as it will trigger the creation of a new host.
-            // That being said, maybe having a specific exception could be cleaner.
-            throw new ConnectionException(host.getSocketAddress(), "Pool is shutdown");
-
+    PooledConnection tryBorrowConnection() throws ConnectionException {
         PooledConnection connection = connectionRef.get();
         if (connection == null) {
             if (scheduledForCreation.compareAndSet(false, true))
                 manager.blockingExecutor().submit(newConnectionTask);
-            connection = waitForConnection(timeout, unit);
-        } else {
-            while (true) {
-                int inFlight = connection.inFlight.get();
-
-                if (inFlight >= Math.min(connection.maxAvailableStreams(),
-                                         options().getMaxSimultaneousRequestsPerHostThreshold(hostDistance))) {
-                    connection = waitForConnection(timeout, unit);
-                    break;
-                }
-
-                if (connection.inFlight.compareAndSet(inFlight, inFlight + 1))
-                    break;
-            }
+            return null;
         }
-        connection.setKeyspace(manager.poolsState.keyspace);
-        return connection;
-    }
-
-    private void awaitAvailableConnection(long timeout, TimeUnit unit) throws InterruptedException {
-        waitLock.lock();
-        waiter++;
-        try {
-            hasAvailableConnection.await(timeout, unit);
-        } finally {
-            waiter--;
-            waitLock.unlock();
-        }
-    }
-
-    private void signalAvailableConnection() {
-        // Quick check if it's worth signaling to avoid locking
-        if (waiter == 0)
-            return;
 
-        waitLock.lock();
-        try {
-            hasAvailableConnection.signal();
-        } finally {
-            waitLock.unlock();
-        }
-    }
+        while (true) {
+            int inFlight = connection.inFlight.get();
 
-    private void signalAllAvailableConnection() {
-        // Quick check if it's worth signaling to avoid locking
-        if (waiter == 0)
-            return;
+            if (inFlight >= Math.min(connection.maxAvailableStreams(),
+                                     options().getMaxSimultaneousRequestsPerHostThreshold(hostDistance)))
+                return null;
 
-        waitLock.lock();
-        try {
-            hasAvailableConnection.signalAll();
-        } finally {
-            waitLock.unlock();
+            if (connection.inFlight.compareAndSet(inFlight, inFlight + 1))
+                return connection;
         }
     }
 
-    private PooledConnection waitForConnection(long timeout, TimeUnit unit) throws ConnectionException, TimeoutException {
-        if (timeout == 0)
-            throw new TimeoutException();
-
-        long start = System.nanoTime();
-        long remaining = timeout;
-        do {
-            try {
-                awaitAvailableConnection(remaining, unit);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                // If we're interrupted fine, check if there is a connection available but stop waiting otherwise
-                timeout = 0; // this will make us stop the loop if we don't get a connection right away
-            }
-
-            if (isClosed())
-                throw new ConnectionException(host.getSocketAddress(), "Pool is shutdown");
-
-            PooledConnection connection = connectionRef.get();
-            // If we race with shutdown, connection could be null. In that case we just loop and we'll throw on the next
-            // iteration anyway
-            if (connection != null) {
-                while (true) {
-                    int inFlight = connection.inFlight.get();
-
-                    if (inFlight >= Math.min(connection.maxAvailableStreams(),
-                                             options().getMaxSimultaneousRequestsPerHostThreshold(hostDistance)))
-                        break;
-
-                    if (connection.inFlight.compareAndSet(inFlight, inFlight + 1))
-                        return connection;
-                }
-            }
-
-            remaining = timeout - Cluster.timeSince(start, unit);
-        } while (remaining > 0);
-
-        throw new TimeoutException();
-    }
-
     @Override
     public void returnConnection(PooledConnection connection) {
         if (isClosed()) {
@@ -214,11 +119,9 @@ class SingleConnectionPool extends HostConnectionPool {
             if (inFlight == 0 && trash.remove(connection))
                 close(connection);
         } else {
-            if (connection.maxAvailableStreams() < MIN_AVAILABLE_STREAMS) {
+            if (connection.maxAvailableStreams() < MIN_AVAILABLE_STREAMS)
                 replaceConnection(connection);
-            } else {
-                signalAvailableConnection();
-            }
+            dequeuePendingBorrows();
         }
     }
 
@@ -251,7 +154,7 @@ class SingleConnectionPool extends HostConnectionPool {
         // Now really open the connection
         try {
             connectionRef.set(manager.connectionFactory().open(this));
-            signalAvailableConnection();
+            dequeuePendingBorrows();
             return true;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
@@ -306,8 +209,8 @@ class SingleConnectionPool extends HostConnectionPool {
     }
 
     protected CloseFuture makeCloseFuture() {
-        // Wake up all threads that wait
-        signalAllAvailableConnection();
+        // Fail all the borrowers that wait
+        failPendingBorrows();
 
         CloseFuture future = new CloseFuture.Forwarding(discardConnection());
         return future;
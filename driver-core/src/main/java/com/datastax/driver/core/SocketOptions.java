@@ -40,6 +40,27 @@ public class SocketOptions {
      */
     public static final int DEFAULT_READ_TIMEOUT_MILLIS = 12000;
 
+    /**
+     * The default maximum number of frames coalesced into a single socket write, if none
+     * is set explicitly using {@link #setWriteCoalescingMaxFrames}.
+     */
+    public static final int DEFAULT_WRITE_COALESCING_MAX_FRAMES = 64;
+
+    /**
+     * The default delay, in microseconds, during which frames are accumulated before being flushed, if
+     * none is set explicitly using {@link #setWriteCoalescingDelayMicros}.
+     * <p>
+     * That default is 0, which means that frames are flushed as soon as the flusher thread gets to them.
+     */
+    public static final long DEFAULT_WRITE_COALESCING_DELAY_MICROS = 0;
+
+    /**
+     * The default number of I/O threads if none is set explicitly using {@link #setIoThreads}.
+     * <p>
+     * That default is twice the number of available processors.
+     */
+    public static final int DEFAULT_IO_THREADS = Runtime.getRuntime().availableProcessors() * 2;
+
     private volatile int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
     private volatile int readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
     private volatile Boolean keepAlive;
@@ -48,6 +69,11 @@ public class SocketOptions {
     private volatile Boolean tcpNoDelay;
     private volatile Integer receiveBufferSize;
     private volatile Integer sendBufferSize;
+    private volatile boolean writeCoalescingEnabled;
+    private volatile int writeCoalescingMaxFrames = DEFAULT_WRITE_COALESCING_MAX_FRAMES;
+    private volatile long writeCoalescingDelayMicros = DEFAULT_WRITE_COALESCING_DELAY_MICROS;
+    private volatile BufferAllocator bufferAllocator = BufferAllocator.HEAP;
+    private volatile int ioThreads = DEFAULT_IO_THREADS;
 
     /**
      * Creates a new {@code SocketOptions} instance with default values.
@@ -184,4 +210,149 @@ public class SocketOptions {
         this.sendBufferSize = sendBufferSize;
         return this;
     }
+
+    /**
+     * Whether write coalescing is enabled.
+     *
+     * @return whether write coalescing is enabled.
+     *
+     * @see #setWriteCoalescingEnabled
+     */
+    public boolean isWriteCoalescingEnabled() {
+        return writeCoalescingEnabled;
+    }
+
+    /**
+     * Enables or disables write coalescing.
+     * <p>
+     * By default, each request results in its own write on the underlying socket. When write coalescing
+     * is enabled, encoded frames are queued per connection and written in batches, either when
+     * {@link #getWriteCoalescingMaxFrames() enough frames} are pending, or by a background flusher after
+     * {@link #getWriteCoalescingDelayMicros() a short delay}. This trades a little latency for fewer system
+     * calls and less contention on the connection, which pays off when many small requests are sent
+     * concurrently on the same connection.
+     * <p>
+     * This option is read when a connection is opened: changing it has no effect on existing connections.
+     *
+     * @param writeCoalescingEnabled whether to enable write coalescing.
+     * @return this {@code SocketOptions}.
+     */
+    public SocketOptions setWriteCoalescingEnabled(boolean writeCoalescingEnabled) {
+        this.writeCoalescingEnabled = writeCoalescingEnabled;
+        return this;
+    }
+
+    /**
+     * The maximum number of frames that get coalesced into a single write when write coalescing is enabled.
+     *
+     * @return the maximum number of frames.
+     */
+    public int getWriteCoalescingMaxFrames() {
+        return writeCoalescingMaxFrames;
+    }
+
+    /**
+     * Sets the maximum number of frames that get coalesced into a single write when write coalescing is
+     * enabled. When that many frames are pending on a connection, they are flushed immediately by the
+     * thread that queued the last one.
+     *
+     * @param writeCoalescingMaxFrames the maximum number of frames. Must be strictly positive.
+     * @return this {@code SocketOptions}.
+     *
+     * @throws IllegalArgumentException if {@code writeCoalescingMaxFrames <= 0}.
+     */
+    public SocketOptions setWriteCoalescingMaxFrames(int writeCoalescingMaxFrames) {
+        if (writeCoalescingMaxFrames <= 0)
+            throw new IllegalArgumentException("writeCoalescingMaxFrames must be strictly positive, got " + writeCoalescingMaxFrames);
+        this.writeCoalescingMaxFrames = writeCoalescingMaxFrames;
+        return this;
+    }
+
+    /**
+     * The delay, in microseconds, during which frames are accumulated before being flushed when write
+     * coalescing is enabled.
+     *
+     * @return the delay in microseconds.
+     */
+    public long getWriteCoalescingDelayMicros() {
+        return writeCoalescingDelayMicros;
+    }
+
+    /**
+     * Sets the delay, in microseconds, during which frames are accumulated before being flushed when write
+     * coalescing is enabled.
+     * <p>
+     * With a delay of 0, frames are flushed as soon as the background flusher gets to them: under load,
+     * this is usually enough to coalesce the frames written concurrently by different threads.
+     *
+     * @param writeCoalescingDelayMicros the delay. Must be positive or 0.
+     * @return this {@code SocketOptions}.
+     *
+     * @throws IllegalArgumentException if {@code writeCoalescingDelayMicros < 0}.
+     */
+    public SocketOptions setWriteCoalescingDelayMicros(long writeCoalescingDelayMicros) {
+        if (writeCoalescingDelayMicros < 0)
+            throw new IllegalArgumentException("writeCoalescingDelayMicros must be positive or 0, got " + writeCoalescingDelayMicros);
+        this.writeCoalescingDelayMicros = writeCoalescingDelayMicros;
+        return this;
+    }
+
+    /**
+     * The allocator of the buffers that request frames are encoded into.
+     *
+     * @return the allocator.
+     */
+    public BufferAllocator getBufferAllocator() {
+        return bufferAllocator;
+    }
+
+    /**
+     * Sets the allocator of the buffers that request frames are encoded into.
+     * <p>
+     * By default ({@link BufferAllocator#HEAP}), a new heap buffer is allocated for each request, and then
+     * copied to a direct buffer by the socket layer. With a {@link PooledBufferAllocator}, requests are
+     * encoded into recycled direct buffers, which cuts garbage and copies; this costs a fixed amount of
+     * direct memory, shared by all the connections of the {@code Cluster}.
+     * <p>
+     * This option is read when a connection is opened: changing it has no effect on existing connections.
+     *
+     * @param bufferAllocator the allocator.
+     * @return this {@code SocketOptions}.
+     */
+    public SocketOptions setBufferAllocator(BufferAllocator bufferAllocator) {
+        if (bufferAllocator == null)
+            throw new NullPointerException("bufferAllocator");
+        this.bufferAllocator = bufferAllocator;
+        return this;
+    }
+
+    /**
+     * The number of I/O threads that read from and write to the connections of the {@code Cluster}.
+     *
+     * @return the number of I/O threads.
+     */
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    /**
+     * Sets the number of I/O threads that read from and write to the connections of the {@code Cluster}.
+     * <p>
+     * Each connection is assigned to one of these threads when it is opened, so this bounds the number of
+     * threads that the driver uses for network I/O whatever the number of hosts and connections. A
+     * separate thread handles connection attempts.
+     * <p>
+     * This option is read when the {@code Cluster} is built: changing it afterwards has no effect.
+     *
+     * @param ioThreads the number of I/O threads. Must be strictly positive.
+     * @return this {@code SocketOptions}.
+     *
+     * @throws IllegalArgumentException if {@code ioThreads <= 0}.
+     */
+    public SocketOptions setIoThreads(int ioThreads) {
+        if (ioThreads <= 0)
+            throw new IllegalArgumentException("ioThreads must be strictly positive, got " + ioThreads);
+        this.ioThreads = ioThreads;
+        return this;
+    }
 }
@@ -43,6 +43,8 @@ public abstract class Statement {
     private volatile boolean traceQuery;
     private volatile int fetchSize;
     private volatile long defaultTimestamp = Long.MIN_VALUE;
+    private volatile Boolean idempotent;
+    private volatile Integer prefetchThreshold;
 
     private volatile RetryPolicy retryPolicy;
 
@@ -293,4 +295,84 @@ public abstract class Statement {
     public long getDefaultTimestamp() {
         return defaultTimestamp;
     }
+
+    /**
+     * Sets whether this statement is idempotent.
+     * <p>
+     * Idempotence plays a role in {@link com.datastax.driver.core.policies.SpeculativeExecutionPolicy speculative executions}.
+     * If a statement is <em>not idempotent</em>, the driver will not schedule speculative executions for it.
+     * <p>
+     * Note that this method can be used to override the default value returned by
+     * {@link QueryOptions#getDefaultIdempotence()}.
+     *
+     * @param idempotent the new value.
+     * @return this {@code Statement} object.
+     */
+    public Statement setIdempotent(boolean idempotent) {
+        this.idempotent = idempotent;
+        return this;
+    }
+
+    /**
+     * Whether this statement is idempotent, i.e. whether it can be applied multiple times
+     * without changing the result beyond the initial application.
+     * <p>
+     * Note that, in Cassandra, counter updates, prepending and appending to lists, and
+     * conditional updates (lightweight transactions) are never idempotent.
+     *
+     * @return whether this statement is idempotent, or {@code null} to use
+     * {@link QueryOptions#getDefaultIdempotence()}.
+     */
+    public Boolean isIdempotent() {
+        return idempotent;
+    }
+
+    boolean isIdempotentWithDefault(QueryOptions queryOptions) {
+        Boolean myValue = this.isIdempotent();
+        if (myValue != null)
+            return myValue;
+        else
+            return queryOptions.getDefaultIdempotence();
+    }
+
+    /**
+     * Sets the prefetch threshold for this query.
+     * <p>
+     * When iterating over a paged result set, the next page will be fetched in the background as
+     * soon as fewer than {@code prefetchThreshold} rows remain to be consumed, instead of waiting for
+     * the current page to be exhausted. A threshold of 0 disables background prefetching for this
+     * query.
+     * <p>
+     * Note that this method can be used to override the default value returned by
+     * {@link QueryOptions#getPrefetchThreshold()}.
+     *
+     * @param prefetchThreshold the threshold, in number of rows. Must be positive or 0.
+     * @return this {@code Statement} object.
+     *
+     * @throws IllegalArgumentException if {@code prefetchThreshold < 0}.
+     */
+    public Statement setPrefetchThreshold(int prefetchThreshold) {
+        if (prefetchThreshold < 0)
+            throw new IllegalArgumentException("Invalid prefetchThreshold, should be >= 0, got " + prefetchThreshold);
+        this.prefetchThreshold = prefetchThreshold;
+        return this;
+    }
+
+    /**
+     * The prefetch threshold for this query.
+     *
+     * @return the prefetch threshold for this query, or {@code null} to use
+     * {@link QueryOptions#getPrefetchThreshold()}.
+     */
+    public Integer getPrefetchThreshold() {
+        return prefetchThreshold;
+    }
+
+    int getPrefetchThresholdWithDefault(QueryOptions queryOptions) {
+        Integer myValue = this.getPrefetchThreshold();
+        if (myValue != null)
+            return myValue;
+        else
+            return queryOptions.getPrefetchThreshold();
+    }
 }
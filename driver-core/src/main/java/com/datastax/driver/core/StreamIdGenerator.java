@@ -18,6 +18,8 @@ package com.datastax.driver.core;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLongArray;
 
+import com.google.common.annotations.VisibleForTesting;
+
 /**
  * Manages a set of integer identifiers.
  * <p>
@@ -113,6 +115,17 @@ class StreamIdGenerator {
         return maxIds - marked.get();
     }
 
+    /**
+     * Returns the number of ids that are currently borrowed. This is not atomic, and only meant for tests.
+     */
+    @VisibleForTesting
+    int borrowed() {
+        int available = 0;
+        for (int i = 0; i < bits.length(); i++)
+            available += Long.bitCount(bits.get(i));
+        return maxIds - available;
+    }
+
     // Returns >= 0 if found and set an id, -1 if no bits are available.
     private int atomicGetAndSetFirstAvailable(int idx) {
         while (true) {
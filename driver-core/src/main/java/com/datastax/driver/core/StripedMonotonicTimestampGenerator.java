@@ -0,0 +1,123 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A timestamp generator for high request rates, based on a microsecond clock that a background thread
+ * updates every millisecond, and on a set of counters ("stripes") that client threads are spread on.
+ * <p>
+ * This implementation guarantees incrementing timestamps for a given client thread, and distinct timestamps
+ * across all threads: each thread always uses the same stripe, and each stripe {@code i} out of {@code n} only
+ * returns timestamps that are equal to {@code i} modulo {@code n}. A stripe returns the current time rounded
+ * to its next such value, or the last timestamp it returned plus {@code n} microseconds if the clock didn't
+ * move past it. Timestamps of threads on different stripes are not ordered with respect to each other.
+ * <p>
+ * Unlike {@link AtomicMonotonicTimestampGenerator}, threads only contend with the threads that share their
+ * stripe; unlike {@link ThreadLocalMonotonicTimestampGenerator}, generating a timestamp doesn't allocate.
+ * Reading the clock doesn't cost a system call either. The price is precision: the clock only moves once
+ * per tick of the background thread (1 millisecond by default), and timestamps are off by up to {@code n - 1}
+ * microseconds. If a stripe is asked for more than one timestamp per {@code n} microseconds, its timestamps
+ * get ahead of the clock until the rate goes down, instead of repeating.
+ * <p>
+ * The background thread is a daemon, shared by all the instances in the JVM. It is started when an instance
+ * is created, and stopped once all the instances are {@link #close() closed}, which {@link Cluster} does
+ * when it is closed. Its tick can be changed with the {@code com.datastax.driver.CLOCK_TICK_MICROS} system
+ * property (in microseconds). A closed instance still works, but reads {@link System#currentTimeMillis()}
+ * instead, so an instance that is shared by several clusters keeps generating valid timestamps once one of
+ * them is closed.
+ */
+public class StripedMonotonicTimestampGenerator implements CloseableTimestampGenerator {
+
+    // Stripes are spread 128 bytes apart, so that each one is on its own cache lines (including with adjacent
+    // line prefetching)
+    private static final int PADDING = 16;
+
+    private final AtomicLongArray stripes;
+    private final int mask;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    volatile TickingClock clock = TickingClock.acquireShared();
+
+    /**
+     * Creates a new instance with a stripe per available processor.
+     */
+    public StripedMonotonicTimestampGenerator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param stripes the number of stripes. This is rounded up to a power of two.
+     *
+     * @throws IllegalArgumentException if {@code stripes} is not in [1, 1024].
+     */
+    public StripedMonotonicTimestampGenerator(int stripes) {
+        if (stripes < 1 || stripes > 1024) {
+            // The clock was acquired by the field initializer
+            close();
+            throw new IllegalArgumentException("Invalid number of stripes, should be in [1, 1024], got " + stripes);
+        }
+
+        int count = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.mask = count - 1;
+        // The first and last slots are left empty, to keep the stripes away from the array header and from
+        // whatever follows the array
+        this.stripes = new AtomicLongArray((count + 1) * PADDING);
+    }
+
+    @Override
+    public long next() {
+        int stripe = (int)Thread.currentThread().getId() & mask;
+        int index = (stripe + 1) * PADDING;
+        // The first timestamp of this stripe that is not before the clock
+        long now = ((clock.currentTimeMicros() + mask - stripe) & ~mask) + stripe;
+        while (true) {
+            long last = stripes.get(index);
+            // The clock can go backwards when it is re-anchored, hence the ">"
+            long next = now > last ? now : last + mask + 1;
+            if (stripes.compareAndSet(index, last, next))
+                return next;
+        }
+    }
+
+    /**
+     * Releases the background thread of this generator, which stops if no other instance uses it.
+     * <p>
+     * From then on, this generator reads the system clock on each call, with millisecond precision.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            clock = new SystemClock();
+            TickingClock.releaseShared();
+        }
+    }
+
+    /**
+     * The clock of closed instances, which doesn't depend on the ticker.
+     */
+    private static class SystemClock extends TickingClock {
+        @Override
+        long currentTimeMicros() {
+            return System.currentTimeMillis() * 1000;
+        }
+    }
+}
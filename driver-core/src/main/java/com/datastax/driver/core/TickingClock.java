@@ -0,0 +1,126 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A wall clock with microsecond resolution that is cheap to read from many threads: a background "ticker"
+ * thread samples the time periodically, and readers get the last sample. Its precision is therefore the
+ * period of the ticker ({@link #TICK_MICROS}), one millisecond by default.
+ * <p>
+ * The time is sampled with {@link System#nanoTime()}, anchored to {@link System#currentTimeMillis()}, and
+ * re-anchored when the two drift apart (for example after an NTP adjustment). It can therefore go backwards.
+ */
+class TickingClock {
+
+    static final int TICK_MICROS = SystemProperties.getInt("com.datastax.driver.CLOCK_TICK_MICROS", 1000);
+
+    // How far the sampled time can drift from currentTimeMillis before it is re-anchored. This is well above the
+    // granularity of currentTimeMillis on most systems.
+    private static final long MAX_DRIFT_MICROS = 10000;
+
+    // The shared instance and its ticker, guarded by TickingClock.class. The ticker runs as long as the instance
+    // is acquired at least once, so that it doesn't outlive the clusters that use it (and pin their classloader).
+    private static TickingClock shared;
+    private static Ticker ticker;
+    private static int sharedReferences;
+
+    private volatile long micros;
+
+    // Only accessed by the ticker thread
+    private long anchorMicros;
+    private long anchorNanos;
+
+    TickingClock() {
+        anchor();
+        micros = anchorMicros;
+    }
+
+    /**
+     * Returns the shared instance, starting its ticker thread if it is not running.
+     * <p>
+     * Each call must be matched by a call to {@link #releaseShared()} once the instance is no longer used.
+     */
+    static synchronized TickingClock acquireShared() {
+        if (sharedReferences++ == 0) {
+            shared = new TickingClock();
+            ticker = new Ticker(shared);
+            ticker.start();
+        }
+        return shared;
+    }
+
+    /**
+     * Releases the shared instance, stopping its ticker thread if it isn't used anymore.
+     */
+    static synchronized void releaseShared() {
+        if (sharedReferences == 0)
+            throw new IllegalStateException("The shared clock is not acquired");
+        if (--sharedReferences == 0) {
+            ticker.shutdown();
+            ticker = null;
+            shared = null;
+        }
+    }
+
+    /**
+     * Returns the time of the last tick.
+     *
+     * @return the difference, measured in microseconds, between the time of the last tick and midnight, January 1, 1970 UTC.
+     */
+    long currentTimeMicros() {
+        return micros;
+    }
+
+    void tick() {
+        long now = anchorMicros + (System.nanoTime() - anchorNanos) / 1000;
+        if (Math.abs(now - System.currentTimeMillis() * 1000) > MAX_DRIFT_MICROS) {
+            anchor();
+            now = anchorMicros;
+        }
+        micros = now;
+    }
+
+    private void anchor() {
+        anchorMicros = System.currentTimeMillis() * 1000;
+        anchorNanos = System.nanoTime();
+    }
+
+    private static class Ticker extends Thread {
+        private final TickingClock clock;
+        private volatile boolean stopped;
+
+        Ticker(TickingClock clock) {
+            super("Cassandra Java Driver clock ticker");
+            this.clock = clock;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (!stopped) {
+                LockSupport.parkNanos(TICK_MICROS * 1000L);
+                clock.tick();
+            }
+        }
+
+        void shutdown() {
+            stopped = true;
+            LockSupport.unpark(this);
+        }
+    }
+}
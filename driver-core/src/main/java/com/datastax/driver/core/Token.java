@@ -223,8 +223,12 @@ public abstract class Token implements Comparable<Token> {
 
             @Override
             M3PToken hash(ByteBuffer partitionKey) {
+                return new M3PToken(hashToLong(partitionKey));
+            }
+
+            long hashToLong(ByteBuffer partitionKey) {
                 long v = murmur(partitionKey);
-                return new M3PToken(v == Long.MIN_VALUE ? Long.MAX_VALUE : v);
+                return v == Long.MIN_VALUE ? Long.MAX_VALUE : v;
             }
 
             @Override
@@ -254,6 +258,13 @@ public abstract class Token implements Comparable<Token> {
             this.value = value;
         }
 
+        /**
+         * Same as {@code FACTORY.hash(partitionKey)}, but returns the token's value without allocating a token.
+         */
+        static long hashToLong(ByteBuffer partitionKey) {
+            return ((M3PTokenFactory)FACTORY).hashToLong(partitionKey);
+        }
+
         @Override
         public DataType getType() {
             return FACTORY.getTokenType();
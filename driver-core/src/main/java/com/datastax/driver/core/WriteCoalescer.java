@@ -0,0 +1,150 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.*;
+
+/**
+ * A downstream handler that coalesces encoded frames into batched writes.
+ * <p>
+ * It sits right below the frame encoder, so it only sees {@link ChannelBuffer}s. Instead of
+ * forwarding each of them to the socket, it queues them and forwards them all at once as a
+ * single (composite, not copied) buffer, which results in one system call and one acquisition
+ * of the channel's write lock per batch. A batch is flushed:
+ * <ul>
+ *   <li>by the writing thread, as soon as {@code maxFrames} frames are pending;</li>
+ *   <li>otherwise by a task on the (shared) flusher executor, {@code delayMicros} after the first
+ *   frame of the batch was queued.</li>
+ * </ul>
+ * The future of each individual write is completed when the batch it belongs to is written, so
+ * upstream code can't tell the difference with a regular write.
+ */
+class WriteCoalescer extends SimpleChannelDownstreamHandler {
+
+    private final ScheduledExecutorService flusher;
+    private final int maxFrames;
+    private final long delayMicros;
+
+    private final Queue<MessageEvent> pending = new ConcurrentLinkedQueue<MessageEvent>();
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    WriteCoalescer(ScheduledExecutorService flusher, int maxFrames, long delayMicros) {
+        this.flusher = flusher;
+        this.maxFrames = maxFrames;
+        this.delayMicros = delayMicros;
+    }
+
+    @Override
+    public void writeRequested(final ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        if (!(e.getMessage() instanceof ChannelBuffer)) {
+            super.writeRequested(ctx, e);
+            return;
+        }
+
+        pending.add(e);
+        if (pendingCount.incrementAndGet() >= maxFrames) {
+            flush(ctx);
+        } else if (flushScheduled.compareAndSet(false, true)) {
+            Runnable flushTask = new Runnable() {
+                @Override
+                public void run() {
+                    // Reset the flag before draining: a frame queued after this point will schedule a new task,
+                    // a frame queued before will be picked by the flush below.
+                    flushScheduled.set(false);
+                    flush(ctx);
+                }
+            };
+            try {
+                if (delayMicros > 0)
+                    flusher.schedule(flushTask, delayMicros, TimeUnit.MICROSECONDS);
+                else
+                    flusher.execute(flushTask);
+            } catch (RejectedExecutionException ree) {
+                // The flusher is shut down (the cluster is closing), don't leave the frame behind
+                flushTask.run();
+            }
+        }
+    }
+
+    @Override
+    public void closeRequested(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        // Don't leave pending writes behind, their futures would never complete
+        flush(ctx);
+        super.closeRequested(ctx, e);
+    }
+
+    private void flush(ChannelHandlerContext ctx) {
+        while (true) {
+            MessageEvent first = pending.poll();
+            if (first == null)
+                return;
+
+            MessageEvent next = pending.poll();
+            if (next == null) {
+                pendingCount.decrementAndGet();
+                ctx.sendDownstream(first);
+                return;
+            }
+
+            MessageEvent[] batch = new MessageEvent[maxFrames < 2 ? 2 : maxFrames];
+            batch[0] = first;
+            batch[1] = next;
+            int count = 2;
+            while (count < batch.length && (next = pending.poll()) != null)
+                batch[count++] = next;
+            pendingCount.addAndGet(-count);
+
+            ChannelBuffer[] buffers = new ChannelBuffer[count];
+            for (int i = 0; i < count; i++)
+                buffers[i] = (ChannelBuffer)batch[i].getMessage();
+
+            ChannelFuture batchFuture = Channels.future(ctx.getChannel());
+            batchFuture.addListener(new BatchListener(batch, count));
+            Channels.write(ctx, batchFuture, ChannelBuffers.wrappedBuffer(buffers), first.getRemoteAddress());
+        }
+    }
+
+    private static class BatchListener implements ChannelFutureListener {
+        private final MessageEvent[] batch;
+        private final int count;
+
+        BatchListener(MessageEvent[] batch, int count) {
+            this.batch = batch;
+            this.count = count;
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture future) {
+            for (int i = 0; i < count; i++) {
+                if (future.isSuccess())
+                    batch[i].getFuture().setSuccess();
+                else
+                    batch[i].getFuture().setFailure(future.getCause());
+            }
+        }
+    }
+}
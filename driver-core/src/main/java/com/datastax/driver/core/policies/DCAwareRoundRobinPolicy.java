@@ -60,6 +60,8 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
     private final String UNSET = "";
 
     private final ConcurrentMap<String, CopyOnWriteArrayList<Host>> perDcLiveHosts = new ConcurrentHashMap<String, CopyOnWriteArrayList<Host>>();
+    // An immutable copy of perDcLiveHosts, rebuilt each time it changes, that query plans and distance() read
+    private volatile LiveHosts liveHosts = LiveHosts.EMPTY;
     private final AtomicInteger index = new AtomicInteger();
 
     @VisibleForTesting
@@ -213,6 +215,7 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
             String nonLocalHosts = Joiner.on(",").join(notInLocalDC);
             logger.warn("Some contact points don't match local data center. Local DC = {}. Non-conforming contact points: {}", localDc, nonLocalHosts);
         }
+        updateLiveHosts();
     }
 
     private String dc(Host host) {
@@ -220,9 +223,50 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
         return dc == null ? localDc : dc;
     }
 
-    @SuppressWarnings("unchecked")
-    private static CopyOnWriteArrayList<Host> cloneList(CopyOnWriteArrayList<Host> list) {
-        return (CopyOnWriteArrayList<Host>)list.clone();
+    /**
+     * Rebuilds {@code liveHosts} from {@code perDcLiveHosts}. This is synchronized so that the last rebuild
+     * always publishes the latest state, even when hosts change concurrently.
+     */
+    private synchronized void updateLiveHosts() {
+        String localDc = this.localDc;
+        Host[] local = LiveHosts.NO_HOSTS;
+        List<String> remoteDcs = new ArrayList<String>();
+        List<Host[]> remoteHosts = new ArrayList<Host[]>();
+        Map<String, Host[]> remoteHostsByDc = new HashMap<String, Host[]>();
+        for (Map.Entry<String, CopyOnWriteArrayList<Host>> entry : perDcLiveHosts.entrySet()) {
+            String dc = entry.getKey();
+            Host[] hosts = entry.getValue().toArray(LiveHosts.NO_HOSTS);
+            if (dc.equals(localDc)) {
+                local = hosts;
+            } else {
+                Host[] used = Arrays.copyOf(hosts, Math.min(hosts.length, usedHostsPerRemoteDc));
+                remoteDcs.add(dc);
+                remoteHosts.add(used);
+                remoteHostsByDc.put(dc, used);
+            }
+        }
+        liveHosts = new LiveHosts(local,
+                                  remoteDcs.toArray(new String[remoteDcs.size()]),
+                                  remoteHosts.toArray(new Host[remoteHosts.size()][]),
+                                  remoteHostsByDc);
+    }
+
+    private static class LiveHosts {
+        static final Host[] NO_HOSTS = new Host[0];
+        static final LiveHosts EMPTY = new LiveHosts(NO_HOSTS, new String[0], new Host[0][], Collections.<String, Host[]>emptyMap());
+
+        final Host[] local;
+        // For each remote datacenter, the hosts that can be used, i.e. at most usedHostsPerRemoteDc
+        final String[] remoteDcs;
+        final Host[][] remoteHosts;
+        final Map<String, Host[]> remoteHostsByDc;
+
+        LiveHosts(Host[] local, String[] remoteDcs, Host[][] remoteHosts, Map<String, Host[]> remoteHostsByDc) {
+            this.local = local;
+            this.remoteDcs = remoteDcs;
+            this.remoteHosts = remoteHosts;
+            this.remoteHostsByDc = remoteHostsByDc;
+        }
     }
 
     /**
@@ -244,15 +288,15 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
         if (dc == UNSET || dc.equals(localDc))
             return HostDistance.LOCAL;
 
-        CopyOnWriteArrayList<Host> dcHosts = perDcLiveHosts.get(dc);
-        if (dcHosts == null || usedHostsPerRemoteDc == 0)
+        Host[] dcHosts = liveHosts.remoteHostsByDc.get(dc);
+        if (dcHosts == null)
             return HostDistance.IGNORED;
 
-        // We need to clone, otherwise our subList call is not thread safe
-        dcHosts = cloneList(dcHosts);
-        return dcHosts.subList(0, Math.min(dcHosts.size(), usedHostsPerRemoteDc)).contains(host)
-             ? HostDistance.REMOTE
-             : HostDistance.IGNORED;
+        for (Host dcHost : dcHosts) {
+            if (dcHost.equals(host))
+                return HostDistance.REMOTE;
+        }
+        return HostDistance.IGNORED;
     }
 
     /**
@@ -273,20 +317,19 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
     @Override
     public Iterator<Host> newQueryPlan(String loggedKeyspace, final Statement statement) {
 
-        CopyOnWriteArrayList<Host> localLiveHosts = perDcLiveHosts.get(localDc);
-        final List<Host> hosts = localLiveHosts == null ? Collections.<Host>emptyList() : cloneList(localLiveHosts);
+        final LiveHosts live = liveHosts;
         final int startIdx = index.getAndIncrement();
 
+        // Only the iterator is allocated, except when falling back to suspected or remote hosts
         return new AbstractIterator<Host>() {
 
             private int idx = startIdx;
-            private int remainingLocal = hosts.size();
+            private int remainingLocal = live.local.length;
 
             private Iterator<Host> localSuspected;
 
             // For remote Dcs
-            private Iterator<String> remoteDcs;
-            private List<Host> currentDcHosts;
+            private int currentDc = -1;
             private int currentDcRemaining;
             private Iterator<Host> currentDcSuspected;
 
@@ -294,11 +337,11 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
             protected Host computeNext() {
                 if (remainingLocal > 0) {
                     remainingLocal--;
-                    int c = idx++ % hosts.size();
+                    int c = idx++ % live.local.length;
                     if (c < 0) {
-                        c += hosts.size();
+                        c += live.local.length;
                     }
-                    return hosts.get(c);
+                    return live.local[c];
                 }
 
                 if (localSuspected == null) {
@@ -320,20 +363,15 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
                 if (dontHopForLocalCL && cl.isDCLocal())
                     return endOfData();
 
-                if (remoteDcs == null) {
-                    Set<String> copy = new HashSet<String>(perDcLiveHosts.keySet());
-                    copy.remove(localDc);
-                    remoteDcs = copy.iterator();
-                }
-
                 while (true) {
-                    if (currentDcHosts != null && currentDcRemaining > 0) {
+                    if (currentDcRemaining > 0) {
                         currentDcRemaining--;
-                        int c = idx++ % currentDcHosts.size();
+                        Host[] currentDcHosts = live.remoteHosts[currentDc];
+                        int c = idx++ % currentDcHosts.length;
                         if (c < 0) {
-                            c += currentDcHosts.size();
+                            c += currentDcHosts.length;
                         }
-                        return currentDcHosts.get(c);
+                        return currentDcHosts[c];
                     }
 
                     if (currentDcSuspected != null) {
@@ -345,18 +383,12 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
                         }
                     }
 
-                    if (!remoteDcs.hasNext())
+                    if (currentDc + 1 >= live.remoteDcs.length)
                         break;
 
-                    String nextRemoteDc = remoteDcs.next();
-                    CopyOnWriteArrayList<Host> nextDcHosts = perDcLiveHosts.get(nextRemoteDc);
-                    if (nextDcHosts != null) {
-                        // Clone for thread safety
-                        List<Host> dcHosts = cloneList(nextDcHosts);
-                        currentDcHosts = dcHosts.subList(0, Math.min(dcHosts.size(), usedHostsPerRemoteDc));
-                        currentDcRemaining = currentDcHosts.size();
-                    }
-                    List<Host> suspectedList = perDcSuspectedHosts.get(nextRemoteDc);
+                    currentDc++;
+                    currentDcRemaining = live.remoteHosts[currentDc].length;
+                    List<Host> suspectedList = perDcSuspectedHosts.get(live.remoteDcs[currentDc]);
                     currentDcSuspected = suspectedList == null ? null : suspectedList.iterator();
                 }
                 return endOfData();
@@ -392,10 +424,13 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
             CopyOnWriteArrayList<Host> newMap = new CopyOnWriteArrayList<Host>(Collections.singletonList(host));
             dcHosts = perDcLiveHosts.putIfAbsent(dc, newMap);
             // If we've successfully put our new host, we're good, otherwise we've been beaten so continue
-            if (dcHosts == null)
+            if (dcHosts == null) {
+                updateLiveHosts();
                 return;
+            }
         }
         dcHosts.addIfAbsent(host);
+        updateLiveHosts();
 
         CopyOnWriteArrayList<Host> dcSuspected = perDcSuspectedHosts.get(dc(host));
         if (dcSuspected != null)
@@ -419,8 +454,8 @@ public class DCAwareRoundRobinPolicy implements LoadBalancingPolicy, CloseableLo
     @Override
     public void onDown(Host host) {
         CopyOnWriteArrayList<Host> dcHosts = perDcLiveHosts.get(dc(host));
-        if (dcHosts != null)
-            dcHosts.remove(host);
+        if (dcHosts != null && dcHosts.remove(host))
+            updateLiveHosts();
 
         CopyOnWriteArrayList<Host> dcSuspected = perDcSuspectedHosts.get(dc(host));
         if (dcSuspected != null)
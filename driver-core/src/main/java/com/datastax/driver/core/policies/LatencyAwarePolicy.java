@@ -46,7 +46,14 @@ import com.datastax.driver.core.*;
  * latencies are not necessarily reported with equal regularity, neither
  * over time nor between different nodes).
  * <p>
- * Once a node is excluded from query plans (because its averaged latency grew
+ * Alternatively, the policy can score nodes by a percentile of their latencies
+ * over a recent time interval (see {@link Builder#withScoringPercentile}). An
+ * average hides bimodal behaviors: a node that is usually fast but regularly
+ * stalls (during garbage collections, for example) still has a good average,
+ * while its 95th percentile is poor. With this scoring, nodes with equal scores
+ * are ordered by their number of in-flight requests.
+ * <p>
+ * Once a node is excluded from query plans (because its latency score grew
  * over the exclusion threshold), its latency score will not be updated anymore
  * (since it is not queried). To give a chance to this node to recover, the
  * policy has a configurable retry period. The policy will not penalize a host
@@ -61,8 +68,13 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
 
     private static final Logger logger = LoggerFactory.getLogger(LatencyAwarePolicy.class);
 
+    // Latencies above this are ignored by percentile scoring
+    private static final long HIGHEST_TRACKABLE_LATENCY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
     private final LoadBalancingPolicy childPolicy;
     private final Tracker latencyTracker;
+    // null unless hosts are scored by percentile
+    private final PerHostPercentileTracker percentileTracker;
     private final ScheduledExecutorService updaterService = Executors.newSingleThreadScheduledExecutor(threadFactory("LatencyAwarePolicy updater"));
 
     private final double exclusionThreshold;
@@ -70,19 +82,29 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
     private final long scale;
     private final long retryPeriod;
     private final long minMeasure;
+    private final double scoringPercentile;
 
     private LatencyAwarePolicy(LoadBalancingPolicy childPolicy,
                                double exclusionThreshold,
                                long scale,
                                long retryPeriod,
                                long updateRate,
-                               int minMeasure) {
+                               int minMeasure,
+                               double scoringPercentile,
+                               long scoringInterval) {
         this.childPolicy = childPolicy;
         this.retryPeriod = retryPeriod;
         this.scale = scale;
         this.latencyTracker = new Tracker();
         this.exclusionThreshold = exclusionThreshold;
         this.minMeasure = minMeasure;
+        this.scoringPercentile = scoringPercentile;
+        this.percentileTracker = (scoringPercentile < 0)
+                                 ? null
+                                 : PerHostPercentileTracker.builderWithHighestTrackableLatencyMillis(HIGHEST_TRACKABLE_LATENCY_MILLIS)
+                                                           .withInterval(scoringInterval, TimeUnit.NANOSECONDS)
+                                                           .withMinRecordedValues(minMeasure)
+                                                           .build();
 
         updaterService.scheduleAtFixedRate(new Updater(), updateRate, updateRate, TimeUnit.NANOSECONDS);
     }
@@ -139,13 +161,13 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
                         if (stats.getLatencyScore() > ((long)(exclusionThreshold * currentMin))) {
                             excludedThisTick.add(host);
                             if (!excludedAtLastTick.contains(host))
-                                logger.debug(String.format("Host %s has an average latency score of %.3fms, more than %f times more than the minimum %.3fms: will be avoided temporarily.",
+                                logger.debug(String.format("Host %s has a latency score of %.3fms, more than %f times more than the minimum %.3fms: will be avoided temporarily.",
                                                           host, inMS(stats.getLatencyScore()), exclusionThreshold, inMS(currentMin)));
                             continue;
                         }
 
                         if (excludedAtLastTick.contains(host)) {
-                            logger.debug("Previously avoided host {} average latency has come back within accepted bounds: will be reconsidered.", host);
+                            logger.debug("Previously avoided host {} latency score has come back within accepted bounds: will be reconsidered.", host);
                         }
                     }
                     excludedAtLastTick = excludedThisTick;
@@ -191,13 +213,17 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
      * <p>
      * The returned plan will be the same as the plan generated by the
      * child policy, but with the (initial) exclusion of hosts whose recent
-     * (averaged) latency is more than {@code exclusionThreshold * minLatency}
-     * (where {@code minLatency} is the (averaged) latency of the fastest
+     * latency score is more than {@code exclusionThreshold * minLatency}
+     * (where {@code minLatency} is the latency score of the fastest
      * host).
      * <p>
      * The hosts that are initially excluded due to their latency will be returned
      * by this iterator, but only only after all non-excluded hosts of the
      * child policy have been returned.
+     * <p>
+     * If hosts are scored by percentile, a host that comes right after a host
+     * with the same score in the plan of the child policy is returned first
+     * if it has less requests in flight.
      *
      * @param loggedKeyspace the currently logged keyspace.
      * @param statement the statement for which to build the plan.
@@ -209,9 +235,37 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
         return new AbstractIterator<Host>() {
 
             private Queue<Host> skipped;
+            // With percentile scoring, the next host to return, already fetched from the child plan to break ties
+            private Host next;
 
             @Override
             protected Host computeNext() {
+                Host host = next;
+                next = null;
+                if (host == null)
+                    host = nextIncluded();
+
+                if (host == null) {
+                    if (skipped != null && !skipped.isEmpty())
+                        return skipped.poll();
+                    return endOfData();
+                }
+
+                if (percentileTracker != null) {
+                    next = nextIncluded();
+                    if (next != null && isTie(host, next) && next.getInFlightQueries() < host.getInFlightQueries()) {
+                        Host tmp = host;
+                        host = next;
+                        next = tmp;
+                    }
+                }
+                return host;
+            }
+
+            /**
+             * Returns the next host of the child plan that is not excluded, or {@code null} if there are none left.
+             */
+            private Host nextIncluded() {
                 long min = latencyTracker.getMinAverage();
                 long now = System.nanoTime();
                 while (childIter.hasNext()) {
@@ -220,7 +274,7 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
 
                     // If we haven't had enough data point yet to have a score, or the last update of the score
                     // is just too old, include the host.
-                    if (min < 0 || latency == null || latency.nbMeasure < minMeasure || (now - latency.timestamp) > retryPeriod)
+                    if (min < 0 || !hasScore(latency, now))
                         return host;
 
                     // If the host latency is within acceptable bound of the faster known host, return
@@ -232,18 +286,25 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
                         skipped = new ArrayDeque<Host>();
                     skipped.offer(host);
                 }
+                return null;
+            }
 
-                if (skipped != null && !skipped.isEmpty())
-                    return skipped.poll();
-
-                return endOfData();
-            };
+            private boolean isTie(Host host1, Host host2) {
+                long now = System.nanoTime();
+                TimestampedAverage latency1 = latencyTracker.latencyOf(host1);
+                TimestampedAverage latency2 = latencyTracker.latencyOf(host2);
+                return hasScore(latency1, now) && hasScore(latency2, now) && latency1.average == latency2.average;
+            }
         };
     }
 
+    private boolean hasScore(TimestampedAverage latency, long now) {
+        return latency != null && latency.average >= 0 && latency.nbMeasure >= minMeasure && (now - latency.timestamp) <= retryPeriod;
+    }
+
     /**
-     * Returns a snapshot of the scores (latency averages) maintained by this
-     * policy.
+     * Returns a snapshot of the scores (latency averages, or latencies at the
+     * scoring percentile) maintained by this policy.
      *
      * @return a new (immutable) {@link Snapshot} object containing the current
      * latency scores maintained by this policy.
@@ -255,6 +316,8 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
         for (Map.Entry<Host, TimestampedAverage> entry : currentLatencies.entrySet()) {
             Host host = entry.getKey();
             TimestampedAverage latency = entry.getValue();
+            if (latency == null)
+                continue;
             Snapshot.Stats stats = new Snapshot.Stats(now - latency.timestamp, latency.average, latency.nbMeasure);
             builder.put(host, stats);
         }
@@ -286,6 +349,8 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
     public void onRemove(Host host) {
         childPolicy.onRemove(host);
         latencyTracker.resetHost(host);
+        if (percentileTracker != null)
+            percentileTracker.onRemove(host);
     }
 
     /**
@@ -348,6 +413,9 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
 
             /**
              * The latency score for the host this is the stats of at the time of the snapshot.
+             * <p>
+             * This is an average of its latencies, or its latency at the scoring percentile
+             * over the last interval if the policy scores hosts by percentile.
              *
              * @return the latency score for the host this is the stats of at the time of the snapshot,
              * or {@code -1L} if not enough measurements have been taken to assign a score.
@@ -375,20 +443,26 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
         public void update(Host host, long newLatencyNanos) {
             HostLatencyTracker hostTracker = latencies.get(host);
             if (hostTracker == null) {
-                hostTracker = new HostLatencyTracker(scale, (30L * minMeasure) / 100L);
+                hostTracker = new HostLatencyTracker(scale, (30L * minMeasure) / 100L, percentileTracker != null);
                 HostLatencyTracker old = latencies.putIfAbsent(host, hostTracker);
                 if (old != null)
                     hostTracker = old;
             }
             hostTracker.add(newLatencyNanos);
+            if (percentileTracker != null)
+                percentileTracker.update(host, newLatencyNanos);
         }
 
         public void updateMin() {
             long newMin = Long.MAX_VALUE;
             long now = System.nanoTime();
-            for (HostLatencyTracker tracker : latencies.values()) {
-                TimestampedAverage latency = tracker.getCurrentAverage();
-                if (latency != null && latency.average >= 0 && latency.nbMeasure >= minMeasure && (now - latency.timestamp) <= retryPeriod)
+            for (Map.Entry<Host, HostLatencyTracker> entry : latencies.entrySet()) {
+                HostLatencyTracker tracker = entry.getValue();
+                // Percentiles are only computed here, so that query plans don't have to
+                if (percentileTracker != null)
+                    tracker.updatePercentile(percentileTracker.getLatencyAtPercentile(entry.getKey(), scoringPercentile, TimeUnit.NANOSECONDS));
+                TimestampedAverage latency = tracker.getCurrentScore();
+                if (hasScore(latency, now))
                     newMin = Math.min(newMin, latency.average);
             }
             if (newMin != Long.MAX_VALUE)
@@ -401,13 +475,13 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
 
         public TimestampedAverage latencyOf(Host host) {
             HostLatencyTracker tracker = latencies.get(host);
-            return tracker == null ? null : tracker.getCurrentAverage();
+            return tracker == null ? null : tracker.getCurrentScore();
         }
 
         public Map<Host, TimestampedAverage> currentLatencies() {
             Map<Host, TimestampedAverage> map = new HashMap<Host, TimestampedAverage>(latencies.size());
             for (Map.Entry<Host, HostLatencyTracker> entry : latencies.entrySet())
-                map.put(entry.getKey(), entry.getValue().getCurrentAverage());
+                map.put(entry.getKey(), entry.getValue().getCurrentScore());
             return map;
         }
 
@@ -434,10 +508,15 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
         private final long thresholdToAccount;
         private final double scale;
         private final AtomicReference<TimestampedAverage> current = new AtomicReference<TimestampedAverage>();
+        private final boolean scoredByPercentile;
+        // If scoredByPercentile, the latency at the percentile, with the timestamp and number of measurements of
+        // the average. Set periodically by the updater.
+        private volatile TimestampedAverage percentile;
 
-        HostLatencyTracker(long scale, long thresholdToAccount) {
+        HostLatencyTracker(long scale, long thresholdToAccount, boolean scoredByPercentile) {
             this.scale = (double)scale; // We keep in double since that's how we'll use it.
             this.thresholdToAccount = thresholdToAccount;
+            this.scoredByPercentile = scoredByPercentile;
         }
 
         public void add(long newLatencyNanos) {
@@ -482,6 +561,15 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
         public TimestampedAverage getCurrentAverage() {
             return current.get();
         }
+
+        public void updatePercentile(long latencyNanos) {
+            TimestampedAverage average = current.get();
+            percentile = (average == null) ? null : new TimestampedAverage(average.timestamp, latencyNanos, average.nbMeasure);
+        }
+
+        public TimestampedAverage getCurrentScore() {
+            return scoredByPercentile ? percentile : current.get();
+        }
     }
 
     /**
@@ -506,6 +594,7 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
         private static final long DEFAULT_RETRY_PERIOD = TimeUnit.SECONDS.toNanos(10);
         private static final long DEFAULT_UPDATE_RATE = TimeUnit.MILLISECONDS.toNanos(100);
         private static final int DEFAULT_MIN_MEASURE = 50;
+        private static final long DEFAULT_SCORING_INTERVAL = TimeUnit.SECONDS.toNanos(5);
 
         private final LoadBalancingPolicy childPolicy;
 
@@ -514,6 +603,8 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
         private long retryPeriod = DEFAULT_RETRY_PERIOD;
         private long updateRate = DEFAULT_UPDATE_RATE;
         private int minMeasure = DEFAULT_MIN_MEASURE;
+        private double scoringPercentile = -1;
+        private long scoringInterval = DEFAULT_SCORING_INTERVAL;
 
         /**
          * Creates a new latency aware policy builder given the child policy
@@ -678,6 +769,64 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
             return this;
         }
 
+        /**
+         * Makes the resulting latency aware policy score hosts by a percentile
+         * of their latencies, rather than by an average.
+         * <p>
+         * Latencies are recorded in per-host histograms, and the score of a
+         * host is its latency at {@code percentile} over the last scoring
+         * interval (see {@link #withScoringInterval}). This penalizes hosts
+         * that regularly have latency spikes even if they are fast most of the
+         * time, which an average doesn't. Hosts with equal scores are ordered
+         * by their number of in-flight requests (see {@link Host#getInFlightQueries()}).
+         * <p>
+         * A host has no score (and is never penalized) if less than
+         * {@code minMeasure} latencies were collected for it during the last
+         * interval (see {@link #withMininumMeasurements}). The {@link #withScale scale}
+         * is not used by this scoring. Latencies greater than 1 minute are
+         * ignored.
+         * <p>
+         * By default (if this method is not called), hosts are scored by an
+         * average.
+         *
+         * @param percentile the percentile to use, for example {@code 95.0}.
+         * @return this builder.
+         *
+         * @throws IllegalArgumentException if {@code percentile} is not in the
+         * range ]0, 100[.
+         */
+        public Builder withScoringPercentile(double percentile) {
+            if (percentile <= 0.0 || percentile >= 100.0)
+                throw new IllegalArgumentException("Invalid scoring percentile, must be strictly between 0 and 100");
+            this.scoringPercentile = percentile;
+            return this;
+        }
+
+        /**
+         * Sets the interval over which percentiles are computed, if the
+         * resulting latency aware policy scores hosts by percentile (see
+         * {@link #withScoringPercentile}).
+         * <p>
+         * Percentiles are computed over the last complete interval, so the
+         * score of a host reflects its latencies at most two intervals ago.
+         * A shorter interval makes the policy react faster, but needs more
+         * queries per host and per interval to provide meaningful percentiles.
+         * <p>
+         * The default interval (if this method is not called) is <b>5 seconds</b>.
+         *
+         * @param interval the interval to use.
+         * @param unit the unit of {@code interval}.
+         * @return this builder.
+         *
+         * @throws IllegalArgumentException if {@code interval &lte; 0}.
+         */
+        public Builder withScoringInterval(long interval, TimeUnit unit) {
+            if (interval <= 0)
+                throw new IllegalArgumentException("Invalid scoring interval, must be strictly positive");
+            this.scoringInterval = unit.toNanos(interval);
+            return this;
+        }
+
         /**
          * Builds a new latency aware policy using the options set on this
          * builder.
@@ -685,7 +834,8 @@ public class LatencyAwarePolicy implements ChainableLoadBalancingPolicy, Closeab
          * @return the newly created {@code LatencyAwarePolicy}.
          */
         public LatencyAwarePolicy build() {
-            return new LatencyAwarePolicy(childPolicy, exclusionThreshold, scale, retryPeriod, updateRate, minMeasure);
+            return new LatencyAwarePolicy(childPolicy, exclusionThreshold, scale, retryPeriod, updateRate, minMeasure,
+                                          scoringPercentile, scoringInterval);
         }
     }
 
@@ -0,0 +1,205 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core.policies;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+
+import com.datastax.driver.core.*;
+
+/**
+ * A wrapper load balancing policy that sends each query to the least busy of
+ * two hosts of the plan of a child policy.
+ * <p>
+ * This is a "power of two choices" policy: the first host of the plan of the
+ * child policy is compared with another host picked at random among the next
+ * ones, and the one with the fewest requests in flight (see
+ * {@link Host#getInFlightQueries()}) comes first. Each query is therefore sent
+ * to the least busy of two random hosts, which avoids overloading a host that
+ * is already slower than the others, without the cost (and the herd behavior)
+ * of always picking the least busy host of all.
+ * <p>
+ * The other host is only picked among the hosts that are equivalent choices to
+ * the first one for the child policy: they must be at the same
+ * {@code HostDistance}, and either all or none of them must be replicas of the
+ * query (as returned by {@link Metadata#getReplicas} for
+ * {@link Statement#getRoutingKey}). More precisely, it is picked among the
+ * (at most {@value #MAX_CANDIDATES}) hosts that directly follow the first one
+ * in the child plan and are equivalent to it. For example, if you wrap a
+ * {@link TokenAwarePolicy} with this policy, each query will be sent to the
+ * least busy of two of its local replicas, but never to a non-replica because
+ * it happens to be less busy than the only local replica.
+ * <p>
+ * Counts of in-flight requests are those of this client only.
+ */
+public class LeastInFlightPolicy implements ChainableLoadBalancingPolicy, CloseableLoadBalancingPolicy {
+
+    /**
+     * The maximum number of hosts that the other host is picked among.
+     */
+    public static final int MAX_CANDIDATES = 8;
+
+    private final LoadBalancingPolicy childPolicy;
+    private Metadata clusterMetadata;
+
+    @VisibleForTesting
+    Random random = new Random();
+
+    /**
+     * Creates a new {@code LeastInFlightPolicy}.
+     *
+     * @param childPolicy the load balancing policy to wrap.
+     */
+    public LeastInFlightPolicy(LoadBalancingPolicy childPolicy) {
+        this.childPolicy = childPolicy;
+    }
+
+    @Override
+    public LoadBalancingPolicy getChildPolicy() {
+        return childPolicy;
+    }
+
+    @Override
+    public void init(Cluster cluster, Collection<Host> hosts) {
+        clusterMetadata = cluster.getMetadata();
+        childPolicy.init(cluster, hosts);
+    }
+
+    /**
+     * Return the HostDistance for the provided host.
+     *
+     * @param host the host of which to return the distance of.
+     * @return the HostDistance to {@code host} as returned by the wrapped policy.
+     */
+    @Override
+    public HostDistance distance(Host host) {
+        return childPolicy.distance(host);
+    }
+
+    /**
+     * Returns the hosts to use for a new query.
+     * <p>
+     * The returned plan is the plan of the child policy, except that its first
+     * host is swapped with a random host among the next equivalent ones if that
+     * host has fewer requests in flight.
+     *
+     * @param loggedKeyspace the currently logged keyspace.
+     * @param statement the query for which to build the plan.
+     * @return the new query plan.
+     */
+    @Override
+    public Iterator<Host> newQueryPlan(String loggedKeyspace, Statement statement) {
+        final Iterator<Host> childIterator = childPolicy.newQueryPlan(loggedKeyspace, statement);
+        if (!childIterator.hasNext())
+            return childIterator;
+
+        Host first = childIterator.next();
+        if (!childIterator.hasNext())
+            return Iterators.singletonIterator(first);
+
+        // Collect the hosts that are equivalent to the first one, and the first host that isn't (which must come
+        // right after them). Replicas are only looked up once for the whole plan.
+        HostDistance distance = childPolicy.distance(first);
+        Set<Host> replicas = replicas(loggedKeyspace, statement);
+        boolean firstIsReplica = replicas != null && replicas.contains(first);
+        final List<Host> candidates = new ArrayList<Host>(4);
+        Host next = null;
+        while (candidates.size() < MAX_CANDIDATES && childIterator.hasNext()) {
+            Host host = childIterator.next();
+            if (childPolicy.distance(host) != distance
+                || (replicas != null && replicas.contains(host) != firstIsReplica)) {
+                next = host;
+                break;
+            }
+            candidates.add(host);
+        }
+
+        if (!candidates.isEmpty()) {
+            int index = candidates.size() == 1 ? 0 : random.nextInt(candidates.size());
+            Host candidate = candidates.get(index);
+            if (candidate.getInFlightQueries() < first.getInFlightQueries()) {
+                candidates.set(index, first);
+                first = candidate;
+            }
+        }
+
+        final Host head = first, afterCandidates = next;
+        return new AbstractIterator<Host>() {
+
+            // -1 for the first host, then the index in candidates
+            private int index = -1;
+
+            @Override
+            protected Host computeNext() {
+                int i = index++;
+                if (i < 0)
+                    return head;
+                if (i < candidates.size())
+                    return candidates.get(i);
+                if (i == candidates.size() && afterCandidates != null)
+                    return afterCandidates;
+                return childIterator.hasNext() ? childIterator.next() : endOfData();
+            }
+        };
+    }
+
+    // Returns null if the replicas of the query are unknown, in which case all hosts are equivalent
+    private Set<Host> replicas(String loggedKeyspace, Statement statement) {
+        ByteBuffer partitionKey = statement.getRoutingKey();
+        String keyspace = statement.getKeyspace();
+        if (keyspace == null)
+            keyspace = loggedKeyspace;
+        if (partitionKey == null || keyspace == null)
+            return null;
+
+        return clusterMetadata.getReplicasOfInternalName(keyspace, partitionKey);
+    }
+
+    @Override
+    public void onUp(Host host) {
+        childPolicy.onUp(host);
+    }
+
+    @Override
+    public void onSuspected(Host host) {
+        childPolicy.onSuspected(host);
+    }
+
+    @Override
+    public void onDown(Host host) {
+        childPolicy.onDown(host);
+    }
+
+    @Override
+    public void onAdd(Host host) {
+        childPolicy.onAdd(host);
+    }
+
+    @Override
+    public void onRemove(Host host) {
+        childPolicy.onRemove(host);
+    }
+
+    @Override
+    public void close() {
+        if (childPolicy instanceof CloseableLoadBalancingPolicy)
+            ((CloseableLoadBalancingPolicy)childPolicy).close();
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core.policies;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.datastax.driver.core.Cluster;
+import com.datastax.driver.core.Host;
+import com.datastax.driver.core.PerHostPercentileTracker;
+import com.datastax.driver.core.Statement;
+
+/**
+ * A policy that triggers speculative executions when the request to the current host is above a given percentile.
+ * <p>
+ * The latencies are measured by a {@link PerHostPercentileTracker}, which is registered with the {@code Cluster}
+ * when this policy is initialized. Until the tracker has enough data for a host, no speculative executions are
+ * triggered after querying that host.
+ */
+public class PercentileSpeculativeExecutionPolicy implements SpeculativeExecutionPolicy {
+    private final PerHostPercentileTracker percentileTracker;
+    private final double percentile;
+    private final int maxSpeculativeExecutions;
+
+    /**
+     * Builds a new instance.
+     *
+     * @param percentileTracker the component that will record latencies. It will get
+     * {@link Cluster#register(com.datastax.driver.core.LatencyTracker) registered} with the cluster when this
+     * policy initializes.
+     * @param percentile the percentile that a request's latency must fall into to be considered slow (ex: {@code 99.0}).
+     * @param maxSpeculativeExecutions the maximum number of speculative executions that will be triggered for a given request
+     * (this does not include the initial, normal request). Must be strictly positive.
+     */
+    public PercentileSpeculativeExecutionPolicy(PerHostPercentileTracker percentileTracker, double percentile, int maxSpeculativeExecutions) {
+        if (percentileTracker == null)
+            throw new NullPointerException("percentileTracker cannot be null");
+        if (percentile <= 0.0 || percentile >= 100.0)
+            throw new IllegalArgumentException(String.format("Invalid percentile, should be between 0.0 and 100.0 (got %s)", percentile));
+        if (maxSpeculativeExecutions <= 0)
+            throw new IllegalArgumentException(String.format("Invalid number of speculative executions, should be strictly positive (got %d)", maxSpeculativeExecutions));
+        this.percentileTracker = percentileTracker;
+        this.percentile = percentile;
+        this.maxSpeculativeExecutions = maxSpeculativeExecutions;
+    }
+
+    @Override
+    public SpeculativeExecutionPlan newPlan(String loggedKeyspace, Statement statement) {
+        return new SpeculativeExecutionPlan() {
+            private final AtomicInteger remaining = new AtomicInteger(maxSpeculativeExecutions);
+
+            @Override
+            public long nextExecution(Host lastQueried) {
+                if (remaining.getAndDecrement() > 0)
+                    return percentileTracker.getLatencyAtPercentile(lastQueried, percentile);
+                else
+                    return -1;
+            }
+        };
+    }
+
+    @Override
+    public void init(Cluster cluster) {
+        cluster.register(percentileTracker);
+    }
+
+    @Override
+    public void close() {
+        // nothing
+    }
+}
@@ -126,7 +126,7 @@ public class TokenAwarePolicy implements ChainableLoadBalancingPolicy, Closeable
         if (partitionKey == null || keyspace == null)
             return childPolicy.newQueryPlan(keyspace, statement);
 
-        final Set<Host> replicas = clusterMetadata.getReplicas(Metadata.quote(keyspace), partitionKey);
+        final Set<Host> replicas = clusterMetadata.getReplicasOfInternalName(keyspace, partitionKey);
         if (replicas.isEmpty())
             return childPolicy.newQueryPlan(loggedKeyspace, statement);
 
@@ -21,6 +21,7 @@ import java.util.Collections;
 import org.testng.annotations.Test;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 import com.datastax.driver.core.exceptions.UnsupportedFeatureException;
@@ -114,4 +115,20 @@ public class BatchStatementTest extends CCMBridge.PerClassSingleNodeCluster {
             session.execute("DELETE FROM test WHERE k='key1'");
         }
     }
+
+    @Test(groups = "short")
+    public void should_use_routing_key_shared_by_all_statements() {
+        PreparedStatement st = session.prepare("INSERT INTO test (k, v) VALUES (?, ?)");
+
+        BatchStatement singlePartition = new BatchStatement()
+            .add(st.bind("key1", 0))
+            .add(st.bind("key1", 1))
+            .add(new SimpleStatement("INSERT INTO test (k, v) VALUES ('key1', 2)"));
+        assertEquals(singlePartition.getRoutingKey(), st.bind("key1", 0).getRoutingKey());
+
+        BatchStatement multiPartition = new BatchStatement()
+            .add(st.bind("key1", 0))
+            .add(st.bind("key2", 0));
+        assertNull(multiPartition.getRoutingKey());
+    }
 }
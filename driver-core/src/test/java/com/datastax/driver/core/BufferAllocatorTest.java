@@ -0,0 +1,143 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.channel.*;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.mockito.Mockito.*;
+
+public class BufferAllocatorTest {
+
+    @Test(groups = "unit")
+    public void should_recycle_direct_buffers_by_size_class() {
+        PooledBufferAllocator allocator = new PooledBufferAllocator();
+
+        ByteBuffer buffer = allocator.allocate(100);
+        assertThat(buffer.isDirect()).isTrue();
+        assertThat(buffer.position()).isEqualTo(0);
+        assertThat(buffer.remaining()).isEqualTo(100);
+        assertThat(buffer.capacity()).isEqualTo(128);
+        long reserved = allocator.getReservedMemory();
+        assertThat(reserved).isGreaterThan(0);
+
+        buffer.putInt(42);
+        allocator.release(buffer);
+        ByteBuffer recycled = allocator.allocate(120);
+        assertThat(recycled).isSameAs(buffer);
+        assertThat(recycled.position()).isEqualTo(0);
+        assertThat(recycled.remaining()).isEqualTo(120);
+
+        // Other size classes use other slabs
+        assertThat(allocator.allocate(1000).capacity()).isEqualTo(1024);
+        assertThat(allocator.getReservedMemory()).isGreaterThan(reserved);
+    }
+
+    @Test(groups = "unit")
+    public void should_fall_back_to_heap_buffers() {
+        PooledBufferAllocator allocator = new PooledBufferAllocator(1024, 256 * 1024);
+
+        assertThat(allocator.getMaxPooledSize()).isEqualTo(1024);
+        assertThat(allocator.allocate(1025).isDirect()).isFalse();
+
+        // One slab of 256 buffers of 1024 bytes exhausts the memory
+        for (int i = 0; i < 256; i++)
+            assertThat(allocator.allocate(1000).isDirect()).isTrue();
+        ByteBuffer heap = allocator.allocate(1000);
+        assertThat(heap.isDirect()).isFalse();
+        assertThat(heap.remaining()).isEqualTo(1000);
+        assertThat(allocator.getReservedMemory()).isEqualTo(256 * 1024);
+
+        // Releasing fallback buffers is harmless
+        allocator.release(heap);
+    }
+
+    @Test(groups = "unit")
+    public void should_detect_leaks_and_double_releases() {
+        LeakDetectingBufferAllocator allocator = new LeakDetectingBufferAllocator(new PooledBufferAllocator());
+
+        ByteBuffer buffer1 = allocator.allocate(10);
+        ByteBuffer buffer2 = allocator.allocate(10);
+        allocator.release(buffer1);
+        assertThat(allocator.getUnreleasedCount()).isEqualTo(1);
+        try {
+            allocator.checkNoLeaks();
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertThat(e.getCause().getMessage()).isEqualTo("Allocation of a 10 bytes buffer");
+        }
+
+        try {
+            allocator.release(buffer1);
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        allocator.release(buffer2);
+        allocator.checkNoLeaks();
+    }
+
+    @Test(groups = "unit")
+    public void should_release_request_buffers_when_write_completes() throws Exception {
+        LeakDetectingBufferAllocator allocator = new LeakDetectingBufferAllocator(new PooledBufferAllocator());
+        Message.ProtocolEncoder encoder = new Message.ProtocolEncoder(ProtocolVersion.V3, ProtocolOptions.DEFAULT_VALUE_COPY_THRESHOLD, allocator);
+        Channel channel = mock(Channel.class);
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        when(ctx.getChannel()).thenReturn(channel);
+        ChannelFuture future = Channels.future(channel);
+
+        Requests.Query query = new Requests.Query("SELECT * FROM foo", Requests.QueryProtocolOptions.DEFAULT);
+        encoder.handleDownstream(ctx, new DownstreamMessageEvent(channel, future, query, null));
+
+        ArgumentCaptor<ChannelEvent> written = ArgumentCaptor.forClass(ChannelEvent.class);
+        verify(ctx).sendDownstream(written.capture());
+        Frame frame = (Frame)((MessageEvent)written.getValue()).getMessage();
+        assertThat(frame.body.isDirect()).isTrue();
+        assertThat(allocator.getUnreleasedCount()).isEqualTo(1);
+
+        future.setSuccess();
+        allocator.checkNoLeaks();
+    }
+
+    @Test(groups = "unit")
+    public void should_release_request_buffers_when_encoding_fails() throws Exception {
+        LeakDetectingBufferAllocator allocator = new LeakDetectingBufferAllocator();
+        Message.Coder<Requests.Options> failingCoder = new Message.Coder<Requests.Options>() {
+            public void encode(Requests.Options request, ChannelBuffer dest, ProtocolVersion version) {
+                throw new IllegalStateException("test");
+            }
+
+            public int encodedSize(Requests.Options request, ProtocolVersion version) {
+                return 10;
+            }
+        };
+
+        try {
+            FrameBodyBuffer.encode(new Requests.Options(), failingCoder, ProtocolVersion.V3, ProtocolOptions.DEFAULT_VALUE_COPY_THRESHOLD,
+                                   allocator, Channels.future(mock(Channel.class)));
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage()).isEqualTo("test");
+        }
+        allocator.checkNoLeaks();
+    }
+}
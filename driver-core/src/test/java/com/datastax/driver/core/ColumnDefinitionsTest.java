@@ -16,6 +16,8 @@
 package com.datastax.driver.core;
 
 import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.testng.Assert.assertTrue;
 
 public class ColumnDefinitionsTest {
@@ -68,4 +70,49 @@ public class ColumnDefinitionsTest {
 
         assertTrue(defs.getType("column").equals(DataType.text()));
     }
+
+    @Test(groups = "unit")
+    public void should_find_all_columns_of_large_metadata() {
+        ColumnDefinitions.Definition[] columns = new ColumnDefinitions.Definition[200];
+        for (int i = 0; i < columns.length; i++)
+            columns[i] = new ColumnDefinitions.Definition("ks", "cf", "Column" + i, DataType.cint());
+        ColumnDefinitions defs = new ColumnDefinitions(columns);
+
+        for (int i = 0; i < columns.length; i++) {
+            assertThat(defs.getIndexOf("column" + i)).isEqualTo(i);
+            assertThat(defs.getIndexOf("COLUMN" + i)).isEqualTo(i);
+            assertThat(defs.getIndexOf("\"Column" + i + '"')).isEqualTo(i);
+            assertThat(defs.getIndexOf("\"column" + i + '"')).isEqualTo(-1);
+        }
+        assertThat(defs.getIndexOf("column200")).isEqualTo(-1);
+        assertThat(defs.getIndexOf("")).isEqualTo(-1);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_contain_quoted_name_that_only_matches_case_insensitively() {
+        ColumnDefinitions defs = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+            new ColumnDefinitions.Definition("ks", "cf", "foo", DataType.text())
+        });
+
+        assertThat(defs.contains("FOO")).isTrue();
+        assertThat(defs.contains("\"FOO\"")).isFalse();
+        assertThat(defs.getIndexOf("\"FOO\"")).isEqualTo(-1);
+    }
+
+    @Test(groups = "unit")
+    public void should_resolve_column_handle_against_each_metadata() {
+        ColumnDefinitions defs1 = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+            new ColumnDefinitions.Definition("ks", "cf", "a", DataType.text()),
+            new ColumnDefinitions.Definition("ks", "cf", "b", DataType.text())
+        });
+        ColumnDefinitions defs2 = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+            new ColumnDefinitions.Definition("ks", "cf", "b", DataType.text())
+        });
+        ColumnHandle b = ColumnHandle.of("B");
+
+        assertThat(defs1.getIndexOf(b)).isEqualTo(1);
+        assertThat(defs1.getIndexOf(b)).isEqualTo(1);
+        assertThat(defs2.getIndexOf(b)).isEqualTo(0);
+        assertThat(defs1.getIndexOf(ColumnHandle.of("c"))).isEqualTo(-1);
+    }
 }
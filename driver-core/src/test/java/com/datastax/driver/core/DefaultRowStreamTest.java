@@ -0,0 +1,132 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class DefaultRowStreamTest {
+
+    @Test(groups = "unit")
+    public void should_only_deliver_requested_rows() {
+        Row row1 = mock(Row.class), row2 = mock(Row.class), row3 = mock(Row.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.isFullyFetched()).thenReturn(true);
+        when(rs.getAvailableWithoutFetching()).thenReturn(3, 2, 1, 0);
+        when(rs.one()).thenReturn(row1, row2, row3);
+
+        RecordingListener listener = new RecordingListener();
+        DefaultRowStream stream = new DefaultRowStream(listener, MoreExecutors.sameThreadExecutor());
+        stream.start(Futures.immediateFuture(rs));
+        assertThat(listener.rows).isEmpty();
+
+        stream.request(2);
+        assertThat(listener.rows).containsExactly(row1, row2);
+        assertThat(listener.completed).isFalse();
+
+        stream.request(10);
+        assertThat(listener.rows).containsExactly(row1, row2, row3);
+        assertThat(listener.completed).isTrue();
+    }
+
+    @Test(groups = "unit")
+    public void should_fetch_next_page_only_when_there_is_demand() {
+        Row row1 = mock(Row.class), row2 = mock(Row.class);
+        ResultSet rs = mock(ResultSet.class);
+        SettableFuture<Void> nextPage = SettableFuture.create();
+        when(rs.isFullyFetched()).thenReturn(false, false, true);
+        when(rs.getAvailableWithoutFetching()).thenReturn(1, 0, 1, 0);
+        when(rs.one()).thenReturn(row1, row2);
+        when(rs.fetchMoreResults()).thenReturn(nextPage);
+
+        RecordingListener listener = new RecordingListener();
+        DefaultRowStream stream = new DefaultRowStream(listener, MoreExecutors.sameThreadExecutor());
+        stream.start(Futures.immediateFuture(rs));
+
+        stream.request(1);
+        assertThat(listener.rows).containsExactly(row1);
+        verify(rs, never()).fetchMoreResults();
+
+        stream.request(1);
+        verify(rs, times(1)).fetchMoreResults();
+        assertThat(listener.rows).containsExactly(row1);
+
+        nextPage.set(null);
+        assertThat(listener.rows).containsExactly(row1, row2);
+        assertThat(listener.completed).isFalse();
+    }
+
+    @Test(groups = "unit")
+    public void should_report_query_error() {
+        RecordingListener listener = new RecordingListener();
+        DefaultRowStream stream = new DefaultRowStream(listener, MoreExecutors.sameThreadExecutor());
+        RuntimeException error = new RuntimeException("mock error");
+        stream.start(Futures.<ResultSet>immediateFailedFuture(error));
+
+        assertThat(listener.error).isSameAs(error);
+    }
+
+    @Test(groups = "unit")
+    public void should_stop_delivering_rows_when_cancelled() {
+        Row row1 = mock(Row.class);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.isFullyFetched()).thenReturn(true);
+        when(rs.getAvailableWithoutFetching()).thenReturn(3);
+        when(rs.one()).thenReturn(row1);
+
+        RecordingListener listener = new RecordingListener();
+        DefaultRowStream stream = new DefaultRowStream(listener, MoreExecutors.sameThreadExecutor());
+        stream.start(Futures.immediateFuture(rs));
+        stream.cancel();
+        stream.request(1);
+
+        assertThat(listener.rows).isEmpty();
+        assertThat(listener.completed).isFalse();
+    }
+
+    static class RecordingListener implements RowStream.Listener {
+        final List<Row> rows = new ArrayList<Row>();
+        volatile boolean completed;
+        volatile Throwable error;
+
+        @Override
+        public void onSubscribe(RowStream stream) {
+        }
+
+        @Override
+        public void onRow(Row row) {
+            rows.add(row);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            error = t;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class EventDebouncerTest {
+
+    ScheduledExecutorService scheduler;
+    BlockingQueue<List<Integer>> deliveries;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        deliveries = new LinkedBlockingQueue<List<Integer>>();
+    }
+
+    @AfterMethod(groups = "unit")
+    public void teardown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test(groups = "unit")
+    public void should_deliver_right_away_if_delay_is_zero() {
+        EventDebouncer<Integer> debouncer = newDebouncer(0, 10);
+
+        debouncer.eventReceived(1);
+        debouncer.eventReceived(2);
+
+        assertThat(deliveries).containsExactly(Lists.newArrayList(1), Lists.newArrayList(2));
+    }
+
+    @Test(groups = "unit")
+    public void should_deliver_when_max_pending_events_is_reached() {
+        EventDebouncer<Integer> debouncer = newDebouncer(60000, 3);
+
+        debouncer.eventReceived(1);
+        debouncer.eventReceived(2);
+        assertThat(deliveries).isEmpty();
+
+        debouncer.eventReceived(3);
+        assertThat(deliveries).containsExactly(Lists.newArrayList(1, 2, 3));
+    }
+
+    @Test(groups = "unit")
+    public void should_deliver_after_delay() throws InterruptedException {
+        EventDebouncer<Integer> debouncer = newDebouncer(50, 100);
+
+        for (int i = 0; i < 5; i++)
+            debouncer.eventReceived(i);
+
+        assertThat(deliveries.poll(5, TimeUnit.SECONDS)).containsExactly(0, 1, 2, 3, 4);
+        assertThat(deliveries.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test(groups = "unit")
+    public void should_ignore_events_once_stopped() {
+        EventDebouncer<Integer> debouncer = newDebouncer(0, 10);
+
+        debouncer.stop();
+        debouncer.eventReceived(1);
+
+        assertThat(deliveries).isEmpty();
+    }
+
+    private EventDebouncer<Integer> newDebouncer(final long delayMillis, final int maxPendingEvents) {
+        return new EventDebouncer<Integer>("test", scheduler, MoreExecutors.sameThreadExecutor(),
+            new EventDebouncer.DelayProvider() {
+                @Override
+                public long delayMillis() {
+                    return delayMillis;
+                }
+
+                @Override
+                public int maxPendingEvents() {
+                    return maxPendingEvents;
+                }
+            },
+            new EventDebouncer.DeliveryCallback<Integer>() {
+                @Override
+                public void deliver(List<Integer> events) {
+                    deliveries.add(events);
+                }
+            });
+    }
+}
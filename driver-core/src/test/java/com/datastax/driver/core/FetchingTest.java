@@ -68,4 +68,44 @@ public class FetchingTest extends CCMBridge.PerClassSingleNodeCluster {
             throw e;
         }
     }
+
+    @Test(groups = "short")
+    public void should_prefetch_next_page_in_background() throws Throwable {
+
+        try {
+
+            String key = "prefetch_test";
+            for (int i = 0; i < 100; i++)
+                session.execute(String.format("INSERT INTO test (k, v) VALUES ('%s', %d)", key, i));
+
+            SimpleStatement st = new SimpleStatement(String.format("SELECT v FROM test WHERE k='%s'", key));
+            st.setFetchSize(10);
+            st.setPrefetchThreshold(5);
+            ResultSet rs = session.execute(st);
+
+            // Consume rows until we cross the threshold, which should trigger the fetch of the next page
+            for (int i = 0; i < 6; i++)
+                assertEquals(rs.one().getInt(0), i);
+
+            // Give the background fetch some time to complete
+            long deadline = System.currentTimeMillis() + 5000;
+            while (rs.getAvailableWithoutFetching() <= 4 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertEquals(rs.getAvailableWithoutFetching(), 14);
+
+            for (int i = 6; i < 100; i++)
+                assertEquals(rs.one().getInt(0), i);
+
+            assertTrue(rs.isExhausted());
+            assertTrue(rs.isFullyFetched());
+
+        } catch (UnsupportedFeatureException e) {
+            // This is expected when testing the protocol v1
+            if (cluster.getConfiguration().getProtocolOptions().getProtocolVersionEnum() != ProtocolVersion.V1)
+                throw e;
+        } catch (Throwable e) {
+            errorOut();
+            throw e;
+        }
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FrameBodyBufferTest {
+
+    private static final MD5Digest ID = MD5Digest.wrap(new byte[16]);
+
+    @Test(groups = "unit")
+    public void should_encode_execute_like_a_copying_encoder() {
+        Requests.Execute execute = new Requests.Execute(ID, options(Arrays.asList(
+            value(4), value(100), null, value(17), ByteBuffer.allocate(0), value(1000))));
+
+        ChannelBuffer copied = encode(execute, Requests.Execute.coder, Integer.MAX_VALUE);
+        ChannelBuffer referencing = encode(execute, Requests.Execute.coder, 16);
+
+        assertThat(copied.hasArray()).isTrue();
+        assertThat(referencing.hasArray()).isFalse();
+        assertThat(bytes(referencing)).isEqualTo(bytes(copied));
+    }
+
+    @Test(groups = "unit")
+    public void should_encode_batch_like_a_copying_encoder() {
+        List<Object> ids = new ArrayList<Object>();
+        List<List<ByteBuffer>> values = new ArrayList<List<ByteBuffer>>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(i % 2 == 0 ? ID : "INSERT INTO foo (k, v) VALUES (?, ?)");
+            values.add(Arrays.asList(value(4), value(i * 10)));
+        }
+        Requests.Batch batch = new Requests.Batch(BatchStatement.Type.UNLOGGED, ids, values,
+                                                  new Requests.BatchProtocolOptions(ConsistencyLevel.ONE, ConsistencyLevel.SERIAL, 42L));
+
+        assertThat(bytes(encode(batch, Requests.Batch.coder, 16)))
+            .isEqualTo(bytes(encode(batch, Requests.Batch.coder, Integer.MAX_VALUE)));
+    }
+
+    @Test(groups = "unit")
+    public void should_reference_big_values_instead_of_copying_them() {
+        ByteBuffer big = value(1000);
+        Requests.Execute execute = new Requests.Execute(ID, options(Arrays.asList(value(4), big)));
+
+        ChannelBuffer body = encode(execute, Requests.Execute.coder, 16);
+        int index = body.readableBytes() - 1000 - 4 - 8; // the value is followed by the page size and timestamp
+        big.put(0, (byte)-1);
+
+        assertThat(body.getByte(index)).isEqualTo((byte)-1);
+        // The value's own position is left untouched
+        assertThat(big.position()).isEqualTo(0);
+    }
+
+    private static <R extends Message.Request> ChannelBuffer encode(R request, Message.Coder<R> coder, int copyThreshold) {
+        return FrameBodyBuffer.encode(request, coder, ProtocolVersion.V3, copyThreshold, BufferAllocator.HEAP, null);
+    }
+
+    private static Requests.QueryProtocolOptions options(List<ByteBuffer> values) {
+        return new Requests.QueryProtocolOptions(ConsistencyLevel.ONE, values, true, 5000, null, ConsistencyLevel.SERIAL, 42L);
+    }
+
+    private static ByteBuffer value(int size) {
+        ByteBuffer value = ByteBuffer.allocate(size);
+        for (int i = 0; i < size; i++)
+            value.put(i, (byte)i);
+        return value;
+    }
+
+    private static byte[] bytes(ChannelBuffer buffer) {
+        byte[] bytes = new byte[buffer.readableBytes()];
+        buffer.getBytes(buffer.readerIndex(), bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.EnumSet;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.testng.SkipException;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FrameCompressorTest {
+
+    @DataProvider(name = "compressors")
+    public static Object[][] compressors() {
+        return new Object[][]{
+            { FrameCompressor.LZ4Compressor.instance },
+            { FrameCompressor.SnappyCompressor.instance }
+        };
+    }
+
+    @Test(groups = "unit", dataProvider = "compressors")
+    public void should_round_trip_heap_buffers(FrameCompressor compressor) throws Exception {
+        checkRoundTrip(compressor, ChannelBuffers.wrappedBuffer(body(10000)));
+    }
+
+    @Test(groups = "unit", dataProvider = "compressors")
+    public void should_round_trip_heap_buffers_with_offset(FrameCompressor compressor) throws Exception {
+        ChannelBuffer buffer = ChannelBuffers.wrappedBuffer(body(10100));
+        // A slice that does not start at the beginning of the backing array
+        checkRoundTrip(compressor, buffer.slice(50, 10000));
+    }
+
+    @Test(groups = "unit", dataProvider = "compressors")
+    public void should_round_trip_direct_buffers(FrameCompressor compressor) throws Exception {
+        ChannelBuffer buffer = ChannelBuffers.directBuffer(10000);
+        buffer.writeBytes(body(10000));
+        checkRoundTrip(compressor, buffer);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_compress_frames_under_threshold() throws Exception {
+        FrameCompressor compressor = FrameCompressor.LZ4Compressor.instance;
+        if (compressor == null)
+            throw new SkipException("LZ4 is not available");
+        Frame.Compressor handler = new Frame.Compressor(compressor, 256);
+
+        Frame small = frame(ChannelBuffers.wrappedBuffer(body(255)));
+        assertThat(handler.encode(null, null, small)).isSameAs(small);
+        assertThat(small.header.flags).doesNotContain(Frame.Header.Flag.COMPRESSED);
+
+        Frame big = frame(ChannelBuffers.wrappedBuffer(body(256)));
+        Frame compressed = (Frame)handler.encode(null, null, big);
+        assertThat(compressed.header.flags).contains(Frame.Header.Flag.COMPRESSED);
+    }
+
+    private static void checkRoundTrip(FrameCompressor compressor, ChannelBuffer body) throws Exception {
+        if (compressor == null)
+            throw new SkipException("Compression library is not available");
+
+        ChannelBuffer expected = body.duplicate();
+        Frame compressed = compressor.compress(frame(body));
+        assertThat(compressed.body.readableBytes()).isLessThan(expected.readableBytes());
+
+        Frame decompressed = compressor.decompress(compressed);
+        assertThat(ChannelBuffers.equals(decompressed.body, expected)).isTrue();
+    }
+
+    private static Frame frame(ChannelBuffer body) {
+        return Frame.create(ProtocolVersion.V3, Message.Request.Type.QUERY.opcode, 1, EnumSet.noneOf(Frame.Header.Flag.class), body);
+    }
+
+    // Compressible, but not trivially
+    private static byte[] body(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++)
+            bytes[i] = (byte)(i % 7 + i / 100);
+        return bytes;
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class IoThreadsTest {
+
+    @Test(groups = "unit")
+    public void should_start_and_stop_the_configured_number_of_io_threads() throws Exception {
+        int before = countThreads("Cassandra Java Driver I/O worker-");
+
+        // The cluster is never initialized, so this doesn't try to connect
+        Cluster cluster = Cluster.builder()
+                                 .addContactPoint("127.0.0.1")
+                                 .withSocketOptions(new SocketOptions().setIoThreads(3))
+                                 .build();
+        assertThat(countThreads("Cassandra Java Driver I/O worker-")).isEqualTo(before + 3);
+
+        cluster.close();
+        waitForThreads("Cassandra Java Driver I/O worker-", before);
+    }
+
+    @Test(groups = "unit")
+    public void should_share_io_threads_between_clusters() throws Exception {
+        int before = countThreads("Cassandra Java Driver I/O worker-");
+
+        NettyOptions nettyOptions = NettyOptions.shared(2);
+        assertThat(countThreads("Cassandra Java Driver I/O worker-")).isEqualTo(before + 2);
+
+        Cluster cluster1 = Cluster.builder().addContactPoint("127.0.0.1").withNettyOptions(nettyOptions).build();
+        Cluster cluster2 = Cluster.builder().addContactPoint("127.0.0.1").withNettyOptions(nettyOptions).build();
+        assertThat(countThreads("Cassandra Java Driver I/O worker-")).isEqualTo(before + 2);
+
+        // Closing the clusters leaves the shared threads running
+        cluster1.close();
+        cluster2.close();
+        Thread.sleep(100);
+        assertThat(countThreads("Cassandra Java Driver I/O worker-")).isEqualTo(before + 2);
+
+        nettyOptions.close();
+        waitForThreads("Cassandra Java Driver I/O worker-", before);
+    }
+
+    @Test(groups = "unit")
+    public void should_reject_invalid_number_of_io_threads() {
+        try {
+            new SocketOptions().setIoThreads(0);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            NettyOptions.shared(0);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    // The threads stop asynchronously once their executor is shut down
+    private static void waitForThreads(String namePrefix, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (countThreads(namePrefix) > expected && System.currentTimeMillis() < deadline)
+            Thread.sleep(10);
+        assertThat(countThreads(namePrefix)).isEqualTo(expected);
+    }
+
+    private static int countThreads(String namePrefix) {
+        int count = 0;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.isAlive() && thread.getName().startsWith(namePrefix))
+                count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyHistogramTest {
+
+    @Test(groups = "unit")
+    public void should_map_every_value_to_a_bucket_that_contains_it() {
+        for (long value = 0; value < 100000; value++) {
+            int index = LatencyHistogram.indexOf(value, LatencyHistogram.DEFAULT_PRECISION_BITS);
+            assertThat(LatencyHistogram.lowestValueAt(index, LatencyHistogram.DEFAULT_PRECISION_BITS)).isLessThanOrEqualTo(value);
+            assertThat(LatencyHistogram.highestValueAt(index, LatencyHistogram.DEFAULT_PRECISION_BITS)).isGreaterThanOrEqualTo(value);
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_compute_percentiles_within_precision() {
+        LatencyHistogram histogram = new LatencyHistogram(10000);
+        for (int i = 1; i <= 1000; i++)
+            histogram.record(i);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getTotalCount()).isEqualTo(1000);
+        assertThat(snapshot.getValueAtPercentile(50)).isBetween(500L, 505L);
+        assertThat(snapshot.getValueAtPercentile(99)).isBetween(990L, 1000L);
+        assertThat(snapshot.getMax()).isBetween(1000L, 1010L);
+    }
+
+    @Test(groups = "unit")
+    public void should_clamp_out_of_range_values() {
+        LatencyHistogram histogram = new LatencyHistogram(100);
+        histogram.record(-5);
+        histogram.record(5000);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertThat(snapshot.getTotalCount()).isEqualTo(2);
+        assertThat(snapshot.getValueAtPercentile(10)).isEqualTo(0);
+        assertThat(snapshot.getMax()).isEqualTo(100);
+    }
+
+    @Test(groups = "unit")
+    public void should_return_negative_value_when_empty() {
+        assertThat(new LatencyHistogram(100).snapshot().getValueAtPercentile(99)).isEqualTo(-1);
+    }
+}
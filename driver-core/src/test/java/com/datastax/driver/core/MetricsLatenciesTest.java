@@ -0,0 +1,163 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+import com.datastax.driver.core.Metrics.StatementKind;
+import com.datastax.driver.core.querybuilder.QueryBuilder;
+
+public class MetricsLatenciesTest {
+
+    private static final long INTERVAL_MILLIS = 1000;
+
+    private FakeTicker ticker;
+    private MetricRegistry registry;
+    private Metrics.Latencies latencies;
+    private Host host1, host2;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        ticker = new FakeTicker();
+        registry = new MetricRegistry();
+        latencies = new Metrics.Latencies(registry, INTERVAL_MILLIS, ticker);
+        host1 = host("127.0.0.1", "dc1");
+        host2 = host("127.0.0.2", "dc2");
+    }
+
+    @Test(groups = "unit")
+    public void should_report_latencies_of_previous_interval() {
+        for (int i = 1; i <= 100; i++)
+            latencies.record(host1, StatementKind.READ, TimeUnit.MILLISECONDS.toNanos(i));
+
+        // Nothing until the first interval has elapsed
+        assertThat(latencies.getLatencyAtPercentile(host1, 50.0)).isNegative();
+
+        ticker.advance(INTERVAL_MILLIS);
+        assertThat(latencies.getLatencyAtPercentile(host1, 50.0)).isEqualTo(50.0, offset(0.5));
+        assertThat(latencies.getLatencyAtPercentile(host1, 99.0)).isEqualTo(99.0, offset(1.0));
+        assertThat(latencies.getLatencyAtPercentile("dc1", 50.0)).isEqualTo(50.0, offset(0.5));
+        assertThat(latencies.getLatencyAtPercentile(StatementKind.READ, 50.0)).isEqualTo(50.0, offset(0.5));
+
+        assertThat(latencies.getLatencyAtPercentile(host2, 50.0)).isNegative();
+        assertThat(latencies.getLatencyAtPercentile("dc2", 50.0)).isNegative();
+        assertThat(latencies.getLatencyAtPercentile(StatementKind.WRITE, 50.0)).isNegative();
+    }
+
+    @Test(groups = "unit")
+    public void should_register_gauges_and_remove_them_with_host() {
+        latencies.record(host1, StatementKind.WRITE, TimeUnit.MILLISECONDS.toNanos(10));
+        ticker.advance(INTERVAL_MILLIS);
+
+        assertThat(registry.getGauges()).containsKeys(
+            "latencies.hosts.127.0.0.1.p99", "latencies.datacenters.dc1.p999", "latencies.statements.write.mean");
+        assertThat((Double)gauge("latencies.hosts.127.0.0.1.max").getValue()).isEqualTo(10.0, offset(0.1));
+        assertThat((Long)gauge("latencies.statements.write.count").getValue()).isEqualTo(1);
+
+        latencies.onRemove(host1);
+        assertThat(registry.getGauges()).doesNotContainKey("latencies.hosts.127.0.0.1.p99");
+        assertThat(registry.getGauges()).containsKey("latencies.datacenters.dc1.p99");
+
+        // Back again
+        latencies.record(host1, StatementKind.WRITE, TimeUnit.MILLISECONDS.toNanos(10));
+        assertThat(registry.getGauges()).containsKey("latencies.hosts.127.0.0.1.p99");
+    }
+
+    @Test(groups = "unit")
+    public void should_classify_statements() {
+        assertThat(StatementKind.of(new SimpleStatement("select * from foo"))).isEqualTo(StatementKind.READ);
+        assertThat(StatementKind.of(new SimpleStatement(" SELECT * from foo"))).isEqualTo(StatementKind.READ);
+        assertThat(StatementKind.of(new SimpleStatement("INSERT INTO foo (k) VALUES (1)"))).isEqualTo(StatementKind.WRITE);
+        assertThat(StatementKind.of(new SimpleStatement("BEGIN BATCH INSERT INTO foo (k) VALUES (1) APPLY BATCH"))).isEqualTo(StatementKind.BATCH);
+        assertThat(StatementKind.of(QueryBuilder.select().from("foo").where(QueryBuilder.eq("k", 1)))).isEqualTo(StatementKind.READ);
+        assertThat(StatementKind.of(QueryBuilder.insertInto("foo").value("k", 1))).isEqualTo(StatementKind.WRITE);
+        assertThat(StatementKind.of(new BatchStatement())).isEqualTo(StatementKind.BATCH);
+        assertThat(StatementKind.of(Statement.DEFAULT)).isNull();
+    }
+
+    @Test(groups = "unit")
+    public void should_classify_built_statements_without_generating_their_query_string() {
+        RegularStatement[] writes = {
+            QueryBuilder.insertInto("foo").value("k", 1),
+            QueryBuilder.update("foo"),
+            QueryBuilder.delete().from("foo"),
+            QueryBuilder.truncate("foo")
+        };
+        for (RegularStatement write : writes) {
+            RegularStatement statement = spy(write);
+            assertThat(StatementKind.of(statement)).isEqualTo(StatementKind.WRITE);
+            verify(statement, never()).getQueryString();
+        }
+
+        RegularStatement batch = spy(QueryBuilder.batch(QueryBuilder.insertInto("foo").value("k", 1)));
+        assertThat(StatementKind.of(batch)).isEqualTo(StatementKind.BATCH);
+        verify(batch, never()).getQueryString();
+
+        // Inner classes
+        assertThat(StatementKind.of(QueryBuilder.insertInto("foo").value("k", 1).using(QueryBuilder.ttl(1)))).isEqualTo(StatementKind.WRITE);
+        assertThat(StatementKind.of(QueryBuilder.update("foo").with(QueryBuilder.set("v", 1)).where(QueryBuilder.eq("k", 1)))).isEqualTo(StatementKind.WRITE);
+        assertThat(StatementKind.of(QueryBuilder.delete().from("foo").where(QueryBuilder.eq("k", 1)))).isEqualTo(StatementKind.WRITE);
+        assertThat(StatementKind.of(QueryBuilder.batch(QueryBuilder.insertInto("foo").value("k", 1)).using(QueryBuilder.timestamp(1)))).isEqualTo(StatementKind.BATCH);
+    }
+
+    @Test(groups = "unit")
+    public void should_skip_leading_whitespace_of_simple_statements() {
+        assertThat(StatementKind.of(new SimpleStatement("\n\t begin batch INSERT INTO foo (k) VALUES (1) APPLY BATCH"))).isEqualTo(StatementKind.BATCH);
+        assertThat(StatementKind.of(new SimpleStatement("   "))).isEqualTo(StatementKind.WRITE);
+        assertThat(StatementKind.of(new SimpleStatement(""))).isEqualTo(StatementKind.WRITE);
+    }
+
+    @Test(groups = "unit", expectedExceptions = IllegalArgumentException.class)
+    public void should_reject_invalid_percentile() {
+        latencies.getLatencyAtPercentile(host1, 0.0);
+    }
+
+    private Gauge<?> gauge(String name) {
+        return registry.getGauges().get(name);
+    }
+
+    private static Host host(String address, String datacenter) {
+        Host host = new Host(new InetSocketAddress(address, 9042), new ConvictionPolicy.Simple.Factory(), null);
+        host.setLocationInfo(datacenter, "rack1");
+        return host;
+    }
+
+    private static class FakeTicker extends Ticker {
+        private long nanos;
+
+        void advance(long millis) {
+            nanos += TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+    }
+}
@@ -23,4 +23,17 @@ class MockClocks {
             return fixedTime;
         }
     }
+
+    static class SettableTickingClock extends TickingClock {
+        volatile long micros;
+
+        SettableTickingClock(long micros) {
+            this.micros = micros;
+        }
+
+        @Override
+        long currentTimeMicros() {
+            return micros;
+        }
+    }
 }
@@ -0,0 +1,43 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PerHostPercentileTrackerTest {
+
+    @Test(groups = "unit")
+    public void should_forget_removed_hosts() throws Exception {
+        PerHostPercentileTracker tracker = PerHostPercentileTracker.builderWithHighestTrackableLatencyMillis(1000)
+                                                                   .withInterval(200, TimeUnit.MILLISECONDS)
+                                                                   .withMinRecordedValues(1)
+                                                                   .build();
+        Host host = new Host(new InetSocketAddress("127.0.0.1", 9042), new ConvictionPolicy.Simple.Factory(), null);
+
+        tracker.update(host, TimeUnit.MILLISECONDS.toNanos(10));
+        // Wait for the end of the first interval, but not of the second one (which would discard the data)
+        Thread.sleep(250);
+        assertThat(tracker.getLatencyAtPercentile(host, 99.0)).isEqualTo(10);
+
+        tracker.onRemove(host);
+        assertThat(tracker.getLatencyAtPercentile(host, 99.0)).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,86 @@
+package com.datastax.driver.core;
+
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.scassandra.Scassandra;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PreparedStatementCacheTest {
+
+    private Scassandra scassandra;
+    private Cluster cluster;
+
+    @BeforeClass(groups = "long")
+    public void startServer() {
+        scassandra = TestUtils.createScassandraServer();
+        scassandra.start();
+    }
+
+    @AfterClass(groups = "long")
+    public void stopServer() {
+        scassandra.stop();
+    }
+
+    @BeforeMethod(groups = "long")
+    public void createCluster() {
+        cluster = Cluster.builder().addContactPoint("127.0.0.1").withPort(scassandra.getBinaryPort())
+            .withPoolingOptions(new PoolingOptions().setHeartbeatIntervalSeconds(0))
+            .build();
+    }
+
+    @AfterMethod(groups = "long")
+    public void closeCluster() {
+        cluster.close();
+    }
+
+    @Test(groups = "long")
+    public void should_return_cached_statement_without_round_trip() throws Exception {
+        Session session = cluster.connect();
+        PreparedStatement first = session.prepare("SELECT * FROM foo");
+
+        ListenableFuture<PreparedStatement> second = session.prepareAsync("SELECT * FROM foo");
+        // An immediate future means that no request was sent
+        assertThat(second.isDone()).isTrue();
+        assertThat(second.get()).isSameAs(first);
+    }
+
+    @Test(groups = "long")
+    public void should_not_share_statements_across_keyspaces() throws Exception {
+        Session session = cluster.connect();
+        PreparedStatement first = session.prepare("SELECT * FROM foo");
+
+        session.execute("USE other_ks");
+        // Scassandra doesn't reply to USE with a SET_KEYSPACE result, so do what the driver does when it gets one
+        ((SessionManager)session).poolsState.setKeyspace("other_ks");
+        assertThat(session.getLoggedKeyspace()).isEqualTo("other_ks");
+        assertThat(cluster.manager.getPrepared("SELECT * FROM foo", "other_ks")).isNull();
+
+        assertThat(session.prepare("SELECT * FROM foo")).isNotNull();
+        // Scassandra returns the same id regardless of the keyspace, so we can't check that the instance differs,
+        // but the statement is now cached for the new keyspace too
+        assertThat(cluster.manager.getPrepared("SELECT * FROM foo", "other_ks")).isNotNull();
+        assertThat(cluster.manager.getPrepared("SELECT * FROM foo", null)).isSameAs(first);
+    }
+
+    @Test(groups = "long")
+    public void should_drop_statement_once_unreachable() throws Exception {
+        Session session = cluster.connect();
+        session.prepare("SELECT * FROM foo");
+        assertThat(cluster.manager.getPrepared("SELECT * FROM foo", null)).isNotNull();
+
+        // Nothing references the statement anymore, the weak value can be collected
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (cluster.manager.getPrepared("SELECT * FROM foo", null) != null && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(cluster.manager.getPrepared("SELECT * FROM foo", null)).isNull();
+    }
+}
@@ -0,0 +1,81 @@
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class ReplicaIndexTest {
+    Token.Factory factory = Token.M3PToken.FACTORY;
+
+    Host host1 = mock(Host.class);
+    Host host2 = mock(Host.class);
+    Host host3 = mock(Host.class);
+
+    Token token1 = factory.fromString("-6000000000000000000");
+    Token token2 = factory.fromString("0");
+    Token token3 = factory.fromString("6000000000000000000");
+    List<Token> ring = Lists.newArrayList(token1, token2, token3);
+
+    Map<String, Map<Token, Set<Host>>> tokenToHosts = ImmutableMap.<String, Map<Token, Set<Host>>>of(
+        "ks", ImmutableMap.<Token, Set<Host>>of(
+            token1, ImmutableSet.of(host1, host2),
+            token2, ImmutableSet.of(host2, host3),
+            token3, ImmutableSet.of(host3, host1)),
+        "MixedCase", ImmutableMap.<Token, Set<Host>>of(
+            token1, ImmutableSet.of(host1),
+            token2, ImmutableSet.of(host2),
+            token3, ImmutableSet.of(host3)));
+
+    @Test(groups = "unit")
+    public void should_hash_like_token_factory() {
+        for (int i = 0; i < 100; i++) {
+            ByteBuffer key = ByteBuffer.wrap(("key" + i).getBytes());
+            assertThat(Token.M3PToken.hashToLong(key)).isEqualTo(factory.hash(key).getValue());
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_find_replicas_of_closest_token() {
+        ReplicaIndex index = ReplicaIndex.build(factory, ring, tokenToHosts);
+
+        for (int i = 0; i < 100; i++) {
+            ByteBuffer key = ByteBuffer.wrap(("key" + i).getBytes());
+            long token = (Long)factory.hash(key).getValue();
+            Token expectedPrimary = token <= -6000000000000000000L ? token1
+                                    : token <= 0 ? token2
+                                    : token <= 6000000000000000000L ? token3
+                                    : token1; // wraps around
+            assertThat(index.getReplicas("ks", key)).isEqualTo(tokenToHosts.get("ks").get(expectedPrimary));
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_index_keyspaces_by_quoted_and_valid_unquoted_names() {
+        ReplicaIndex index = ReplicaIndex.build(factory, ring, tokenToHosts);
+        ByteBuffer key = ByteBuffer.wrap("key".getBytes());
+
+        assertThat(index.getReplicas("ks", key)).isNotNull();
+        assertThat(index.getReplicas("\"ks\"", key)).isNotNull();
+        assertThat(index.getReplicas("\"MixedCase\"", key)).isNotNull();
+        // Unquoted, this designates keyspace mixedcase: the caller must fall back to the regular path
+        assertThat(index.getReplicas("MixedCase", key)).isNull();
+        assertThat(index.getReplicas("unknown", key)).isNull();
+
+        index.removeKeyspace("ks");
+        assertThat(index.getReplicas("ks", key)).isNull();
+        assertThat(index.getReplicas("\"ks\"", key)).isNull();
+    }
+
+    @Test(groups = "unit")
+    public void should_not_build_index_for_other_partitioners() {
+        assertThat(ReplicaIndex.build(Token.RPToken.FACTORY, Collections.<Token>emptyList(), tokenToHosts)).isNull();
+        assertThat(ReplicaIndex.build(factory, Collections.<Token>emptyList(), tokenToHosts)).isNull();
+    }
+}
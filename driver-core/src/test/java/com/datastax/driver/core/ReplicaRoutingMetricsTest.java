@@ -0,0 +1,75 @@
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+
+import com.google.common.collect.ImmutableMap;
+import org.scassandra.Scassandra;
+import org.scassandra.http.client.PrimingRequest;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplicaRoutingMetricsTest {
+
+    private Scassandra scassandra;
+
+    @BeforeClass(groups = "long")
+    public void startServer() {
+        scassandra = TestUtils.createScassandraServer();
+        scassandra.start();
+        scassandra.primingClient().prime(
+            PrimingRequest.queryBuilder()
+                .withQuery("mock query")
+                .withRows(ImmutableMap.of("key", 1))
+                .build()
+        );
+    }
+
+    @AfterClass(groups = "long")
+    public void stopServer() {
+        scassandra.stop();
+    }
+
+    @Test(groups = "long")
+    public void should_not_register_replica_routing_metrics_by_default() {
+        Cluster cluster = newClusterBuilder().build();
+        try {
+            cluster.connect().execute("mock query");
+
+            Metrics metrics = cluster.getMetrics();
+            assertThat(metrics.getRegistry().getNames()).doesNotContain("replica-routing-ratio", "requests-routed-to-replica", "routable-requests");
+            assertThat(metrics.getReplicaRoutingRatio()).isNull();
+            assertThat(metrics.getRoutableRequests()).isNull();
+            assertThat(metrics.getRequestsRoutedToReplica()).isNull();
+        } finally {
+            cluster.close();
+        }
+    }
+
+    @Test(groups = "long")
+    public void should_only_count_requests_with_a_routing_key() {
+        Cluster cluster = newClusterBuilder().withReplicaRoutingMetrics().build();
+        try {
+            Session session = cluster.connect();
+            session.execute("mock query");
+            session.execute(new SimpleStatement("mock query").setKeyspace("ks").setRoutingKey(ByteBuffer.wrap(new byte[]{ 1 })));
+
+            Metrics metrics = cluster.getMetrics();
+            assertThat(metrics.getRegistry().getNames()).contains("replica-routing-ratio", "requests-routed-to-replica", "routable-requests");
+            assertThat(metrics.getRequestsTimer().getCount()).isEqualTo(2);
+            assertThat(metrics.getRoutableRequests().getCount()).isEqualTo(1);
+            // The server doesn't report any keyspace, so it is not a replica
+            assertThat(metrics.getRequestsRoutedToReplica().getCount()).isEqualTo(0);
+            assertThat(metrics.getReplicaRoutingRatio().getValue()).isEqualTo(0.0);
+        } finally {
+            cluster.close();
+        }
+    }
+
+    private Cluster.Builder newClusterBuilder() {
+        return Cluster.builder().addContactPoint("127.0.0.1").withPort(scassandra.getBinaryPort())
+            .withPoolingOptions(new PoolingOptions().setHeartbeatIntervalSeconds(0));
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.*;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.*;
+
+public class RepreparationTest {
+
+    private Connection connection;
+    private List<Connection.Future> sent;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() throws Exception {
+        connection = mock(Connection.class);
+        when(connection.maxAvailableStreams()).thenReturn(128);
+        sent = new ArrayList<Connection.Future>();
+        when(connection.write(any(Message.Request.class))).thenAnswer(new Answer<Connection.Future>() {
+            @Override
+            public Connection.Future answer(InvocationOnMock invocation) throws Throwable {
+                Connection.Future future = new Connection.Future((Message.Request)invocation.getArguments()[0]);
+                sent.add(future);
+                return future;
+            }
+        });
+    }
+
+    @Test(groups = "unit")
+    public void should_bound_requests_in_flight_and_complete_at_threshold() {
+        Map<String, Collection<String>> perKeyspace = new LinkedHashMap<String, Collection<String>>();
+        perKeyspace.put("", queries("q", 10));
+
+        ListenableFuture<Void> future = new Repreparation(connection, perKeyspace, 4, 6).start();
+        assertThat(sent).hasSize(4);
+
+        complete(0, 5);
+        assertThat(sent).hasSize(9);
+        assertThat(future.isDone()).isFalse();
+
+        complete(5, 6);
+        assertThat(future.isDone()).isTrue();
+        verify(connection, never()).closeAsync();
+
+        complete(6, 10);
+        assertThat(sent).hasSize(10);
+        verify(connection).closeAsync();
+    }
+
+    @Test(groups = "unit")
+    public void should_set_keyspace_before_preparing_its_queries() {
+        Map<String, Collection<String>> perKeyspace = new LinkedHashMap<String, Collection<String>>();
+        perKeyspace.put("ks1", queries("a", 2));
+        perKeyspace.put("ks2", queries("b", 2));
+
+        ListenableFuture<Void> future = new Repreparation(connection, perKeyspace, 10, 4).start();
+        assertThat(sent).hasSize(1);
+        assertThat(((Requests.Query)sent.get(0).request()).query).isEqualTo("USE \"ks1\"");
+
+        complete(0, 1);
+        assertThat(sent).hasSize(3);
+
+        // The next keyspace is only set once all queries of the previous one are prepared
+        complete(1, 2);
+        assertThat(sent).hasSize(3);
+        complete(2, 3);
+        assertThat(sent).hasSize(4);
+        assertThat(((Requests.Query)sent.get(3).request()).query).isEqualTo("USE \"ks2\"");
+
+        complete(3, 6);
+        assertThat(future.isDone()).isTrue();
+        verify(connection).closeAsync();
+    }
+
+    @Test(groups = "unit")
+    public void should_complete_right_away_with_zero_threshold() {
+        Map<String, Collection<String>> perKeyspace = new LinkedHashMap<String, Collection<String>>();
+        perKeyspace.put("", queries("q", 2));
+
+        assertThat(new Repreparation(connection, perKeyspace, 10, 0).start().isDone()).isTrue();
+    }
+
+    @Test(groups = "unit")
+    public void should_abort_on_connection_error() throws Exception {
+        when(connection.write(any(Message.Request.class))).thenThrow(new ConnectionException(null, "test"));
+        Map<String, Collection<String>> perKeyspace = new LinkedHashMap<String, Collection<String>>();
+        perKeyspace.put("", queries("q", 2));
+
+        assertThat(new Repreparation(connection, perKeyspace, 10, 2).start().isDone()).isTrue();
+        verify(connection).closeAsync();
+    }
+
+    private void complete(int from, int to) {
+        for (int i = from; i < to; i++)
+            sent.get(i).onSet(connection, new Responses.Result.Void(), 0, 0);
+    }
+
+    private static List<String> queries(String prefix, int count) {
+        List<String> queries = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++)
+            queries.add("SELECT * FROM " + prefix + i);
+        return queries;
+    }
+}
@@ -1,15 +1,25 @@
 package com.datastax.driver.core;
 
+import java.net.InetAddress;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Uninterruptibles;
 import org.scassandra.Scassandra;
+import org.scassandra.ScassandraFactory;
+import org.scassandra.http.client.ColumnTypes;
 import org.scassandra.http.client.PrimingRequest;
 import org.testng.annotations.Test;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.datastax.driver.core.policies.ConstantSpeculativeExecutionPolicy;
+import com.datastax.driver.core.policies.LoadBalancingPolicy;
+
 public class RequestHandlerTest {
 
     @Test(groups = "long")
@@ -66,11 +76,227 @@ public class RequestHandlerTest {
         }
     }
 
+    @Test(groups = "long")
+    public void should_complete_with_the_first_response_of_a_speculative_execution() throws Exception {
+        SlowAndFastHosts hosts = new SlowAndFastHosts(500);
+        Cluster cluster = null;
+        try {
+            hosts.start();
+            cluster = hosts.newCluster(100);
+            Session session = cluster.connect();
+
+            ResultSet rs = session.execute(new SimpleStatement("mock query").setIdempotent(true));
+
+            assertThat(rs.one().getString("host")).isEqualTo("fast");
+            assertThat(rs.getExecutionInfo().getQueriedHost().getAddress()).isEqualTo(hosts.fastAddress);
+            Metrics.Errors errors = cluster.getMetrics().getErrorMetrics();
+            assertThat(errors.getSpeculativeExecutions().getCount()).isEqualTo(1);
+            assertThat(errors.getSpeculativeExecutionsWon().getCount()).isEqualTo(1);
+
+            // The execution on the slow host was cancelled: its stream id is released when its response arrives
+            assertAllStreamsReleased(session, cluster.getMetadata().allHosts());
+        } finally {
+            if (cluster != null)
+                cluster.close();
+            hosts.stop();
+        }
+    }
+
+    @Test(groups = "long")
+    public void should_handle_race_between_cancellation_and_speculative_executions() throws Exception {
+        SlowAndFastHosts hosts = new SlowAndFastHosts(500);
+        Cluster cluster = null;
+        try {
+            hosts.start();
+            int delay = 100;
+            cluster = hosts.newCluster(delay);
+            Session session = cluster.connect();
+            Statement statement = new SimpleStatement("mock query").setIdempotent(true);
+
+            // Cancel queries before, while and after the speculative execution starts and gets its response
+            for (int i = 0; i < 200; i++) {
+                ResultSetFuture future = session.executeAsync(statement);
+                try {
+                    future.getUninterruptibly(i % (2 * delay), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                }
+            }
+
+            // Some queries were cancelled after their speculative execution started
+            assertThat(cluster.getMetrics().getErrorMetrics().getSpeculativeExecutions().getCount()).isGreaterThan(0);
+            assertAllStreamsReleased(session, cluster.getMetadata().allHosts());
+        } finally {
+            if (cluster != null)
+                cluster.close();
+            hosts.stop();
+        }
+    }
+
+    private void assertAllStreamsReleased(Session session, Collection<Host> hosts) {
+        assertThat(hosts).hasSize(2);
+        for (Host host : hosts) {
+            PooledConnection connection = getSingleConnection(session, host);
+            // Responses of the slow host may still be on their way
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((connection.inFlight.get() > 0 || connection.borrowedStreams() > 0) && System.currentTimeMillis() < deadline)
+                Uninterruptibles.sleepUninterruptibly(50, TimeUnit.MILLISECONDS);
+            assertThat(connection.inFlight.get()).as("in flight on " + host).isEqualTo(0);
+            assertThat(connection.borrowedStreams()).as("borrowed stream ids on " + host).isEqualTo(0);
+            assertThat(connection.isDefunct()).isFalse();
+        }
+    }
+
     private PooledConnection getSingleConnection(Session session) {
-        HostConnectionPool pool = ((SessionManager)session).pools.values().iterator().next();
+        return getSingleConnection(((SessionManager)session).pools.values().iterator().next());
+    }
+
+    private PooledConnection getSingleConnection(Session session, Host host) {
+        return getSingleConnection(((SessionManager)session).pools.get(host));
+    }
+
+    private PooledConnection getSingleConnection(HostConnectionPool pool) {
         if (pool instanceof DynamicConnectionPool)
             return ((DynamicConnectionPool)pool).connections.get(0);
         else
             return ((SingleConnectionPool)pool).connectionRef.get();
     }
+
+    /**
+     * Two Scassandra servers that know each other, on the same port: 127.0.0.1 replies "slow" to "mock query"
+     * after a delay, 127.0.0.2 replies "fast" right away.
+     */
+    static class SlowAndFastHosts {
+        final InetAddress slowAddress = address("127.0.0.1");
+        final InetAddress fastAddress = address("127.0.0.2");
+        final int port = TestUtils.findAvailablePort(8042);
+        final long slowDelay;
+        final Scassandra slow;
+        final Scassandra fast;
+
+        SlowAndFastHosts(long slowDelay) {
+            this.slowDelay = slowDelay;
+            // The priming client always connects to the admin port on localhost
+            int slowAdminPort = TestUtils.findAvailablePort(8052);
+            int fastAdminPort = TestUtils.findAvailablePort(slowAdminPort + 1);
+            this.slow = ScassandraFactory.createServer(slowAddress.getHostAddress(), port, "127.0.0.1", slowAdminPort);
+            this.fast = ScassandraFactory.createServer(fastAddress.getHostAddress(), port, "127.0.0.1", fastAdminPort);
+        }
+
+        void start() {
+            slow.start();
+            fast.start();
+            prime(slow, "slow", slowDelay, fastAddress);
+            prime(fast, "fast", 0, slowAddress);
+        }
+
+        void stop() {
+            slow.stop();
+            fast.stop();
+        }
+
+        Cluster newCluster(long speculativeDelay) {
+            return Cluster.builder()
+                .addContactPoints(slowAddress, fastAddress)
+                .withPort(port)
+                .withLoadBalancingPolicy(new SortingPolicy())
+                .withSpeculativeExecutionPolicy(new ConstantSpeculativeExecutionPolicy(speculativeDelay, 1))
+                .withPoolingOptions(new PoolingOptions()
+                    .setCoreConnectionsPerHost(HostDistance.LOCAL, 1)
+                    .setMaxConnectionsPerHost(HostDistance.LOCAL, 1)
+                    .setHeartbeatIntervalSeconds(0))
+                .build();
+        }
+
+        private static void prime(Scassandra server, String name, long delay, InetAddress peer) {
+            Map<String, ColumnTypes> peerColumns = new HashMap<String, ColumnTypes>();
+            peerColumns.put("peer", ColumnTypes.Inet);
+            peerColumns.put("rpc_address", ColumnTypes.Inet);
+            peerColumns.put("data_center", ColumnTypes.Varchar);
+            peerColumns.put("rack", ColumnTypes.Varchar);
+            peerColumns.put("release_version", ColumnTypes.Varchar);
+            peerColumns.put("tokens", ColumnTypes.VarcharSet);
+            Map<String, Object> peerRow = new HashMap<String, Object>();
+            peerRow.put("peer", peer.getHostAddress());
+            peerRow.put("rpc_address", peer.getHostAddress());
+            peerRow.put("data_center", "dc1");
+            peerRow.put("rack", "rc1");
+            peerRow.put("release_version", "2.0.1");
+            peerRow.put("tokens", Collections.emptyList());
+            server.primingClient().prime(
+                PrimingRequest.queryBuilder()
+                    .withQuery("SELECT * FROM system.peers")
+                    .withColumnTypes(peerColumns)
+                    .withRows(peerRow)
+                    .build()
+            );
+
+            server.primingClient().prime(
+                PrimingRequest.queryBuilder()
+                    .withQuery("mock query")
+                    .withRows(ImmutableMap.of("host", name))
+                    .withFixedDelay(delay)
+                    .build()
+            );
+        }
+
+        private static InetAddress address(String name) {
+            try {
+                return InetAddress.getByName(name);
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /**
+     * Always queries the hosts in the order of their addresses.
+     */
+    static class SortingPolicy implements LoadBalancingPolicy {
+        private final Set<Host> hosts = new ConcurrentSkipListSet<Host>(new Comparator<Host>() {
+            @Override
+            public int compare(Host host1, Host host2) {
+                return host1.getAddress().getHostAddress().compareTo(host2.getAddress().getHostAddress());
+            }
+        });
+
+        @Override
+        public void init(Cluster cluster, Collection<Host> hosts) {
+            this.hosts.addAll(hosts);
+        }
+
+        @Override
+        public HostDistance distance(Host host) {
+            return HostDistance.LOCAL;
+        }
+
+        @Override
+        public Iterator<Host> newQueryPlan(String loggedKeyspace, Statement statement) {
+            return Lists.newArrayList(hosts).iterator();
+        }
+
+        @Override
+        public void onAdd(Host host) {
+            hosts.add(host);
+        }
+
+        @Override
+        public void onUp(Host host) {
+            hosts.add(host);
+        }
+
+        @Override
+        public void onSuspected(Host host) {
+        }
+
+        @Override
+        public void onDown(Host host) {
+            hosts.remove(host);
+        }
+
+        @Override
+        public void onRemove(Host host) {
+            hosts.remove(host);
+        }
+    }
 }
@@ -0,0 +1,123 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.nio.ByteBuffer;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.testng.annotations.Test;
+
+import com.datastax.driver.core.exceptions.DriverInternalError;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class RowPageTest {
+
+    @Test(groups = "unit")
+    public void should_decode_cells_lazily() {
+        ChannelBuffer body = ChannelBuffers.dynamicBuffer();
+        // Some bytes before the rows, that should be ignored
+        body.writeInt(42);
+        body.skipBytes(4);
+        // 2 rows of (int, nullable blob)
+        body.writeInt(4);
+        body.writeInt(1);
+        body.writeInt(-1);
+        body.writeInt(4);
+        body.writeInt(2);
+        body.writeInt(3);
+        body.writeBytes(new byte[]{ 7, 8, 9 });
+        // Trailing bytes that don't belong to the page
+        body.writeByte(99);
+
+        RowPage page = RowPage.decode(body, 2, 2);
+
+        assertThat(page.rowCount()).isEqualTo(2);
+        assertThat(body.readableBytes()).isEqualTo(1);
+
+        assertThat(page.isNull(0, 1)).isTrue();
+        assertThat(page.value(0, 1)).isNull();
+        assertThat(page.length(0, 1)).isEqualTo(-1);
+        assertThat(page.data().getInt(page.offset(0, 0))).isEqualTo(1);
+        assertThat(page.data().getInt(page.offset(1, 0))).isEqualTo(2);
+
+        ByteBuffer blob = page.value(1, 1);
+        assertThat(blob.remaining()).isEqualTo(3);
+        assertThat(blob.get(blob.position())).isEqualTo((byte)7);
+        assertThat(blob.get(blob.limit() - 1)).isEqualTo((byte)9);
+    }
+
+    @Test(groups = "unit")
+    public void should_create_rows_reading_from_page() {
+        ChannelBuffer body = ChannelBuffers.dynamicBuffer();
+        body.writeInt(4);
+        body.writeInt(12);
+        body.writeInt(-1);
+        RowPage page = RowPage.decode(body, 1, 2);
+        ColumnDefinitions metadata = new ColumnDefinitions(new ColumnDefinitions.Definition[]{
+            new ColumnDefinitions.Definition("ks", "t", "i", DataType.cint()),
+            new ColumnDefinitions.Definition("ks", "t", "b", DataType.bigint())
+        });
+
+        Row row = ArrayBackedRow.fromData(metadata, null, ProtocolVersion.V3, page, 0);
+        assertThat(row.getInt("i")).isEqualTo(12);
+        assertThat(row.isNull("b")).isTrue();
+        assertThat(row.getLong("b")).isEqualTo(0L);
+
+        assertThat(ArrayBackedRow.fromData(metadata, null, ProtocolVersion.V3, page, 1)).isNull();
+    }
+
+    @Test(groups = "unit")
+    public void should_reject_truncated_or_corrupt_bodies() {
+        // Truncated in the middle of a length
+        ChannelBuffer body = ChannelBuffers.dynamicBuffer();
+        body.writeInt(4);
+        body.writeInt(12);
+        body.writeShort(0);
+        assertInvalid(body, 1, 2);
+
+        // A length that goes past the end of the body, and one that would overflow the position
+        for (int length : new int[]{ 5, Integer.MAX_VALUE }) {
+            body = ChannelBuffers.dynamicBuffer();
+            body.writeInt(length);
+            body.writeInt(12);
+            assertInvalid(body, 1, 1);
+        }
+
+        // More cells than the body could possibly hold, or negative counts
+        body = ChannelBuffers.dynamicBuffer();
+        body.writeInt(-1);
+        assertInvalid(body, Integer.MAX_VALUE, Integer.MAX_VALUE);
+        assertInvalid(body, 2, 1);
+        assertInvalid(body, -1, 1);
+    }
+
+    private static void assertInvalid(ChannelBuffer body, int rowCount, int columnCount) {
+        try {
+            RowPage.decode(body, rowCount, columnCount);
+            fail("Expected a DriverInternalError");
+        } catch (DriverInternalError e) {
+            // expected
+        }
+    }
+
+    @Test(groups = "unit", expectedExceptions = IndexOutOfBoundsException.class)
+    public void should_reject_invalid_cell() {
+        RowPage.EMPTY.value(0, 0);
+    }
+}
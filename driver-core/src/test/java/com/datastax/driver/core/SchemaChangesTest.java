@@ -30,7 +30,10 @@ public class SchemaChangesTest {
         ccm = CCMBridge.create("schemaChangesTest", 1);
 
         cluster = Cluster.builder().addContactPoint(CCMBridge.ipOfNode(1)).build();
-        cluster2 = Cluster.builder().addContactPoint(CCMBridge.ipOfNode(1)).build();
+        // cluster2 only learns about changes through events: don't debounce them, so that assertions see them right away
+        cluster2 = Cluster.builder().addContactPoint(CCMBridge.ipOfNode(1))
+                          .withQueryOptions(new QueryOptions().setRefreshSchemaIntervalMillis(0))
+                          .build();
 
         metadatas = Lists.newArrayList(cluster.getMetadata(), cluster2.getMetadata());
 
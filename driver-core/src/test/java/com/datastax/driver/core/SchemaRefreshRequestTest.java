@@ -0,0 +1,70 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.Arrays;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SchemaRefreshRequestTest {
+
+    @Test(groups = "unit")
+    public void should_coalesce_into_full_refresh_if_any_request_is_full() {
+        assertThat(SchemaRefreshRequest.coalesce(Arrays.asList(
+            table("ks1", "t1"),
+            SchemaRefreshRequest.EVERYTHING,
+            keyspace("ks2")
+        ))).containsExactly(SchemaRefreshRequest.EVERYTHING);
+    }
+
+    @Test(groups = "unit")
+    public void should_keep_single_element_refreshes() {
+        assertThat(SchemaRefreshRequest.coalesce(Arrays.asList(
+            table("ks1", "t1"),
+            udt("ks2", "type1"),
+            table("ks1", "t1") // duplicate
+        ))).containsExactly(table("ks1", "t1"), udt("ks2", "type1"));
+    }
+
+    @Test(groups = "unit")
+    public void should_coalesce_into_keyspace_refresh_if_several_elements_of_keyspace() {
+        assertThat(SchemaRefreshRequest.coalesce(Arrays.asList(
+            table("ks1", "t1"),
+            table("ks1", "t2"),
+            udt("ks1", "type1"),
+            table("ks2", "t1")
+        ))).containsExactly(keyspace("ks1"), table("ks2", "t1"));
+
+        assertThat(SchemaRefreshRequest.coalesce(Arrays.asList(
+            table("ks1", "t1"),
+            keyspace("ks1")
+        ))).containsExactly(keyspace("ks1"));
+    }
+
+    private static SchemaRefreshRequest keyspace(String keyspace) {
+        return new SchemaRefreshRequest(keyspace, null, null);
+    }
+
+    private static SchemaRefreshRequest table(String keyspace, String table) {
+        return new SchemaRefreshRequest(keyspace, table, null);
+    }
+
+    private static SchemaRefreshRequest udt(String keyspace, String udt) {
+        return new SchemaRefreshRequest(keyspace, null, udt);
+    }
+}
@@ -1,14 +1,75 @@
 package com.datastax.driver.core;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import org.testng.annotations.Test;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
 public class SimpleStatementTest {
     @Test(groups = "unit", expectedExceptions = { IllegalArgumentException.class })
     public void should_fail_if_too_many_variables() {
         List<Object> args = Collections.nCopies(1 << 16, (Object)1);
         new SimpleStatement("mock query", args.toArray());
     }
-}
\ No newline at end of file
+
+    @Test(groups = "unit")
+    public void should_compute_routing_key_from_hint() {
+        TableMetadata table = mockTable("ks", DataType.cint());
+
+        SimpleStatement statement = new SimpleStatement("UPDATE ks.foo SET v = ? WHERE k = ?", "bar", 42)
+            .setRoutingHint(table, 1);
+
+        assertThat(statement.getRoutingKey()).isEqualTo(DataType.cint().serialize(42, ProtocolVersion.NEWEST_SUPPORTED));
+        assertThat(statement.getKeyspace()).isEqualTo("ks");
+    }
+
+    @Test(groups = "unit")
+    public void should_compose_routing_key_from_hint_when_partition_key_is_composite() {
+        TableMetadata table = mockTable("ks", DataType.cint(), DataType.text());
+
+        SimpleStatement statement = new SimpleStatement("SELECT * FROM ks.foo WHERE k1 = ? AND k2 = ?", 42, "bar")
+            .setKeyspace("other")
+            .setRoutingHint(table, 0, 1);
+
+        ByteBuffer expected = SimpleStatement.compose(DataType.cint().serialize(42, ProtocolVersion.NEWEST_SUPPORTED),
+                                                      DataType.text().serialize("bar", ProtocolVersion.NEWEST_SUPPORTED));
+        assertThat(statement.getRoutingKey()).isEqualTo(expected);
+        // an explicit keyspace is not overridden
+        assertThat(statement.getKeyspace()).isEqualTo("other");
+    }
+
+    @Test(groups = "unit", expectedExceptions = { IllegalArgumentException.class })
+    public void should_fail_if_routing_hint_does_not_match_partition_key() {
+        TableMetadata table = mockTable("ks", DataType.cint(), DataType.text());
+        new SimpleStatement("SELECT * FROM ks.foo WHERE k1 = ?", 42).setRoutingHint(table, 0);
+    }
+
+    @Test(groups = "unit", expectedExceptions = { IllegalArgumentException.class })
+    public void should_fail_if_routing_hint_index_is_out_of_bounds() {
+        TableMetadata table = mockTable("ks", DataType.cint());
+        new SimpleStatement("SELECT * FROM ks.foo WHERE k = ?", 42).setRoutingHint(table, 1);
+    }
+
+    private static TableMetadata mockTable(String keyspace, DataType... partitionKeyTypes) {
+        KeyspaceMetadata keyspaceMetadata = mock(KeyspaceMetadata.class);
+        when(keyspaceMetadata.getName()).thenReturn(keyspace);
+
+        ColumnMetadata[] partitionKey = new ColumnMetadata[partitionKeyTypes.length];
+        for (int i = 0; i < partitionKeyTypes.length; i++) {
+            partitionKey[i] = mock(ColumnMetadata.class);
+            when(partitionKey[i].getType()).thenReturn(partitionKeyTypes[i]);
+        }
+
+        TableMetadata table = mock(TableMetadata.class);
+        when(table.getName()).thenReturn("foo");
+        when(table.getKeyspace()).thenReturn(keyspaceMetadata);
+        when(table.getPartitionKey()).thenReturn(Arrays.asList(partitionKey));
+        return table;
+    }
+}
@@ -2,14 +2,20 @@ package com.datastax.driver.core;
 
 import java.net.InetSocketAddress;
 import java.util.Collection;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
+import com.google.common.util.concurrent.ListenableFuture;
 import org.testng.annotations.Test;
 import org.testng.collections.Lists;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
 import static org.testng.Assert.fail;
 
 import com.datastax.driver.core.utils.CassandraVersion;
@@ -51,4 +57,60 @@ public class SingleConnectionPoolTest extends CCMBridge.PerClassSingleNodeCluste
             fail("Inflight queries exceeded the limit");
         }
     }
+
+    @Test(groups = "short")
+    public void should_serve_pending_borrow_when_connection_is_returned() throws Exception {
+        PoolingOptions poolingOptions = cluster.getConfiguration().getPoolingOptions();
+        int previousMaxRequests = poolingOptions.getMaxSimultaneousRequestsPerHostThreshold(HostDistance.LOCAL);
+        poolingOptions.setMaxSimultaneousRequestsPerHostThreshold(HostDistance.LOCAL, 1);
+        try {
+            Host host = cluster.getMetadata().getHost(new InetSocketAddress(CCMBridge.IP_PREFIX + "1", 9042));
+            HostConnectionPool pool = ((SessionManager)session).pools.get(host);
+
+            PooledConnection connection = pool.borrowConnection(5, TimeUnit.SECONDS);
+            ListenableFuture<PooledConnection> pending = pool.borrowConnectionAsync(5, TimeUnit.SECONDS);
+            assertFalse(pending.isDone());
+
+            connection.release();
+            PooledConnection next = pending.get(1, TimeUnit.SECONDS);
+            assertSame(next, connection);
+            next.release();
+        } finally {
+            poolingOptions.setMaxSimultaneousRequestsPerHostThreshold(HostDistance.LOCAL, previousMaxRequests);
+        }
+    }
+
+    @Test(groups = "short")
+    public void should_reject_borrow_when_queue_is_full() throws Exception {
+        PoolingOptions poolingOptions = cluster.getConfiguration().getPoolingOptions();
+        int previousMaxRequests = poolingOptions.getMaxSimultaneousRequestsPerHostThreshold(HostDistance.LOCAL);
+        int previousMaxQueueSize = poolingOptions.getMaxQueueSize();
+        poolingOptions.setMaxSimultaneousRequestsPerHostThreshold(HostDistance.LOCAL, 1);
+        poolingOptions.setMaxQueueSize(1);
+        try {
+            Host host = cluster.getMetadata().getHost(new InetSocketAddress(CCMBridge.IP_PREFIX + "1", 9042));
+            HostConnectionPool pool = ((SessionManager)session).pools.get(host);
+
+            PooledConnection connection = pool.borrowConnection(5, TimeUnit.SECONDS);
+            ListenableFuture<PooledConnection> queued = pool.borrowConnectionAsync(5, TimeUnit.SECONDS);
+            ListenableFuture<PooledConnection> rejected = pool.borrowConnectionAsync(5, TimeUnit.SECONDS);
+
+            assertFalse(queued.isDone());
+            assertEquals((int)cluster.getMetrics().getRequestQueueDepth().getValue(), 1);
+            assertTrue(rejected.isDone());
+            try {
+                rejected.get();
+                fail("Expected the borrow to be rejected");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof BusyPoolException);
+            }
+
+            connection.release();
+            queued.get(1, TimeUnit.SECONDS).release();
+            assertEquals((int)cluster.getMetrics().getRequestQueueDepth().getValue(), 0);
+        } finally {
+            poolingOptions.setMaxSimultaneousRequestsPerHostThreshold(HostDistance.LOCAL, previousMaxRequests);
+            poolingOptions.setMaxQueueSize(previousMaxQueueSize);
+        }
+    }
 }
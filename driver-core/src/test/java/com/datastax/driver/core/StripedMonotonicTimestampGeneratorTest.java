@@ -0,0 +1,227 @@
+package com.datastax.driver.core;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.testng.Assert.fail;
+
+public class StripedMonotonicTimestampGeneratorTest {
+
+    @Test(groups = "unit")
+    public void should_generate_incrementing_timestamps_for_each_thread() throws InterruptedException {
+        // With 2 stripes, some threads share a stripe and others don't
+        final StripedMonotonicTimestampGenerator generator = new StripedMonotonicTimestampGenerator(2);
+        generator.clock = new MockClocks.SettableTickingClock(1000);
+
+        int testThreadsCount = 4;
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(testThreadsCount));
+        List<ListenableFuture<?>> futures = Lists.newArrayListWithExpectedSize(testThreadsCount);
+        for (int i = 0; i < testThreadsCount; i++) {
+            futures.add(executor.submit(
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        long last = 0;
+                        for (int i = 0; i < 1000; i++) {
+                            long timestamp = generator.next();
+                            assertThat(timestamp).isGreaterThan(last);
+                            last = timestamp;
+                        }
+                    }
+                }));
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.SECONDS);
+
+        try {
+            Futures.allAsList(futures).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AssertionError)
+                throw (AssertionError)cause;
+            else
+                fail("Error in a test thread", cause);
+        } finally {
+            generator.close();
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_generate_distinct_timestamps_for_threads_on_the_same_stripe() throws Exception {
+        final StripedMonotonicTimestampGenerator generator = new StripedMonotonicTimestampGenerator(1);
+        generator.clock = new MockClocks.SettableTickingClock(1000);
+        final Set<Long> allTimestamps = new ConcurrentSkipListSet<Long>();
+
+        int testThreadsCount = 4;
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(testThreadsCount));
+        List<ListenableFuture<?>> futures = Lists.newArrayListWithExpectedSize(testThreadsCount);
+        for (int i = 0; i < testThreadsCount; i++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++)
+                        allTimestamps.add(generator.next());
+                }
+            }));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            Futures.allAsList(futures).get();
+        } catch (ExecutionException e) {
+            fail("Error in a test thread", e.getCause());
+        } finally {
+            generator.close();
+        }
+
+        assertThat(allTimestamps).hasSize(4000);
+        assertThat(allTimestamps).contains(1000L, 4999L);
+    }
+
+    @Test(groups = "unit")
+    public void should_generate_distinct_timestamps_for_threads_on_different_stripes() throws Exception {
+        final StripedMonotonicTimestampGenerator generator = new StripedMonotonicTimestampGenerator(4);
+        generator.clock = new MockClocks.SettableTickingClock(1000);
+        final Set<Long> allTimestamps = new ConcurrentSkipListSet<Long>();
+
+        // More threads than stripes, so that they are on all the stripes whatever their ids
+        int testThreadsCount = 8;
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(testThreadsCount));
+        List<ListenableFuture<?>> futures = Lists.newArrayListWithExpectedSize(testThreadsCount);
+        for (int i = 0; i < testThreadsCount; i++) {
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 1000; i++)
+                        allTimestamps.add(generator.next());
+                }
+            }));
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(1, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            Futures.allAsList(futures).get();
+        } catch (ExecutionException e) {
+            fail("Error in a test thread", e.getCause());
+        } finally {
+            generator.close();
+        }
+
+        assertThat(allTimestamps).hasSize(8000);
+    }
+
+    @Test(groups = "unit")
+    public void should_follow_the_clock_and_not_go_backwards() {
+        StripedMonotonicTimestampGenerator generator = new StripedMonotonicTimestampGenerator(1);
+        MockClocks.SettableTickingClock clock = new MockClocks.SettableTickingClock(5000);
+        generator.clock = clock;
+
+        assertThat(generator.next()).isEqualTo(5000);
+        assertThat(generator.next()).isEqualTo(5001);
+
+        clock.micros = 10000;
+        assertThat(generator.next()).isEqualTo(10000);
+
+        clock.micros = 2000;
+        assertThat(generator.next()).isEqualTo(10001);
+
+        generator.close();
+    }
+
+    @Test(groups = "unit")
+    public void should_only_return_the_timestamps_of_the_current_stripe() {
+        StripedMonotonicTimestampGenerator generator = new StripedMonotonicTimestampGenerator(4);
+        MockClocks.SettableTickingClock clock = new MockClocks.SettableTickingClock(5000);
+        generator.clock = clock;
+        long stripe = Thread.currentThread().getId() & 3;
+
+        // The first timestamp of the stripe from the clock, then steps of the stripe count
+        assertThat(generator.next()).isEqualTo(5000 + stripe);
+        assertThat(generator.next()).isEqualTo(5004 + stripe);
+
+        clock.micros = 10001;
+        assertThat(generator.next()).isEqualTo(stripe == 0 ? 10004 : 10000 + stripe);
+
+        clock.micros = 2000;
+        long last = generator.next();
+        assertThat(last).isGreaterThan(10000);
+        assertThat(last % 4).isEqualTo(stripe);
+
+        generator.close();
+    }
+
+    @Test(groups = "unit")
+    public void should_sample_the_system_clock() throws Exception {
+        TickingClock clock = TickingClock.acquireShared();
+        try {
+            long before = clock.currentTimeMicros();
+            assertThat(before).isGreaterThan(System.currentTimeMillis() * 1000 - 1000000);
+            Thread.sleep(20);
+            assertThat(clock.currentTimeMicros()).isGreaterThan(before);
+        } finally {
+            TickingClock.releaseShared();
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_stop_the_clock_when_all_generators_are_closed() throws Exception {
+        // The ticker of a previous test might still be stopping
+        Thread previous = findTicker();
+        if (previous != null)
+            previous.join(1000);
+
+        StripedMonotonicTimestampGenerator generator1 = new StripedMonotonicTimestampGenerator(1);
+        StripedMonotonicTimestampGenerator generator2 = new StripedMonotonicTimestampGenerator(1);
+        Thread ticker = findTicker();
+        assertThat(ticker).isNotNull();
+
+        generator1.close();
+        // Closing twice must not release the clock of the other generator
+        generator1.close();
+        assertThat(ticker.isAlive()).isTrue();
+
+        generator2.close();
+        ticker.join(1000);
+        assertThat(ticker.isAlive()).isFalse();
+    }
+
+    @Test(groups = "unit")
+    public void should_keep_following_the_time_when_shared_by_a_closed_cluster() throws Exception {
+        StripedMonotonicTimestampGenerator generator = new StripedMonotonicTimestampGenerator(1);
+        Cluster cluster1 = Cluster.builder().addContactPoint("127.0.0.1").withTimestampGenerator(generator).build();
+        Cluster cluster2 = Cluster.builder().addContactPoint("127.0.0.1").withTimestampGenerator(generator).build();
+        try {
+            cluster1.close();
+
+            // cluster2 still uses the generator, its timestamps must not freeze at the time of the close
+            long before = generator.next();
+            Thread.sleep(20);
+            long after = generator.next();
+            assertThat(after).isGreaterThanOrEqualTo(before + 10000);
+            assertThat(after).isGreaterThan(System.currentTimeMillis() * 1000 - 1000000);
+        } finally {
+            cluster2.close();
+        }
+    }
+
+    private static Thread findTicker() {
+        for (Thread thread : Thread.getAllStackTraces().keySet())
+            if (thread.getName().equals("Cassandra Java Driver clock ticker"))
+                return thread;
+        return null;
+    }
+}
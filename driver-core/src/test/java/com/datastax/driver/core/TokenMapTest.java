@@ -0,0 +1,165 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import com.google.common.collect.ImmutableMap;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class TokenMapTest {
+
+    private static final Token.Factory factory = Token.M3PToken.FACTORY;
+    private static final int VNODES = 16;
+
+    private final Random random = new Random(0);
+    private Map<Host, Collection<String>> allTokens;
+    private List<KeyspaceMetadata> keyspaces;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        allTokens = new HashMap<Host, Collection<String>>();
+        for (int i = 1; i <= 8; i++)
+            allTokens.put(host(i, i % 2 == 0 ? "dc1" : "dc2", i % 4 < 2 ? "rack1" : "rack2"), tokens(VNODES));
+
+        keyspaces = Arrays.asList(
+            keyspace("simple", ImmutableMap.of("class", "SimpleStrategy", "replication_factor", "3")),
+            keyspace("nts1", ImmutableMap.of("class", "NetworkTopologyStrategy", "dc1", "3", "dc2", "2")),
+            keyspace("nts2", ImmutableMap.of("class", "NetworkTopologyStrategy", "dc1", "3", "dc2", "2")),
+            keyspace("local", ImmutableMap.of("class", "LocalStrategy")));
+    }
+
+    @Test(groups = "unit")
+    public void should_share_replicas_between_keyspaces_with_same_replication() {
+        Metadata metadata = metadata(null);
+
+        for (TokenRange range : metadata.getTokenRanges())
+            assertThat(metadata.getReplicas("nts2", range)).isSameAs(metadata.getReplicas("nts1", range));
+    }
+
+    @Test(groups = "unit")
+    public void should_reuse_replicas_if_ring_did_not_change() {
+        Metadata previous = metadata(null);
+        Metadata updated = metadata(previous.tokenMap);
+
+        assertThat(updated.getTokenRanges()).isSameAs(previous.getTokenRanges());
+        for (KeyspaceMetadata keyspace : keyspaces) {
+            for (TokenRange range : updated.getTokenRanges())
+                assertThat(updated.getReplicas(keyspace.getName(), range)).isSameAs(previous.getReplicas(keyspace.getName(), range));
+        }
+    }
+
+    @Test(groups = "unit")
+    public void should_update_incrementally_when_host_added() {
+        Metadata previous = metadata(null);
+        allTokens.put(host(9, "dc1", "rack1"), tokens(VNODES));
+
+        checkIncrementalUpdate(previous);
+    }
+
+    @Test(groups = "unit")
+    public void should_update_incrementally_when_host_removed() {
+        Metadata previous = metadata(null);
+        allTokens.remove(allTokens.keySet().iterator().next());
+
+        checkIncrementalUpdate(previous);
+    }
+
+    @Test(groups = "unit")
+    public void should_update_incrementally_when_host_moves() {
+        Metadata previous = metadata(null);
+        allTokens.put(allTokens.keySet().iterator().next(), tokens(VNODES));
+
+        checkIncrementalUpdate(previous);
+    }
+
+    @Test(groups = "unit")
+    public void should_update_incrementally_when_host_changes_rack() {
+        Metadata previous = metadata(null);
+        // Still two racks in each datacenter, so only the tokens near that host are affected
+        for (Host host : allTokens.keySet()) {
+            if (host.getDatacenter().equals("dc1") && host.getRack().equals("rack1")) {
+                host.setLocationInfo("dc1", "rack2");
+                break;
+            }
+        }
+
+        checkIncrementalUpdate(previous);
+    }
+
+    /**
+     * Checks that updating the previous map yields the same replicas and ranges as a full rebuild, and that
+     * some replicas were reused.
+     */
+    private void checkIncrementalUpdate(Metadata previous) {
+        Metadata updated = metadata(previous.tokenMap);
+        Metadata rebuilt = metadata(null);
+
+        assertThat(updated.getTokenRanges()).isEqualTo(rebuilt.getTokenRanges());
+        for (KeyspaceMetadata keyspace : keyspaces) {
+            String name = keyspace.getName();
+            int reused = 0;
+            for (TokenRange range : updated.getTokenRanges()) {
+                Set<Host> replicas = updated.getReplicas(name, range);
+                assertThat(replicas).isEqualTo(rebuilt.getReplicas(name, range));
+                if (replicas == previous.getReplicas(name, range))
+                    reused += 1;
+            }
+            assertThat(reused).isGreaterThan(0);
+
+            for (Host host : allTokens.keySet())
+                assertThat(updated.getTokenRanges(name, host)).isEqualTo(rebuilt.getTokenRanges(name, host));
+
+            for (int i = 0; i < 100; i++) {
+                ByteBuffer key = ByteBuffer.wrap(("key" + i).getBytes());
+                assertThat(updated.getReplicas(name, key)).isEqualTo(rebuilt.getReplicas(name, key));
+            }
+        }
+    }
+
+    private Metadata metadata(Metadata.TokenMap previous) {
+        Metadata metadata = new Metadata(null);
+        metadata.tokenMap = Metadata.TokenMap.build(factory, allTokens, keyspaces, previous);
+        return metadata;
+    }
+
+    private List<String> tokens(int count) {
+        List<String> tokens = new ArrayList<String>(count);
+        for (int i = 0; i < count; i++)
+            tokens.add(Long.toString(random.nextLong()));
+        return tokens;
+    }
+
+    private static Host host(int i, String dc, String rack) {
+        Host host = new Host(new InetSocketAddress("127.0.0." + i, 9042), new ConvictionPolicy.Simple.Factory(), null);
+        host.setLocationInfo(dc, rack);
+        return host;
+    }
+
+    private static KeyspaceMetadata keyspace(String name, Map<String, String> replication) {
+        KeyspaceMetadata keyspace = mock(KeyspaceMetadata.class);
+        when(keyspace.getName()).thenReturn(name);
+        when(keyspace.replicationStrategy()).thenReturn(ReplicationStrategy.create(replication));
+        return keyspace;
+    }
+}
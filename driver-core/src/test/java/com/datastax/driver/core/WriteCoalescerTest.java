@@ -0,0 +1,81 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core;
+
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.*;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+public class WriteCoalescerTest {
+
+    @Test(groups = "unit")
+    public void should_coalesce_frames_when_max_frames_is_reached() throws Exception {
+        Channel channel = mock(Channel.class);
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        when(ctx.getChannel()).thenReturn(channel);
+        // A flusher that never runs, so that only the max frames threshold triggers flushes
+        ScheduledExecutorService flusher = mock(ScheduledExecutorService.class);
+
+        WriteCoalescer coalescer = new WriteCoalescer(flusher, 3, 0);
+        ChannelFuture[] futures = new ChannelFuture[3];
+        for (int i = 0; i < 3; i++) {
+            futures[i] = Channels.future(channel);
+            coalescer.writeRequested(ctx, new DownstreamMessageEvent(channel, futures[i], ChannelBuffers.wrappedBuffer(new byte[]{ (byte)i, (byte)i }), null));
+        }
+
+        ArgumentCaptor<ChannelEvent> captor = ArgumentCaptor.forClass(ChannelEvent.class);
+        verify(ctx, times(1)).sendDownstream(captor.capture());
+        MessageEvent batch = (MessageEvent)captor.getValue();
+        ChannelBuffer written = (ChannelBuffer)batch.getMessage();
+        assertThat(written.readableBytes()).isEqualTo(6);
+        assertThat(written.getByte(0)).isEqualTo((byte)0);
+        assertThat(written.getByte(5)).isEqualTo((byte)2);
+
+        // The individual futures complete with the batch
+        for (ChannelFuture future : futures)
+            assertThat(future.isDone()).isFalse();
+        batch.getFuture().setSuccess();
+        for (ChannelFuture future : futures)
+            assertThat(future.isSuccess()).isTrue();
+    }
+
+    @Test(groups = "unit")
+    public void should_flush_pending_frames_before_closing() throws Exception {
+        Channel channel = mock(Channel.class);
+        ChannelHandlerContext ctx = mock(ChannelHandlerContext.class);
+        when(ctx.getChannel()).thenReturn(channel);
+        ScheduledExecutorService flusher = mock(ScheduledExecutorService.class);
+
+        WriteCoalescer coalescer = new WriteCoalescer(flusher, 10, 0);
+        ChannelFuture future = Channels.future(channel);
+        coalescer.writeRequested(ctx, new DownstreamMessageEvent(channel, future, ChannelBuffers.wrappedBuffer(new byte[]{ 1 }), null));
+        verify(ctx, never()).sendDownstream(any(ChannelEvent.class));
+
+        coalescer.closeRequested(ctx, new DownstreamChannelStateEvent(channel, Channels.future(channel), ChannelState.OPEN, Boolean.FALSE));
+
+        ArgumentCaptor<ChannelEvent> captor = ArgumentCaptor.forClass(ChannelEvent.class);
+        verify(ctx, times(2)).sendDownstream(captor.capture());
+        assertThat(captor.getAllValues().get(0)).isInstanceOf(MessageEvent.class);
+        assertThat(captor.getAllValues().get(1)).isInstanceOf(ChannelStateEvent.class);
+    }
+}
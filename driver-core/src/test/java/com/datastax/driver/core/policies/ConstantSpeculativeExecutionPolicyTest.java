@@ -0,0 +1,51 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core.policies;
+
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConstantSpeculativeExecutionPolicyTest {
+
+    @Test(groups = "unit")
+    public void should_schedule_a_bounded_number_of_executions() {
+        SpeculativeExecutionPolicy policy = new ConstantSpeculativeExecutionPolicy(50, 2);
+        SpeculativeExecutionPolicy.SpeculativeExecutionPlan plan = policy.newPlan("ks", null);
+
+        assertThat(plan.nextExecution(null)).isEqualTo(50);
+        assertThat(plan.nextExecution(null)).isEqualTo(50);
+        assertThat(plan.nextExecution(null)).isLessThanOrEqualTo(0);
+
+        // Plans are independent
+        assertThat(policy.newPlan("ks", null).nextExecution(null)).isEqualTo(50);
+    }
+
+    @Test(groups = "unit", expectedExceptions = IllegalArgumentException.class)
+    public void should_reject_negative_delay() {
+        new ConstantSpeculativeExecutionPolicy(-1, 2);
+    }
+
+    @Test(groups = "unit", expectedExceptions = IllegalArgumentException.class)
+    public void should_reject_zero_executions() {
+        new ConstantSpeculativeExecutionPolicy(50, 0);
+    }
+
+    @Test(groups = "unit")
+    public void should_never_schedule_executions_with_default_policy() {
+        assertThat(NoSpeculativeExecutionPolicy.INSTANCE.newPlan("ks", null).nextExecution(null)).isLessThanOrEqualTo(0);
+    }
+}
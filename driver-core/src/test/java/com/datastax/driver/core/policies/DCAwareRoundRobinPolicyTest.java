@@ -1,17 +1,24 @@
 package com.datastax.driver.core.policies;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
+import com.google.common.collect.Lists;
+
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
 import org.testng.annotations.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.testng.Assert.assertEquals;
 
 import com.datastax.driver.core.*;
+import com.datastax.driver.core.Configuration;
 
 public class DCAwareRoundRobinPolicyTest {
     Logger policyLogger = Logger.getLogger(DCAwareRoundRobinPolicy.class);
@@ -157,6 +164,68 @@ public class DCAwareRoundRobinPolicyTest {
         }
     }
 
+    @Test(groups = "unit")
+    public void should_rotate_local_hosts_then_use_remote_hosts() {
+        Host local1 = host("dc1"), local2 = host("dc1"), local3 = host("dc1");
+        Host remote1 = host("dc2"), remote2 = host("dc2"), remote3 = host("dc2");
+        DCAwareRoundRobinPolicy policy = new DCAwareRoundRobinPolicy("dc1", 2);
+        policy.init(cluster(), Arrays.asList(local1, local2, local3, remote1, remote2, remote3));
+
+        List<Host> plan1 = queryPlan(policy, ConsistencyLevel.ONE);
+        List<Host> plan2 = queryPlan(policy, ConsistencyLevel.ONE);
+
+        assertThat(plan1.subList(0, 3)).containsOnly(local1, local2, local3);
+        assertThat(plan1.subList(3, 5)).containsOnly(remote1, remote2);
+        assertThat(plan1).hasSize(5);
+        assertThat(plan2.get(0)).isEqualTo(plan1.get(1));
+
+        assertThat(queryPlan(policy, ConsistencyLevel.LOCAL_ONE)).containsOnly(local1, local2, local3);
+    }
+
+    @Test(groups = "unit")
+    public void should_update_plans_and_distances_when_hosts_change() {
+        Host local1 = host("dc1"), local2 = host("dc1");
+        Host remote1 = host("dc2"), remote2 = host("dc2");
+        DCAwareRoundRobinPolicy policy = new DCAwareRoundRobinPolicy("dc1", 1);
+        policy.init(cluster(), Arrays.asList(local1, local2, remote1, remote2));
+
+        assertThat(policy.distance(local1)).isEqualTo(HostDistance.LOCAL);
+        assertThat(policy.distance(remote1)).isEqualTo(HostDistance.REMOTE);
+        assertThat(policy.distance(remote2)).isEqualTo(HostDistance.IGNORED);
+
+        policy.onDown(local1);
+        policy.onDown(remote1);
+
+        assertThat(queryPlan(policy, ConsistencyLevel.ONE)).containsExactly(local2, remote2);
+        assertThat(policy.distance(remote2)).isEqualTo(HostDistance.REMOTE);
+        assertThat(policy.distance(remote1)).isEqualTo(HostDistance.IGNORED);
+
+        Host remote3 = host("dc3");
+        policy.onUp(local1);
+        policy.onAdd(remote3);
+
+        assertThat(queryPlan(policy, ConsistencyLevel.ONE)).containsOnly(local1, local2, remote2, remote3);
+    }
+
+    private static List<Host> queryPlan(DCAwareRoundRobinPolicy policy, ConsistencyLevel cl) {
+        Statement statement = new SimpleStatement("select * from foo").setConsistencyLevel(cl);
+        return Lists.newArrayList(policy.newQueryPlan("ks", statement));
+    }
+
+    private static Host host(String dc) {
+        Host host = mock(Host.class);
+        when(host.getDatacenter()).thenReturn(dc);
+        return host;
+    }
+
+    private static Cluster cluster() {
+        Configuration configuration = mock(Configuration.class);
+        when(configuration.getQueryOptions()).thenReturn(new QueryOptions());
+        Cluster cluster = mock(Cluster.class);
+        when(cluster.getConfiguration()).thenReturn(configuration);
+        return cluster;
+    }
+
     /**
      * Wraps the policy under test to spy the calls to init.
      */
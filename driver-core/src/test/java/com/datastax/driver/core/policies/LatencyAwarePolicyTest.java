@@ -0,0 +1,125 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core.policies;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.collect.Lists;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.datastax.driver.core.*;
+
+public class LatencyAwarePolicyTest {
+
+    private Host host1, host2, host3;
+    private LatencyAwarePolicy policy;
+    private LatencyTracker tracker;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        host1 = mock(Host.class);
+        host2 = mock(Host.class);
+        host3 = mock(Host.class);
+        final List<Host> hosts = Arrays.asList(host1, host2, host3);
+
+        LoadBalancingPolicy childPolicy = mock(LoadBalancingPolicy.class);
+        when(childPolicy.newQueryPlan(anyString(), any(Statement.class))).thenAnswer(new Answer<Iterator<Host>>() {
+            @Override
+            public Iterator<Host> answer(InvocationOnMock invocation) throws Throwable {
+                return hosts.iterator();
+            }
+        });
+
+        policy = LatencyAwarePolicy.builder(childPolicy)
+                                   .withScoringPercentile(95.0)
+                                   .withScoringInterval(1, TimeUnit.SECONDS)
+                                   .withMininumMeasurements(10)
+                                   .withUpdateRate(10, TimeUnit.MILLISECONDS)
+                                   .build();
+
+        Cluster cluster = mock(Cluster.class);
+        policy.init(cluster, hosts);
+        ArgumentCaptor<LatencyTracker> captor = ArgumentCaptor.forClass(LatencyTracker.class);
+        verify(cluster).register(captor.capture());
+        tracker = captor.getValue();
+    }
+
+    @AfterMethod(groups = "unit")
+    public void tearDown() {
+        policy.close();
+    }
+
+    @Test(groups = "unit")
+    public void should_penalize_hosts_by_percentile_and_break_ties_with_in_flight_requests() throws InterruptedException {
+        // host1 is fast most of the time, but has spikes that an average would smooth out
+        for (int i = 0; i < 100; i++) {
+            tracker.update(host1, TimeUnit.MILLISECONDS.toNanos(i < 90 ? 1 : 500));
+            tracker.update(host2, TimeUnit.MILLISECONDS.toNanos(5));
+            tracker.update(host3, TimeUnit.MILLISECONDS.toNanos(5));
+        }
+        when(host2.getInFlightQueries()).thenReturn(5);
+        when(host3.getInFlightQueries()).thenReturn(1);
+
+        // Scores are only available once the first interval has elapsed
+        LatencyAwarePolicy.Snapshot snapshot = awaitScores();
+
+        assertThat(snapshot.getStats(host1).getLatencyScore()).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(490));
+        assertThat(snapshot.getStats(host2).getLatencyScore())
+            .isEqualTo(snapshot.getStats(host3).getLatencyScore())
+            .isBetween(TimeUnit.MILLISECONDS.toNanos(4), TimeUnit.MILLISECONDS.toNanos(6));
+
+        Iterator<Host> plan = policy.newQueryPlan("ks", new SimpleStatement("select * from foo"));
+        assertThat(Lists.newArrayList(plan)).containsExactly(host3, host2, host1);
+    }
+
+    @Test(groups = "unit", expectedExceptions = IllegalArgumentException.class)
+    public void should_reject_invalid_scoring_percentile() {
+        LatencyAwarePolicy.builder(mock(LoadBalancingPolicy.class)).withScoringPercentile(100.0);
+    }
+
+    private LatencyAwarePolicy.Snapshot awaitScores() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            LatencyAwarePolicy.Snapshot snapshot = policy.getScoresSnapshot();
+            if (snapshot.getAllStats().size() == 3 && hasScores(snapshot))
+                return snapshot;
+            TimeUnit.MILLISECONDS.sleep(10);
+        }
+        throw new AssertionError("Timed out waiting for scores");
+    }
+
+    private boolean hasScores(LatencyAwarePolicy.Snapshot snapshot) {
+        for (LatencyAwarePolicy.Snapshot.Stats stats : snapshot.getAllStats().values())
+            if (stats.getLatencyScore() < 0)
+                return false;
+        return true;
+    }
+}
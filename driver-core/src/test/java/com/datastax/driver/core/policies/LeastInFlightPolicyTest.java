@@ -0,0 +1,158 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.core.policies;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.datastax.driver.core.*;
+
+public class LeastInFlightPolicyTest {
+
+    private Host host1, host2, host3;
+    private LoadBalancingPolicy childPolicy;
+    private Metadata metadata;
+    private LeastInFlightPolicy policy;
+
+    @BeforeMethod(groups = "unit")
+    public void setup() {
+        host1 = mock(Host.class);
+        host2 = mock(Host.class);
+        host3 = mock(Host.class);
+        final List<Host> hosts = Arrays.asList(host1, host2, host3);
+
+        childPolicy = mock(LoadBalancingPolicy.class);
+        when(childPolicy.distance(any(Host.class))).thenReturn(HostDistance.LOCAL);
+        when(childPolicy.newQueryPlan(anyString(), any(Statement.class))).thenAnswer(new Answer<Iterator<Host>>() {
+            @Override
+            public Iterator<Host> answer(InvocationOnMock invocation) throws Throwable {
+                return hosts.iterator();
+            }
+        });
+
+        metadata = mock(Metadata.class);
+        Cluster cluster = mock(Cluster.class);
+        when(cluster.getMetadata()).thenReturn(metadata);
+
+        policy = new LeastInFlightPolicy(childPolicy);
+        policy.init(cluster, hosts);
+        policy.random = new FixedRandom(0);
+    }
+
+    @Test(groups = "unit")
+    public void should_pick_least_busy_of_first_two_hosts() {
+        when(host1.getInFlightQueries()).thenReturn(10);
+        when(host2.getInFlightQueries()).thenReturn(2);
+        when(host3.getInFlightQueries()).thenReturn(0);
+
+        assertThat(queryPlan(new SimpleStatement("select * from foo"))).containsExactly(host2, host1, host3);
+    }
+
+    @Test(groups = "unit")
+    public void should_pick_the_other_host_at_random() {
+        when(host1.getInFlightQueries()).thenReturn(10);
+        when(host2.getInFlightQueries()).thenReturn(2);
+        when(host3.getInFlightQueries()).thenReturn(0);
+        policy.random = new FixedRandom(1);
+
+        assertThat(queryPlan(new SimpleStatement("select * from foo"))).containsExactly(host3, host2, host1);
+    }
+
+    @Test(groups = "unit")
+    public void should_pick_the_other_host_among_a_bounded_number_of_hosts() {
+        final List<Host> hosts = Lists.newArrayList();
+        for (int i = 0; i < LeastInFlightPolicy.MAX_CANDIDATES + 3; i++)
+            hosts.add(mock(Host.class));
+        when(childPolicy.newQueryPlan(anyString(), any(Statement.class))).thenReturn(hosts.iterator());
+        when(hosts.get(0).getInFlightQueries()).thenReturn(10);
+        FixedRandom random = new FixedRandom(LeastInFlightPolicy.MAX_CANDIDATES - 1);
+        policy.random = random;
+
+        List<Host> expected = Lists.newArrayList(hosts);
+        Collections.swap(expected, 0, LeastInFlightPolicy.MAX_CANDIDATES);
+        assertThat(queryPlan(new SimpleStatement("select * from foo"))).isEqualTo(expected);
+        assertThat(random.lastBound).isEqualTo(LeastInFlightPolicy.MAX_CANDIDATES);
+    }
+
+    @Test(groups = "unit")
+    public void should_keep_child_order_if_first_host_is_not_busier() {
+        when(host1.getInFlightQueries()).thenReturn(2);
+        when(host2.getInFlightQueries()).thenReturn(2);
+
+        assertThat(queryPlan(new SimpleStatement("select * from foo"))).containsExactly(host1, host2, host3);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_compare_hosts_at_different_distances() {
+        when(childPolicy.distance(host2)).thenReturn(HostDistance.REMOTE);
+        when(host1.getInFlightQueries()).thenReturn(10);
+
+        assertThat(queryPlan(new SimpleStatement("select * from foo"))).containsExactly(host1, host2, host3);
+    }
+
+    @Test(groups = "unit")
+    public void should_not_prefer_non_replica() {
+        ByteBuffer routingKey = ByteBuffer.wrap(new byte[]{ 1 });
+        when(metadata.getReplicasOfInternalName("ks", routingKey)).thenReturn(ImmutableSet.of(host1));
+        when(host1.getInFlightQueries()).thenReturn(10);
+        Statement statement = new SimpleStatement("select * from foo").setRoutingKey(routingKey);
+
+        assertThat(queryPlan(statement)).containsExactly(host1, host2, host3);
+
+        when(metadata.getReplicasOfInternalName("ks", routingKey)).thenReturn(ImmutableSet.of(host1, host2));
+
+        assertThat(queryPlan(statement)).containsExactly(host2, host1, host3);
+    }
+
+    @Test(groups = "unit")
+    public void should_handle_plans_with_a_single_host() {
+        when(childPolicy.newQueryPlan(anyString(), any(Statement.class))).thenReturn(Collections.singletonList(host1).iterator());
+
+        assertThat(queryPlan(new SimpleStatement("select * from foo"))).containsExactly(host1);
+    }
+
+    private List<Host> queryPlan(Statement statement) {
+        return Lists.newArrayList(policy.newQueryPlan("ks", statement));
+    }
+
+    static class FixedRandom extends Random {
+        private final int value;
+        volatile int lastBound;
+
+        FixedRandom(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            lastBound = bound;
+            return value;
+        }
+    }
+}
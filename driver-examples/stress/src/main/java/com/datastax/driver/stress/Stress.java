@@ -58,6 +58,9 @@ public class Stress {
             accepts("print-delay", "The delay in seconds at which to report on the console").withRequiredArg().ofType(Integer.class).defaultsTo(5);
             accepts("compression", "Use compression (SNAPPY)");
             accepts("connections-per-host", "The number of connections per hosts (default: based on the number of threads)").withRequiredArg().ofType(Integer.class);
+            accepts("write-coalescing", "Coalesce writes on each connection (compare throughput with and without this option)");
+            accepts("coalescing-max-frames", "The maximum number of frames per coalesced write").withRequiredArg().ofType(Integer.class).defaultsTo(SocketOptions.DEFAULT_WRITE_COALESCING_MAX_FRAMES);
+            accepts("coalescing-delay-us", "The delay in microseconds before flushing coalesced writes").withRequiredArg().ofType(Long.class).defaultsTo(SocketOptions.DEFAULT_WRITE_COALESCING_DELAY_MICROS);
         }};
         String msg = "Where <generator> can be one of " + generators.keySet() + '\n'
                    + "You can get more help on a particular generator with: stress <generator> -h";
@@ -222,13 +225,22 @@ public class Stress {
         System.out.println("  mode:                 " + (async ? "asynchronous" : "blocking"));
         System.out.println("  per-host connections: " + maxConnections);
         System.out.println("  compression:          " + options.has("compression"));
+        System.out.println("  write coalescing:     " + (options.has("write-coalescing")
+                                                         ? "max " + options.valueOf("coalescing-max-frames") + " frames, " + options.valueOf("coalescing-delay-us") + "us delay"
+                                                         : "disabled"));
+
+        SocketOptions socketOptions = new SocketOptions().setTcpNoDelay(true);
+        if (options.has("write-coalescing"))
+            socketOptions.setWriteCoalescingEnabled(true)
+                         .setWriteCoalescingMaxFrames((Integer)options.valueOf("coalescing-max-frames"))
+                         .setWriteCoalescingDelayMicros((Long)options.valueOf("coalescing-delay-us"));
 
         try {
             // Create session to hosts
             Cluster cluster = new Cluster.Builder()
                                          .addContactPoints(String.valueOf(options.valueOf("ip")))
                                          .withPoolingOptions(pools)
-                                         .withSocketOptions(new SocketOptions().setTcpNoDelay(true))
+                                         .withSocketOptions(socketOptions)
                                          .build();
 
             if (options.has("compression"))
@@ -0,0 +1,252 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.mapping;
+
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import static org.objectweb.asm.Opcodes.*;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.Row;
+
+/**
+ * Generates the classes used by {@link BytecodeMapper} with ASM.
+ * <p>
+ * Each class is defined in its own class loader, whose parent is the loader of the entity class (so that the
+ * entity class is visible even if the driver is loaded by a parent loader), and that resolves the driver types
+ * used by generated code from the driver's loader. This is also what the JDK does for its own reflection
+ * accessors, and it allows generated classes to be unloaded with the mapper that uses them.
+ * <p>
+ * This class is only loaded if ASM is available (see {@link BytecodeMapper#isAvailable()}).
+ */
+class AccessorGenerator {
+
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    // The typed Row getter and BoundStatement setter for each Java type that has them.
+    private static final Map<Class<?>, String[]> TYPED_ACCESSORS = new HashMap<Class<?>, String[]>();
+    static {
+        TYPED_ACCESSORS.put(int.class, new String[]{ "getInt", "setInt" });
+        TYPED_ACCESSORS.put(long.class, new String[]{ "getLong", "setLong" });
+        TYPED_ACCESSORS.put(boolean.class, new String[]{ "getBool", "setBool" });
+        TYPED_ACCESSORS.put(float.class, new String[]{ "getFloat", "setFloat" });
+        TYPED_ACCESSORS.put(double.class, new String[]{ "getDouble", "setDouble" });
+        TYPED_ACCESSORS.put(String.class, new String[]{ "getString", "setString" });
+        TYPED_ACCESSORS.put(UUID.class, new String[]{ "getUUID", "setUUID" });
+        TYPED_ACCESSORS.put(Date.class, new String[]{ "getDate", "setDate" });
+        TYPED_ACCESSORS.put(BigInteger.class, new String[]{ "getVarint", "setVarint" });
+        TYPED_ACCESSORS.put(BigDecimal.class, new String[]{ "getDecimal", "setDecimal" });
+        TYPED_ACCESSORS.put(InetAddress.class, new String[]{ "getInet", "setInet" });
+        // Like the generic path, don't check the CQL type of blobs
+        TYPED_ACCESSORS.put(ByteBuffer.class, new String[]{ "getBytesUnsafe", "setBytesUnsafe" });
+    }
+
+    private static final String OBJECT = Type.getInternalName(Object.class);
+    private static final String ROW = Type.getInternalName(Row.class);
+    private static final String BOUND_STATEMENT = Type.getInternalName(BoundStatement.class);
+
+    /**
+     * Whether values of the property can be read and bound with typed accessors, i.e. whether
+     * {@link BytecodeMapper.PropertyAccessor#read} and {@link BytecodeMapper.PropertyAccessor#bind} can be used.
+     */
+    static boolean isTyped(Class<?> type, Method readMethod, Method writeMethod) {
+        return TYPED_ACCESSORS.containsKey(type)
+            && readMethod.getReturnType() == type
+            && writeMethod.getParameterTypes()[0] == type;
+    }
+
+    static BytecodeMapper.Instantiator generateInstantiator(Class<?> entityClass) throws Exception {
+        String entity = Type.getInternalName(entityClass);
+        String name = className(entityClass, "Instantiator");
+        ClassWriter cw = newClass(name, BytecodeMapper.Instantiator.class);
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "newInstance", "()Ljava/lang/Object;", null, null);
+        mv.visitCode();
+        mv.visitTypeInsn(NEW, entity);
+        mv.visitInsn(DUP);
+        mv.visitMethodInsn(INVOKESPECIAL, entity, "<init>", "()V", false);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        return (BytecodeMapper.Instantiator)define(entityClass, name, cw).newInstance();
+    }
+
+    static BytecodeMapper.PropertyAccessor generatePropertyAccessor(Class<?> entityClass, String property, Method readMethod, Method writeMethod, boolean typed) throws Exception {
+        String entity = Type.getInternalName(entityClass);
+        String name = className(entityClass, property);
+        ClassWriter cw = newClass(name, BytecodeMapper.PropertyAccessor.class);
+
+        Type getterType = Type.getType(readMethod.getReturnType());
+        Type setterType = Type.getType(writeMethod.getParameterTypes()[0]);
+        String getterDesc = Type.getMethodDescriptor(readMethod);
+        String setterDesc = Type.getMethodDescriptor(writeMethod);
+
+        // Object get(Object entity): return entity.getX() (boxed if needed)
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "get", "(Ljava/lang/Object;)Ljava/lang/Object;", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, entity);
+        mv.visitMethodInsn(INVOKEVIRTUAL, entity, readMethod.getName(), getterDesc, false);
+        box(mv, getterType);
+        mv.visitInsn(ARETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        // void set(Object entity, Object value): entity.setX((X)value) (unboxed if needed)
+        mv = cw.visitMethod(ACC_PUBLIC, "set", "(Ljava/lang/Object;Ljava/lang/Object;)V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 1);
+        mv.visitTypeInsn(CHECKCAST, entity);
+        mv.visitVarInsn(ALOAD, 2);
+        unbox(mv, setterType);
+        mv.visitMethodInsn(INVOKEVIRTUAL, entity, writeMethod.getName(), setterDesc, false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+
+        if (typed) {
+            String[] accessors = TYPED_ACCESSORS.get(readMethod.getReturnType());
+            String typeDesc = getterType.getDescriptor();
+
+            // void read(Object entity, Row row, int i): if (!row.isNull(i)) entity.setX(row.getX(i))
+            mv = cw.visitMethod(ACC_PUBLIC, "read", "(Ljava/lang/Object;L" + ROW + ";I)V", null, null);
+            mv.visitCode();
+            Label end = new Label();
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitMethodInsn(INVOKEINTERFACE, ROW, "isNull", "(I)Z", true);
+            mv.visitJumpInsn(IFNE, end);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitTypeInsn(CHECKCAST, entity);
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitMethodInsn(INVOKEINTERFACE, ROW, accessors[0], "(I)" + typeDesc, true);
+            mv.visitMethodInsn(INVOKEVIRTUAL, entity, writeMethod.getName(), setterDesc, false);
+            mv.visitLabel(end);
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            // void bind(Object entity, BoundStatement statement, int i): statement.setX(i, entity.getX())
+            mv = cw.visitMethod(ACC_PUBLIC, "bind", "(Ljava/lang/Object;L" + BOUND_STATEMENT + ";I)V", null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, 2);
+            mv.visitVarInsn(ILOAD, 3);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitTypeInsn(CHECKCAST, entity);
+            mv.visitMethodInsn(INVOKEVIRTUAL, entity, readMethod.getName(), getterDesc, false);
+            mv.visitMethodInsn(INVOKEVIRTUAL, BOUND_STATEMENT, accessors[1], "(I" + typeDesc + ")L" + BOUND_STATEMENT + ';', false);
+            mv.visitInsn(POP);
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+        }
+
+        return (BytecodeMapper.PropertyAccessor)define(entityClass, name, cw).newInstance();
+    }
+
+    private static String className(Class<?> entityClass, String suffix) {
+        return entityClass.getName() + "$$DriverMapping$" + suffix + '$' + COUNTER.incrementAndGet();
+    }
+
+    private static ClassWriter newClass(String name, Class<?> implemented) {
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        // Java 5 class files don't need stack map frames
+        cw.visit(V1_5, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, name.replace('.', '/'), null, OBJECT,
+                 new String[]{ Type.getInternalName(implemented) });
+
+        MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(ALOAD, 0);
+        mv.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+        mv.visitInsn(RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+        return cw;
+    }
+
+    private static Class<?> define(Class<?> entityClass, String name, ClassWriter cw) {
+        cw.visitEnd();
+        byte[] bytes = cw.toByteArray();
+        return new GeneratedClassLoader(entityClass.getClassLoader()).define(name, bytes);
+    }
+
+    private static void box(MethodVisitor mv, Type type) {
+        Type boxed = boxedType(type);
+        if (boxed != null)
+            mv.visitMethodInsn(INVOKESTATIC, boxed.getInternalName(), "valueOf", "(" + type.getDescriptor() + ")" + boxed.getDescriptor(), false);
+    }
+
+    private static void unbox(MethodVisitor mv, Type type) {
+        Type boxed = boxedType(type);
+        if (boxed == null) {
+            mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+        } else {
+            mv.visitTypeInsn(CHECKCAST, boxed.getInternalName());
+            mv.visitMethodInsn(INVOKEVIRTUAL, boxed.getInternalName(), type.getClassName() + "Value", "()" + type.getDescriptor(), false);
+        }
+    }
+
+    private static Type boxedType(Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN: return Type.getType(Boolean.class);
+            case Type.CHAR:    return Type.getType(Character.class);
+            case Type.BYTE:    return Type.getType(Byte.class);
+            case Type.SHORT:   return Type.getType(Short.class);
+            case Type.INT:     return Type.getType(Integer.class);
+            case Type.FLOAT:   return Type.getType(Float.class);
+            case Type.LONG:    return Type.getType(Long.class);
+            case Type.DOUBLE:  return Type.getType(Double.class);
+            default:           return null;
+        }
+    }
+
+    private static class GeneratedClassLoader extends ClassLoader {
+
+        // The driver types that generated classes reference
+        private static final Map<String, Class<?>> DRIVER_CLASSES = new HashMap<String, Class<?>>();
+        static {
+            for (Class<?> klass : new Class<?>[]{ Row.class, BoundStatement.class, BytecodeMapper.Instantiator.class, BytecodeMapper.PropertyAccessor.class })
+                DRIVER_CLASSES.put(klass.getName(), klass);
+        }
+
+        GeneratedClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            Class<?> klass = DRIVER_CLASSES.get(name);
+            return klass != null ? klass : super.loadClass(name, resolve);
+        }
+
+        Class<?> define(String name, byte[] bytes) {
+            return defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.mapping;
+
+import java.beans.IntrospectionException;
+import java.beans.PropertyDescriptor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.datastax.driver.core.*;
+
+/**
+ * An {@link EntityMapper} that accesses entities through classes generated at creation time, instead of
+ * reflection.
+ * <p>
+ * For each mapped property, a small class that calls the getter and setter directly is generated (see
+ * {@link AccessorGenerator}). For properties of a type that {@code Row} and {@code BoundStatement} have typed
+ * accessors for (primitive types, {@code String}, {@code UUID}...), the generated class also reads values from
+ * rows and binds them to statements directly, without boxing them nor going through {@link DataType#serialize}
+ * and {@link DataType#deserialize}.
+ * <p>
+ * Generation requires ASM, an optional dependency of the mapper, as well as a public entity class with a public
+ * getter and setter for the property. The other properties (and enums and UDTs, that need conversions) use
+ * {@link ReflectionMapper}'s column mappers.
+ */
+class BytecodeMapper<T> extends EntityMapper<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BytecodeMapper.class);
+
+    private static final boolean ASM_AVAILABLE = isAsmAvailable();
+
+    private static BytecodeFactory factory = new BytecodeFactory();
+
+    private final Instantiator instantiator;
+
+    private BytecodeMapper(Class<T> entityClass, String keyspace, String table, ConsistencyLevel writeConsistency, ConsistencyLevel readConsistency) {
+        super(entityClass, keyspace, table, writeConsistency, readConsistency);
+        this.instantiator = createInstantiator(entityClass);
+    }
+
+    /**
+     * Whether bytecode generation is available, i.e. whether ASM is in the classpath.
+     */
+    static boolean isAvailable() {
+        return ASM_AVAILABLE;
+    }
+
+    public static Factory factory() {
+        return factory;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T newEntity() {
+        if (instantiator != null)
+            return (T)instantiator.newInstance();
+        try {
+            return entityClass.newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException("Can't create an instance of " + entityClass.getName());
+        }
+    }
+
+    private static Instantiator createInstantiator(Class<?> entityClass) {
+        try {
+            if (Modifier.isPublic(entityClass.getModifiers()) && !Modifier.isAbstract(entityClass.getModifiers())
+                && Modifier.isPublic(entityClass.getConstructor().getModifiers()))
+                return AccessorGenerator.generateInstantiator(entityClass);
+        } catch (NoSuchMethodException e) {
+            // Fall back to Class.newInstance, that will report the error
+        } catch (Throwable t) {
+            logger.warn("Could not generate instantiator for {}, falling back to reflection", entityClass.getName(), t);
+        }
+        return null;
+    }
+
+    private static boolean isAsmAvailable() {
+        try {
+            Class.forName("org.objectweb.asm.ClassWriter", false, BytecodeMapper.class.getClassLoader());
+            return true;
+        } catch (Throwable t) {
+            return false;
+        }
+    }
+
+    /**
+     * Creates entities. Implemented by generated classes.
+     * <p>
+     * This is only public so that generated classes (that live in another class loader) can implement it.
+     */
+    public interface Instantiator {
+        Object newInstance();
+    }
+
+    /**
+     * Accesses a property of entities. Implemented by generated classes.
+     * <p>
+     * This is only public so that generated classes (that live in another class loader) can implement it.
+     */
+    public interface PropertyAccessor {
+        Object get(Object entity);
+
+        void set(Object entity, Object value);
+
+        // Only implemented for properties of a type with typed accessors, see AccessorGenerator.isTyped
+        void read(Object entity, Row row, int i);
+
+        void bind(Object entity, BoundStatement statement, int i);
+    }
+
+    private static class GeneratedColumnMapper<T> extends ColumnMapper<T> {
+
+        private final PropertyAccessor accessor;
+        private final boolean typed;
+
+        private GeneratedColumnMapper(Field field, DataType type, int position, PropertyAccessor accessor, boolean typed) {
+            super(field, type, position);
+            this.accessor = accessor;
+            this.typed = typed;
+        }
+
+        @Override
+        public Object getValue(T entity) {
+            return accessor.get(entity);
+        }
+
+        @Override
+        public void setValue(T entity, Object value) {
+            accessor.set(entity, value);
+        }
+
+        @Override
+        public void readValue(T entity, Row row, int i, ProtocolVersion protocolVersion) {
+            if (typed)
+                accessor.read(entity, row, i);
+            else
+                super.readValue(entity, row, i, protocolVersion);
+        }
+
+        @Override
+        public void bindValue(T entity, BoundStatement statement, int i, ProtocolVersion protocolVersion) {
+            if (typed)
+                accessor.bind(entity, statement, i);
+            else
+                super.bindValue(entity, statement, i, protocolVersion);
+        }
+    }
+
+    private static class BytecodeFactory implements Factory {
+
+        public <T> EntityMapper<T> create(Class<T> entityClass, String keyspace, String table, ConsistencyLevel writeConsistency, ConsistencyLevel readConsistency) {
+            return new BytecodeMapper<T>(entityClass, keyspace, table, writeConsistency, readConsistency);
+        }
+
+        public <T> ColumnMapper<T> createColumnMapper(Class<T> entityClass, Field field, int position, MappingManager mappingManager) {
+            ColumnMapper<T> mapper = null;
+            if (!field.getType().isEnum() && !TypeMappings.isMappedUDT(field.getType()))
+                mapper = createGeneratedColumnMapper(entityClass, field, position, mappingManager);
+            return mapper == null
+                 ? ReflectionMapper.factory().createColumnMapper(entityClass, field, position, mappingManager)
+                 : mapper;
+        }
+
+        private <T> ColumnMapper<T> createGeneratedColumnMapper(Class<T> entityClass, Field field, int position, MappingManager mappingManager) {
+            DataType type;
+            if (field.getGenericType() instanceof ParameterizedType) {
+                InferredCQLType inferredCQLType = InferredCQLType.from(field, mappingManager);
+                // Collections of UDTs need conversions, leave them to the reflection mapper
+                if (inferredCQLType.containsMappedUDT)
+                    return null;
+                type = inferredCQLType.dataType;
+            } else {
+                type = ReflectionMapper.extractSimpleType(field);
+            }
+
+            PropertyDescriptor pd;
+            try {
+                pd = new PropertyDescriptor(field.getName(), field.getDeclaringClass());
+            } catch (IntrospectionException e) {
+                // Let the reflection mapper report the error
+                return null;
+            }
+            Method readMethod = pd.getReadMethod();
+            Method writeMethod = pd.getWriteMethod();
+            if (!Modifier.isPublic(entityClass.getModifiers()) || !Modifier.isPublic(readMethod.getModifiers()) || !Modifier.isPublic(writeMethod.getModifiers()))
+                return null;
+
+            try {
+                boolean typed = AccessorGenerator.isTyped(field.getType(), readMethod, writeMethod);
+                PropertyAccessor accessor = AccessorGenerator.generatePropertyAccessor(entityClass, field.getName(), readMethod, writeMethod, typed);
+                return new GeneratedColumnMapper<T>(field, type, position, accessor, typed);
+            } catch (Throwable t) {
+                logger.warn("Could not generate accessor for {}.{}, falling back to reflection", entityClass.getName(), field.getName(), t);
+                return null;
+            }
+        }
+    }
+}
@@ -16,8 +16,9 @@
 package com.datastax.driver.mapping;
 
 import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
 
-import com.datastax.driver.core.DataType;
+import com.datastax.driver.core.*;
 import static com.datastax.driver.core.querybuilder.QueryBuilder.quote;
 
 abstract class ColumnMapper<T> {
@@ -33,6 +34,7 @@ abstract class ColumnMapper<T> {
     protected final DataType dataType;
     protected final Kind kind;
     protected final int position;
+    private final ColumnHandle columnHandle;
 
     protected ColumnMapper(Field field, DataType dataType, int position) {
         this(AnnotationParser.columnName(field), field.getName(), field.getType(), dataType, AnnotationParser.kind(field), position);
@@ -45,15 +47,51 @@ abstract class ColumnMapper<T> {
         this.dataType = dataType;
         this.kind = kind;
         this.position = position;
+        this.columnHandle = ColumnHandle.of(getColumnName());
     }
 
     public abstract Object getValue(T entity);
     public abstract void setValue(T entity, Object value);
 
+    /**
+     * Sets the property of the entity to the value of this column in a row, unless it is null.
+     * <p>
+     * Implementations that know the type of the property can override this to read the
+     * value without going through {@link #setValue(Object, Object)}.
+     */
+    public void readValue(T entity, Row row, int i, ProtocolVersion protocolVersion) {
+        ByteBuffer bytes = row.getBytesUnsafe(i);
+        if (bytes != null)
+            setValue(entity, dataType.deserialize(bytes, protocolVersion));
+    }
+
+    /**
+     * Binds the value of the property of the entity to the {@code i}th variable of a statement.
+     * <p>
+     * Implementations that know the type of the property can override this to bind the
+     * value without going through {@link #getValue(Object)}.
+     */
+    public void bindValue(T entity, BoundStatement statement, int i, ProtocolVersion protocolVersion) {
+        Object value = getValue(entity);
+        statement.setBytesUnsafe(i, value == null ? null : dataType.serialize(value, protocolVersion));
+    }
+
     public String getColumnName() {
         return quote(columnName);
     }
 
+    /**
+     * The index of this column in the provided row.
+     *
+     * @throws IllegalArgumentException if the row doesn't have this column.
+     */
+    public int indexIn(Row row) {
+        int i = row.getColumnDefinitions().getIndexOf(columnHandle);
+        if (i < 0)
+            throw new IllegalArgumentException(getColumnName() + " is not a column defined in this metadata");
+        return i;
+    }
+
     public DataType getDataType() {
         return dataType;
     }
@@ -122,10 +122,8 @@ public class Mapper<T> {
 
         BoundStatement bs = ps.bind();
         int i = 0;
-        for (ColumnMapper<T> cm : mapper.allColumns()) {
-            Object value = cm.getValue(entity);
-            bs.setBytesUnsafe(i++, value == null ? null : cm.getDataType().serialize(value, protocolVersion));
-        }
+        for (ColumnMapper<T> cm : mapper.allColumns())
+            cm.bindValue(entity, bs, i++, protocolVersion);
 
         if (mapper.writeConsistency != null)
             bs.setConsistencyLevel(mapper.writeConsistency);
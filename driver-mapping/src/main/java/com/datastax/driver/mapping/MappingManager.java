@@ -31,6 +31,11 @@ import com.datastax.driver.mapping.annotations.UDT;
  */
 public class MappingManager {
 
+    // Generate accessors for entities if ASM is in the classpath, otherwise use reflection
+    private static final EntityMapper.Factory ENTITY_MAPPER_FACTORY = BytecodeMapper.isAvailable()
+                                                                    ? BytecodeMapper.factory()
+                                                                    : ReflectionMapper.factory();
+
     private final Session session;
 
     private volatile Map<Class<?>, Mapper<?>> mappers = Collections.<Class<?>, Mapper<?>>emptyMap();
@@ -116,7 +121,7 @@ public class MappingManager {
             synchronized (mappers) {
                 mapper = (Mapper<T>)mappers.get(klass);
                 if (mapper == null) {
-                    EntityMapper<T> entityMapper = AnnotationParser.parseEntity(klass, ReflectionMapper.factory(), this);
+                    EntityMapper<T> entityMapper = AnnotationParser.parseEntity(klass, ENTITY_MAPPER_FACTORY, this);
                     mapper = new Mapper<T>(this, klass, entityMapper);
                     Map<Class<?>, Mapper<?>> newMappers = new HashMap<Class<?>, Mapper<?>>(mappers);
                     newMappers.put(klass, mapper);
@@ -134,7 +139,7 @@ public class MappingManager {
             synchronized (udtMappers) {
                 mapper = (UDTMapper<T>)udtMappers.get(klass);
                 if (mapper == null) {
-                    EntityMapper<T> entityMapper = AnnotationParser.parseUDT(klass, ReflectionMapper.factory(), this);
+                    EntityMapper<T> entityMapper = AnnotationParser.parseUDT(klass, ENTITY_MAPPER_FACTORY, this);
                     mapper = new UDTMapper<T>(entityMapper, session);
                     Map<Class<?>, UDTMapper<?>> newMappers = new HashMap<Class<?>, UDTMapper<?>>(udtMappers);
                     newMappers.put(klass, mapper);
@@ -15,7 +15,6 @@
  */
 package com.datastax.driver.mapping;
 
-import java.nio.ByteBuffer;
 import java.util.*;
 
 import com.datastax.driver.core.*;
@@ -37,11 +36,8 @@ public class Result<T> implements Iterable<T> {
 
     private T map(Row row) {
         T entity = mapper.newEntity();
-        for (ColumnMapper<T> cm : mapper.allColumns()) {
-            ByteBuffer bytes = row.getBytesUnsafe(cm.getColumnName());
-            if (bytes != null)
-                cm.setValue(entity, cm.getDataType().deserialize(bytes, protocolVersion));
-        }
+        for (ColumnMapper<T> cm : mapper.allColumns())
+            cm.readValue(entity, row, cm.indexIn(row), protocolVersion);
         return entity;
     }
 
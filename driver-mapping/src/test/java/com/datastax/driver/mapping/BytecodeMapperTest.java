@@ -0,0 +1,152 @@
+/*
+ *      Copyright (C) 2012-2014 DataStax Inc.
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package com.datastax.driver.mapping;
+
+import java.util.*;
+
+import com.google.common.collect.Lists;
+import org.testng.annotations.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import com.datastax.driver.core.BoundStatement;
+import com.datastax.driver.core.ProtocolVersion;
+import com.datastax.driver.core.Row;
+import com.datastax.driver.mapping.annotations.PartitionKey;
+import com.datastax.driver.mapping.annotations.Table;
+
+public class BytecodeMapperTest {
+
+    @Test(groups = "unit")
+    public void should_generate_accessors() {
+        EntityMapper<User> mapper = AnnotationParser.parseEntity(User.class, BytecodeMapper.factory(), null);
+
+        User user = mapper.newEntity();
+        column(mapper, "\"id\"").setValue(user, 1);
+        column(mapper, "\"name\"").setValue(user, "foo");
+        column(mapper, "\"visits\"").setValue(user, 3L);
+        column(mapper, "\"tags\"").setValue(user, Lists.newArrayList("a", "b"));
+
+        assertThat(user.getId()).isEqualTo(1);
+        assertThat(user.getName()).isEqualTo("foo");
+        assertThat(user.getVisits()).isEqualTo(3L);
+        assertThat(user.getTags()).containsExactly("a", "b");
+        assertThat(column(mapper, "\"id\"").getValue(user)).isEqualTo(1);
+        assertThat(column(mapper, "\"visits\"").getValue(user)).isEqualTo(3L);
+    }
+
+    @Test(groups = "unit")
+    public void should_read_and_bind_typed_values_directly() {
+        EntityMapper<User> mapper = AnnotationParser.parseEntity(User.class, BytecodeMapper.factory(), null);
+        ColumnMapper<User> id = column(mapper, "\"id\"");
+        ColumnMapper<User> name = column(mapper, "\"name\"");
+
+        Row row = mock(Row.class);
+        when(row.getInt(0)).thenReturn(42);
+        when(row.isNull(1)).thenReturn(true);
+
+        User user = mapper.newEntity();
+        user.setName("foo");
+        id.readValue(user, row, 0, ProtocolVersion.V3);
+        name.readValue(user, row, 1, ProtocolVersion.V3);
+
+        assertThat(user.getId()).isEqualTo(42);
+        // Null values are not set
+        assertThat(user.getName()).isEqualTo("foo");
+        verify(row, never()).getBytesUnsafe(anyInt());
+
+        BoundStatement statement = mock(BoundStatement.class);
+        id.bindValue(user, statement, 0, ProtocolVersion.V3);
+        name.bindValue(user, statement, 1, ProtocolVersion.V3);
+
+        verify(statement).setInt(0, 42);
+        verify(statement).setString(1, "foo");
+    }
+
+    @Test(groups = "unit")
+    public void should_fall_back_to_reflection_for_non_public_entities() {
+        EntityMapper<HiddenUser> mapper = AnnotationParser.parseEntity(HiddenUser.class, BytecodeMapper.factory(), null);
+
+        HiddenUser user = mapper.newEntity();
+        column(mapper, "\"id\"").setValue(user, 1);
+
+        assertThat(user.getId()).isEqualTo(1);
+        assertThat(column(mapper, "\"id\"").getValue(user)).isEqualTo(1);
+    }
+
+    private static <T> ColumnMapper<T> column(EntityMapper<T> mapper, String name) {
+        for (ColumnMapper<T> column : mapper.allColumns())
+            if (column.getColumnName().equals(name))
+                return column;
+        throw new AssertionError("No column " + name);
+    }
+
+    @Table(keyspace = "ks", name = "users")
+    public static class User {
+        @PartitionKey
+        private int id;
+        private String name;
+        private Long visits;
+        private List<String> tags;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Long getVisits() {
+            return visits;
+        }
+
+        public void setVisits(Long visits) {
+            this.visits = visits;
+        }
+
+        public List<String> getTags() {
+            return tags;
+        }
+
+        public void setTags(List<String> tags) {
+            this.tags = tags;
+        }
+    }
+
+    @Table(keyspace = "ks", name = "users")
+    static class HiddenUser {
+        @PartitionKey
+        private int id;
+
+        public int getId() {
+            return id;
+        }
+
+        public void setId(int id) {
+            this.id = id;
+        }
+    }
+}